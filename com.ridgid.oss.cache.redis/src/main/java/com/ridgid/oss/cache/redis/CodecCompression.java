@@ -0,0 +1,121 @@
+package com.ridgid.oss.cache.redis;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+
+/**
+ * Compression of the values framed by a {@link RidgidKryoCodec}. The id of each compression is written in the frame
+ * header of the values, so ids must never change. {@link #LZ4} and {@link #SNAPPY} need the optional lz4-java and
+ * snappy-java dependencies at run time; their classes are only loaded once a value is compressed or decompressed with
+ * them.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public enum CodecCompression {
+
+    NONE(0) {
+        @Override
+        int maxCompressedLength(int length) {
+            return length;
+        }
+
+        @Override
+        int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) {
+            System.arraycopy(src, srcOffset, dest, destOffset, length);
+            return length;
+        }
+
+        @Override
+        void decompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int decompressedLength) {
+            System.arraycopy(src, srcOffset, dest, destOffset, decompressedLength);
+        }
+    },
+
+    /**
+     * Fastest to compress and decompress, with a moderate compression ratio
+     */
+    LZ4(1) {
+        @Override
+        int maxCompressedLength(int length) {
+            return Lz4.COMPRESSOR.maxCompressedLength(length);
+        }
+
+        @Override
+        int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) {
+            return Lz4.COMPRESSOR.compress(src, srcOffset, length, dest, destOffset, dest.length - destOffset);
+        }
+
+        @Override
+        void decompress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset, int decompressedLength) {
+            Lz4.DECOMPRESSOR.decompress(src, srcOffset, dest, destOffset, decompressedLength);
+        }
+    },
+
+    SNAPPY(2) {
+        @Override
+        int maxCompressedLength(int length) {
+            return Snappy.maxCompressedLength(length);
+        }
+
+        @Override
+        int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IOException {
+            return Snappy.compress(src, srcOffset, length, dest, destOffset);
+        }
+
+        @Override
+        void decompress(byte[] src,
+                        int srcOffset,
+                        int length,
+                        byte[] dest,
+                        int destOffset,
+                        int decompressedLength) throws IOException {
+            if (Snappy.uncompress(src, srcOffset, length, dest, destOffset) != decompressedLength)
+                throw new IOException("Snappy value decompressed to an unexpected length");
+        }
+    };
+
+    private final int id;
+
+    CodecCompression(int id) {
+        this.id = id;
+    }
+
+    /**
+     * @return id of the compression, as written in frame headers
+     */
+    public int id() {
+        return id;
+    }
+
+    /**
+     * @throws IOException if no compression has the id, e.g. the value was written by a newer version of the codec
+     */
+    static CodecCompression ofId(int id) throws IOException {
+        for (CodecCompression compression : values())
+            if (compression.id == id) return compression;
+        throw new IOException("Unknown compression id " + id);
+    }
+
+    abstract int maxCompressedLength(int length);
+
+    /**
+     * @return length of the compressed bytes written to {@code dest}, which must hold at least
+     * {@link #maxCompressedLength(int)} bytes from {@code destOffset}
+     */
+    abstract int compress(byte[] src, int srcOffset, int length, byte[] dest, int destOffset) throws IOException;
+
+    abstract void decompress(byte[] src,
+                             int srcOffset,
+                             int length,
+                             byte[] dest,
+                             int destOffset,
+                             int decompressedLength) throws IOException;
+
+    private static final class Lz4 {
+        private static final LZ4Compressor       COMPRESSOR   = LZ4Factory.fastestInstance().fastCompressor();
+        private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+    }
+}
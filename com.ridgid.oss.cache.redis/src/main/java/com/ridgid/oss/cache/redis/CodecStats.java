@@ -0,0 +1,100 @@
+package com.ridgid.oss.cache.redis;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live statistics of the values encoded and decoded by a {@link RidgidKryoCodec} that frames its values, shared by
+ * the copies Redisson makes of the codec. Compare {@link #compressionRatio()} with the encode and decode times to
+ * choose the compression and threshold of each cache.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class CodecStats {
+
+    private final LongAdder encodedCount    = new LongAdder();
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder serializedBytes = new LongAdder();
+    private final LongAdder encodedBytes    = new LongAdder();
+    private final LongAdder encodeTimeNanos = new LongAdder();
+    private final LongAdder decodedCount    = new LongAdder();
+    private final LongAdder decodeTimeNanos = new LongAdder();
+
+    void recordEncode(int serializedLength, int encodedLength, boolean compressed, long durationNanos) {
+        encodedCount.increment();
+        if (compressed) compressedCount.increment();
+        serializedBytes.add(serializedLength);
+        encodedBytes.add(encodedLength);
+        encodeTimeNanos.add(durationNanos);
+    }
+
+    void recordDecode(long durationNanos) {
+        decodedCount.increment();
+        decodeTimeNanos.add(durationNanos);
+    }
+
+    public long encodedCount() {
+        return encodedCount.sum();
+    }
+
+    /**
+     * @return number of values encoded that were large enough to compress and compressed to fewer bytes
+     */
+    public long compressedCount() {
+        return compressedCount.sum();
+    }
+
+    /**
+     * @return total length of the values encoded as serialized by Kryo, before compression
+     */
+    public long serializedBytes() {
+        return serializedBytes.sum();
+    }
+
+    /**
+     * @return total length of the values encoded as sent to Redis, including frame headers
+     */
+    public long encodedBytes() {
+        return encodedBytes.sum();
+    }
+
+    /**
+     * @return serialized bytes per encoded byte; 1.0 if nothing was encoded
+     */
+    public double compressionRatio() {
+        long encoded = encodedBytes();
+        return encoded == 0 ? 1.0 : (double) serializedBytes() / encoded;
+    }
+
+    public long totalEncodeTimeNanos() {
+        return encodeTimeNanos.sum();
+    }
+
+    public double averageEncodeNanos() {
+        long count = encodedCount();
+        return count == 0 ? 0.0 : (double) totalEncodeTimeNanos() / count;
+    }
+
+    public long decodedCount() {
+        return decodedCount.sum();
+    }
+
+    public long totalDecodeTimeNanos() {
+        return decodeTimeNanos.sum();
+    }
+
+    public double averageDecodeNanos() {
+        long count = decodedCount();
+        return count == 0 ? 0.0 : (double) totalDecodeTimeNanos() / count;
+    }
+
+    @Override
+    public String toString() {
+        return "CodecStats{" +
+                "encodedCount=" + encodedCount() +
+                ", compressedCount=" + compressedCount() +
+                ", compressionRatio=" + compressionRatio() +
+                ", averageEncodeNanos=" + averageEncodeNanos() +
+                ", decodedCount=" + decodedCount() +
+                ", averageDecodeNanos=" + averageDecodeNanos() +
+                '}';
+    }
+}
@@ -0,0 +1,61 @@
+package com.ridgid.oss.cache.redis;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.ridgid.oss.common.cache.ValueSerializer;
+
+/**
+ * {@link ValueSerializer} for off-heap caches that serializes with the Kryo instances of a {@link RidgidKryoCodec},
+ * so that values are written exactly as they are to Redis
+ * <p>
+ * {@code
+ * OffHeapCache<Long, Snapshot> snapshots = CacheBuilder.newBuilder()
+ * .maxWeight(4L << 30)
+ * .buildOffHeap(new KryoValueSerializer<>(codec));
+ * }
+ *
+ * @param <V> value type
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class KryoValueSerializer<V> implements ValueSerializer<V> {
+
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private final RidgidKryoCodec.KryoPool kryoPool;
+
+    public KryoValueSerializer() {
+        this(new RidgidKryoCodec());
+    }
+
+    public KryoValueSerializer(RidgidKryoCodec codec) {
+        this(codec.getKryoPool());
+    }
+
+    public KryoValueSerializer(RidgidKryoCodec.KryoPool kryoPool) {
+        this.kryoPool = kryoPool;
+    }
+
+    @Override
+    public byte[] serialize(V value) {
+        Kryo kryo = kryoPool.get();
+        try {
+            Output output = new Output(INITIAL_BUFFER_SIZE, -1);
+            kryo.writeClassAndObject(output, value);
+            return output.toBytes();
+        } finally {
+            kryoPool.yield(kryo);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V deserialize(byte[] bytes) {
+        Kryo kryo = kryoPool.get();
+        try {
+            return (V) kryo.readClassAndObject(new Input(bytes));
+        } finally {
+            kryoPool.yield(kryo);
+        }
+    }
+}
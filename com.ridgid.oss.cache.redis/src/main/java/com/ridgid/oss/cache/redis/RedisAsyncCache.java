@@ -0,0 +1,383 @@
+package com.ridgid.oss.cache.redis;
+
+import com.ridgid.oss.common.cache.AsyncCache;
+import com.ridgid.oss.common.cache.CacheStats;
+import com.ridgid.oss.common.cache.StatsCounter;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RMap;
+import org.redisson.api.RMapAsync;
+import org.redisson.api.RedissonClient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * {@link AsyncCache} over a Redis map that never blocks on a round trip, and holds puts, merges and removals back for
+ * up to {@code flushIntervalMillis} so that all writes of that interval are stored in one {@link RBatch}. Writes of the
+ * same key are coalesced: only the last value of a key is sent, and merges are folded into the writes held before
+ * them.
+ * <p>
+ * The flush of the interval is scheduled by the first write held back, on a timer thread shared by all instances and
+ * used for nothing else, so an idle cache schedules nothing and flushes never wait behind the cleanup of other caches.
+ * The write that brings the number of keys with writes held back to {@code maxPendingWrites} flushes them at once.
+ * Flushes are stored one at a time, in order, and reads through this instance wait for a flush in flight, so they see
+ * the writes made through it.
+ * <p>
+ * Merges into values not held back are applied by this client: the current values of those keys are read in one round
+ * trip and the merged values stored with the other writes in a second one. Like
+ * {@link RedisUnmanagedCache#computeIfAbsent(Object, java.util.function.Function)}, this is not atomic: a value written
+ * by another client between the two round trips is overwritten.
+ * <p>
+ * {@code
+ * try (RedisAsyncCache<Long, Price> prices = new RedisAsyncCache<>(client, "prices")) {
+ * updates.forEach(prices::putAsync);
+ * }
+ * }
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class RedisAsyncCache<K, V> implements AsyncCache<K, V> {
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 5;
+    public static final int  DEFAULT_MAX_PENDING_WRITES    = 1_000;
+
+    private final RedissonClient                    client;
+    private final String                            cacheName;
+    private final RMap<K, V>                        map;
+    private final StatsCounter                      statsCounter;
+    private final long                              flushIntervalMillis;
+    private final int                               maxPendingWrites;
+    private final ConcurrentMap<K, PendingWrite<V>> pending        = new ConcurrentHashMap<>();
+    private final AtomicBoolean                     flushScheduled = new AtomicBoolean();
+
+    // Written under this
+    private volatile CompletableFuture<Void> lastFlush = CompletableFuture.completedFuture(null);
+
+    public RedisAsyncCache(RedissonClient client,
+                           String cacheName) {
+        this(client,
+                cacheName,
+                DEFAULT_FLUSH_INTERVAL_MILLIS,
+                DEFAULT_MAX_PENDING_WRITES,
+                StatsCounter.disabled());
+    }
+
+    /**
+     * @param client              Redisson client
+     * @param cacheName           name of the Redis map
+     * @param flushIntervalMillis longest time a write is held back
+     * @param maxPendingWrites    number of keys with writes held back that starts a flush before the interval ends
+     * @param statsCounter        records the statistics of this client's use of the map
+     */
+    public RedisAsyncCache(RedissonClient client,
+                           String cacheName,
+                           long flushIntervalMillis,
+                           int maxPendingWrites,
+                           StatsCounter statsCounter) {
+        if (flushIntervalMillis <= 0) throw new IllegalArgumentException("flushIntervalMillis must be positive");
+        if (maxPendingWrites < 1) throw new IllegalArgumentException("maxPendingWrites must be at least 1");
+        this.client              = client;
+        this.cacheName           = cacheName;
+        this.map                 = client.getMap(cacheName);
+        this.statsCounter        = statsCounter;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPendingWrites    = maxPendingWrites;
+    }
+
+    private static <T> CompletableFuture<T> completable(RFuture<T> future) {
+        CompletableFuture<T> completable = new CompletableFuture<>();
+        future.whenComplete((value, failure) -> {
+            if (failure == null)
+                completable.complete(value);
+            else
+                completable.completeExceptionally(failure);
+        });
+        return completable;
+    }
+
+    /**
+     * @return statistics of the reads and writes made through this instance
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /**
+     * @return number of keys with writes held back
+     */
+    public int pendingWrites() {
+        return pending.size();
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        PendingWrite<V> write = pending.get(key);
+        CompletableFuture<V> value = write == null
+                ? afterFlushInFlight().thenCompose(stored -> completable(map.getAsync(key)))
+                : write.heldValue();
+        return value.thenApply(found -> {
+            if (found == null)
+                statsCounter.recordMisses(1);
+            else
+                statsCounter.recordHits(1);
+            return found;
+        });
+    }
+
+    /**
+     * Gets the values of the keys without writes held back in a single round trip. Keys with merges held back are
+     * flushed first.
+     */
+    @Override
+    public CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys) {
+        Set<K>    distinct = new HashSet<>(keys);
+        Set<K>    stored   = new HashSet<>();
+        Map<K, V> held     = new HashMap<>();
+        boolean   merges   = false;
+        for (K key : distinct) {
+            PendingWrite<V> write = pending.get(key);
+            if (write == null || write.dependsOnCurrent) {
+                merges |= write != null;
+                stored.add(key);
+            } else {
+                V value = write.update.apply(null);
+                if (value != null) held.put(key, value);
+            }
+        }
+        return (merges ? flush() : afterFlushInFlight())
+                .thenCompose(flushed -> stored.isEmpty()
+                        ? CompletableFuture.completedFuture(Collections.<K, V>emptyMap())
+                        : completable(map.getAllAsync(stored)))
+                .thenApply(found -> {
+                    Map<K, V> all = new HashMap<>(found);
+                    all.putAll(held);
+                    statsCounter.recordHits(all.size());
+                    statsCounter.recordMisses(distinct.size() - all.size());
+                    return all;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> containsKeyAsync(K key) {
+        if (pending.containsKey(key))
+            return getAsync(key).thenApply(Objects::nonNull);
+        return afterFlushInFlight().thenCompose(stored -> completable(map.containsKeyAsync(key)));
+    }
+
+    @Override
+    public CompletableFuture<Void> putAsync(K key, V value) {
+        Objects.requireNonNull(value, "value");
+        return hold(key, current -> value, false).thenApply(stored -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAllAsync(Map<? extends K, ? extends V> m) {
+        List<CompletableFuture<V>> writes = new ArrayList<>(m.size());
+        m.forEach((key, value) -> writes.add(hold(key, current -> value, false)));
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[0]));
+    }
+
+    /**
+     * Not held back: flushes the writes held for the key first, then stores the value in one round trip if absent
+     */
+    @Override
+    public CompletableFuture<V> putIfAbsentAsync(K key, V value) {
+        return (pending.containsKey(key) ? flush() : afterFlushInFlight())
+                .thenCompose(flushed -> completable(map.putIfAbsentAsync(key, value)))
+                .thenApply(present -> {
+                    if (present == null) statsCounter.recordPuts(1);
+                    return present;
+                });
+    }
+
+    @Override
+    public CompletableFuture<V> mergeAsync(K key,
+                                           V value,
+                                           BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value, "value");
+        return hold(key, current -> current == null ? value : remappingFunction.apply(current, value), true);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(K key) {
+        return hold(key, current -> null, false).thenApply(stored -> null);
+    }
+
+    private CompletableFuture<V> hold(K key, UnaryOperator<V> update, boolean dependsOnCurrent) {
+        PendingWrite<V> write = pending.compute
+                (
+                        key,
+                        (k, held) -> held == null
+                                ? new PendingWrite<>(update, dependsOnCurrent, new CompletableFuture<>())
+                                : held.then(update, dependsOnCurrent)
+                );
+        if (pending.size() >= maxPendingWrites)
+            flush();
+        else if (flushScheduled.compareAndSet(false, true))
+            FlushTimer.EXECUTOR.schedule(this::scheduledFlush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        return write.result;
+    }
+
+    /**
+     * Cleared before draining, so that a write held back after the drain schedules the next flush
+     */
+    private void scheduledFlush() {
+        flushScheduled.set(false);
+        flush();
+    }
+
+    private CompletableFuture<Void> afterFlushInFlight() {
+        return lastFlush.handle((stored, failure) -> null);
+    }
+
+    /**
+     * Stores the writes held back once the flush in flight, if any, has been stored. The flush is published before the
+     * writes are drained, so that a read finding none held back still waits for them to be stored.
+     */
+    @Override
+    public synchronized CompletableFuture<Void> flush() {
+        CompletableFuture<Void> flushed  = new CompletableFuture<>();
+        CompletableFuture<Void> previous = afterFlushInFlight();
+        lastFlush = flushed;
+        previous.thenCompose(stored -> store(drain()))
+                .whenComplete((stored, failure) -> {
+                    if (failure == null)
+                        flushed.complete(null);
+                    else
+                        flushed.completeExceptionally(failure);
+                });
+        return flushed;
+    }
+
+    private Map<K, PendingWrite<V>> drain() {
+        Map<K, PendingWrite<V>> drained = new HashMap<>();
+        for (K key : pending.keySet()) {
+            PendingWrite<V> write = pending.remove(key);
+            if (write != null) drained.put(key, write);
+        }
+        return drained;
+    }
+
+    private CompletableFuture<Void> store(Map<K, PendingWrite<V>> drained) {
+        if (drained.isEmpty()) return CompletableFuture.completedFuture(null);
+        Set<K> merged = new HashSet<>();
+        drained.forEach((key, write) -> {
+            if (write.dependsOnCurrent) merged.add(key);
+        });
+        CompletableFuture<Map<K, V>> current = merged.isEmpty()
+                ? CompletableFuture.completedFuture(Collections.emptyMap())
+                : completable(map.getAllAsync(merged));
+        CompletableFuture<Void> stored = current.thenCompose(values -> storeBatch(drained, values));
+        stored.whenComplete((done, failure) -> {
+            if (failure != null)
+                drained.values().forEach(write -> write.result.completeExceptionally(failure));
+        });
+        return stored;
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Void> storeBatch(Map<K, PendingWrite<V>> drained, Map<K, V> current) {
+        Map<K, V> puts    = new HashMap<>();
+        List<K>   removes = new ArrayList<>();
+        Map<K, V> results = new HashMap<>();
+        drained.forEach((key, write) -> {
+            try {
+                V value = write.update.apply(current.get(key));
+                results.put(key, value);
+                if (value == null)
+                    removes.add(key);
+                else
+                    puts.put(key, value);
+            } catch (RuntimeException e) {
+                write.result.completeExceptionally(e);
+            }
+        });
+        if (puts.isEmpty() && removes.isEmpty()) return CompletableFuture.completedFuture(null);
+
+        RBatch          batch   = client.createBatch();
+        RMapAsync<K, V> batched = batch.getMap(cacheName);
+        if (!puts.isEmpty()) batched.putAllAsync(puts);
+        if (!removes.isEmpty()) batched.fastRemoveAsync((K[]) removes.toArray());
+        return completable(batch.executeAsync()).thenApply(executed -> {
+            statsCounter.recordPuts(puts.size());
+            results.forEach((key, value) -> drained.get(key).result.complete(value));
+            return null;
+        });
+    }
+
+    /**
+     * Stores the writes held back
+     */
+    @Override
+    public void close() {
+        flush().join();
+    }
+
+    /**
+     * Timer of the flushes of all instances; a flush only starts the round trips to Redis, so one thread suffices
+     */
+    private static final class FlushTimer {
+        private static final ScheduledThreadPoolExecutor EXECUTOR = makeExecutor();
+
+        private static ScheduledThreadPoolExecutor makeExecutor() {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "redis-async-cache-flush-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
+        }
+    }
+
+    /**
+     * Writes of a key held back, folded into one update of the value stored in Redis. Writes folded together share the
+     * future of their result.
+     */
+    private static final class PendingWrite<V> {
+        private final UnaryOperator<V>     update;
+        private final boolean              dependsOnCurrent;
+        private final CompletableFuture<V> result;
+
+        private PendingWrite(UnaryOperator<V> update,
+                             boolean dependsOnCurrent,
+                             CompletableFuture<V> result) {
+            this.update           = update;
+            this.dependsOnCurrent = dependsOnCurrent;
+            this.result           = result;
+        }
+
+        private PendingWrite<V> then(UnaryOperator<V> next, boolean nextDependsOnCurrent) {
+            if (!nextDependsOnCurrent) return new PendingWrite<>(next, false, result);
+            return new PendingWrite<>(current -> next.apply(update.apply(current)), dependsOnCurrent, result);
+        }
+
+        /**
+         * @return the value the key will have once stored, or the future of it if it depends on the stored value
+         */
+        private CompletableFuture<V> heldValue() {
+            return dependsOnCurrent ? result : CompletableFuture.completedFuture(update.apply(null));
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.ridgid.oss.cache.redis;
+
+import com.ridgid.oss.common.cache.Expirable;
+import com.ridgid.oss.common.cache.ExpirableCache;
+import com.ridgid.oss.common.cache.StatsCounter;
+import org.redisson.api.RBatch;
+import org.redisson.api.RLock;
+import org.redisson.api.RMap;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RMapCacheAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Expirable cache over a Redisson {@link RMapCache}, which stores each entry with a time to live derived from the
+ * {@link Expirable#expirationTimeMillis()} of its value. Redis stops returning an entry once it has expired and
+ * Redisson deletes it in the background, so expired values neither occupy Redis memory for long nor cross the network.
+ * <p>
+ * Values that cannot tell their expiration time in advance are stored without a time to live, and are treated as
+ * absent on read once {@link Expirable#isExpired()}. Writing a value that has already expired removes the key.
+ * <p>
+ * An {@link RMapCache} keeps its entries in a different layout than a plain Redis map, so the map must not be shared
+ * with a {@link RedisUnmanagedCache}. Compound operations ({@code compute}, {@code merge}, {@code replace}, etc.) are
+ * atomic with respect to other clients, as in {@link RedisUnmanagedCache}. As Redis replaces the value of an entry
+ * without changing its time to live, they add keys and replace a value by one that expires at another time under the
+ * lock of the key, removing the entry and adding it again, so a read by {@code get} in between finds the key absent.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class RedisExpirableCache<K, V extends Expirable> extends RedisUnmanagedCache<K, V>
+        implements ExpirableCache<K, V> {
+
+    private static final long EXPIRED = -1;
+
+    private final RedissonClient  client;
+    private final String          cacheName;
+    private final RMapCache<K, V> mapCache;
+
+    public RedisExpirableCache(RedissonClient client,
+                               String cacheName) {
+        this(client, cacheName, StatsCounter.disabled());
+    }
+
+    /**
+     * @param client       Redisson client
+     * @param cacheName    name of the Redis map
+     * @param statsCounter records the statistics of this client's use of the map
+     */
+    public RedisExpirableCache(RedissonClient client,
+                               String cacheName,
+                               StatsCounter statsCounter) {
+        this(client, cacheName, client.getMapCache(cacheName), statsCounter);
+    }
+
+    private RedisExpirableCache(RedissonClient client,
+                                String cacheName,
+                                RMapCache<K, V> mapCache,
+                                StatsCounter statsCounter) {
+        super(client, cacheName, mapCache, statsCounter);
+        this.client    = client;
+        this.cacheName = cacheName;
+        this.mapCache  = mapCache;
+    }
+
+    /**
+     * @return time to live of the value in milliseconds, 0 if it has no known expiration time, or {@link #EXPIRED}
+     */
+    private static long ttlMillisOf(Expirable value) {
+        if (value.isExpired()) return EXPIRED;
+        long expirationTimeMillis = value.expirationTimeMillis();
+        if (expirationTimeMillis == Expirable.UNKNOWN_EXPIRATION_TIME_MILLIS || expirationTimeMillis == Long.MAX_VALUE)
+            return 0;
+        long ttlMillis = expirationTimeMillis - System.currentTimeMillis();
+        return ttlMillis > 0 ? ttlMillis : EXPIRED;
+    }
+
+    private static <V extends Expirable> V live(V value) {
+        return value == null || value.isExpired() ? null : value;
+    }
+
+    /**
+     * Redisson deletes expired entries in the background; there is nothing to clean up on demand
+     */
+    @Override
+    public void forceCleanup() {
+    }
+
+    /**
+     * Stops the background deletion of expired entries by this client
+     */
+    @Override
+    public void close() {
+        mapCache.destroy();
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return live(mapCache.get(key)) != null;
+    }
+
+    @Override
+    public V getOrDefault(K key, V defaultValue) {
+        V value = live(mapCache.get(key));
+        if (value == null) {
+            statsCounter.recordMisses(1);
+            return defaultValue;
+        }
+        statsCounter.recordHits(1);
+        return value;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Set<K> distinct = new HashSet<>(keys);
+        Map<K, V> found = mapCache.getAll(distinct)
+                .entrySet()
+                .stream()
+                .filter(entry -> live(entry.getValue()) != null)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        statsCounter.recordHits(found.size());
+        statsCounter.recordMisses(distinct.size() - found.size());
+        return found;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        statsCounter.recordPuts(1);
+        long ttlMillis = ttlMillisOf(value);
+        if (ttlMillis == EXPIRED)
+            return live(mapCache.remove(key));
+        return live(mapCache.put(key, value, ttlMillis, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Stores all of the entries, each with its own time to live, in a single round trip
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        statsCounter.recordPuts(m.size());
+        RBatch               batch   = client.createBatch();
+        RMapCacheAsync<K, V> batched = batch.getMapCache(cacheName);
+        m.forEach((key, value) -> {
+            long ttlMillis = ttlMillisOf(value);
+            if (ttlMillis == EXPIRED)
+                batched.fastRemoveAsync(key);
+            else
+                batched.fastPutAsync(key, value, ttlMillis, TimeUnit.MILLISECONDS);
+        });
+        batch.execute();
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        long ttlMillis = ttlMillisOf(value);
+        if (ttlMillis == EXPIRED)
+            return getOrDefault(key, null);
+        V previous = live(mapCache.putIfAbsent(key, value, ttlMillis, TimeUnit.MILLISECONDS));
+        if (previous == null) statsCounter.recordPuts(1);
+        return previous;
+    }
+
+    /**
+     * Atomic with respect to other clients of the map; the time to live of the entry is that of the new value
+     */
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (live(oldValue) == null) return false;
+        RMap<K, byte[]> encoded = getEncodedCache();
+        Codec           codec   = mapCache.getCodec();
+        byte[]          read    = encode(codec, oldValue);
+        if (isExpired(newValue))
+            return encoded.remove(key, read);
+        byte[]  written = encode(codec, newValue);
+        boolean replaced;
+        if (storesUnderLock(read, newValue)) {
+            RLock lock = mapCache.getLock(key);
+            lock.lock();
+            try {
+                replaced = replaceEncoded(encoded, key, read, written, newValue);
+            } finally {
+                lock.unlock();
+            }
+        } else
+            replaced = replaceEncoded(encoded, key, read, written, newValue);
+        if (replaced) statsCounter.recordPuts(1);
+        return replaced;
+    }
+
+    @Override
+    protected boolean isExpired(V value) {
+        return ttlMillisOf(value) == EXPIRED;
+    }
+
+    /**
+     * Redis replaces the value of an entry without changing its time to live, so a value that expires at another time
+     * than the value read is stored by removing the entry and adding it again. Clients take the lock of the key to do
+     * so, and to add a key, so that no client computes from the key found absent in between.
+     */
+    @Override
+    protected boolean storesUnderLock(byte[] read, V value) {
+        if (read == null) return true;
+        V replaced = decode(mapCache.getCodec(), read);
+        return replaced.expirationTimeMillis() != value.expirationTimeMillis();
+    }
+
+    @Override
+    protected boolean putEncodedIfAbsent(RMap<K, byte[]> map, K key, byte[] written, V value) {
+        long ttlMillis = ttlMillisOf(value);
+        return ttlMillis == EXPIRED
+               || ((RMapCache<K, byte[]>) map).fastPutIfAbsent(key, written, ttlMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A value written by another client after the entry is removed, which does not take the lock, takes the place of
+     * the value computed as if written just after it
+     */
+    @Override
+    protected boolean replaceEncoded(RMap<K, byte[]> map, K key, byte[] read, byte[] written, V value) {
+        if (!storesUnderLock(read, value)) return map.replace(key, read, written);
+        if (!map.remove(key, read)) return false;
+        putEncodedIfAbsent(map, key, written, value);
+        return true;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        V present = live(mapCache.get(key));
+        if (present != null) put(key, value);
+        return present;
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        mapCache.forEach((key, value) -> store(key, function.apply(key, value)));
+    }
+
+    @Override
+    public V remove(K key) {
+        return live(mapCache.remove(key));
+    }
+
+    /**
+     * @return the value stored, or null if the value is null or has expired and the key was removed instead
+     */
+    private V store(K key, V value) {
+        if (value == null || ttlMillisOf(value) == EXPIRED) {
+            mapCache.fastRemove(key);
+            return null;
+        }
+        put(key, value);
+        return value;
+    }
+}
@@ -1,17 +1,55 @@
 package com.ridgid.oss.cache.redis;
 
+import com.ridgid.oss.common.cache.CacheBuilder;
+import com.ridgid.oss.common.cache.CacheMaintenanceScheduler;
+import com.ridgid.oss.common.cache.EvictionCause;
 import com.ridgid.oss.common.cache.ManagedCache;
+import org.redisson.api.RLock;
+import org.redisson.api.RScript;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Redis map bounded in number of entries. Cleanups evict arbitrary entries in Redis itself, with a Lua script that
+ * deletes only as many fields as the map exceeds its evict-to capacity by, so that no entry crosses the network and a
+ * cleanup costs O(evicted) rather than O(size). A cleanup runs only on the node holding the map's maintenance lock;
+ * cleanups of the other nodes sharing the map are skipped meanwhile.
+ */
 public class RedisManagedCache<K, V> extends RedisUnmanagedCache<K, V> implements ManagedCache<K, V> {
-    private final short maxCapacity;
-    private final short evictToCapacity;
-    private final Timer cleanupTimer;
+    private static final String MAINTENANCE_LOCK_SUFFIX = ":maintenance-lock";
+    private static final long MAINTENANCE_LOCK_LEASE_SECONDS = 60;
 
-    private Thread cleanupThread;
+    /**
+     * Deletes fields found by HSCAN until the hash is down to ARGV[2] fields, if it has more than ARGV[1]; answers
+     * the number of fields deleted. Deleting during HSCAN is safe: fields present throughout the scan are returned.
+     */
+    private static final String EVICTION_SCRIPT
+            = "redis.replicate_commands() "
+            + "local size = redis.call('hlen', KEYS[1]) "
+            + "if size <= tonumber(ARGV[1]) then return 0 end "
+            + "local excess = size - tonumber(ARGV[2]) "
+            + "local evicted = 0 "
+            + "local cursor = '0' "
+            + "repeat "
+            + "  local page = redis.call('hscan', KEYS[1], cursor, 'count', excess - evicted) "
+            + "  cursor = page[1] "
+            + "  for i = 1, #page[2], 2 do "
+            + "    if evicted >= excess then break end "
+            + "    evicted = evicted + redis.call('hdel', KEYS[1], page[2][i]) "
+            + "  end "
+            + "until cursor == '0' or evicted >= excess "
+            + "return evicted";
+
+    private final long maxCapacity;
+    private final long evictToCapacity;
+    private final List<Object> mapKey;
+    private final RScript script;
+    private final RLock maintenanceLock;
+    private final CacheMaintenanceScheduler.Registration maintenance;
 
     public RedisManagedCache(RedissonClient client,
                              String cacheName,
@@ -25,53 +63,88 @@ public class RedisManagedCache<K, V> extends RedisUnmanagedCache<K, V> implement
                              short timeoutCheckIntervalSeconds,
                              short maxCapacity,
                              short evictToCapacity) {
-        super(client, cacheName);
-        this.maxCapacity = maxCapacity;
-        this.evictToCapacity = evictToCapacity;
-        this.cleanupTimer = makeCleanupTimer(timeoutCheckIntervalSeconds);
+        this(client,
+                cacheName,
+                timeoutCheckIntervalSeconds,
+                maxCapacity,
+                evictToCapacity,
+                CacheMaintenanceScheduler.shared());
     }
 
-    private Timer makeCleanupTimer(short timeoutCheckIntervalSeconds) {
-        Timer timer = new Timer(true);
-        if (timeoutCheckIntervalSeconds > 0) {
-            timer.schedule(
-                    makeCleanupTask(),
-                    timeoutCheckIntervalSeconds * 1000,
-                    timeoutCheckIntervalSeconds * 1000
-            );
-        }
-        return timer;
+    public RedisManagedCache(RedissonClient client,
+                             String cacheName,
+                             short timeoutCheckIntervalSeconds,
+                             short maxCapacity,
+                             short evictToCapacity,
+                             CacheMaintenanceScheduler maintenanceScheduler) {
+        this(client,
+                cacheName,
+                CacheBuilder.newBuilder()
+                        .timeoutCheckIntervalSeconds(timeoutCheckIntervalSeconds)
+                        .maxCapacity(maxCapacity)
+                        .evictToCapacity(evictToCapacity)
+                        .maintenanceScheduler(maintenanceScheduler));
     }
 
-    private TimerTask makeCleanupTask() {
-        return new TimerTask() {
-            @Override
-            public void run() {
-                cleanup();
-            }
-        };
+    /**
+     * Creates a cache using the capacity and maintenance settings of the builder, typically as
+     * {@code builder.build(b -> new RedisManagedCache<>(client, cacheName, b))}. Initial capacity and concurrency
+     * level do not apply to a Redis map.
+     *
+     * @param client    Redisson client
+     * @param cacheName name of the Redis map
+     * @param built     settings of the cache
+     * @throws IllegalArgumentException if the builder has a weigher; weight-bounded caches are not supported
+     */
+    public RedisManagedCache(RedissonClient client,
+                             String cacheName,
+                             CacheBuilder<?, ?> built) {
+        super(client, cacheName, built.getStatsCounterSupplier().get());
+        if (built.getWeigher() != null)
+            throw new IllegalArgumentException("RedisManagedCache does not support weight-bounded capacity");
+        this.maxCapacity = built.getMaxSize();
+        this.evictToCapacity = built.getEvictToSize();
+        this.mapKey = Collections.singletonList(cacheName);
+        this.script = client.getScript(StringCodec.INSTANCE);
+        this.maintenanceLock = client.getLock(cacheName + MAINTENANCE_LOCK_SUFFIX);
+        this.maintenance = built.getMaintenanceScheduler().register(
+                this,
+                RedisManagedCache::performCleanup,
+                built.getTimeoutCheckIntervalSeconds() * 1000L
+        );
     }
 
-    private void cleanup() {
-        synchronized (cleanupTimer) {
-            if (cleanupThread != null) return;
-            cleanupThread = Thread.currentThread();
-        }
+    private void performCleanup() {
+        long start = System.nanoTime();
+        if (!tryLockMaintenance()) return;
         try {
-            performCleanup();
+            Long evicted = script.eval
+                    (
+                            RScript.Mode.READ_WRITE,
+                            EVICTION_SCRIPT,
+                            RScript.ReturnType.INTEGER,
+                            mapKey,
+                            String.valueOf(maxCapacity),
+                            String.valueOf(evictToCapacity)
+                    );
+            for (long i = 0; i < evicted; i++)
+                statsCounter.recordEviction(EvictionCause.CAPACITY);
         } finally {
-            synchronized (cleanupTimer) {
-                if (cleanupThread == Thread.currentThread())
-                    cleanupThread = null;
-            }
+            maintenanceLock.unlock();
         }
+        statsCounter.recordCleanup(System.nanoTime() - start);
     }
 
-    private void performCleanup() {
-        if (size() > maxCapacity)
-            super.getCache().entrySet().stream()
-                    .filter(entry -> size() > evictToCapacity)
-                    .forEach(entry -> this.remove(entry.getKey()));
+    /**
+     * @return true if this node now holds the maintenance lock; the lease expires should the node die while holding it
+     */
+    private boolean tryLockMaintenance() {
+        try {
+            return maintenanceLock.tryLock(0, MAINTENANCE_LOCK_LEASE_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     @Override
@@ -79,11 +152,16 @@ public class RedisManagedCache<K, V> extends RedisUnmanagedCache<K, V> implement
         checkCapacity();
     }
 
+    /**
+     * Stops the regular cleanup of this cache
+     */
+    @Override
+    public void close() {
+        maintenance.cancel();
+    }
+
     private void checkCapacity() {
         if (size() > evictToCapacity)
-            cleanupTimer.schedule(
-                makeCleanupTask(),
-                10
-            );
+            maintenance.requestCleanup();
     }
 }
@@ -0,0 +1,285 @@
+package com.ridgid.oss.cache.redis;
+
+import com.ridgid.oss.common.cache.CacheBuilder;
+import com.ridgid.oss.common.cache.EvictionPolicyStats;
+import com.ridgid.oss.common.cache.ExpirableWrapper;
+import com.ridgid.oss.common.cache.InMemoryExpirableLRUCache;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Redis map cache with an in-memory LRU near cache (L1) in front of it.
+ * <p>
+ * Reads are served from the near cache when possible, avoiding the round trip to Redis and the decoding of the value.
+ * Every write through any near cache of the same Redis map evicts the key from the local near cache and publishes an
+ * invalidation on a Redis topic, which evicts the key from the near caches of all other instances. Writes made to the
+ * Redis map without going through a near cache are not seen until the near cache entry expires: entries are kept at
+ * most {@code maxStalenessMillis}, which bounds how stale a read can be when an invalidation is missed (e.g. while
+ * the topic subscription is reconnecting).
+ * <p>
+ * A value read from Redis is only kept in the near cache if its key was not invalidated while it was being read, as
+ * tracked by a generation counted per stripe of keys, so that a read racing a write cannot keep the value it replaced.
+ * <p>
+ * Iteration, size and other scans always go to Redis.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class RedisNearCache<K, V> extends RedisUnmanagedCache<K, V> implements AutoCloseable {
+
+    private static final String INVALIDATION_TOPIC_SUFFIX = ":near-cache-invalidations";
+    private static final int    INVALIDATION_STRIPES      = 1024;
+
+    private final InMemoryExpirableLRUCache<K, ExpirableWrapper<V>> nearCache;
+    private final long                                             maxStalenessMillis;
+    private final RTopic                                           invalidations;
+    private final int                                              listenerId;
+    private final String                                           source = UUID.randomUUID().toString();
+    private final AtomicLongArray                                  invalidatedStripes
+            = new AtomicLongArray(INVALIDATION_STRIPES);
+    private final AtomicLong                                       invalidatedAll = new AtomicLong();
+
+    /**
+     * @param client             Redisson client
+     * @param cacheName          name of the Redis map
+     * @param nearCacheCapacity  maximum number of entries kept in the near cache
+     * @param maxStalenessMillis maximum time an entry is served from the near cache before being re-read from Redis
+     */
+    public RedisNearCache(RedissonClient client,
+                          String cacheName,
+                          long nearCacheCapacity,
+                          long maxStalenessMillis) {
+        super(client, cacheName);
+        this.maxStalenessMillis = maxStalenessMillis;
+        this.nearCache = CacheBuilder.newBuilder()
+                .initialCapacity((int) Math.min(nearCacheCapacity, 1024))
+                .maxCapacity(nearCacheCapacity)
+                .evictToCapacity(nearCacheCapacity - nearCacheCapacity / 10)
+                .timeoutCheckIntervalSeconds((int) Math.max(1, maxStalenessMillis / 1000))
+                .buildExpirableLRU();
+        this.invalidations = client.getTopic(cacheName + INVALIDATION_TOPIC_SUFFIX);
+        this.listenerId = invalidations.addListener(Invalidation.class, (channel, invalidation) -> onInvalidation(invalidation));
+    }
+
+    /**
+     * Stops listening for invalidations and clears the near cache. Reads and writes continue to go to Redis.
+     */
+    @Override
+    public void close() {
+        invalidations.removeListener(listenerId);
+        nearCache.close();
+        nearCache.clear();
+    }
+
+    /**
+     * @return hits, misses and evictions of the near cache
+     */
+    public EvictionPolicyStats nearCacheStats() {
+        return nearCache.evictionPolicyStats();
+    }
+
+    private void onInvalidation(Invalidation invalidation) {
+        if (source.equals(invalidation.source)) return;
+        if (invalidation.all)
+            evictAll();
+        else
+            for (Object key : invalidation.keys)
+                //noinspection unchecked
+                evict((K) key);
+    }
+
+    private void invalidate(K key) {
+        evict(key);
+        invalidations.publish(new Invalidation(source, false, key));
+    }
+
+    private void invalidateAll(Collection<? extends K> keys) {
+        keys.forEach(this::evict);
+        invalidations.publish(new Invalidation(source, false, keys.toArray()));
+    }
+
+    private void invalidateAll() {
+        evictAll();
+        invalidations.publish(new Invalidation(source, true));
+    }
+
+    /**
+     * Advances the generation of the key before evicting it, so that a read of the key in progress either sees the new
+     * generation before caching its value, or has cached it before the eviction
+     */
+    private void evict(K key) {
+        invalidatedStripes.incrementAndGet(stripe(key));
+        nearCache.remove(key);
+    }
+
+    private void evictAll() {
+        invalidatedAll.incrementAndGet();
+        nearCache.clear();
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (INVALIDATION_STRIPES - 1);
+    }
+
+    /**
+     * @return number of invalidations of the key or of other keys of its stripe so far, to be read before reading the
+     * key from Redis
+     */
+    private long generation(K key) {
+        return invalidatedAll.get() + invalidatedStripes.get(stripe(key));
+    }
+
+    /**
+     * Keeps the value read from Redis in the near cache, unless the key was invalidated since {@code generation} was
+     * read, in which case the value may be older than the write that invalidated it
+     */
+    private V cacheNear(K key, V value, long generation) {
+        if (value == null || generation(key) != generation) return value;
+        nearCache.put(key, new ExpirableWrapper<>(value, System.currentTimeMillis() + maxStalenessMillis));
+        if (generation(key) != generation)
+            nearCache.remove(key);
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return nearCache.containsKey(key) || super.containsKey(key);
+    }
+
+    @Override
+    public V getOrDefault(K key, V defaultValue) {
+        ExpirableWrapper<V> near = nearCache.getOrDefault(key, null);
+        if (near != null) return near.unwrap();
+        long generation = generation(key);
+        V    value      = cacheNear(key, super.getOrDefault(key, null), generation);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V>    found  = new HashMap<>();
+        Map<K, Long> remote = new HashMap<>();
+        Map<K, ExpirableWrapper<V>> near = nearCache.getAll(keys);
+        for (K key : keys) {
+            ExpirableWrapper<V> wrapper = near.get(key);
+            if (wrapper == null)
+                remote.put(key, generation(key));
+            else
+                found.put(key, wrapper.unwrap());
+        }
+        if (!remote.isEmpty())
+            super.getAll(remote.keySet()).forEach((key, value) -> found.put(key, cacheNear(key, value, remote.get(key))));
+        return found;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        invalidateAll();
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = getOrDefault(key, null);
+        if (value != null) return value;
+        value = super.computeIfAbsent(key, mappingFunction);
+        invalidate(key);
+        return value;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V value = super.computeIfPresent(key, remappingFunction);
+        invalidate(key);
+        return value;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        V value = super.compute(key, remappingFunction);
+        invalidate(key);
+        return value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        V previous = super.put(key, value);
+        invalidate(key);
+        return previous;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        super.putAll(m);
+        invalidateAll(m.keySet());
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        V previous = super.putIfAbsent(key, value);
+        if (previous == null) invalidate(key);
+        return previous;
+    }
+
+    @Override
+    public V remove(K key) {
+        V previous = super.remove(key);
+        invalidate(key);
+        return previous;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        boolean replaced = super.replace(key, oldValue, newValue);
+        if (replaced) invalidate(key);
+        return replaced;
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        super.replaceAll(function);
+        invalidateAll();
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        V previous = super.replace(key, value);
+        if (previous != null) invalidate(key);
+        return previous;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        V merged = super.merge(key, value, remappingFunction);
+        invalidate(key);
+        return merged;
+    }
+
+    /**
+     * Message published to the other near caches of the same Redis map when keys are written
+     */
+    static final class Invalidation implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String   source;
+        private final boolean  all;
+        private final Object[] keys;
+
+        Invalidation(String source,
+                     boolean all,
+                     Object... keys) {
+            this.source = source;
+            this.all = all;
+            this.keys = keys;
+        }
+    }
+}
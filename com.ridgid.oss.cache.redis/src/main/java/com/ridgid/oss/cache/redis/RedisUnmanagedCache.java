@@ -1,23 +1,109 @@
 package com.ridgid.oss.cache.redis;
 
 import com.ridgid.oss.common.cache.Cache;
+import com.ridgid.oss.common.cache.CacheStats;
+import com.ridgid.oss.common.cache.StatsCounter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.redisson.api.RLock;
 import org.redisson.api.RMap;
+import org.redisson.api.RMapCache;
 import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.handler.State;
+import org.redisson.codec.CompositeCodec;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class RedisUnmanagedCache<K, V> implements Cache<K, V> {
+    public static final int DEFAULT_SCAN_PAGE_SIZE = 100;
+    public static final int DEFAULT_OPTIMISTIC_ATTEMPTS = 3;
+
+    private static final Object LOST_RACE = new Object();
+    private static final Object NEEDS_LOCK = new Object();
+
     private final RedissonClient client;
     private final String cacheName;
+    private final RMap<K, V> map;
+    protected final StatsCounter statsCounter;
+    // The map with its values as the bytes held by Redis, created on first use by compute and the like
+    private volatile RMap<K, byte[]> encodedMap;
+    private volatile int scanPageSize = DEFAULT_SCAN_PAGE_SIZE;
+    private volatile int optimisticAttempts = DEFAULT_OPTIMISTIC_ATTEMPTS;
 
     public RedisUnmanagedCache(RedissonClient client,
                                String cacheName) {
+        this(client, cacheName, StatsCounter.disabled());
+    }
+
+    /**
+     * @param client       Redisson client
+     * @param cacheName    name of the Redis map
+     * @param statsCounter records the statistics of this client's use of the map
+     */
+    public RedisUnmanagedCache(RedissonClient client,
+                               String cacheName,
+                               StatsCounter statsCounter) {
+        this(client, cacheName, client.getMap(cacheName), statsCounter);
+    }
+
+    /**
+     * @param client       Redisson client
+     * @param cacheName    name of the Redis map
+     * @param codec        codec of the map instead of the client's, e.g. a compressing {@link RidgidKryoCodec}
+     * @param statsCounter records the statistics of this client's use of the map
+     */
+    public RedisUnmanagedCache(RedissonClient client,
+                               String cacheName,
+                               Codec codec,
+                               StatsCounter statsCounter) {
+        this(client, cacheName, client.getMap(cacheName, codec), statsCounter);
+    }
+
+    /**
+     * @param client       Redisson client
+     * @param cacheName    name of the Redis map
+     * @param map          Redisson object of the map, e.g. an {@link org.redisson.api.RMapCache}
+     * @param statsCounter records the statistics of this client's use of the map
+     */
+    protected RedisUnmanagedCache(RedissonClient client,
+                                  String cacheName,
+                                  RMap<K, V> map,
+                                  StatsCounter statsCounter) {
         this.client = client;
         this.cacheName = cacheName;
+        this.map = map;
+        this.statsCounter = statsCounter;
+    }
+
+    /**
+     * @return statistics of the reads and writes made through this instance; other clients of the map are not counted
+     */
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    @Override
+    public StatsCounter statsCounter() {
+        return statsCounter;
     }
 
     @Override
@@ -26,7 +112,7 @@ public class RedisUnmanagedCache<K, V> implements Cache<K, V> {
     }
 
     RMap<K, V> getCache() {
-        return client.getMap(cacheName);
+        return map;
     }
 
     @Override
@@ -44,59 +130,354 @@ public class RedisUnmanagedCache<K, V> implements Cache<K, V> {
         return getCache().containsKey(key);
     }
 
+    /**
+     * @return number of entries requested from Redis by each HSCAN of {@link #forEach}, {@link #stream()},
+     * {@link #streamKeys()} and {@link #streamValues()}
+     */
+    public int getScanPageSize() {
+        return scanPageSize;
+    }
+
+    /**
+     * @param scanPageSize number of entries requested from Redis by each HSCAN when iterating the map; larger pages
+     *                     take fewer round trips but hold more entries in memory at once
+     */
+    public void setScanPageSize(int scanPageSize) {
+        if (scanPageSize < 1)
+            throw new IllegalArgumentException("scanPageSize must be >= 1");
+        this.scanPageSize = scanPageSize;
+    }
+
+    /**
+     * Iterates the map one HSCAN page at a time; see {@link #stream()}
+     */
     @Override
     public void forEach(BiConsumer<? super K, ? super V> action) {
-        getCache().forEach(action);
+        getCache().entrySet(scanPageSize).iterator().forEachRemaining(entry -> action.accept(entry.getKey(),
+                                                                                           entry.getValue()));
     }
 
+    /**
+     * Streams the entries lazily, fetching a page of {@link #getScanPageSize()} entries with HSCAN whenever the stream
+     * needs more, so that the memory used does not depend on the size of the map and short-circuiting operations such
+     * as {@code findFirst} or {@code limit} stop scanning. Like HSCAN, the stream may return an entry more than once
+     * if the map is rehashed while it is streamed. The stream does not split, so parallel streams read the map
+     * sequentially.
+     */
     @Override
     public Stream<Map.Entry<K, V>> stream() {
-        return getCache().entrySet().stream();
+        return scan(getCache().entrySet(scanPageSize).iterator());
     }
 
+    /**
+     * Streams the keys lazily with HSCAN; see {@link #stream()}
+     */
     @Override
     public Stream<K> streamKeys() {
-        return getCache().keySet().stream();
+        return scan(getCache().keySet(scanPageSize).iterator());
     }
 
+    /**
+     * Streams the values lazily with HSCAN; see {@link #stream()}
+     */
     @Override
     public Stream<V> streamValues() {
-        return getCache().values().stream();
+        return scan(getCache().values(scanPageSize).iterator());
+    }
+
+    private static <T> Stream<T> scan(Iterator<T> cursor) {
+        return StreamSupport.stream(new ScanSpliterator<>(cursor), false);
+    }
+
+    /**
+     * Spliterator over a Redisson iterator, which runs the next HSCAN only once the entries of the previous one have
+     * been consumed. Unlike the spliterators of Redisson's collections, it neither asks Redis for the size of the map
+     * nor buffers batches of entries to split them off.
+     */
+    private static final class ScanSpliterator<T> implements Spliterator<T> {
+
+        private final Iterator<T> cursor;
+
+        private ScanSpliterator(Iterator<T> cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (!cursor.hasNext()) return false;
+            action.accept(cursor.next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            cursor.forEachRemaining(action);
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.NONNULL;
+        }
     }
 
     @Override
     public V getOrDefault(K key, V defaultValue) {
-        return getCache().getOrDefault(key, defaultValue);
+        V value = getCache().getOrDefault(key, null);
+        if (value == null) {
+            statsCounter.recordMisses(1);
+            return defaultValue;
+        }
+        statsCounter.recordHits(1);
+        return value;
+    }
+
+    /**
+     * Gets the values of all of the keys in a single round trip
+     */
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Set<K>    distinct = new HashSet<>(keys);
+        Map<K, V> found    = getCache().getAll(distinct);
+        statsCounter.recordHits(found.size());
+        statsCounter.recordMisses(distinct.size() - found.size());
+        return found;
     }
 
+    /**
+     * Gets the values of all of the keys in a single round trip, and stores all of the computed values in a second
+     * one. Unlike {@link #computeIfAbsent(Object, Function)}, this is not atomic: a value written by another client
+     * between the two round trips is overwritten.
+     */
+    @Override
+    public Map<K, V> computeAllIfAbsent(Collection<? extends K> keys,
+                                       Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> mappingFunction) {
+        Map<K, V> found  = getAll(keys);
+        Set<K>    absent = new HashSet<>(keys);
+        absent.removeAll(found.keySet());
+        if (absent.isEmpty()) return found;
+        Map<K, V> computed = new HashMap<>();
+        statsCounter.load(Collections.unmodifiableSet(absent), mappingFunction).forEach((key, value) -> {
+            if (value != null && absent.contains(key)) computed.put(key, value);
+        });
+        if (!computed.isEmpty()) {
+            getCache().putAll(computed);
+            statsCounter.recordPuts(computed.size());
+            found.putAll(computed);
+        }
+        return found;
+    }
+
+    /**
+     * Atomic with respect to other clients of the map; see {@link #compute(Object, BiFunction)}. The mapping function
+     * is not called if the key is present when read.
+     */
     @Override
     public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
-        return getCache().computeIfAbsent(key, mappingFunction);
+        return atomically(key, (k, present) -> present != null ? present : statsCounter.load(k, mappingFunction));
     }
 
+    /**
+     * Atomic with respect to other clients of the map; see {@link #compute(Object, BiFunction)}
+     */
     @Override
     public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
-        return getCache().computeIfPresent(key, remappingFunction);
+        return atomically(key, (k, present) -> present == null ? null : remappingFunction.apply(k, present));
     }
 
+    /**
+     * Computes the new value from the value read, and stores it only if Redis still holds the value it was computed
+     * from, which Redis checks and writes atomically; computes again from the newer value otherwise. After
+     * {@link #getOptimisticAttempts()} lost races the client takes the Redis lock of the key, so that clients contending
+     * for a hot key take turns instead of racing each other, while other keys are never blocked. The remapping function
+     * may be called more than once, and must not have side effects.
+     * <p>
+     * The value read is compared by its encoding, as held by Redis: each call of the remapping function is given a
+     * value decoded afresh, which the function may modify in place and return, and returning a value that encodes to
+     * the bytes read leaves the key untouched.
+     */
     @Override
     public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
-        return getCache().compute(key, remappingFunction);
+        return atomically(key, remappingFunction);
+    }
+
+    /**
+     * @return number of times {@code compute}, {@code merge} and the like try to store a value without locking the key
+     * before they take its lock
+     */
+    public int getOptimisticAttempts() {
+        return optimisticAttempts;
+    }
+
+    /**
+     * @param optimisticAttempts attempts without locking the key before taking its lock; 0 always locks the key
+     */
+    public void setOptimisticAttempts(int optimisticAttempts) {
+        if (optimisticAttempts < 0)
+            throw new IllegalArgumentException("optimisticAttempts must be >= 0");
+        this.optimisticAttempts = optimisticAttempts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V atomically(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        RMap<K, byte[]> encoded = getEncodedCache();
+        Codec           codec   = getCache().getCodec();
+        for (int attempt = 0; attempt < optimisticAttempts; attempt++) {
+            Object result = tryCompute(encoded, codec, key, remappingFunction, false);
+            if (result == NEEDS_LOCK) break;
+            if (result != LOST_RACE) return (V) result;
+        }
+        RLock lock = getCache().getLock(key);
+        lock.lock();
+        try {
+            while (true) {
+                Object result = tryCompute(encoded, codec, key, remappingFunction, true);
+                if (result != LOST_RACE) return (V) result;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    RMap<K, byte[]> getEncodedCache() {
+        RMap<K, byte[]> encoded = encodedMap;
+        if (encoded == null) {
+            Codec codec     = getCache().getCodec();
+            Codec byteCodec = new CompositeCodec(codec, ByteArrayCodec.INSTANCE, codec);
+            encoded = encodedMap = map instanceof RMapCache
+                    ? client.getMapCache(cacheName, byteCodec)
+                    : client.getMap(cacheName, byteCodec);
+        }
+        return encoded;
+    }
+
+    /**
+     * Compares values by the bytes read from Redis rather than by the decoded value, which the remapping function may
+     * have modified, and which may not encode again to the same bytes
+     *
+     * @return the value now held by the key, {@link #LOST_RACE} if another client wrote the key after it was read, or
+     * {@link #NEEDS_LOCK} if the value computed is only stored under the lock of the key
+     */
+    private Object tryCompute(RMap<K, byte[]> map,
+                              Codec codec,
+                              K key,
+                              BiFunction<? super K, ? super V, ? extends V> remappingFunction,
+                              boolean locked) {
+        byte[] read     = map.get(key);
+        V      present  = read == null ? null : decode(codec, read);
+        V      computed = remappingFunction.apply(key, present == null || isExpired(present) ? null : present);
+        if (computed != null && isExpired(computed)) computed = null;
+        if (computed != null && !locked && storesUnderLock(read, computed)) return NEEDS_LOCK;
+        if (read == null) {
+            if (computed == null) return null;
+            return putEncodedIfAbsent(map, key, encode(codec, computed), computed) ? computed : LOST_RACE;
+        }
+        if (computed == null) return map.remove(key, read) ? null : LOST_RACE;
+        byte[] written = encode(codec, computed);
+        if (Arrays.equals(written, read)) return computed;
+        return replaceEncoded(map, key, read, written, computed) ? computed : LOST_RACE;
+    }
+
+    /**
+     * Determines whether a value held by Redis is to be treated as absent by {@code compute} and the like, and whether
+     * a value they compute is to be removed rather than stored
+     *
+     * @param value held or computed
+     * @return true if the value is no longer valid
+     */
+    protected boolean isExpired(V value) {
+        return false;
+    }
+
+    /**
+     * Determines whether a computed value is only to be stored while holding the lock of the key, e.g. because it
+     * cannot be stored in one atomic command
+     *
+     * @param read  bytes the value was computed from, or null if the key was absent
+     * @param value computed
+     * @return true to store the value under the lock of the key
+     */
+    protected boolean storesUnderLock(byte[] read, V value) {
+        return false;
+    }
+
+    /**
+     * Stores the encoding of a computed value if the key is absent, in one atomic command
+     *
+     * @param map     with its values as the bytes held by Redis
+     * @param key     to store
+     * @param written encoding of the value
+     * @param value   computed
+     * @return true if stored
+     */
+    protected boolean putEncodedIfAbsent(RMap<K, byte[]> map, K key, byte[] written, V value) {
+        return map.fastPutIfAbsent(key, written);
+    }
+
+    /**
+     * Stores the encoding of a computed value if the key still holds the bytes it was computed from, in one atomic
+     * command unless {@link #storesUnderLock(byte[], Object)}
+     *
+     * @param map     with its values as the bytes held by Redis
+     * @param key     to store
+     * @param read    bytes the value was computed from
+     * @param written encoding of the value
+     * @param value   computed
+     * @return true if stored
+     */
+    protected boolean replaceEncoded(RMap<K, byte[]> map, K key, byte[] read, byte[] written, V value) {
+        return map.replace(key, read, written);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static <V> V decode(Codec codec, byte[] encoded) {
+        try {
+            return (V) codec.getMapValueDecoder().decode(Unpooled.wrappedBuffer(encoded), new State());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    protected static byte[] encode(Codec codec, Object value) {
+        ByteBuf encoded = null;
+        try {
+            encoded = codec.getMapValueEncoder().encode(value);
+            byte[] bytes = new byte[encoded.readableBytes()];
+            encoded.readBytes(bytes);
+            return bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (encoded != null) encoded.release();
+        }
     }
 
     @Override
     public V put(K key, V value) {
+        statsCounter.recordPuts(1);
         return getCache().put(key, value);
     }
 
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
+        statsCounter.recordPuts(m.size());
         getCache().putAll(m);
     }
 
     @Override
     public V putIfAbsent(K key, V value) {
-        return getCache().putIfAbsent(key, value);
+        V previous = getCache().putIfAbsent(key, value);
+        if (previous == null) statsCounter.recordPuts(1);
+        return previous;
     }
 
     @Override
@@ -119,8 +500,12 @@ public class RedisUnmanagedCache<K, V> implements Cache<K, V> {
         return getCache().replace(key, value);
     }
 
+    /**
+     * Atomic with respect to other clients of the map, so that concurrent merges from many nodes are never lost; see
+     * {@link #compute(Object, BiFunction)}
+     */
     @Override
     public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
-        return getCache().merge(key, value, remappingFunction);
+        return atomically(key, (k, present) -> present == null ? value : remappingFunction.apply(present, value));
     }
 }
@@ -7,8 +7,6 @@ import com.ridgid.oss.cache.redis.serializer.InetAddressSerializer;
 import de.javakaffee.kryoserializers.*;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
-import io.netty.buffer.ByteBufInputStream;
-import io.netty.buffer.ByteBufOutputStream;
 import org.redisson.client.codec.BaseCodec;
 import org.redisson.client.handler.State;
 import org.redisson.client.protocol.Decoder;
@@ -21,6 +19,8 @@ import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class RidgidKryoCodec extends BaseCodec {
 
@@ -36,27 +36,149 @@ public class RidgidKryoCodec extends BaseCodec {
 
     }
 
+    /**
+     * Pool that keeps idle Kryo instances in a shared queue that retains at most {@code maxIdleInstances} of them.
+     * Creating a Kryo registers dozens of serializers, so a burst of concurrent calls still creates instances, but
+     * beyond the soft cap they are dropped when yielded instead of being kept forever.
+     * <p>
+     * Pools created with {@code threadInstances} also keep the Kryo last yielded by each thread for that thread's next
+     * call, outside the cap: one instance and its buffers per thread, held until the thread ends, and pinning the class
+     * loader of the pool for as long. Only use them with a fixed set of long-lived threads of the same class loader.
+     * <p>
+     * With registration required, Kryo writes a class ID instead of the class name of each object, and rejects classes
+     * that are not registered. The classes given to the pool are registered with stable IDs, starting at
+     * {@link #FIRST_REGISTERED_CLASS_ID} in the order given, so every client of the same data must list the same classes
+     * in the same order, including the JDK classes (collections, etc.) of the values stored.
+     */
     public static class KryoPoolImpl implements KryoPool {
 
+        public static final int DEFAULT_MAX_IDLE_INSTANCES = Runtime.getRuntime().availableProcessors() * 2;
+        public static final int FIRST_REGISTERED_CLASS_ID = 100;
+
+        private final ThreadLocal<Kryo> threadKryo;
         private final Queue<Kryo> objects = new ConcurrentLinkedQueue<Kryo>();
+        private final AtomicInteger idleInstances = new AtomicInteger();
+        private final AtomicLong createdInstances = new AtomicLong();
         private final List<Class<?>> classes;
         private final ClassLoader classLoader;
+        private final int maxIdleInstances;
+        private final boolean registrationRequired;
+        private final boolean threadInstances;
 
         public KryoPoolImpl(List<Class<?>> classes, ClassLoader classLoader) {
+            this(classes, classLoader, DEFAULT_MAX_IDLE_INSTANCES, false);
+        }
+
+        public KryoPoolImpl(List<Class<?>> classes,
+                            ClassLoader classLoader,
+                            int maxIdleInstances,
+                            boolean registrationRequired) {
+            this(classes, classLoader, maxIdleInstances, registrationRequired, false);
+        }
+
+        /**
+         * @param classes              classes to register with each Kryo
+         * @param classLoader          class loader of each Kryo, or null for the default
+         * @param maxIdleInstances     soft cap on the instances kept in the shared queue
+         * @param registrationRequired whether to register the classes with stable IDs and reject unregistered classes
+         * @param threadInstances      whether to also keep the Kryo last yielded by each thread, outside the cap
+         */
+        public KryoPoolImpl(List<Class<?>> classes,
+                            ClassLoader classLoader,
+                            int maxIdleInstances,
+                            boolean registrationRequired,
+                            boolean threadInstances) {
+            if (maxIdleInstances < 0)
+                throw new IllegalArgumentException("maxIdleInstances must be >= 0");
             this.classes = classes;
             this.classLoader = classLoader;
+            this.maxIdleInstances = maxIdleInstances;
+            this.registrationRequired = registrationRequired;
+            this.threadInstances = threadInstances;
+            this.threadKryo = threadInstances ? new ThreadLocal<Kryo>() : null;
+        }
+
+        /**
+         * Creates up to {@code instances} Kryo instances ahead of the first calls, so that they do not pay for it
+         *
+         * @param instances number of instances to create, capped at the maximum number of idle instances
+         * @return this pool
+         */
+        public KryoPoolImpl prewarm(int instances) {
+            for (int i = Math.min(instances, maxIdleInstances) - idleInstances.get(); i > 0; i--) {
+                idleInstances.incrementAndGet();
+                objects.offer(newInstance());
+            }
+            return this;
+        }
+
+        /**
+         * @param classLoader class loader of each Kryo
+         * @return this pool if it has the given class loader, else a new pool, not prewarmed, with the settings of this
+         * one and the given class loader
+         */
+        public KryoPoolImpl withClassLoader(ClassLoader classLoader) {
+            if (classLoader == this.classLoader)
+                return this;
+            return new KryoPoolImpl(classes, classLoader, maxIdleInstances, registrationRequired, threadInstances);
         }
 
         public Kryo get() {
-            Kryo kryo = objects.poll();
-            if (kryo == null) {
-                kryo = createInstance();
+            Kryo kryo;
+            if (threadInstances) {
+                kryo = threadKryo.get();
+                if (kryo != null) {
+                    threadKryo.set(null);
+                    return kryo;
+                }
             }
-            return kryo;
+            kryo = objects.poll();
+            if (kryo != null) {
+                idleInstances.decrementAndGet();
+                return kryo;
+            }
+            return newInstance();
         }
 
         public void yield(Kryo kryo) {
-            objects.offer(kryo);
+            if (threadInstances && threadKryo.get() == null) {
+                threadKryo.set(kryo);
+            } else if (idleInstances.incrementAndGet() <= maxIdleInstances) {
+                objects.offer(kryo);
+            } else {
+                idleInstances.decrementAndGet();
+            }
+        }
+
+        /**
+         * @return number of Kryo instances this pool has created
+         */
+        public long getCreatedInstances() {
+            return createdInstances.get();
+        }
+
+        /**
+         * @return number of Kryo instances in the shared queue, not counting those kept by threads
+         */
+        public int getIdleInstances() {
+            return idleInstances.get();
+        }
+
+        public int getMaxIdleInstances() {
+            return maxIdleInstances;
+        }
+
+        public boolean isRegistrationRequired() {
+            return registrationRequired;
+        }
+
+        public boolean isThreadInstances() {
+            return threadInstances;
+        }
+
+        private Kryo newInstance() {
+            createdInstances.incrementAndGet();
+            return createInstance();
         }
 
         /**
@@ -90,8 +212,15 @@ public class RidgidKryoCodec extends BaseCodec {
                 kryo.setClassLoader(classLoader);
             }
             kryo.setReferences(true);
-            for (Class<?> clazz : classes) {
-                kryo.register(clazz);
+            if (registrationRequired) {
+                kryo.setRegistrationRequired(true);
+                for (int i = 0; i < classes.size(); i++) {
+                    kryo.register(classes.get(i), FIRST_REGISTERED_CLASS_ID + i);
+                }
+            } else {
+                for (Class<?> clazz : classes) {
+                    kryo.register(clazz);
+                }
             }
             return kryo;
         }
@@ -117,21 +246,123 @@ public class RidgidKryoCodec extends BaseCodec {
         }
     }
 
+    /**
+     * Number of Kryo instances created when the codec creates its pool, so that the first concurrent calls find them;
+     * copies of a codec for another class loader create theirs on demand
+     */
+    public static final int DEFAULT_PREWARMED_INSTANCES = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Version of the frame of framed values, in the high nibble of their first byte; the low nibble holds the id of the
+     * {@link CodecCompression} of the value. Raise it when the layout of frames changes, so that older codecs reject
+     * values they cannot read instead of misreading them.
+     */
+    static final int FRAME_VERSION = 1;
+
+    private static final int FRAME_HEADER_LENGTH            = 1;
+    private static final int COMPRESSED_FRAME_HEADER_LENGTH = FRAME_HEADER_LENGTH + 8;
+
     private final RidgidKryoCodec.KryoPool kryoPool;
+    private final boolean framed;
+    private final CodecCompression compression;
+    private final int compressionThreshold;
+    private final CodecStats stats;
+
+    /**
+     * Input and Output reused by every encode and decode with the same Kryo, kept in the Kryo's context
+     * so that they are pooled along with it. A buffer grown beyond {@link #MAX_RETAINED_BUFFER_SIZE} by a large value is
+     * dropped after use rather than retained by the pool.
+     */
+    private static final class KryoStreams {
+
+        private static final int    INITIAL_BUFFER_SIZE      = 256;
+        private static final int    MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+        private static final byte[] EMPTY                    = new byte[0];
+
+        private final Input  input   = new Input(EMPTY);
+        private       Output output  = new Output(INITIAL_BUFFER_SIZE, -1);
+        private       byte[] scratch = EMPTY;
+        private       byte[] frame   = EMPTY;
+
+        private static KryoStreams of(Kryo kryo) {
+            KryoStreams streams = (KryoStreams) kryo.getContext().get(KryoStreams.class);
+            if (streams == null) {
+                streams = new KryoStreams();
+                kryo.getContext().put(KryoStreams.class, streams);
+            }
+            return streams;
+        }
+
+        private static byte[] reusable(byte[] retained, int length) {
+            if (retained.length >= length || length > MAX_RETAINED_BUFFER_SIZE) return retained;
+            return new byte[Math.max(length, INITIAL_BUFFER_SIZE)];
+        }
 
+        private Output clearedOutput() {
+            if (output.getBuffer().length > MAX_RETAINED_BUFFER_SIZE)
+                output = new Output(INITIAL_BUFFER_SIZE, -1);
+            output.clear();
+            return output;
+        }
+
+        /**
+         * @return array of at least {@code length} bytes for copying the bytes of a direct buffer
+         */
+        private byte[] scratch(int length) {
+            scratch = reusable(scratch, length);
+            return scratch.length >= length ? scratch : new byte[length];
+        }
+
+        /**
+         * @return array of at least {@code length} bytes for compressing or decompressing a frame
+         */
+        private byte[] frame(int length) {
+            frame = reusable(frame, length);
+            return frame.length >= length ? frame : new byte[length];
+        }
+    }
+
+    /**
+     * Reads from the array of a heap buffer in place, and from a direct buffer through a copy into a reused array;
+     * consumes the bytes of the value from the buffer
+     */
     private final Decoder<Object> decoder = new Decoder<Object>() {
         @Override
         public Object decode(ByteBuf buf, State state) throws IOException {
-            Kryo kryo = null;
+            long        startNanos = framed ? System.nanoTime() : 0;
+            Kryo        kryo       = null;
+            KryoStreams streams    = null;
             try {
-                kryo = kryoPool.get();
-                return kryo.readClassAndObject(new Input(new ByteBufInputStream(buf)));
+                kryo    = kryoPool.get();
+                streams = KryoStreams.of(kryo);
+                int    length = buf.readableBytes();
+                byte[] bytes;
+                int    offset;
+                if (buf.hasArray()) {
+                    bytes  = buf.array();
+                    offset = buf.arrayOffset() + buf.readerIndex();
+                } else {
+                    bytes  = streams.scratch(length);
+                    offset = 0;
+                    buf.getBytes(buf.readerIndex(), bytes, 0, length);
+                }
+                if (!framed) {
+                    Object value = read(kryo, streams.input, bytes, offset, length);
+                    buf.skipBytes(streams.input.position() - offset);
+                    return value;
+                }
+                Object value = readFrame(kryo, streams, bytes, offset, length, buf);
+                stats.recordDecode(System.nanoTime() - startNanos);
+                return value;
             } catch (Exception e) {
                 if (e instanceof RuntimeException) {
                     throw (RuntimeException) e;
                 }
                 throw new RidgidKryoCodecException(e);
             } finally {
+                if (streams != null) {
+                    streams.input.setBuffer(KryoStreams.EMPTY);
+                }
                 if (kryo != null) {
                     kryoPool.yield(kryo);
                 }
@@ -139,21 +370,27 @@ public class RidgidKryoCodec extends BaseCodec {
         }
     };
 
+    /**
+     * Serializes into a reused Output, then copies the bytes, framed and compressed if so configured, into a pooled
+     * I/O buffer of exactly their size
+     */
     private final Encoder encoder = new Encoder() {
 
         @Override
         public ByteBuf encode(Object in) throws IOException {
-            Kryo kryo = null;
-            ByteBuf out = ByteBufAllocator.DEFAULT.buffer();
+            long startNanos = framed ? System.nanoTime() : 0;
+            Kryo kryo       = null;
             try {
-                ByteBufOutputStream baos = new ByteBufOutputStream(out);
-                Output output = new Output(baos);
                 kryo = kryoPool.get();
+                KryoStreams streams = KryoStreams.of(kryo);
+                Output      output  = streams.clearedOutput();
                 kryo.writeClassAndObject(output, in);
-                output.close();
-                return baos.buffer();
+                if (!framed) {
+                    ByteBuf out = ByteBufAllocator.DEFAULT.ioBuffer(output.position());
+                    return out.writeBytes(output.getBuffer(), 0, output.position());
+                }
+                return writeFrame(streams, output.getBuffer(), output.position(), startNanos);
             } catch (Exception e) {
-                out.release();
                 if (e instanceof RuntimeException) {
                     throw (RuntimeException) e;
                 }
@@ -175,7 +412,11 @@ public class RidgidKryoCodec extends BaseCodec {
     }
 
     public RidgidKryoCodec(ClassLoader classLoader, RidgidKryoCodec codec) {
-        this(codec.kryoPool.getClasses(), classLoader);
+        this(copyPool(codec.kryoPool, classLoader),
+             codec.framed,
+             codec.compression,
+             codec.compressionThreshold,
+             codec.stats);
     }
 
     public RidgidKryoCodec(List<Class<?>> classes) {
@@ -183,11 +424,165 @@ public class RidgidKryoCodec extends BaseCodec {
     }
 
     public RidgidKryoCodec(List<Class<?>> classes, ClassLoader classLoader) {
-        this(new RidgidKryoCodec.KryoPoolImpl(classes, classLoader));
+        this(new RidgidKryoCodec.KryoPoolImpl(classes, classLoader).prewarm(DEFAULT_PREWARMED_INSTANCES));
     }
 
     public RidgidKryoCodec(RidgidKryoCodec.KryoPool kryoPool) {
+        this(kryoPool, false, CodecCompression.NONE, Integer.MAX_VALUE, new CodecStats());
+    }
+
+    private RidgidKryoCodec(RidgidKryoCodec.KryoPool kryoPool,
+                            boolean framed,
+                            CodecCompression compression,
+                            int compressionThreshold,
+                            CodecStats stats) {
         this.kryoPool = kryoPool;
+        this.framed = framed;
+        this.compression = compression;
+        this.compressionThreshold = compressionThreshold;
+        this.stats = stats;
+    }
+
+    /**
+     * Codec whose Kryo instances require every class serialized to be registered, and write the stable IDs of the
+     * classes given instead of their names
+     *
+     * @param classes     every class serialized, in the same order for all clients of the same data
+     * @param classLoader class loader of each Kryo, or null for the default
+     * @return codec requiring registration
+     */
+    public static RidgidKryoCodec registrationRequired(List<Class<?>> classes, ClassLoader classLoader) {
+        return new RidgidKryoCodec(new RidgidKryoCodec.KryoPoolImpl(classes,
+                                                                    classLoader,
+                                                                    RidgidKryoCodec.KryoPoolImpl.DEFAULT_MAX_IDLE_INSTANCES,
+                                                                    true)
+                                           .prewarm(DEFAULT_PREWARMED_INSTANCES));
+    }
+
+    /**
+     * Reads a value from {@code length} bytes at {@code offset}, leaving the position of the input past its end
+     */
+    private static Object read(Kryo kryo, Input input, byte[] bytes, int offset, int length) {
+        input.setBuffer(bytes, offset, length);
+        return kryo.readClassAndObject(input);
+    }
+
+    private static int frameHeader(CodecCompression compression) {
+        return FRAME_VERSION << 4 | compression.id();
+    }
+
+    /**
+     * Writes the frame header, followed by the serialized bytes as they are, or by their lengths before and after
+     * compression and the compressed bytes if the value reaches the threshold and compresses to fewer bytes
+     */
+    private ByteBuf writeFrame(KryoStreams streams, byte[] serialized, int length, long startNanos) throws IOException {
+        if (compression != CodecCompression.NONE && length >= compressionThreshold) {
+            byte[] compressed       = streams.frame(compression.maxCompressedLength(length));
+            int    compressedLength = compression.compress(serialized, 0, length, compressed, 0);
+            if (compressedLength < length) {
+                ByteBuf out = ByteBufAllocator.DEFAULT.ioBuffer(COMPRESSED_FRAME_HEADER_LENGTH + compressedLength)
+                        .writeByte(frameHeader(compression))
+                        .writeInt(length)
+                        .writeInt(compressedLength)
+                        .writeBytes(compressed, 0, compressedLength);
+                stats.recordEncode(length, out.readableBytes(), true, System.nanoTime() - startNanos);
+                return out;
+            }
+        }
+        ByteBuf out = ByteBufAllocator.DEFAULT.ioBuffer(FRAME_HEADER_LENGTH + length)
+                .writeByte(frameHeader(CodecCompression.NONE))
+                .writeBytes(serialized, 0, length);
+        stats.recordEncode(length, out.readableBytes(), false, System.nanoTime() - startNanos);
+        return out;
+    }
+
+    /**
+     * Reads a frame written by {@link #writeFrame} with any compression, whatever the compression of this codec
+     */
+    private static Object readFrame(Kryo kryo,
+                                    KryoStreams streams,
+                                    byte[] bytes,
+                                    int offset,
+                                    int length,
+                                    ByteBuf buf) throws IOException {
+        if (length < FRAME_HEADER_LENGTH)
+            throw new IOException("Value is too short to be framed");
+        int header  = bytes[offset] & 0xFF;
+        int version = header >>> 4;
+        if (version != FRAME_VERSION)
+            throw new IOException("Unsupported frame version " + version + " of a value encoded by RidgidKryoCodec");
+        CodecCompression valueCompression = CodecCompression.ofId(header & 0x0F);
+        if (valueCompression == CodecCompression.NONE) {
+            Object value = read(kryo, streams.input, bytes, offset + FRAME_HEADER_LENGTH, length - FRAME_HEADER_LENGTH);
+            buf.skipBytes(streams.input.position() - offset);
+            return value;
+        }
+        if (length < COMPRESSED_FRAME_HEADER_LENGTH)
+            throw new IOException("Compressed value is too short to be framed");
+        int decompressedLength = buf.getInt(buf.readerIndex() + FRAME_HEADER_LENGTH);
+        int compressedLength   = buf.getInt(buf.readerIndex() + FRAME_HEADER_LENGTH + 4);
+        if (compressedLength > length - COMPRESSED_FRAME_HEADER_LENGTH || decompressedLength < 0)
+            throw new IOException("Compressed value is truncated");
+        byte[] decompressed = streams.frame(decompressedLength);
+        valueCompression.decompress(bytes,
+                                    offset + COMPRESSED_FRAME_HEADER_LENGTH,
+                                    compressedLength,
+                                    decompressed,
+                                    0,
+                                    decompressedLength);
+        Object value = read(kryo, streams.input, decompressed, 0, decompressedLength);
+        buf.skipBytes(COMPRESSED_FRAME_HEADER_LENGTH + compressedLength);
+        return value;
+    }
+
+    private static RidgidKryoCodec.KryoPool copyPool(RidgidKryoCodec.KryoPool kryoPool, ClassLoader classLoader) {
+        if (kryoPool instanceof RidgidKryoCodec.KryoPoolImpl) {
+            return ((RidgidKryoCodec.KryoPoolImpl) kryoPool).withClassLoader(classLoader);
+        }
+        return new RidgidKryoCodec.KryoPoolImpl(kryoPool.getClasses(), classLoader);
+    }
+
+    /**
+     * Codec sharing the Kryo pool of this one, that frames each value with a header holding the frame version and the
+     * compression of the value, and compresses values of at least {@code thresholdBytes} serialized bytes. Framed values
+     * decode whatever their compression, but only with a framed codec: values written by an unframed codec must be
+     * rewritten, e.g. by using the framed codec for a new map, before switching a map to it.
+     *
+     * @param compression    compression of the values of at least {@code thresholdBytes}; NONE to only frame them
+     * @param thresholdBytes serialized length from which values are compressed
+     * @return framed codec, recording its own {@link #getStats() statistics}
+     */
+    public RidgidKryoCodec withCompression(CodecCompression compression, int thresholdBytes) {
+        if (thresholdBytes < 0)
+            throw new IllegalArgumentException("thresholdBytes must be >= 0");
+        return new RidgidKryoCodec(kryoPool, true, compression, thresholdBytes, new CodecStats());
+    }
+
+    public boolean isFramed() {
+        return framed;
+    }
+
+    public CodecCompression getCompression() {
+        return compression;
+    }
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * @return compression ratio and timing of the values encoded and decoded by this codec and its copies; only
+     * recorded by framed codecs
+     */
+    public CodecStats getStats() {
+        return stats;
+    }
+
+    /**
+     * @return pool of the Kryo instances used by this codec, for sharing with other serializers
+     */
+    public RidgidKryoCodec.KryoPool getKryoPool() {
+        return kryoPool;
     }
 
     @Override
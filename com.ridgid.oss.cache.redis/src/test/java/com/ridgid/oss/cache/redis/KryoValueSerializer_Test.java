@@ -0,0 +1,41 @@
+package com.ridgid.oss.cache.redis;
+
+import com.ridgid.oss.common.cache.CacheBuilder;
+import com.ridgid.oss.common.cache.ExpirableWrapper;
+import com.ridgid.oss.common.cache.OffHeapCache;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KryoValueSerializer_Test {
+
+    @Test
+    void it_stores_kryo_serialized_values_off_heap() {
+        OffHeapCache<String, Map<String, List<Integer>>> cache = CacheBuilder.newBuilder()
+                .maxWeight(1 << 20)
+                .buildOffHeap(new KryoValueSerializer<>(new RidgidKryoCodec()));
+        try {
+            Map<String, List<Integer>> value = new HashMap<>();
+            value.put("a", Arrays.asList(1, 2, 3));
+            cache.put("k", value);
+            assertEquals(value, cache.getOrDefault("k", null));
+            assertNotSame(cache.getOrDefault("k", null), cache.getOrDefault("k", null));
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void it_round_trips_expirable_values() {
+        KryoValueSerializer<ExpirableWrapper<String>> serializer = new KryoValueSerializer<>();
+        ExpirableWrapper<String>                      value      = ExpirableWrapper.expiringMinutesFromNow("v", 5);
+        ExpirableWrapper<String>                      copy       = serializer.deserialize(serializer.serialize(value));
+        assertEquals("v", copy.unwrap());
+        assertEquals(value.expirationTimeMillis(), copy.expirationTimeMillis());
+    }
+}
@@ -0,0 +1,147 @@
+package com.ridgid.oss.cache.redis;
+
+import com.ridgid.oss.common.cache.StatsCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RBatch;
+import org.redisson.api.RMap;
+import org.redisson.api.RMapAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.misc.RedissonPromise;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RedisAsyncCache_Test {
+
+    private final ConcurrentHashMap<String, Integer> redis   = new ConcurrentHashMap<>();
+    private final AtomicInteger                      batches = new AtomicInteger();
+    private final AtomicReference<Runnable>          onRead  = new AtomicReference<>();
+
+    private RedisAsyncCache<String, Integer> cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RedisAsyncCache<>(makeRedisStandIn(), "test", 60_000, 1_000, StatsCounter.disabled());
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    void it_coalesces_writes_of_a_key_into_one_batch() {
+        redis.put("removed", 0);
+        CompletableFuture<Void>    put      = cache.putAsync("k", 1);
+        CompletableFuture<Void>    replaced = cache.putAsync("k", 2);
+        CompletableFuture<Integer> merged   = cache.mergeAsync("k", 3, Integer::sum);
+        CompletableFuture<Void>    removed  = cache.removeAsync("removed");
+
+        assertEquals(5, cache.getAsync("k").join());
+        assertNull(cache.getAsync("removed").join());
+        assertEquals(2, cache.pendingWrites());
+        assertFalse(put.isDone());
+        assertEquals(0, batches.get());
+
+        cache.flush().join();
+        assertEquals(1, batches.get());
+        assertEquals(5, redis.get("k"));
+        assertFalse(redis.containsKey("removed"));
+        assertTrue(put.isDone() && replaced.isDone() && removed.isDone());
+        assertEquals(5, merged.join());
+    }
+
+    @Test
+    void it_merges_into_the_stored_value() {
+        redis.put("k", 10);
+        CompletableFuture<Integer> first  = cache.mergeAsync("k", 1, Integer::sum);
+        CompletableFuture<Integer> second = cache.mergeAsync("k", 1, Integer::sum);
+        assertEquals(12, cache.getAllAsync(Arrays.asList("k", "absent")).join().get("k"));
+        assertEquals(12, first.join());
+        assertEquals(12, second.join());
+        assertEquals(12, redis.get("k"));
+        assertEquals(0, cache.pendingWrites());
+    }
+
+    @Test
+    void it_has_a_read_finding_no_write_held_back_wait_for_the_flush_storing_it() {
+        redis.put("k", 10);
+        CompletableFuture<Integer> merged = cache.mergeAsync("k", 1, Integer::sum);
+        AtomicReference<CompletableFuture<Integer>> read = new AtomicReference<>();
+        onRead.set(() -> read.set(cache.getAsync("k")));
+        cache.flush().join();
+        assertEquals(11, merged.join());
+        assertEquals(11, read.get().join(), "A read while the writes drained are being stored should see them");
+    }
+
+    @Test
+    void it_flushes_at_the_pending_write_limit_at_once_and_otherwise_after_the_first_write_held() throws Exception {
+        try (RedisAsyncCache<String, Integer> limited
+                     = new RedisAsyncCache<>(makeRedisStandIn(), "test", 60_000, 2, StatsCounter.disabled())) {
+            limited.putAsync("a", 1);
+            assertEquals(0, batches.get());
+            limited.putAsync("b", 2);
+            assertEquals(1, batches.get(), "Reaching the limit should flush without waiting for the interval");
+            assertEquals(0, limited.pendingWrites());
+        }
+
+        try (RedisAsyncCache<String, Integer> timed
+                     = new RedisAsyncCache<>(makeRedisStandIn(), "test", 20, 1_000, StatsCounter.disabled())) {
+            Thread.sleep(100);
+            assertEquals(1, batches.get(), "An idle cache should not flush");
+            timed.putAsync("c", 3).get(5, TimeUnit.SECONDS);
+            assertEquals(2, batches.get());
+            assertEquals(3, redis.get("c"));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedissonClient makeRedisStandIn() {
+        RMap<String, Integer> map = mock(RMap.class);
+        when(map.getAsync(anyString()))
+                .thenAnswer(call -> RedissonPromise.newSucceededFuture(redis.get(call.<String>getArgument(0))));
+        when(map.getAllAsync(anySet())).thenAnswer(call -> {
+            Runnable hook = onRead.getAndSet(null);
+            if (hook != null) hook.run();
+            Map<String, Integer> found = new HashMap<>();
+            for (String key : call.<Set<String>>getArgument(0))
+                if (redis.containsKey(key)) found.put(key, redis.get(key));
+            return RedissonPromise.newSucceededFuture(found);
+        });
+
+        RMapAsync<String, Integer> batched = mock(RMapAsync.class);
+        when(batched.putAllAsync(anyMap())).thenAnswer(call -> {
+            redis.putAll(call.getArgument(0));
+            return RedissonPromise.newSucceededFuture(null);
+        });
+        when(batched.fastRemoveAsync(any())).thenAnswer(call -> {
+            for (Object key : call.getArguments())
+                redis.remove(key);
+            return RedissonPromise.newSucceededFuture(1L);
+        });
+        RBatch batch = mock(RBatch.class);
+        when(batch.<String, Integer>getMap("test")).thenReturn(batched);
+        when(batch.executeAsync()).thenAnswer(call -> {
+            batches.incrementAndGet();
+            return RedissonPromise.newSucceededFuture(null);
+        });
+
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.<String, Integer>getMap("test")).thenReturn(map);
+        when(client.createBatch()).thenReturn(batch);
+        return client;
+    }
+}
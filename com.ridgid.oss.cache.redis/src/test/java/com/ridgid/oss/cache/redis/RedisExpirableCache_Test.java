@@ -0,0 +1,112 @@
+package com.ridgid.oss.cache.redis;
+
+import com.ridgid.oss.common.cache.ExpirableWrapper;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RedisExpirableCache_Test {
+
+    @SuppressWarnings("unchecked")
+    private final RMapCache<String, ExpirableWrapper<String>> mapCache = mock(RMapCache.class);
+
+    private final RedisExpirableCache<String, ExpirableWrapper<String>> cache = makeCache();
+
+    private RedisExpirableCache<String, ExpirableWrapper<String>> makeCache() {
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.<String, ExpirableWrapper<String>>getMapCache("test")).thenReturn(mapCache);
+        return new RedisExpirableCache<>(client, "test");
+    }
+
+    @Test
+    void it_stores_values_with_the_time_to_live_of_their_expiration() {
+        ExpirableWrapper<String> value = ExpirableWrapper.expiringMinutesFromNow("v", 5);
+        cache.put("k", value);
+        verify(mapCache).put(eq("k"),
+                             same(value),
+                             longThat(ttl -> ttl > TimeUnit.MINUTES.toMillis(4) && ttl <= TimeUnit.MINUTES.toMillis(5)),
+                             eq(TimeUnit.MILLISECONDS));
+
+        ExpirableWrapper<String> forever = new ExpirableWrapper<>("v", Long.MAX_VALUE);
+        cache.put("forever", forever);
+        verify(mapCache).put("forever", forever, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    void it_removes_keys_written_with_expired_values_and_never_returns_expired_values() {
+        ExpirableWrapper<String> expired = new ExpirableWrapper<>("v", System.currentTimeMillis() - 1);
+        cache.put("k", expired);
+        verify(mapCache).remove("k");
+        verify(mapCache, never()).put(anyString(), any(), anyLong(), any());
+
+        when(mapCache.get("k")).thenReturn(expired);
+        assertNull(cache.getOrDefault("k", null));
+        assertFalse(cache.containsKey("k"));
+    }
+
+    @Test
+    void it_replaces_a_value_for_one_client_only_with_the_time_to_live_of_the_new_value() throws Exception {
+        RedisMapStandIn          redis   = new RedisMapStandIn(TimeUnit.MICROSECONDS.toNanos(50));
+        ExpirableWrapper<String> current = ExpirableWrapper.expiringMinutesFromNow("current", 5);
+        new RedisExpirableCache<String, ExpirableWrapper<String>>(redis.client(), "test").put("k", current);
+
+        AtomicInteger replaced = new AtomicInteger();
+        Thread[]      clients  = new Thread[8];
+        for (int i = 0; i < clients.length; i++) {
+            RedisExpirableCache<String, ExpirableWrapper<String>> cache
+                    = new RedisExpirableCache<>(redis.client(), "test");
+            ExpirableWrapper<String> value = ExpirableWrapper.expiringMinutesFromNow("client " + i, 30);
+            clients[i] = new Thread(() -> {
+                if (cache.replace("k", current, value)) replaced.incrementAndGet();
+            });
+            clients[i].start();
+        }
+        for (Thread client : clients)
+            client.join();
+
+        assertEquals(1, replaced.get(), "Only one client should replace the same value");
+        assertTrue(((ExpirableWrapper<?>) redis.value("k")).unwrap().toString().startsWith("client "));
+        assertTtl(redis, "k", ttl -> ttl > TimeUnit.MINUTES.toMillis(29));
+    }
+
+    @Test
+    void it_computes_atomically_across_clients_with_the_time_to_live_of_the_value_computed() throws Exception {
+        RedisMapStandIn redis   = new RedisMapStandIn(TimeUnit.MICROSECONDS.toNanos(50));
+        Thread[]        clients = new Thread[8];
+        for (int i = 0; i < clients.length; i++) {
+            RedisExpirableCache<String, ExpirableWrapper<Integer>> cache
+                    = new RedisExpirableCache<>(redis.client(), "test");
+            clients[i] = new Thread(() -> {
+                for (int j = 0; j < 100; j++)
+                    cache.merge("hot",
+                                ExpirableWrapper.expiringMinutesFromNow(1, 5),
+                                (present, one) -> ExpirableWrapper.expiringMinutesFromNow(present.unwrap() + 1,
+                                                                                           5 + present.unwrap()));
+            });
+            clients[i].start();
+        }
+        for (Thread client : clients)
+            client.join();
+
+        assertEquals(800, ((ExpirableWrapper<?>) redis.value("hot")).unwrap());
+        assertTtl(redis, "hot", ttl -> ttl > TimeUnit.MINUTES.toMillis(800));
+
+        RedisExpirableCache<String, ExpirableWrapper<Integer>> cache = new RedisExpirableCache<>(redis.client(), "test");
+        assertNull(cache.compute("hot", (key, present) -> new ExpirableWrapper<>(0, System.currentTimeMillis() - 1)),
+                   "An expired value should remove the key");
+        assertFalse(redis.data.containsKey("hot"));
+    }
+
+    private static void assertTtl(RedisMapStandIn redis, String key, LongPredicate expected) {
+        long ttlMillis = redis.ttlMillis.get(key);
+        assertTrue(expected.test(ttlMillis), "Unexpected time to live " + ttlMillis);
+    }
+}
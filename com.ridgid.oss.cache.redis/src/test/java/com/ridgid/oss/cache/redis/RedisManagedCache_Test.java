@@ -0,0 +1,61 @@
+package com.ridgid.oss.cache.redis;
+
+import com.ridgid.oss.common.cache.CacheBuilder;
+import com.ridgid.oss.common.cache.EvictionCause;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+import org.redisson.api.RMap;
+import org.redisson.api.RScript;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RedisManagedCache_Test {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void it_evicts_in_redis_only_while_holding_the_maintenance_lock() throws InterruptedException {
+        RMap<String, String> map = mock(RMap.class);
+        when(map.size()).thenReturn(12);
+        RScript script = mock(RScript.class);
+        when(script.eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class), anyList(), any(), any()))
+                .thenReturn(4L);
+        RLock lock = mock(RLock.class);
+        when(lock.tryLock(0, 60, TimeUnit.SECONDS)).thenReturn(true, false);
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.<String, String>getMap("test")).thenReturn(map);
+        when(client.getScript(StringCodec.INSTANCE)).thenReturn(script);
+        when(client.getLock("test:maintenance-lock")).thenReturn(lock);
+
+        RedisManagedCache<String, String> cache = CacheBuilder.newBuilder()
+                .maxCapacity(10)
+                .evictToCapacity(8)
+                .recordStats()
+                .build(built -> new RedisManagedCache<>(client, "test", built));
+        try {
+            cache.forceCleanup();
+            awaitCleanups(cache, 1);
+            cache.forceCleanup();
+            Thread.sleep(100);
+
+            assertEquals(1, cache.stats().cleanupCount());
+            assertEquals(4, cache.stats().evictionCount(EvictionCause.CAPACITY));
+            verify(script, times(1)).eval(any(RScript.Mode.class), anyString(), any(RScript.ReturnType.class),
+                                          anyList(), eq("10"), eq("8"));
+            verify(lock, times(1)).unlock();
+            verify(map, never()).entrySet();
+        } finally {
+            cache.close();
+        }
+    }
+
+    private static void awaitCleanups(RedisManagedCache<?, ?> cache, long cleanups) throws InterruptedException {
+        for (int i = 0; i < 100 && cache.stats().cleanupCount() < cleanups; i++)
+            Thread.sleep(10);
+    }
+}
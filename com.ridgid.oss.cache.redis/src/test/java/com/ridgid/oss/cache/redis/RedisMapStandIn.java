@@ -0,0 +1,199 @@
+package com.ridgid.oss.cache.redis;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.redisson.api.RLock;
+import org.redisson.api.RMap;
+import org.redisson.api.RMapCache;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.Codec;
+import org.redisson.client.handler.State;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stand-in for a Redis map and the Redisson locks of its keys, for tests and benchmarks without a Redis server. Each
+ * command is atomic, as in Redis, and first waits for the simulated round trip time. Supports the commands used by
+ * {@link RedisUnmanagedCache} and {@link RedisExpirableCache} to read and compute values. The time to live given to an
+ * entry of a map cache is recorded but never expires it, and, as in Redis, is kept when the value is replaced.
+ * <p>
+ * As in Redis, the map holds the values encoded by the codec of the map, each read decodes a new copy of the value,
+ * and the commands that write a value only if the key holds another one compare that one's encoding with the bytes
+ * held. Keys are held as they are.
+ */
+final class RedisMapStandIn {
+
+    final ConcurrentHashMap<Object, ByteBuffer> data             = new ConcurrentHashMap<>();
+    final AtomicLong                            commands         = new AtomicLong();
+    final AtomicLong                            lockAcquisitions = new AtomicLong();
+    final ConcurrentHashMap<Object, Long>       ttlMillis        = new ConcurrentHashMap<>();
+
+    private final long                                     roundTripNanos;
+    private final Codec                                    codec;
+    private final ConcurrentHashMap<Object, ReentrantLock> locks          = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]>                      threadCommands = ThreadLocal.withInitial(() -> new long[1]);
+
+    RedisMapStandIn(long roundTripNanos) {
+        this(roundTripNanos, new RidgidKryoCodec());
+    }
+
+    /**
+     * @param roundTripNanos simulated round trip time of each command
+     * @param codec          default codec of the maps
+     */
+    RedisMapStandIn(long roundTripNanos, Codec codec) {
+        this.roundTripNanos = roundTripNanos;
+        this.codec          = codec;
+    }
+
+    RedissonClient client() {
+        RMap<?, ?> map = map();
+        return (RedissonClient) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{RedissonClient.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getMap"))
+                        return args.length == 1 ? map : map((Codec) args[1], RMap.class);
+                    if (method.getName().equals("getMapCache"))
+                        return map(args.length == 1 ? codec : (Codec) args[1], RMapCache.class);
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * @return decoded value of the key, or null if absent
+     */
+    Object value(Object key) throws IOException {
+        ByteBuffer value = data.get(key);
+        return value == null ? null : decode(codec, value);
+    }
+
+    <K, V> RMap<K, V> map() {
+        return map(codec, RMap.class);
+    }
+
+    /**
+     * @return the map as a map cache, holding the same entries
+     */
+    <K, V> RMapCache<K, V> mapCache() {
+        return map(codec, RMapCache.class);
+    }
+
+    /**
+     * @param type {@link RMap} or {@link RMapCache}; only a map cache accepts a time to live
+     */
+    @SuppressWarnings("unchecked")
+    private <M> M map(Codec codec, Class<M> type) {
+        return (M) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    int arity = args == null ? 0 : args.length;
+                    switch (method.getName() + "/" + arity) {
+                        case "get/1":
+                            roundTrip();
+                            return decode(codec, data.get(args[0]));
+                        case "put/2":
+                            roundTrip();
+                            return decode(codec, data.put(args[0], encode(codec, args[1])));
+                        case "put/4":
+                            roundTrip();
+                            synchronized (data) {
+                                ttlMillis.put(args[0], ((TimeUnit) args[3]).toMillis((Long) args[2]));
+                                return decode(codec, data.put(args[0], encode(codec, args[1])));
+                            }
+                        case "putIfAbsent/2":
+                            roundTrip();
+                            return decode(codec, data.putIfAbsent(args[0], encode(codec, args[1])));
+                        case "fastPutIfAbsent/2":
+                            roundTrip();
+                            return data.putIfAbsent(args[0], encode(codec, args[1])) == null;
+                        case "fastPutIfAbsent/4":
+                            roundTrip();
+                            synchronized (data) {
+                                if (data.putIfAbsent(args[0], encode(codec, args[1])) != null) return false;
+                                ttlMillis.put(args[0], ((TimeUnit) args[3]).toMillis((Long) args[2]));
+                                return true;
+                            }
+                        case "remove/1":
+                            roundTrip();
+                            return decode(codec, data.remove(args[0]));
+                        case "remove/2":
+                            roundTrip();
+                            return data.remove(args[0], encode(codec, args[1]));
+                        case "replace/3":
+                            roundTrip();
+                            return data.replace(args[0], encode(codec, args[1]), encode(codec, args[2]));
+                        case "getCodec/0":
+                            return codec;
+                        case "getName/0":
+                            return "stand-in";
+                        case "getLock/1":
+                            return lock(locks.computeIfAbsent(args[0], key -> new ReentrantLock()));
+                        case "hashCode/0":
+                            return System.identityHashCode(proxy);
+                        case "equals/1":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private RLock lock(ReentrantLock lock) {
+        return (RLock) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{RLock.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "lock":
+                            roundTrip();
+                            lock.lock();
+                            lockAcquisitions.incrementAndGet();
+                            return null;
+                        case "unlock":
+                            roundTrip();
+                            lock.unlock();
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static ByteBuffer encode(Codec codec, Object value) throws IOException {
+        ByteBuf encoded = codec.getMapValueEncoder().encode(value);
+        try {
+            byte[] bytes = new byte[encoded.readableBytes()];
+            encoded.readBytes(bytes);
+            return ByteBuffer.wrap(bytes);
+        } finally {
+            encoded.release();
+        }
+    }
+
+    private static Object decode(Codec codec, ByteBuffer value) throws IOException {
+        if (value == null) return null;
+        return codec.getMapValueDecoder().decode(Unpooled.wrappedBuffer(value.duplicate()), new State());
+    }
+
+    /**
+     * @return number of commands the current thread has sent, including lock commands
+     */
+    long commandsOfCurrentThread() {
+        return threadCommands.get()[0];
+    }
+
+    private void roundTrip() {
+        commands.incrementAndGet();
+        threadCommands.get()[0]++;
+        if (roundTripNanos > 0) LockSupport.parkNanos(roundTripNanos);
+    }
+}
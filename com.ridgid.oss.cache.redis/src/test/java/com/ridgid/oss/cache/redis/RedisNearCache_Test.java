@@ -0,0 +1,167 @@
+package com.ridgid.oss.cache.redis;
+
+import com.ridgid.oss.common.cache.EvictionPolicyStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RMap;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RedisNearCache_Test {
+
+    private final ConcurrentHashMap<String, String> redis     = new ConcurrentHashMap<>();
+    private final AtomicInteger                     redisGets = new AtomicInteger();
+    private final AtomicReference<Runnable>         afterRead = new AtomicReference<>();
+
+    private RedisNearCache<String, String> local;
+    private RedisNearCache<String, String> remote;
+
+    @BeforeEach
+    void setUp() {
+        RedissonClient client = makeRedisStandIn();
+        local  = new RedisNearCache<>(client, "test", 100, 60_000);
+        remote = new RedisNearCache<>(client, "test", 100, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        local.close();
+        remote.close();
+    }
+
+    @Test
+    void it_serves_repeated_reads_from_the_near_cache() {
+        redis.put("a", "1");
+        assertEquals("1", local.getOrDefault("a", null));
+        assertEquals("1", local.getOrDefault("a", null));
+        assertEquals("1", local.getOrDefault("a", null));
+        assertEquals(1, redisGets.get());
+        EvictionPolicyStats stats = local.nearCacheStats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    void it_evicts_near_cache_entries_written_by_another_instance() {
+        remote.put("a", "1");
+        assertEquals("1", local.getOrDefault("a", null));
+        remote.put("a", "2");
+        assertEquals("2", local.getOrDefault("a", null));
+        remote.putAll(map("a", "3", "b", "4"));
+        assertEquals("3", local.getOrDefault("a", null));
+        remote.clear();
+        assertNull(local.getOrDefault("a", null));
+    }
+
+    @Test
+    void it_reads_only_near_cache_misses_from_redis_in_bulk() {
+        redis.putAll(map("a", "1", "b", "2", "c", "3"));
+        local.getOrDefault("a", null);
+        assertEquals(map("a", "1", "b", "2", "c", "3"), local.getAll(Arrays.asList("a", "b", "c")));
+        assertEquals(map("a", "1", "b", "2", "c", "3"), local.getAll(Arrays.asList("a", "b", "c")));
+        assertEquals(4, local.nearCacheStats().hitCount());
+    }
+
+    @Test
+    void it_serves_values_no_longer_than_the_maximum_staleness() throws InterruptedException {
+        try (RedisNearCache<String, String> shortLived = new RedisNearCache<>(makeRedisStandIn(), "test", 100, 50)) {
+            redis.put("a", "1");
+            assertEquals("1", shortLived.getOrDefault("a", null));
+            redis.put("a", "2");
+            assertEquals("1", shortLived.getOrDefault("a", null));
+            Thread.sleep(100);
+            assertEquals("2", shortLived.getOrDefault("a", null));
+        }
+    }
+
+    @Test
+    void it_does_not_keep_a_value_read_while_another_instance_overwrote_it() {
+        redis.put("a", "1");
+        afterRead.set(() -> remote.put("a", "2"));
+        assertEquals("1", local.getOrDefault("a", null), "The read should answer the value it read");
+        assertEquals("2", local.getOrDefault("a", null), "The value overwritten should not be kept near");
+
+        redis.put("b", "1");
+        afterRead.set(() -> remote.put("b", "2"));
+        assertEquals(map("a", "2", "b", "1"), local.getAll(Arrays.asList("a", "b")));
+        assertEquals("2", local.getOrDefault("b", null), "The value overwritten should not be kept near");
+        assertEquals("2", local.getOrDefault("a", null));
+        assertEquals(2, local.nearCacheStats().hitCount(), "Values read without a race should still be kept near");
+    }
+
+    @SuppressWarnings("unchecked")
+    private RedissonClient makeRedisStandIn() {
+        RMap<String, String> map = mock(RMap.class);
+        when(map.getOrDefault(any(), any())).thenAnswer(call -> {
+            redisGets.incrementAndGet();
+            String value = redis.getOrDefault(call.<String>getArgument(0), call.getArgument(1));
+            raceRead();
+            return value;
+        });
+        when(map.getAll(anySet())).thenAnswer(call -> {
+            Map<String, String> found = new HashMap<>();
+            for (String key : call.<Set<String>>getArgument(0))
+                if (redis.containsKey(key)) found.put(key, redis.get(key));
+            raceRead();
+            return found;
+        });
+        when(map.put(any(), any())).thenAnswer(call -> redis.put(call.getArgument(0), call.getArgument(1)));
+        doAnswer(call -> {
+            redis.putAll(call.getArgument(0));
+            return null;
+        }).when(map).putAll(anyMap());
+        doAnswer(call -> {
+            redis.clear();
+            return null;
+        }).when(map).clear();
+
+        List<MessageListener<Object>> listeners = new CopyOnWriteArrayList<>();
+        RTopic                        topic     = mock(RTopic.class);
+        when(topic.addListener(any(Class.class), any(MessageListener.class))).thenAnswer(call -> {
+            listeners.add(call.getArgument(1));
+            return listeners.size();
+        });
+        when(topic.publish(any())).thenAnswer(call -> {
+            for (MessageListener<Object> listener : new ArrayList<>(listeners))
+                listener.onMessage("test", call.getArgument(0));
+            return (long) listeners.size();
+        });
+
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.<String, String>getMap("test")).thenReturn(map);
+        when(client.getTopic(anyString())).thenReturn(topic);
+        return client;
+    }
+
+    /**
+     * Runs the write set to race the current read, after the read got its value from Redis and before it returns it
+     */
+    private void raceRead() {
+        Runnable write = afterRead.getAndSet(null);
+        if (write != null) write.run();
+    }
+
+    private static Map<String, String> map(String... keysAndValues) {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2)
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        return map;
+    }
+}
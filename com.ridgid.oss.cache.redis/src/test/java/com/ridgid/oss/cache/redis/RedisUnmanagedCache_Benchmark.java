@@ -0,0 +1,96 @@
+package com.ridgid.oss.cache.redis;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.redisson.api.RMap;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares concurrent merges into a Redis map stand-in with a 100 microsecond round trip, through the unbounded
+ * read-then-compare-and-set retry loop that RedisUnmanagedCache inherited from {@code ConcurrentMap.merge} previously,
+ * against the current merge, which takes the lock of a key after a few lost races. With one hot key, every lost race
+ * of the previous merge costs two more round trips; with many keys, both take the same two round trips per merge.
+ * Throughput on one hot key is bounded by the round trips of each merge either way; the lock trades a little of it
+ * for fewer commands sent to Redis, which are reported as the {@code commands} secondary result: divided by the
+ * throughput, it gives the commands sent per merge, including lost races and locking.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ridgid.oss.cache.redis.RedisUnmanagedCache_Benchmark}
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(16)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisUnmanagedCache_Benchmark {
+
+    @Param({"1", "64"})
+    public int keys;
+
+    private RedisMapStandIn                    redis;
+    private RMap<Integer, Long>                map;
+    private RedisUnmanagedCache<Integer, Long> cache;
+
+    @Setup
+    public void setUp() {
+        redis = new RedisMapStandIn(TimeUnit.MICROSECONDS.toNanos(100));
+        map   = redis.map();
+        cache = new RedisUnmanagedCache<>(redis.client(), "bench");
+    }
+
+    /**
+     * Redis commands sent by a benchmark thread in the current iteration
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Commands {
+        public long commands;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            commands = 0;
+        }
+    }
+
+    @Benchmark
+    public Long legacyMerge(Commands sent) {
+        Integer key   = ThreadLocalRandom.current().nextInt(keys);
+        long    start = redis.commandsOfCurrentThread();
+        try {
+            while (true) {
+                Long present = map.get(key);
+                if (present == null) {
+                    if (map.putIfAbsent(key, 1L) == null) return 1L;
+                } else if (map.replace(key, present, present + 1)) {
+                    return present + 1;
+                }
+            }
+        } finally {
+            sent.commands += redis.commandsOfCurrentThread() - start;
+        }
+    }
+
+    @Benchmark
+    public Long merge(Commands sent) {
+        long start = redis.commandsOfCurrentThread();
+        try {
+            return cache.merge(ThreadLocalRandom.current().nextInt(keys), 1L, Long::sum);
+        } finally {
+            sent.commands += redis.commandsOfCurrentThread() - start;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RedisUnmanagedCache_Benchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
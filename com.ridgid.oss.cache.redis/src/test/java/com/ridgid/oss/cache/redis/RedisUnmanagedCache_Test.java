@@ -0,0 +1,129 @@
+package com.ridgid.oss.cache.redis;
+
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RMap;
+import org.redisson.api.RedissonClient;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RedisUnmanagedCache_Test {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void it_streams_lazily_with_the_scan_page_size_and_stops_scanning_early() {
+        AtomicInteger pulled = new AtomicInteger();
+        RMap<String, Integer> map = mock(RMap.class);
+        when(map.entrySet(anyInt())).thenAnswer(call -> counting(entries(1_000), pulled));
+        when(map.keySet(anyInt())).thenAnswer(call -> counting(entries(1_000).stream()
+                                                                       .map(Map.Entry::getKey)
+                                                                       .collect(Collectors.toCollection(LinkedHashSet::new)),
+                                                               pulled));
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.<String, Integer>getMap("test")).thenReturn(map);
+        RedisUnmanagedCache<String, Integer> cache = new RedisUnmanagedCache<>(client, "test");
+        cache.setScanPageSize(250);
+
+        assertEquals("k0", cache.streamKeys().findFirst().orElse(null));
+        assertEquals(1, pulled.getAndSet(0));
+        assertEquals(10, cache.stream().limit(10).count());
+        assertEquals(10, pulled.getAndSet(0));
+        AtomicInteger sum = new AtomicInteger();
+        cache.forEach((key, value) -> sum.addAndGet(value));
+        assertEquals(1_000 * 999 / 2, sum.get());
+
+        verify(map, times(2)).entrySet(250);
+        verify(map).keySet(250);
+        verify(map, never()).entrySet();
+        verify(map, never()).size();
+    }
+
+    private static Set<Map.Entry<String, Integer>> entries(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new AbstractMap.SimpleImmutableEntry<>("k" + i, i))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Set<T> counting(Set<T> elements, AtomicInteger pulled) {
+        Iterator<T> iterator = elements.iterator();
+        Set<T>      set      = mock(Set.class);
+        when(set.iterator()).thenReturn(new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                pulled.incrementAndGet();
+                return iterator.next();
+            }
+        });
+        return set;
+    }
+
+    @Test
+    void it_merges_atomically_from_concurrent_clients_and_locks_hot_keys() throws Exception {
+        RedisMapStandIn redis   = new RedisMapStandIn(TimeUnit.MICROSECONDS.toNanos(50));
+        Thread[]        clients = new Thread[8];
+        for (int i = 0; i < clients.length; i++) {
+            RedisUnmanagedCache<String, Integer> cache = new RedisUnmanagedCache<>(redis.client(), "test");
+            clients[i] = new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    cache.merge("hot", 1, Integer::sum);
+                    cache.compute("counted", (key, present) -> present == null ? 1 : present + 1);
+                }
+            });
+            clients[i].start();
+        }
+        for (Thread client : clients)
+            client.join();
+
+        assertEquals(800, redis.value("hot"));
+        assertEquals(800, redis.value("counted"));
+        assertTrue(redis.lockAcquisitions.get() > 0);
+
+        RedisUnmanagedCache<String, Integer> cache = new RedisUnmanagedCache<>(redis.client(), "test");
+        assertEquals(800, cache.computeIfAbsent("hot", key -> fail("present")));
+        assertNull(cache.computeIfPresent("hot", (key, present) -> null));
+        assertFalse(redis.data.containsKey("hot"));
+    }
+
+    @Test
+    void it_stores_values_the_remapping_function_modified_in_place() throws Exception {
+        RedisMapStandIn                                 redis = new RedisMapStandIn(0);
+        RedisUnmanagedCache<String, ArrayList<Integer>> cache = new RedisUnmanagedCache<>(redis.client(), "test");
+        cache.put("list", new ArrayList<>(Collections.singletonList(1)));
+
+        ArrayList<Integer> added = new ArrayList<>(Arrays.asList(2, 3));
+        assertEquals(Arrays.asList(1, 2, 3), cache.merge("list", added, (present, value) -> {
+            present.addAll(value);
+            return present;
+        }));
+        assertEquals(Arrays.asList(1, 2, 3), redis.value("list"));
+        assertEquals(Arrays.asList(1, 2, 3, 4), cache.computeIfPresent("list", (key, present) -> {
+            present.add(4);
+            return present;
+        }));
+        assertEquals(Arrays.asList(1, 2, 3, 4), redis.value("list"));
+
+        long commands = redis.commands.get();
+        assertEquals(Arrays.asList(1, 2, 3, 4), cache.compute("list", (key, present) -> present));
+        assertEquals(1, redis.commands.get() - commands, "Unchanged value should not be written");
+    }
+}
@@ -0,0 +1,102 @@
+package com.ridgid.oss.cache.redis;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.ridgid.oss.common.cache.ExpirableWrapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the stream-wrapping encode and decode that RidgidKryoCodec used previously against the current codec,
+ * which reuses the Input and Output of each pooled Kryo and writes into a pooled I/O buffer. Runs with the GC
+ * profiler: {@code gc.alloc.rate.norm} of the codec benchmarks is expected to be a small fraction of the legacy ones,
+ * which allocate a stream and a 4 KiB Kryo buffer per call.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ridgid.oss.cache.redis.RidgidKryoCodec_Benchmark}
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RidgidKryoCodec_Benchmark {
+
+    private RidgidKryoCodec          codec;
+    private ExpirableWrapper<String> value;
+    private ByteBuf                  encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        codec   = new RidgidKryoCodec();
+        value   = ExpirableWrapper.expiringMinutesFromNow("value", 5);
+        encoded = codec.getValueEncoder().encode(value);
+    }
+
+    @TearDown
+    public void tearDown() {
+        encoded.release();
+    }
+
+    @Benchmark
+    public int legacyEncode() {
+        Kryo    kryo = codec.getKryoPool().get();
+        ByteBuf out  = ByteBufAllocator.DEFAULT.buffer();
+        try {
+            ByteBufOutputStream stream = new ByteBufOutputStream(out);
+            Output              output = new Output(stream);
+            kryo.writeClassAndObject(output, value);
+            output.close();
+            return out.readableBytes();
+        } finally {
+            out.release();
+            codec.getKryoPool().yield(kryo);
+        }
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        ByteBuf out = codec.getValueEncoder().encode(value);
+        try {
+            return out.readableBytes();
+        } finally {
+            out.release();
+        }
+    }
+
+    @Benchmark
+    public Object legacyDecode() {
+        Kryo kryo = codec.getKryoPool().get();
+        try {
+            return kryo.readClassAndObject(new Input(new ByteBufInputStream(encoded.duplicate())));
+        } finally {
+            codec.getKryoPool().yield(kryo);
+        }
+    }
+
+    @Benchmark
+    public Object decode() throws IOException {
+        return codec.getValueDecoder().decode(encoded.duplicate(), null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RidgidKryoCodec_Benchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
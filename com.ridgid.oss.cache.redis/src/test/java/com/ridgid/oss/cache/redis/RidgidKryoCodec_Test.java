@@ -0,0 +1,155 @@
+package com.ridgid.oss.cache.redis;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.ridgid.oss.common.cache.ExpirableWrapper;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RidgidKryoCodec_Test {
+
+    private final RidgidKryoCodec codec = new RidgidKryoCodec();
+
+    @Test
+    void it_decodes_consecutive_values_from_heap_and_direct_buffers() throws Exception {
+        Map<String, List<Integer>> first = new HashMap<>();
+        first.put("a", Arrays.asList(1, 2, 3));
+        char[] large = new char[100_000];
+        Arrays.fill(large, 'x');
+        String second = new String(large);
+
+        ByteBuf encodedFirst  = codec.getValueEncoder().encode(first);
+        ByteBuf encodedSecond = codec.getValueEncoder().encode(second);
+        ByteBuf direct        = Unpooled.directBuffer().writeBytes(encodedFirst.duplicate()).writeBytes(encodedSecond.duplicate());
+        ByteBuf heap          = Unpooled.buffer().writeBytes(encodedFirst).writeBytes(encodedSecond);
+        try {
+            for (ByteBuf buf : Arrays.asList(direct, heap)) {
+                assertEquals(first, codec.getValueDecoder().decode(buf, null));
+                assertEquals(second, codec.getValueDecoder().decode(buf, null));
+                assertEquals(0, buf.readableBytes());
+            }
+            assertEquals("small", codec.getValueDecoder().decode(codec.getValueEncoder().encode("small"), null));
+        } finally {
+            encodedFirst.release();
+            encodedSecond.release();
+            direct.release();
+            heap.release();
+        }
+    }
+
+    @Test
+    void it_reuses_the_kryo_of_the_thread_and_retains_at_most_the_max_idle_instances() {
+        RidgidKryoCodec.KryoPoolImpl pool = new RidgidKryoCodec.KryoPoolImpl(Collections.emptyList(), null, 2, false, true)
+                .prewarm(5);
+        assertEquals(2, pool.getCreatedInstances());
+        assertEquals(2, pool.getIdleInstances());
+
+        Kryo first = pool.get();
+        pool.yield(first);
+        assertSame(first, pool.get());
+
+        List<Kryo> burst = new ArrayList<>(Collections.singletonList(first));
+        for (int i = 0; i < 4; i++)
+            burst.add(pool.get());
+        assertEquals(5, pool.getCreatedInstances());
+        burst.forEach(pool::yield);
+        assertEquals(2, pool.getIdleInstances());
+        assertSame(first, pool.get());
+    }
+
+    @Test
+    void it_keeps_no_kryo_per_thread_by_default_and_prewarms_only_the_pool_of_the_original_codec() {
+        RidgidKryoCodec              original = new RidgidKryoCodec();
+        RidgidKryoCodec.KryoPoolImpl pool     = (RidgidKryoCodec.KryoPoolImpl) original.getKryoPool();
+        assertFalse(pool.isThreadInstances());
+        assertEquals(RidgidKryoCodec.DEFAULT_PREWARMED_INSTANCES, pool.getIdleInstances());
+
+        List<Kryo> held = new ArrayList<>();
+        for (int i = 0; i <= pool.getMaxIdleInstances(); i++)
+            held.add(pool.get());
+        held.forEach(pool::yield);
+        assertEquals(pool.getMaxIdleInstances(), pool.getIdleInstances(), "Every instance kept should count against the cap");
+
+        assertSame(pool, new RidgidKryoCodec(null, original).getKryoPool(), "A copy for the same class loader shares the pool");
+        RidgidKryoCodec.KryoPoolImpl copied =
+                (RidgidKryoCodec.KryoPoolImpl) new RidgidKryoCodec(getClass().getClassLoader(), original).getKryoPool();
+        assertNotSame(pool, copied);
+        assertEquals(0, copied.getCreatedInstances(), "A copy for another class loader should create instances on demand");
+    }
+
+    @Test
+    void it_writes_class_ids_instead_of_names_when_registration_is_required() throws Exception {
+        ExpirableWrapper<String> value = ExpirableWrapper.expiringMinutesFromNow("v", 5);
+        RidgidKryoCodec registered = RidgidKryoCodec.registrationRequired(
+                Collections.singletonList(ExpirableWrapper.class), null);
+
+        ByteBuf byName = codec.getValueEncoder().encode(value);
+        ByteBuf byId   = registered.getValueEncoder().encode(value);
+        try {
+            assertTrue(byId.readableBytes() < byName.readableBytes() - ExpirableWrapper.class.getName().length());
+            ExpirableWrapper<?> copy = (ExpirableWrapper<?>) registered.getValueDecoder().decode(byId, null);
+            assertEquals("v", copy.unwrap());
+            assertThrows(IllegalArgumentException.class, () -> registered.getValueEncoder().encode(new HashMap<>()));
+        } finally {
+            byName.release();
+            byId.release();
+        }
+    }
+
+    @Test
+    void it_compresses_framed_values_above_the_threshold_and_decodes_any_compression() throws Exception {
+        RidgidKryoCodec lz4    = codec.withCompression(CodecCompression.LZ4, 1024);
+        RidgidKryoCodec snappy = codec.withCompression(CodecCompression.SNAPPY, 1024);
+        char[]          chars  = new char[10_000];
+        Arrays.fill(chars, 'x');
+        String large = new String(chars);
+
+        ByteBuf small      = lz4.getValueEncoder().encode("small");
+        ByteBuf compressed = lz4.getValueEncoder().encode(large);
+        ByteBuf bySnappy   = snappy.getValueEncoder().encode(large);
+        ByteBuf buf        = Unpooled.buffer()
+                .writeBytes(small.duplicate())
+                .writeBytes(compressed.duplicate())
+                .writeBytes(bySnappy.duplicate());
+        try {
+            assertTrue(compressed.readableBytes() < 200);
+            assertEquals("small", snappy.getValueDecoder().decode(buf, null));
+            assertEquals(large, snappy.getValueDecoder().decode(buf, null));
+            assertEquals(large, lz4.getValueDecoder().decode(buf, null));
+            assertEquals(0, buf.readableBytes());
+
+            CodecStats stats = lz4.getStats();
+            assertEquals(2, stats.encodedCount());
+            assertEquals(1, stats.compressedCount());
+            assertEquals(1, stats.decodedCount());
+            assertTrue(stats.compressionRatio() > 10);
+            assertEquals(stats.compressedCount(), new RidgidKryoCodec(null, lz4).getStats().compressedCount());
+        } finally {
+            small.release();
+            compressed.release();
+            bySnappy.release();
+            buf.release();
+        }
+    }
+
+    @Test
+    void it_rejects_frames_of_another_version() throws Exception {
+        RidgidKryoCodec framed = codec.withCompression(CodecCompression.NONE, 0);
+        ByteBuf         buf    = framed.getValueEncoder().encode("v");
+        try {
+            buf.setByte(0, (RidgidKryoCodec.FRAME_VERSION + 1) << 4);
+            assertThrows(RidgidKryoCodec.RidgidKryoCodecException.class, () -> framed.getValueDecoder().decode(buf, null));
+        } finally {
+            buf.release();
+        }
+    }
+}
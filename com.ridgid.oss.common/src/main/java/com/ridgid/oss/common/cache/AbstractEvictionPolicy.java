@@ -0,0 +1,54 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base for eviction policies that keeps the hit, miss and eviction counters
+ *
+ * @param <K> key type of the cache
+ * @param <V> value type of the cache
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public abstract class AbstractEvictionPolicy<K, V> implements EvictionPolicy<K, V> {
+
+    private final LongAdder hits      = new LongAdder();
+    private final LongAdder misses    = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Override
+    public final void recordRead(K key, boolean hit) {
+        (hit ? hits : misses).increment();
+        onRead(key, hit);
+    }
+
+    @Override
+    public final void recordReads(Collection<? extends K> hitKeys, Collection<? extends K> missedKeys) {
+        hits.add(hitKeys.size());
+        misses.add(missedKeys.size());
+        onReads(hitKeys, missedKeys);
+    }
+
+    @Override
+    public final List<K> selectVictims(int count, Set<K> residentKeys) {
+        List<K> victims = doSelectVictims(count, residentKeys);
+        evictions.add(victims.size());
+        return victims;
+    }
+
+    @Override
+    public EvictionPolicyStats stats() {
+        return new EvictionPolicyStats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    protected abstract void onRead(K key, boolean hit);
+
+    protected void onReads(Collection<? extends K> hitKeys, Collection<? extends K> missedKeys) {
+        hitKeys.forEach(key -> onRead(key, true));
+        missedKeys.forEach(key -> onRead(key, false));
+    }
+
+    protected abstract List<K> doSelectVictims(int count, Set<K> residentKeys);
+}
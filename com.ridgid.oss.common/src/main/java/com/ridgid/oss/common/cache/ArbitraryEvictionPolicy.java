@@ -0,0 +1,43 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Evicts whichever keys the cache's key set iterates first. Keeps no per-key state.
+ *
+ * @param <K> key type of the cache
+ * @param <V> value type of the cache
+ */
+@SuppressWarnings("unused")
+public class ArbitraryEvictionPolicy<K, V> extends AbstractEvictionPolicy<K, V> {
+
+    @Override
+    protected void onRead(K key, boolean hit) {
+    }
+
+    @Override
+    public void recordWrite(K key) {
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+    }
+
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    protected List<K> doSelectVictims(int count, Set<K> residentKeys) {
+        if (count <= 0) return Collections.emptyList();
+        List<K>     victims = new ArrayList<>(count);
+        Iterator<K> keys    = residentKeys.iterator();
+        while (victims.size() < count && keys.hasNext())
+            victims.add(keys.next());
+        return victims;
+    }
+}
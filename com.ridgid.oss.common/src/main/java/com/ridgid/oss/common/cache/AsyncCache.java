@@ -0,0 +1,91 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+
+/**
+ * Cache whose operations do not wait for a remote store, for callers that issue many operations per request.
+ * <p>
+ * Implementations may hold writes back to coalesce them (write-behind): a future of a write completes once the write
+ * has been stored, and {@link #flush()} stores all writes held back so far. Reads made through the same instance see
+ * writes held back.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+@SuppressWarnings("unused")
+public interface AsyncCache<K, V> extends AutoCloseable {
+
+    /**
+     * @param key to get the value of
+     * @return future of the value, or of null if the key is absent
+     */
+    CompletableFuture<V> getAsync(K key);
+
+    /**
+     * @param keys to get the values of
+     * @return future of the values of the keys that are present
+     */
+    CompletableFuture<Map<K, V>> getAllAsync(Collection<? extends K> keys);
+
+    CompletableFuture<Boolean> containsKeyAsync(K key);
+
+    /**
+     * @param key   to write
+     * @param value of the key
+     * @return future completed once the value, or a later value of the key coalesced with it, has been stored
+     */
+    CompletableFuture<Void> putAsync(K key, V value);
+
+    /**
+     * @param m entries to write
+     * @return future completed once all of the entries have been stored
+     */
+    CompletableFuture<Void> putAllAsync(Map<? extends K, ? extends V> m);
+
+    /**
+     * @param key   to write
+     * @param value of the key if absent
+     * @return future of the value already present, or of null if the value was stored
+     */
+    CompletableFuture<V> putIfAbsentAsync(K key, V value);
+
+    /**
+     * Asynchronous equivalent of {@link Cache#merge(Object, Object, BiFunction)}
+     *
+     * @param key               to merge the value into
+     * @param value             to merge
+     * @param remappingFunction combines the present value with the given one; a null result removes the key
+     * @return future of the value of the key once the merge, and any later write of the key coalesced with it, has
+     * been stored
+     */
+    CompletableFuture<V> mergeAsync(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction);
+
+    /**
+     * @param key to remove
+     * @return future completed once the key has been removed
+     */
+    CompletableFuture<Void> removeAsync(K key);
+
+    /**
+     * Stores the writes held back so far
+     *
+     * @return future completed once they have been stored
+     */
+    CompletableFuture<Void> flush();
+
+    /**
+     * @return statistics of the cache, or empty statistics if the cache does not record them
+     */
+    default CacheStats stats() {
+        return CacheStats.empty();
+    }
+
+    /**
+     * Stores the writes held back and stops any background flushing
+     */
+    @Override
+    void close();
+}
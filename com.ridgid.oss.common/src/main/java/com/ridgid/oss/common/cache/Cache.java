@@ -1,7 +1,12 @@
 package com.ridgid.oss.common.cache;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -33,6 +38,46 @@ public interface Cache<K, V> {
 
     V getOrDefault(K key, V defaultValue);
 
+    /**
+     * Gets the values of several keys at once
+     *
+     * @param keys to get the values of
+     * @return map of the keys that are present to their values
+     */
+    default Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> found = new HashMap<>();
+        for (K key : keys) {
+            V value = getOrDefault(key, null);
+            if (value != null) found.put(key, value);
+        }
+        return found;
+    }
+
+    /**
+     * Gets the values of several keys at once, computing the values of all of the absent keys with a single call of
+     * the mapping function. Computed values are added only if the key is still absent; otherwise the value present is
+     * returned.
+     *
+     * The call of the mapping function is recorded as a single load by the {@link #statsCounter()} of the cache.
+     *
+     * @param keys            to get the values of
+     * @param mappingFunction computes the values of the absent keys; keys it leaves out (or maps to null) remain absent
+     * @return map of the keys that are present, or were computed, to their values
+     */
+    default Map<K, V> computeAllIfAbsent(Collection<? extends K> keys,
+                                         Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> mappingFunction) {
+        Map<K, V> found  = getAll(keys);
+        Set<K>    absent = new LinkedHashSet<>(keys);
+        absent.removeAll(found.keySet());
+        if (absent.isEmpty()) return found;
+        statsCounter().load(Collections.unmodifiableSet(absent), mappingFunction).forEach((key, value) -> {
+            if (value == null || !absent.contains(key)) return;
+            V present = putIfAbsent(key, value);
+            found.put(key, present == null ? value : present);
+        });
+        return found;
+    }
+
     V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction);
 
     V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction);
@@ -56,4 +101,19 @@ public interface Cache<K, V> {
 
     V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction);
 
+    /**
+     * @return snapshot of the statistics of this cache, or {@link CacheStats#empty()} if it does not record any
+     */
+    default CacheStats stats() {
+        return CacheStats.empty();
+    }
+
+    /**
+     * @return counter this cache records its statistics into, e.g. for caches loading through it to record their
+     * loads, or {@link StatsCounter#disabled()} if it does not record any
+     */
+    default StatsCounter statsCounter() {
+        return StatsCounter.disabled();
+    }
+
 }
@@ -0,0 +1,383 @@
+package com.ridgid.oss.common.cache;
+
+import java.nio.file.Path;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Fluent builder of the in-memory cache types of this package, and of any other cache type through
+ * {@link #build(Function)}.
+ * <p>
+ * A managed cache is bounded either by number of entries ({@link #maxCapacity(long)}) or, when given a
+ * {@link Weigher}, by total weight ({@link #maxWeight(long)}). When a cleanup finds the cache over its maximum, it
+ * evicts entries chosen by the eviction policy until the cache is at or under the evict-to bound.
+ * <p>
+ * {@code
+ * InMemoryLRUCache<String, Product> products = CacheBuilder.newBuilder()
+ * .maxCapacity(2_000_000)
+ * .evictToCapacity(1_800_000)
+ * .concurrencyLevel(16)
+ * .buildLRU();
+ * }
+ *
+ * @param <K> key type of the caches built
+ * @param <V> value type of the caches built
+ */
+@SuppressWarnings({"unused", "WeakerAccess", "unchecked"})
+public final class CacheBuilder<K, V> {
+
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+
+    private static final int UNSET = -1;
+
+    private int                                      initialCapacity             = 16;
+    private int                                      concurrencyLevel            = Runtime.getRuntime().availableProcessors();
+    private long                                     maxCapacity                 = UNSET;
+    private long                                     evictToCapacity             = UNSET;
+    private long                                     maxWeight                   = UNSET;
+    private long                                     evictToWeight               = UNSET;
+    private Weigher<? super K, ? super V>            weigher;
+    private int                                      timeoutCheckIntervalSeconds = 0;
+    private Supplier<? extends EvictionPolicy<?, ?>> evictionPolicySupplier;
+    private CacheMaintenanceScheduler                maintenanceScheduler;
+    private Supplier<? extends StatsCounter>         statsCounterSupplier        = StatsCounter::disabled;
+    private Path                                     snapshotFile;
+    private ValueSerializer<?>                       snapshotKeySerializer;
+    private ValueSerializer<?>                       snapshotValueSerializer;
+    private int                                      snapshotIntervalSeconds;
+
+    private CacheBuilder() {
+    }
+
+    public static CacheBuilder<Object, Object> newBuilder() {
+        return new CacheBuilder<>();
+    }
+
+    static <K, V> CacheBuilder<K, V> forCapacities(short timeoutCheckIntervalSeconds,
+                                                   short initialCapacity,
+                                                   short maxCapacity,
+                                                   short evictToCapacity) {
+        CacheBuilder<K, V> builder = new CacheBuilder<>();
+        builder.timeoutCheckIntervalSeconds = timeoutCheckIntervalSeconds;
+        builder.initialCapacity = initialCapacity;
+        builder.maxCapacity = maxCapacity;
+        builder.evictToCapacity = evictToCapacity;
+        return builder;
+    }
+
+    /**
+     * @param initialCapacity number of entries to size internal tables for (default: 16)
+     * @return this builder
+     */
+    public CacheBuilder<K, V> initialCapacity(int initialCapacity) {
+        if (initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must not be negative");
+        this.initialCapacity = initialCapacity;
+        return this;
+    }
+
+    /**
+     * @param concurrencyLevel estimated number of threads concurrently updating the cache (default: number of
+     *                         processors)
+     * @return this builder
+     */
+    public CacheBuilder<K, V> concurrencyLevel(int concurrencyLevel) {
+        if (concurrencyLevel < 1) throw new IllegalArgumentException("concurrencyLevel must be at least 1");
+        this.concurrencyLevel = concurrencyLevel;
+        return this;
+    }
+
+    /**
+     * @param maxCapacity maximum number of entries before a cleanup evicts entries (default: unbounded)
+     * @return this builder
+     */
+    public CacheBuilder<K, V> maxCapacity(long maxCapacity) {
+        if (maxCapacity < 0) throw new IllegalArgumentException("maxCapacity must not be negative");
+        this.maxCapacity = maxCapacity;
+        return this;
+    }
+
+    /**
+     * @param evictToCapacity number of entries a cleanup evicts down to (default: the maximum capacity)
+     * @return this builder
+     */
+    public CacheBuilder<K, V> evictToCapacity(long evictToCapacity) {
+        if (evictToCapacity < 0) throw new IllegalArgumentException("evictToCapacity must not be negative");
+        this.evictToCapacity = evictToCapacity;
+        return this;
+    }
+
+    /**
+     * @param maxWeight maximum total weight of the entries before a cleanup evicts entries; requires a weigher
+     * @return this builder
+     */
+    public CacheBuilder<K, V> maxWeight(long maxWeight) {
+        if (maxWeight < 0) throw new IllegalArgumentException("maxWeight must not be negative");
+        this.maxWeight = maxWeight;
+        return this;
+    }
+
+    /**
+     * @param evictToWeight total weight a cleanup evicts down to (default: the maximum weight)
+     * @return this builder
+     */
+    public CacheBuilder<K, V> evictToWeight(long evictToWeight) {
+        if (evictToWeight < 0) throw new IllegalArgumentException("evictToWeight must not be negative");
+        this.evictToWeight = evictToWeight;
+        return this;
+    }
+
+    /**
+     * @param weigher computes the weight of each entry
+     * @param <K1>    key type of the caches built
+     * @param <V1>    value type of the caches built
+     * @return this builder
+     */
+    public <K1 extends K, V1 extends V> CacheBuilder<K1, V1> weigher(Weigher<? super K1, ? super V1> weigher) {
+        CacheBuilder<K1, V1> self = (CacheBuilder<K1, V1>) this;
+        self.weigher = weigher;
+        return self;
+    }
+
+    /**
+     * @param timeoutCheckIntervalSeconds interval of the regular cleanup, or 0 for none (default: 0)
+     * @return this builder
+     */
+    public CacheBuilder<K, V> timeoutCheckIntervalSeconds(int timeoutCheckIntervalSeconds) {
+        if (timeoutCheckIntervalSeconds < 0)
+            throw new IllegalArgumentException("timeoutCheckIntervalSeconds must not be negative");
+        this.timeoutCheckIntervalSeconds = timeoutCheckIntervalSeconds;
+        return this;
+    }
+
+    /**
+     * @param evictionPolicySupplier creates the eviction policy of each cache built (default depends on the type of
+     *                               cache built)
+     * @return this builder
+     */
+    public CacheBuilder<K, V> evictionPolicy(Supplier<? extends EvictionPolicy<?, ?>> evictionPolicySupplier) {
+        this.evictionPolicySupplier = evictionPolicySupplier;
+        return this;
+    }
+
+    /**
+     * @param maintenanceScheduler runs the cleanup of the caches built (default: {@link CacheMaintenanceScheduler#shared()})
+     * @return this builder
+     */
+    public CacheBuilder<K, V> maintenanceScheduler(CacheMaintenanceScheduler maintenanceScheduler) {
+        this.maintenanceScheduler = maintenanceScheduler;
+        return this;
+    }
+
+    /**
+     * Enables the recording of {@link CacheStats} by the caches built; without it they record nothing
+     *
+     * @return this builder
+     */
+    public CacheBuilder<K, V> recordStats() {
+        return recordStats(ConcurrentStatsCounter::new);
+    }
+
+    /**
+     * @param statsCounterSupplier creates the counter each cache built records its statistics into
+     * @return this builder
+     */
+    public CacheBuilder<K, V> recordStats(Supplier<? extends StatsCounter> statsCounterSupplier) {
+        this.statsCounterSupplier = statsCounterSupplier;
+        return this;
+    }
+
+    /**
+     * Makes the managed cache built start warm from a {@link CacheSnapshot} in the given file. The cache takes entries
+     * from the snapshot as their keys are first read, and writes a new snapshot when closed and, if
+     * {@code snapshotIntervalSeconds} is positive, at that interval. Each cache built needs a file of its own.
+     *
+     * @param file                    of the snapshot
+     * @param keySerializer           converts the keys to and from bytes
+     * @param valueSerializer         converts the values to and from bytes
+     * @param snapshotIntervalSeconds interval of the regular snapshots, or 0 to snapshot only on close
+     * @param <K1>                    key type of the caches built
+     * @param <V1>                    value type of the caches built
+     * @return this builder
+     */
+    public <K1 extends K, V1 extends V> CacheBuilder<K1, V1> warmStartSnapshot(Path file,
+                                                                               ValueSerializer<K1> keySerializer,
+                                                                               ValueSerializer<V1> valueSerializer,
+                                                                               int snapshotIntervalSeconds) {
+        if (snapshotIntervalSeconds < 0)
+            throw new IllegalArgumentException("snapshotIntervalSeconds must not be negative");
+        CacheBuilder<K1, V1> self = (CacheBuilder<K1, V1>) this;
+        self.snapshotFile            = file;
+        self.snapshotKeySerializer   = keySerializer;
+        self.snapshotValueSerializer = valueSerializer;
+        self.snapshotIntervalSeconds = snapshotIntervalSeconds;
+        return self;
+    }
+
+    public <K1 extends K, V1 extends V> InMemoryUnmanagedCache<K1, V1> buildUnmanaged() {
+        return new InMemoryUnmanagedCache<>(initialCapacity, concurrencyLevel, statsCounterSupplier.get());
+    }
+
+    /**
+     * @return managed cache using the configured eviction policy, or {@link ArbitraryEvictionPolicy} by default
+     */
+    public <K1 extends K, V1 extends V> InMemoryManagedCache<K1, V1> buildManaged() {
+        validate();
+        return new InMemoryManagedCache<>(
+                (CacheBuilder<K1, V1>) this,
+                evictionPolicyOr(ArbitraryEvictionPolicy::new)
+        );
+    }
+
+    /**
+     * @return LRU cache; an explicitly configured eviction policy is not used
+     */
+    public <K1 extends K, V1 extends V> InMemoryLRUCache<K1, V1> buildLRU() {
+        validate();
+        return new InMemoryLRUCache<>((CacheBuilder<K1, V1>) this);
+    }
+
+    /**
+     * @return expirable cache using the configured eviction policy, or {@link ArbitraryEvictionPolicy} by default
+     */
+    public <K1 extends K, V1 extends Expirable> InMemoryExpirableCache<K1, V1> buildExpirable() {
+        validate();
+        return new InMemoryExpirableCache<>(
+                (CacheBuilder<K1, V1>) this,
+                evictionPolicyOr(ArbitraryEvictionPolicy::new)
+        );
+    }
+
+    /**
+     * @return expirable LRU cache; an explicitly configured eviction policy is not used
+     */
+    public <K1 extends K, V1 extends Expirable> InMemoryExpirableLRUCache<K1, V1> buildExpirableLRU() {
+        validate();
+        return new InMemoryExpirableLRUCache<>((CacheBuilder<K1, V1>) this);
+    }
+
+    /**
+     * Builds a cache that keeps its values serialized off-heap. It is bounded by {@link #maxWeight(long)} and
+     * {@link #evictToWeight(long)} in bytes of off-heap memory, and does not take a weigher or a capacity in entries.
+     *
+     * @param serializer converts the values to and from bytes
+     * @return off-heap cache using the configured eviction policy, or {@link LruEvictionPolicy} by default
+     */
+    public <K1 extends K, V1 extends V> OffHeapCache<K1, V1> buildOffHeap(ValueSerializer<V1> serializer) {
+        if (weigher != null)
+            throw new IllegalStateException("Off-heap caches are weighed by the off-heap size of their values");
+        if (maxCapacity != UNSET || evictToCapacity != UNSET)
+            throw new IllegalStateException("Off-heap caches are bounded by maxWeight and evictToWeight, in bytes");
+        if (snapshotFile != null)
+            throw new IllegalStateException("Off-heap caches do not support warm-start snapshots");
+        CacheBuilder<K1, OffHeapValue> handles = new CacheBuilder<>();
+        handles.initialCapacity             = initialCapacity;
+        handles.concurrencyLevel            = concurrencyLevel;
+        handles.maxWeight                   = maxWeight;
+        handles.evictToWeight               = evictToWeight;
+        handles.weigher                     = (key, value) -> value.chunkSize;
+        handles.timeoutCheckIntervalSeconds = timeoutCheckIntervalSeconds;
+        handles.maintenanceScheduler        = maintenanceScheduler;
+        handles.statsCounterSupplier        = statsCounterSupplier;
+        handles.validate();
+        return new OffHeapCache<>(
+                handles,
+                evictionPolicySupplier == null
+                        ? new LruEvictionPolicy<>(initialCapacity, concurrencyLevel)
+                        : (EvictionPolicy<K1, OffHeapValue>) evictionPolicySupplier.get(),
+                serializer
+        );
+    }
+
+    /**
+     * Builds a cache of a type not known to this package (e.g. a Redis backed cache) from this builder's settings
+     *
+     * @param factory creates the cache from this builder
+     * @param <C>     type of cache built
+     * @return the cache built by the factory
+     */
+    public <C extends Cache<?, ?>> C build(Function<? super CacheBuilder<K, V>, C> factory) {
+        validate();
+        return factory.apply(this);
+    }
+
+    private void validate() {
+        if (weigher == null) {
+            if (maxWeight != UNSET || evictToWeight != UNSET)
+                throw new IllegalStateException("maxWeight and evictToWeight require a weigher");
+        } else if (maxCapacity != UNSET || evictToCapacity != UNSET)
+            throw new IllegalStateException("maxCapacity and evictToCapacity cannot be used with a weigher");
+        if (getEvictToSize() > getMaxSize())
+            throw new IllegalStateException("The evict-to bound must not exceed the maximum");
+    }
+
+    private <K1, V1> EvictionPolicy<K1, V1> evictionPolicyOr(Supplier<EvictionPolicy<K1, V1>> defaultPolicy) {
+        return evictionPolicySupplier == null
+                ? defaultPolicy.get()
+                : (EvictionPolicy<K1, V1>) evictionPolicySupplier.get();
+    }
+
+    public int getInitialCapacity() {
+        return initialCapacity;
+    }
+
+    public int getConcurrencyLevel() {
+        return concurrencyLevel;
+    }
+
+    /**
+     * @return maximum number of entries, or maximum total weight if weighted
+     */
+    public long getMaxSize() {
+        long max = weigher == null ? maxCapacity : maxWeight;
+        return max == UNSET ? UNBOUNDED : max;
+    }
+
+    /**
+     * @return number of entries, or total weight if weighted, that a cleanup evicts down to
+     */
+    public long getEvictToSize() {
+        long evictTo = weigher == null ? evictToCapacity : evictToWeight;
+        return evictTo == UNSET ? getMaxSize() : evictTo;
+    }
+
+    /**
+     * @return the weigher, or null if the caches built are bounded by number of entries
+     */
+    public Weigher<? super K, ? super V> getWeigher() {
+        return weigher;
+    }
+
+    public int getTimeoutCheckIntervalSeconds() {
+        return timeoutCheckIntervalSeconds;
+    }
+
+    public CacheMaintenanceScheduler getMaintenanceScheduler() {
+        return maintenanceScheduler == null ? CacheMaintenanceScheduler.shared() : maintenanceScheduler;
+    }
+
+    /**
+     * @return creates the counter of each cache built; the counter records nothing unless stats are enabled
+     */
+    public Supplier<? extends StatsCounter> getStatsCounterSupplier() {
+        return statsCounterSupplier;
+    }
+
+    /**
+     * @return file of the warm-start snapshot of the cache built, or null if it starts cold
+     */
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public ValueSerializer<K> getSnapshotKeySerializer() {
+        return (ValueSerializer<K>) snapshotKeySerializer;
+    }
+
+    public ValueSerializer<V> getSnapshotValueSerializer() {
+        return (ValueSerializer<V>) snapshotValueSerializer;
+    }
+
+    public int getSnapshotIntervalSeconds() {
+        return snapshotIntervalSeconds;
+    }
+}
@@ -0,0 +1,141 @@
+package com.ridgid.oss.common.cache;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registers the statistics of caches with the platform MBean server, under
+ * {@code com.ridgid.oss.common.cache:type=CacheStats,name=<name>}
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class CacheMBeans {
+
+    private static final String DOMAIN = "com.ridgid.oss.common.cache";
+
+    private CacheMBeans() {
+    }
+
+    /**
+     * Registers the statistics of the cache, replacing any cache registered under the same name. The cache records
+     * statistics only if built with {@link CacheBuilder#recordStats()}.
+     *
+     * @param name  of the cache
+     * @param cache whose statistics to expose
+     * @return name the statistics are registered under
+     */
+    public static ObjectName register(String name, Cache<?, ?> cache) {
+        ObjectName  objectName = objectNameOf(name);
+        MBeanServer server     = ManagementFactory.getPlatformMBeanServer();
+        try {
+            try {
+                server.registerMBean(new CacheStatsBean(cache), objectName);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(objectName);
+                server.registerMBean(new CacheStatsBean(cache), objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to register statistics of cache " + name, e);
+        }
+        return objectName;
+    }
+
+    /**
+     * @param name of a cache registered with {@link #register(String, Cache)}; unknown names are ignored
+     */
+    public static void unregister(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectNameOf(name));
+        } catch (InstanceNotFoundException ignored) {
+            // Already unregistered
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to unregister statistics of cache " + name, e);
+        }
+    }
+
+    public static ObjectName objectNameOf(String name) {
+        try {
+            return new ObjectName(DOMAIN + ":type=CacheStats,name=" + ObjectName.quote(name));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid cache name: " + name, e);
+        }
+    }
+
+    private static final class CacheStatsBean implements CacheStatsMXBean {
+
+        private final Cache<?, ?> cache;
+
+        private CacheStatsBean(Cache<?, ?> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public long getSize() {
+            return cache.size();
+        }
+
+        @Override
+        public long getHitCount() {
+            return cache.stats().hitCount();
+        }
+
+        @Override
+        public long getMissCount() {
+            return cache.stats().missCount();
+        }
+
+        @Override
+        public double getHitRate() {
+            return cache.stats().hitRate();
+        }
+
+        @Override
+        public long getPutCount() {
+            return cache.stats().putCount();
+        }
+
+        @Override
+        public long getExpiredEvictionCount() {
+            return cache.stats().evictionCount(EvictionCause.EXPIRED);
+        }
+
+        @Override
+        public long getCapacityEvictionCount() {
+            return cache.stats().evictionCount(EvictionCause.CAPACITY);
+        }
+
+        @Override
+        public long getLoadSuccessCount() {
+            return cache.stats().loadSuccessCount();
+        }
+
+        @Override
+        public long getLoadFailureCount() {
+            return cache.stats().loadFailureCount();
+        }
+
+        @Override
+        public double getAverageLoadPenaltyNanos() {
+            return cache.stats().averageLoadPenaltyNanos();
+        }
+
+        @Override
+        public long[] getLoadLatencyHistogram() {
+            return cache.stats().loadLatencyHistogram();
+        }
+
+        @Override
+        public long getCleanupCount() {
+            return cache.stats().cleanupCount();
+        }
+
+        @Override
+        public double getAverageCleanupNanos() {
+            return cache.stats().averageCleanupNanos();
+        }
+    }
+}
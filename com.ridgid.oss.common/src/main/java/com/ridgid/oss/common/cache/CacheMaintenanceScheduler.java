@@ -0,0 +1,227 @@
+package com.ridgid.oss.common.cache;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of daemon threads that runs the periodic and on-demand cleanup of managed caches.
+ * <p>
+ * All caches share {@link #shared()} unless given a scheduler of their own built with {@link #builder()}. Cleanup
+ * requests are coalesced per cache: while a request is queued, further requests are ignored, and a request made while
+ * the cache is being cleaned up causes one more pass once the current pass completes. Registrations reference their
+ * cache weakly, so a cache that is never closed stops being maintained once it is garbage collected.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class CacheMaintenanceScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(CacheMaintenanceScheduler.class.getName());
+
+    private static volatile CacheMaintenanceScheduler shared;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final long                        cleanupDelayMillis;
+
+    private CacheMaintenanceScheduler(CacheMaintenanceSchedulerBuilder built) {
+        this.executor           = new ScheduledThreadPoolExecutor(built.threads, makeThreadFactory(built.threadNamePrefix));
+        this.cleanupDelayMillis = built.cleanupDelayMillis;
+        this.executor.setRemoveOnCancelPolicy(true);
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * @return the scheduler used by caches that are not given one explicitly
+     */
+    public static CacheMaintenanceScheduler shared() {
+        CacheMaintenanceScheduler scheduler = shared;
+        if (scheduler == null)
+            synchronized (CacheMaintenanceScheduler.class) {
+                scheduler = shared;
+                if (scheduler == null)
+                    shared = scheduler = builder().build();
+            }
+        return scheduler;
+    }
+
+    public static CacheMaintenanceSchedulerBuilder builder() {
+        return new CacheMaintenanceSchedulerBuilder();
+    }
+
+    private static ThreadFactory makeThreadFactory(String threadNamePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Registers a cache for maintenance. The cleanup action must not capture the owner; it is handed the owner each
+     * time it runs so that the registration does not keep the owner reachable.
+     *
+     * @param owner        cache to maintain
+     * @param cleanup      action that cleans up the owner
+     * @param periodMillis interval at which to run the cleanup regardless of requests, or 0 to run only on request
+     * @param <T>          type of the owner
+     * @return registration through which cleanup is requested and maintenance is cancelled
+     */
+    public <T> Registration register(T owner,
+                                     Consumer<? super T> cleanup,
+                                     long periodMillis) {
+        Registration registration = new Registration(new Cleanup<>(owner, cleanup));
+        if (periodMillis > 0)
+            registration.periodic = executor.scheduleWithFixedDelay
+                    (
+                            registration::run,
+                            periodMillis,
+                            periodMillis,
+                            TimeUnit.MILLISECONDS
+                    );
+        return registration;
+    }
+
+    /**
+     * Stops all maintenance run by this scheduler. The shared scheduler cannot be shut down.
+     */
+    public void shutdown() {
+        if (this == shared)
+            throw new IllegalStateException("The shared cache maintenance scheduler cannot be shut down");
+        executor.shutdownNow();
+    }
+
+    /**
+     * Maintenance of a single cache
+     */
+    public final class Registration {
+
+        private final Cleanup<?>    cleanup;
+        private final AtomicBoolean queued  = new AtomicBoolean();
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private volatile boolean            rerun;
+        private volatile boolean            cancelled;
+        private volatile ScheduledFuture<?> periodic;
+
+        private Registration(Cleanup<?> cleanup) {
+            this.cleanup = cleanup;
+        }
+
+        /**
+         * Requests a cleanup of the cache shortly. Does nothing if a requested cleanup is already queued.
+         */
+        public void requestCleanup() {
+            if (cancelled || !queued.compareAndSet(false, true)) return;
+            try {
+                executor.schedule
+                        (
+                                this::runRequested,
+                                cleanupDelayMillis,
+                                TimeUnit.MILLISECONDS
+                        );
+            } catch (RuntimeException e) {
+                queued.set(false);
+                throw e;
+            }
+        }
+
+        /**
+         * Stops all maintenance of the cache. A cleanup already under way is allowed to complete.
+         */
+        public void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> future = periodic;
+            if (future != null) future.cancel(false);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        private void runRequested() {
+            queued.set(false);
+            run();
+        }
+
+        private void run() {
+            rerun = true;
+            while (rerun && !cancelled && running.compareAndSet(false, true))
+                try {
+                    rerun = false;
+                    if (!cleanup.run()) cancel();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Cache cleanup failed", e);
+                } finally {
+                    running.set(false);
+                }
+        }
+    }
+
+    private static final class Cleanup<T> {
+        private final WeakReference<T>    owner;
+        private final Consumer<? super T> action;
+
+        private Cleanup(T owner,
+                        Consumer<? super T> action) {
+            this.owner  = new WeakReference<>(owner);
+            this.action = action;
+        }
+
+        private boolean run() {
+            T target = owner.get();
+            if (target == null) return false;
+            action.accept(target);
+            return true;
+        }
+    }
+
+    public static final class CacheMaintenanceSchedulerBuilder {
+
+        private int    threads            = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() / 2));
+        private long   cleanupDelayMillis = 10;
+        private String threadNamePrefix   = "cache-maintenance-";
+
+        private CacheMaintenanceSchedulerBuilder() {
+        }
+
+        /**
+         * @param threads maximum number of cleanups run concurrently (default: 1 or 2 depending on processor count)
+         * @return this builder
+         */
+        public CacheMaintenanceSchedulerBuilder threads(int threads) {
+            if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * @param cleanupDelayMillis delay between a cleanup being requested and it being run (default: 10)
+         * @return this builder
+         */
+        public CacheMaintenanceSchedulerBuilder cleanupDelayMillis(long cleanupDelayMillis) {
+            if (cleanupDelayMillis < 0) throw new IllegalArgumentException("cleanupDelayMillis must not be negative");
+            this.cleanupDelayMillis = cleanupDelayMillis;
+            return this;
+        }
+
+        /**
+         * @param threadNamePrefix prefix of the names of the maintenance threads (default: "cache-maintenance-")
+         * @return this builder
+         */
+        public CacheMaintenanceSchedulerBuilder threadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+            return this;
+        }
+
+        public CacheMaintenanceScheduler build() {
+            return new CacheMaintenanceScheduler(this);
+        }
+    }
+}
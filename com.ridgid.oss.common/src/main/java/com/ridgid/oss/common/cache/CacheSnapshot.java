@@ -0,0 +1,250 @@
+package com.ridgid.oss.common.cache;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Snapshot of the entries of a managed cache in a memory-mapped file, from which the cache starts warm after a
+ * restart instead of reloading every entry from its source.
+ * <p>
+ * The file holds a header (magic number, format version and number of entries) followed by one record per entry, from
+ * the entry the cache would evict first to the one it would evict last. A record holds the expiration time of the
+ * value ({@link Expirable#expirationTimeMillis()}, or {@link Long#MAX_VALUE} for values that do not expire), the
+ * lengths of the serialized key and value, then their bytes.
+ * <p>
+ * Opening a snapshot maps the file and deserializes the keys of the entries that have not expired; the records of
+ * expired entries are skipped without deserializing them. Each value is deserialized only when the cache takes it,
+ * the first time its key is read. When the snapshot holds more entries than the cache may keep, the entries the cache
+ * would have evicted first are dropped.
+ * <p>
+ * {@code
+ * InMemoryLRUCache<Long, Product> products = CacheBuilder.newBuilder()
+ * .maxCapacity(2_000_000)
+ * .warmStartSnapshot(Paths.get("/var/cache/products.snapshot"), longs, productSerializer, 600)
+ * .buildLRU();
+ * }
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class CacheSnapshot<K, V> {
+
+    private static final int MAGIC               = 0x52434348;
+    private static final int VERSION             = 1;
+    private static final int HEADER_BYTES        = 12;
+    private static final int RECORD_HEADER_BYTES = 16;
+
+    private final ByteBuffer         buffer;
+    private final ValueSerializer<V> valueSerializer;
+    private final Map<K, Integer>    offsets;
+
+    private CacheSnapshot(ByteBuffer buffer,
+                          ValueSerializer<V> valueSerializer,
+                          Map<K, Integer> offsets) {
+        this.buffer          = buffer;
+        this.valueSerializer = valueSerializer;
+        this.offsets         = offsets;
+    }
+
+    /**
+     * Writes the live entries of the cache to the file, replacing it atomically. Entries are not reported as read to
+     * the cache's eviction policy. Entries of the snapshot the cache started from that it has not taken yet are
+     * carried over ahead of the entries of the cache, without deserializing them.
+     *
+     * @param cache           to snapshot
+     * @param file            to write
+     * @param keySerializer   converts the keys to bytes
+     * @param valueSerializer converts the values to bytes
+     * @param <K>             key type
+     * @param <V>             value type
+     * @return number of entries written
+     * @throws IOException if the file cannot be written, or the snapshot would exceed 2 GiB
+     */
+    public static <K, V> int write(InMemoryManagedCache<K, V> cache,
+                                   Path file,
+                                   ValueSerializer<? super K> keySerializer,
+                                   ValueSerializer<? super V> valueSerializer) throws IOException {
+        CacheSnapshot<K, V> pending = cache.pendingSnapshot();
+        List<ByteBuffer>    carried = pending == null ? new ArrayList<>() : pending.remainingRecords();
+        Map<K, V>           entries = cache.snapshotEntries();
+        List<byte[]>        keys    = new ArrayList<>(entries.size());
+        List<byte[]>        values  = new ArrayList<>(entries.size());
+        long[]              expires = new long[entries.size()];
+        long                size    = HEADER_BYTES;
+        for (ByteBuffer record : carried)
+            size += record.remaining();
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            byte[] key   = keySerializer.serialize(entry.getKey());
+            byte[] value = valueSerializer.serialize(entry.getValue());
+            expires[keys.size()] = expirationTimeMillisOf(entry.getValue());
+            keys.add(key);
+            values.add(value);
+            size += RECORD_HEADER_BYTES + key.length + value.length;
+        }
+        if (size > Integer.MAX_VALUE)
+            throw new IOException("Cache snapshot of " + size + " bytes exceeds the maximum of 2 GiB");
+
+        Path written = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open
+                (
+                        written,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE
+                )) {
+            MappedByteBuffer target = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            target.putInt(MAGIC).putInt(VERSION).putInt(carried.size() + keys.size());
+            for (ByteBuffer record : carried)
+                target.put(record);
+            for (int i = 0; i < keys.size(); i++)
+                target.putLong(expires[i])
+                        .putInt(keys.get(i).length)
+                        .putInt(values.get(i).length)
+                        .put(keys.get(i))
+                        .put(values.get(i));
+            target.force();
+        }
+        Files.move(written, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return carried.size() + keys.size();
+    }
+
+    private static long expirationTimeMillisOf(Object value) {
+        return value instanceof Expirable
+                ? ((Expirable) value).expirationTimeMillis()
+                : Long.MAX_VALUE;
+    }
+
+    private static boolean isExpired(long expirationTimeMillis, long now) {
+        return expirationTimeMillis != Expirable.UNKNOWN_EXPIRATION_TIME_MILLIS && expirationTimeMillis <= now;
+    }
+
+    /**
+     * Maps a snapshot written by {@link #write(InMemoryManagedCache, Path, ValueSerializer, ValueSerializer)}
+     *
+     * @param file            to read; a missing file opens an empty snapshot
+     * @param keySerializer   converts the keys from bytes
+     * @param valueSerializer converts the values from bytes
+     * @param maxEntries      maximum number of entries to keep, dropping those the cache would have evicted first
+     * @param <K>             key type
+     * @param <V>             value type
+     * @return the snapshot
+     * @throws IOException if the file cannot be read or is not a complete snapshot
+     */
+    public static <K, V> CacheSnapshot<K, V> open(Path file,
+                                                  ValueSerializer<K> keySerializer,
+                                                  ValueSerializer<V> valueSerializer,
+                                                  long maxEntries) throws IOException {
+        if (!Files.exists(file))
+            return new CacheSnapshot<>(ByteBuffer.allocate(0), valueSerializer, new ConcurrentHashMap<>());
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IOException(file + " is not a cache snapshot of version " + VERSION);
+            int   count = buffer.getInt();
+            int[] live  = new int[count];
+            int   found = 0;
+            long  now   = System.currentTimeMillis();
+            for (int i = 0; i < count; i++) {
+                int  offset               = buffer.position();
+                long expirationTimeMillis = buffer.getLong();
+                int  keyLength            = buffer.getInt();
+                int  valueLength          = buffer.getInt();
+                if (!isExpired(expirationTimeMillis, now))
+                    live[found++] = offset;
+                buffer.position(buffer.position() + keyLength + valueLength);
+            }
+
+            int             first   = (int) Math.max(0, found - maxEntries);
+            Map<K, Integer> offsets = new ConcurrentHashMap<>(found - first);
+            for (int i = first; i < found; i++) {
+                ByteBuffer record = buffer.duplicate();
+                record.position(live[i] + Long.BYTES);
+                byte[] key = new byte[record.getInt()];
+                record.position(live[i] + RECORD_HEADER_BYTES);
+                record.get(key);
+                offsets.put(keySerializer.deserialize(key), live[i]);
+            }
+            return new CacheSnapshot<>(buffer, valueSerializer, offsets);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException(file + " is not a complete cache snapshot", e);
+        }
+    }
+
+    /**
+     * @return records of the entries not yet taken or forgotten that have not expired, in the order they were written
+     */
+    private List<ByteBuffer> remainingRecords() {
+        long             now     = System.currentTimeMillis();
+        List<ByteBuffer> records = new ArrayList<>(offsets.size());
+        offsets.values().stream().sorted().forEach(offset -> {
+            ByteBuffer record = buffer.duplicate();
+            record.position(offset);
+            long expirationTimeMillis = record.getLong();
+            int  length               = RECORD_HEADER_BYTES + record.getInt() + record.getInt();
+            if (isExpired(expirationTimeMillis, now)) return;
+            record.position(offset);
+            record.limit(offset + length);
+            records.add(record);
+        });
+        return records;
+    }
+
+    /**
+     * @return number of entries not yet taken or forgotten
+     */
+    public int size() {
+        return offsets.size();
+    }
+
+    public boolean isEmpty() {
+        return offsets.isEmpty();
+    }
+
+    /**
+     * Removes the entry of the key from the snapshot and deserializes its value
+     *
+     * @param key to take
+     * @return the value of the key, or null if the snapshot has no entry for the key or the entry has expired since
+     * the snapshot was opened
+     */
+    V take(K key) {
+        Integer offset = offsets.remove(key);
+        if (offset == null) return null;
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset);
+        long expirationTimeMillis = record.getLong();
+        int  keyLength            = record.getInt();
+        int  valueLength          = record.getInt();
+        if (isExpired(expirationTimeMillis, System.currentTimeMillis())) return null;
+        byte[] value = new byte[valueLength];
+        record.position(offset + RECORD_HEADER_BYTES + keyLength);
+        record.get(value);
+        return valueSerializer.deserialize(value);
+    }
+
+    /**
+     * Removes the entry of the key from the snapshot without deserializing it, e.g. because the key was written or
+     * removed in the cache since
+     *
+     * @param key to forget
+     */
+    void forget(K key) {
+        offsets.remove(key);
+    }
+}
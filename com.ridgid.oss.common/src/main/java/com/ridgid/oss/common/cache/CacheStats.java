@@ -0,0 +1,208 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.Arrays;
+
+/**
+ * Point-in-time snapshot of the statistics of a {@link Cache}.
+ * <p>
+ * Load latencies are kept as a histogram of power-of-two buckets of microseconds: bucket 0 counts loads that took
+ * under a microsecond, bucket {@code i} loads that took at least {@code 2^(i-1)} and under {@code 2^i} microseconds,
+ * and the last bucket every load that took longer.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class CacheStats {
+
+    public static final int LOAD_LATENCY_BUCKETS = 24;
+
+    private static final CacheStats EMPTY = new CacheStats
+            (
+                    0,
+                    0,
+                    0,
+                    new long[EvictionCause.values().length],
+                    0,
+                    0,
+                    0,
+                    new long[LOAD_LATENCY_BUCKETS],
+                    0,
+                    0
+            );
+
+    private final long   hitCount;
+    private final long   missCount;
+    private final long   putCount;
+    private final long[] evictionCounts;
+    private final long   loadSuccessCount;
+    private final long   loadFailureCount;
+    private final long   totalLoadTimeNanos;
+    private final long[] loadLatencyCounts;
+    private final long   cleanupCount;
+    private final long   totalCleanupTimeNanos;
+
+    CacheStats(long hitCount,
+               long missCount,
+               long putCount,
+               long[] evictionCounts,
+               long loadSuccessCount,
+               long loadFailureCount,
+               long totalLoadTimeNanos,
+               long[] loadLatencyCounts,
+               long cleanupCount,
+               long totalCleanupTimeNanos) {
+        this.hitCount              = hitCount;
+        this.missCount             = missCount;
+        this.putCount              = putCount;
+        this.evictionCounts        = evictionCounts;
+        this.loadSuccessCount      = loadSuccessCount;
+        this.loadFailureCount      = loadFailureCount;
+        this.totalLoadTimeNanos    = totalLoadTimeNanos;
+        this.loadLatencyCounts     = loadLatencyCounts;
+        this.cleanupCount          = cleanupCount;
+        this.totalCleanupTimeNanos = totalCleanupTimeNanos;
+    }
+
+    /**
+     * @return snapshot of a cache that has recorded nothing, or does not record statistics
+     */
+    public static CacheStats empty() {
+        return EMPTY;
+    }
+
+    static int loadLatencyBucketOf(long micros) {
+        return Math.min(LOAD_LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, micros)));
+    }
+
+    /**
+     * @param bucket index of a load latency bucket
+     * @return exclusive upper bound of the bucket in microseconds, or {@link Long#MAX_VALUE} for the last bucket
+     */
+    public static long loadLatencyBucketUpperBoundMicros(int bucket) {
+        return bucket >= LOAD_LATENCY_BUCKETS - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    public long hitCount() {
+        return hitCount;
+    }
+
+    public long missCount() {
+        return missCount;
+    }
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * @return ratio of hits to reads, or 1.0 when there have been no reads
+     */
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    public long putCount() {
+        return putCount;
+    }
+
+    public long evictionCount() {
+        long total = 0;
+        for (long count : evictionCounts)
+            total += count;
+        return total;
+    }
+
+    public long evictionCount(EvictionCause cause) {
+        return evictionCounts[cause.ordinal()];
+    }
+
+    public long loadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    public long loadFailureCount() {
+        return loadFailureCount;
+    }
+
+    public long loadCount() {
+        return loadSuccessCount + loadFailureCount;
+    }
+
+    public long totalLoadTimeNanos() {
+        return totalLoadTimeNanos;
+    }
+
+    /**
+     * @return average time spent loading a value, or 0 when nothing has been loaded
+     */
+    public double averageLoadPenaltyNanos() {
+        long loads = loadCount();
+        return loads == 0 ? 0.0 : (double) totalLoadTimeNanos / loads;
+    }
+
+    /**
+     * @return number of loads in each load latency bucket
+     */
+    public long[] loadLatencyHistogram() {
+        return loadLatencyCounts.clone();
+    }
+
+    public long cleanupCount() {
+        return cleanupCount;
+    }
+
+    public long totalCleanupTimeNanos() {
+        return totalCleanupTimeNanos;
+    }
+
+    /**
+     * @return average duration of a cleanup, or 0 when there has been no cleanup
+     */
+    public double averageCleanupNanos() {
+        return cleanupCount == 0 ? 0.0 : (double) totalCleanupTimeNanos / cleanupCount;
+    }
+
+    /**
+     * @param other statistics to add to these
+     * @return sum of these statistics and the other
+     */
+    public CacheStats plus(CacheStats other) {
+        return new CacheStats
+                (
+                        hitCount + other.hitCount,
+                        missCount + other.missCount,
+                        putCount + other.putCount,
+                        add(evictionCounts, other.evictionCounts),
+                        loadSuccessCount + other.loadSuccessCount,
+                        loadFailureCount + other.loadFailureCount,
+                        totalLoadTimeNanos + other.totalLoadTimeNanos,
+                        add(loadLatencyCounts, other.loadLatencyCounts),
+                        cleanupCount + other.cleanupCount,
+                        totalCleanupTimeNanos + other.totalCleanupTimeNanos
+                );
+    }
+
+    private static long[] add(long[] a, long[] b) {
+        long[] sum = new long[a.length];
+        for (int i = 0; i < a.length; i++)
+            sum[i] = a[i] + b[i];
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", hitRate=" + hitRate() +
+                ", putCount=" + putCount +
+                ", expiredEvictionCount=" + evictionCount(EvictionCause.EXPIRED) +
+                ", capacityEvictionCount=" + evictionCount(EvictionCause.CAPACITY) +
+                ", loadSuccessCount=" + loadSuccessCount +
+                ", loadFailureCount=" + loadFailureCount +
+                ", averageLoadPenaltyNanos=" + averageLoadPenaltyNanos() +
+                ", loadLatencyHistogram=" + Arrays.toString(loadLatencyCounts) +
+                ", cleanupCount=" + cleanupCount +
+                ", averageCleanupNanos=" + averageCleanupNanos() +
+                '}';
+    }
+}
@@ -0,0 +1,37 @@
+package com.ridgid.oss.common.cache;
+
+/**
+ * JMX view of the statistics of a cache registered with {@link CacheMBeans#register(String, Cache)}
+ */
+@SuppressWarnings("unused")
+public interface CacheStatsMXBean {
+
+    long getSize();
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    long getPutCount();
+
+    long getExpiredEvictionCount();
+
+    long getCapacityEvictionCount();
+
+    long getLoadSuccessCount();
+
+    long getLoadFailureCount();
+
+    double getAverageLoadPenaltyNanos();
+
+    /**
+     * @return number of loads in each power-of-two microsecond bucket, as described by {@link CacheStats}
+     */
+    long[] getLoadLatencyHistogram();
+
+    long getCleanupCount();
+
+    double getAverageCleanupNanos();
+}
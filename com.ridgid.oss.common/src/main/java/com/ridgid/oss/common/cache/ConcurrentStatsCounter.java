@@ -0,0 +1,95 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link StatsCounter} backed by striped {@link LongAdder}s, so that threads recording concurrently do not contend
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class ConcurrentStatsCounter implements StatsCounter {
+
+    private final LongAdder   hits             = new LongAdder();
+    private final LongAdder   misses           = new LongAdder();
+    private final LongAdder   puts             = new LongAdder();
+    private final LongAdder[] evictions        = newAdders(EvictionCause.values().length);
+    private final LongAdder   loadSuccesses    = new LongAdder();
+    private final LongAdder   loadFailures     = new LongAdder();
+    private final LongAdder   totalLoadTime    = new LongAdder();
+    private final LongAdder[] loadLatencies    = newAdders(CacheStats.LOAD_LATENCY_BUCKETS);
+    private final LongAdder   cleanups         = new LongAdder();
+    private final LongAdder   totalCleanupTime = new LongAdder();
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++)
+            adders[i] = new LongAdder();
+        return adders;
+    }
+
+    @Override
+    public void recordHits(int count) {
+        hits.add(count);
+    }
+
+    @Override
+    public void recordMisses(int count) {
+        misses.add(count);
+    }
+
+    @Override
+    public void recordPuts(int count) {
+        puts.add(count);
+    }
+
+    @Override
+    public void recordEviction(EvictionCause cause) {
+        evictions[cause.ordinal()].increment();
+    }
+
+    @Override
+    public void recordLoadSuccess(long loadTimeNanos) {
+        loadSuccesses.increment();
+        recordLoadTime(loadTimeNanos);
+    }
+
+    @Override
+    public void recordLoadFailure(long loadTimeNanos) {
+        loadFailures.increment();
+        recordLoadTime(loadTimeNanos);
+    }
+
+    private void recordLoadTime(long loadTimeNanos) {
+        totalLoadTime.add(loadTimeNanos);
+        loadLatencies[CacheStats.loadLatencyBucketOf(TimeUnit.NANOSECONDS.toMicros(loadTimeNanos))].increment();
+    }
+
+    @Override
+    public void recordCleanup(long durationNanos) {
+        cleanups.increment();
+        totalCleanupTime.add(durationNanos);
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        long[] evictionCounts = new long[evictions.length];
+        for (int i = 0; i < evictions.length; i++)
+            evictionCounts[i] = evictions[i].sum();
+        long[] loadLatencyCounts = new long[loadLatencies.length];
+        for (int i = 0; i < loadLatencies.length; i++)
+            loadLatencyCounts[i] = loadLatencies[i].sum();
+        return new CacheStats
+                (
+                        hits.sum(),
+                        misses.sum(),
+                        puts.sum(),
+                        evictionCounts,
+                        loadSuccesses.sum(),
+                        loadFailures.sum(),
+                        totalLoadTime.sum(),
+                        loadLatencyCounts,
+                        cleanups.sum(),
+                        totalCleanupTime.sum()
+                );
+    }
+}
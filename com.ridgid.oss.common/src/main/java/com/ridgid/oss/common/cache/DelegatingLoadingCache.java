@@ -0,0 +1,325 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * {@link LoadingCache} that stores its values in another cache (typically an {@link InMemoryExpirableCache}).
+ * <p>
+ * Loads are tracked per key while in flight, so every caller asking for a key that is being loaded receives the same
+ * future. A loaded value is only stored if no other value was written for the key while it was loading, and a
+ * refreshed value only replaces the value it was refreshing. When a value expires in the underlying cache, the callers
+ * that find it absent share a single reload rather than each reloading it.
+ * <p>
+ * The number and latency of loads are recorded by the {@link Cache#statsCounter()} of the underlying cache, so only if
+ * it records statistics, and are reported by {@link #stats()} along with its other statistics.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class DelegatingLoadingCache<K, V> implements LoadingCache<K, V> {
+
+    private static final Logger LOGGER = Logger.getLogger(DelegatingLoadingCache.class.getName());
+
+    private final Cache<K, V>                                                  cache;
+    private final Function<? super K, ? extends CompletableFuture<? extends V>> loader;
+    private final long                                                         refreshAheadMillis;
+    private final StatsCounter                                                 statsCounter;
+    private final ConcurrentHashMap<K, CompletableFuture<V>>                   loading = new ConcurrentHashMap<>();
+
+    private DelegatingLoadingCache(Cache<K, V> cache,
+                                   Function<? super K, ? extends CompletableFuture<? extends V>> loader,
+                                   long refreshAheadMillis) {
+        this.cache              = cache;
+        this.loader             = loader;
+        this.refreshAheadMillis = refreshAheadMillis;
+        this.statsCounter       = cache.statsCounter();
+    }
+
+    /**
+     * @param cache  that stores the values
+     * @param loader loads the value of a key, or answers null if there is none; run on the common fork-join pool
+     * @param <K>    key type
+     * @param <V>    value type
+     * @return loading cache without refresh-ahead
+     */
+    public static <K, V> DelegatingLoadingCache<K, V> of(Cache<K, V> cache,
+                                                         Function<? super K, ? extends V> loader) {
+        return of(cache, loader, ForkJoinPool.commonPool(), 0);
+    }
+
+    /**
+     * @param cache              that stores the values
+     * @param loader             loads the value of a key, or answers null if there is none
+     * @param executor           runs the loader
+     * @param refreshAheadMillis how long before an {@link Expirable} value expires to start refreshing it, or 0 to
+     *                           not refresh ahead
+     * @param <K>                key type
+     * @param <V>                value type
+     * @return loading cache
+     */
+    public static <K, V> DelegatingLoadingCache<K, V> of(Cache<K, V> cache,
+                                                         Function<? super K, ? extends V> loader,
+                                                         Executor executor,
+                                                         long refreshAheadMillis) {
+        return ofAsync(cache,
+                       key -> CompletableFuture.supplyAsync(() -> loader.apply(key), executor),
+                       refreshAheadMillis);
+    }
+
+    /**
+     * @param cache              that stores the values
+     * @param asyncLoader        starts loading the value of a key; the future completes with null if there is none
+     * @param refreshAheadMillis how long before an {@link Expirable} value expires to start refreshing it, or 0 to
+     *                           not refresh ahead
+     * @param <K>                key type
+     * @param <V>                value type
+     * @return loading cache
+     */
+    public static <K, V> DelegatingLoadingCache<K, V> ofAsync(Cache<K, V> cache,
+                                                              Function<? super K, ? extends CompletableFuture<? extends V>> asyncLoader,
+                                                              long refreshAheadMillis) {
+        return new DelegatingLoadingCache<>(cache, asyncLoader, refreshAheadMillis);
+    }
+
+    @Override
+    public CompletableFuture<V> getAsync(K key) {
+        V value = cache.getOrDefault(key, null);
+        if (value == null)
+            return load(key, null, loader);
+        if (isDueForRefresh(value))
+            load(key, value, loader);
+        return CompletableFuture.completedFuture(value);
+    }
+
+    @Override
+    public CompletableFuture<V> refresh(K key) {
+        return load(key, cache.getOrDefault(key, null), loader);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = cache.getOrDefault(key, null);
+        if (value != null) return value;
+        try {
+            return load(key, null, k -> {
+                try {
+                    return CompletableFuture.completedFuture(mappingFunction.apply(k));
+                } catch (Throwable e) {
+                    CompletableFuture<V> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(e);
+                    return failed;
+                }
+            }).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    private boolean isDueForRefresh(V value) {
+        if (refreshAheadMillis <= 0 || !(value instanceof Expirable)) return false;
+        long expirationTimeMillis = ((Expirable) value).expirationTimeMillis();
+        return expirationTimeMillis != Expirable.UNKNOWN_EXPIRATION_TIME_MILLIS
+               && expirationTimeMillis - refreshAheadMillis <= System.currentTimeMillis();
+    }
+
+    private CompletableFuture<V> load(K key,
+                                      V current,
+                                      Function<? super K, ? extends CompletableFuture<? extends V>> loader) {
+        CompletableFuture<V> future   = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loading.putIfAbsent(key, future);
+        if (inFlight != null) return inFlight;
+        long                           start = statsCounter.isEnabled() ? System.nanoTime() : 0;
+        CompletableFuture<? extends V> loaded;
+        try {
+            loaded = loader.apply(key);
+        } catch (Throwable e) {
+            statsCounter.recordLoadFailure(System.nanoTime() - start);
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+            return future;
+        }
+        loaded.whenComplete((value, failure) -> complete(key, current, future, start, value, failure));
+        return future;
+    }
+
+    private void complete(K key,
+                          V current,
+                          CompletableFuture<V> future,
+                          long start,
+                          V loaded,
+                          Throwable failure) {
+        if (statsCounter.isEnabled()) {
+            if (failure == null)
+                statsCounter.recordLoadSuccess(System.nanoTime() - start);
+            else
+                statsCounter.recordLoadFailure(System.nanoTime() - start);
+        }
+        V stored = null;
+        try {
+            if (failure == null)
+                stored = store(key, current, loaded);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        loading.remove(key, future);
+        if (failure == null)
+            future.complete(stored);
+        else {
+            if (current != null)
+                LOGGER.log(Level.WARNING, "Refresh of cached value failed; keeping the current value", failure);
+            future.completeExceptionally(failure);
+        }
+    }
+
+    private V store(K key, V current, V loaded) {
+        if (current == null) {
+            if (loaded == null) return null;
+            V written = cache.putIfAbsent(key, loaded);
+            return written == null ? loaded : written;
+        }
+        // Only the value refreshed is removed; a value another writer stored meanwhile is kept
+        if (loaded == null)
+            return cache.computeIfPresent(key, (k, v) -> current.equals(v) ? null : v);
+        if (!cache.replace(key, current, loaded)) {
+            // The value refreshed either was replaced by another writer, whose value is kept, or expired or was removed
+            // meanwhile, in which case callers finding it absent joined this refresh and are given the loaded value
+            V written = cache.getOrDefault(key, null);
+            if (written != null) return written;
+            written = cache.putIfAbsent(key, loaded);
+            return written == null ? loaded : written;
+        }
+        return loaded;
+    }
+
+    @Override
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public StatsCounter statsCounter() {
+        return statsCounter;
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return cache.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return cache.containsKey(key);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        cache.forEach(action);
+    }
+
+    @Override
+    public Stream<Map.Entry<K, V>> stream() {
+        return cache.stream();
+    }
+
+    @Override
+    public Stream<K> streamKeys() {
+        return cache.streamKeys();
+    }
+
+    @Override
+    public Stream<V> streamValues() {
+        return cache.streamValues();
+    }
+
+    @Override
+    public V getOrDefault(K key, V defaultValue) {
+        return cache.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        return cache.getAll(keys);
+    }
+
+    @Override
+    public Map<K, V> computeAllIfAbsent(Collection<? extends K> keys,
+                                        Function<? super Set<K>, ? extends Map<? extends K, ? extends V>> mappingFunction) {
+        return cache.computeAllIfAbsent(keys, mappingFunction);
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return cache.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return cache.compute(key, remappingFunction);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return cache.put(key, value);
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        cache.putAll(m);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return cache.putIfAbsent(key, value);
+    }
+
+    @Override
+    public V remove(K key) {
+        return cache.remove(key);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        return cache.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        cache.replaceAll(function);
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        return cache.replace(key, value);
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return cache.merge(key, value, remappingFunction);
+    }
+}
@@ -0,0 +1,15 @@
+package com.ridgid.oss.common.cache;
+
+/**
+ * Reason an entry was removed from a cache other than by an explicit removal
+ */
+public enum EvictionCause {
+    /**
+     * The entry expired, or the eviction policy deemed it evictable regardless of the capacity of the cache
+     */
+    EXPIRED,
+    /**
+     * The entry was chosen by the eviction policy to bring the cache back under its capacity
+     */
+    CAPACITY
+}
@@ -0,0 +1,93 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Admission and eviction policy of an {@link InMemoryManagedCache}.
+ * <p>
+ * The owning cache notifies the policy of point reads, writes and removals of keys, and asks it which keys to evict
+ * when the cache grows beyond its maximum capacity. Iteration over the cache ({@code forEach}, {@code stream}, etc.)
+ * is not reported to the policy, so scans do not disturb the policy's view of which keys are in use.
+ * <p>
+ * A policy instance holds per-key state and must be used by only one cache.
+ *
+ * @param <K> key type of the cache
+ * @param <V> value type of the cache
+ */
+@SuppressWarnings("unused")
+public interface EvictionPolicy<K, V> {
+
+    /**
+     * @param key that was read
+     * @param hit true if the key was present in the cache
+     */
+    void recordRead(K key, boolean hit);
+
+    /**
+     * Records the reads of a bulk get in one batch
+     *
+     * @param hits   keys that were present in the cache
+     * @param misses keys that were absent from the cache
+     */
+    default void recordReads(Collection<? extends K> hits, Collection<? extends K> misses) {
+        hits.forEach(key -> recordRead(key, true));
+        misses.forEach(key -> recordRead(key, false));
+    }
+
+    /**
+     * @param key that was added or updated
+     */
+    void recordWrite(K key);
+
+    /**
+     * @param key that was removed from the cache (including removals of victims selected by this policy)
+     */
+    void recordRemoval(K key);
+
+    /**
+     * Forget all keys
+     */
+    void clear();
+
+    /**
+     * Selects keys to evict. Every returned key will be removed from the cache by the caller.
+     *
+     * @param count        number of keys the cache needs to evict
+     * @param residentKeys live view of the keys currently in the cache
+     * @return up to {@code count} keys to evict
+     */
+    List<K> selectVictims(int count, Set<K> residentKeys);
+
+    /**
+     * Lists keys in the order the policy would evict them, without evicting them or recording any use. Used to
+     * preserve recency in a {@link CacheSnapshot}.
+     *
+     * @param residentKeys live view of the keys currently in the cache
+     * @return resident keys from the first to the last the policy would evict, or an empty list if the policy keeps
+     * no order
+     */
+    default List<K> evictionOrder(Set<K> residentKeys) {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Determines whether an entry should be evicted during a regular cleanup regardless of the capacity of the cache.
+     * Consulted by the scan of {@link InMemoryManagedCache#removeEvictable()}; an {@link InMemoryExpirableCache}
+     * removes expired entries from its expiration index instead and does not consult the policy.
+     *
+     * @param key   of the entry
+     * @param value of the entry
+     * @return true if the entry should be evicted
+     */
+    default boolean isEvictable(K key, V value) {
+        return false;
+    }
+
+    /**
+     * @return snapshot of the hit, miss and eviction counts recorded by this policy
+     */
+    EvictionPolicyStats stats();
+}
@@ -0,0 +1,54 @@
+package com.ridgid.oss.common.cache;
+
+/**
+ * Point-in-time snapshot of the counters kept by an {@link EvictionPolicy}
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public final class EvictionPolicyStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    public EvictionPolicyStats(long hitCount,
+                               long missCount,
+                               long evictionCount) {
+        this.hitCount      = hitCount;
+        this.missCount     = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    public long hitCount() {
+        return hitCount;
+    }
+
+    public long missCount() {
+        return missCount;
+    }
+
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return ratio of hits to reads, or 1.0 when there have been no reads
+     */
+    public double hitRate() {
+        long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "EvictionPolicyStats{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", evictionCount=" + evictionCount +
+                ", hitRate=" + hitRate() +
+                '}';
+    }
+}
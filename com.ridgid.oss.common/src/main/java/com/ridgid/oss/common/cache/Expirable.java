@@ -2,9 +2,26 @@ package com.ridgid.oss.common.cache;
 
 @SuppressWarnings({"unused", "SpellCheckingInspection"})
 public interface Expirable {
+
+    /**
+     * Value of {@link #expirationTimeMillis()} for objects that cannot tell in advance when they will expire
+     */
+    long UNKNOWN_EXPIRATION_TIME_MILLIS = Long.MIN_VALUE;
+
     boolean isExpired();
 
     default boolean isNotExpired() {
         return !isExpired();
     }
+
+    /**
+     * System time in milliseconds (as per System.currentTimeMillis()) after which the object will be expired, used by
+     * expirable caches to schedule removal of the object instead of polling {@link #isExpired()}. The answer may
+     * change over time (for example when the object is extended); {@link #isExpired()} remains authoritative.
+     *
+     * @return expiration time in milliseconds, or {@link #UNKNOWN_EXPIRATION_TIME_MILLIS} if not known in advance
+     */
+    default long expirationTimeMillis() {
+        return UNKNOWN_EXPIRATION_TIME_MILLIS;
+    }
 }
@@ -40,6 +40,12 @@ public class ExpirableWrapper<T> implements Expirable
         return expirationTimeMillis < System.currentTimeMillis();
     }
 
+    @Override
+    public long expirationTimeMillis()
+    {
+        return expirationTimeMillis;
+    }
+
     public boolean isEmpty() { return wrapped == null; }
 
     /**
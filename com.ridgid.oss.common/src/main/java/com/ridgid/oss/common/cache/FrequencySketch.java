@@ -0,0 +1,96 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often each key has been seen.
+ * <p>
+ * Each key maps to one counter in each of {@code DEPTH} rows of {@code width} counters, and its estimated frequency
+ * is the smallest of those counters (at most 15). Once {@code decayPeriod} increments have been recorded every
+ * counter is halved, so that keys which were popular in the past, but are no longer, age out.
+ *
+ * @param <K> key type
+ */
+final class FrequencySketch<K> {
+
+    private static final int  DEPTH       = 4;
+    private static final long MAX_COUNTER = 15L;
+    private static final long HALF_MASK   = 0x7777_7777_7777_7777L;
+    private static final int[] SEEDS      = {0x97cb3127, 0xb9b5e8a1, 0x6ee1c3c5, 0x3b0d4f2f};
+
+    private final AtomicLongArray table;
+    private final int             widthMask;
+    private final int             decayPeriod;
+    private final AtomicInteger   increments = new AtomicInteger();
+
+    /**
+     * @param width       counters per row; rounded up to a power of two
+     * @param decayPeriod number of increments after which all counters are halved
+     */
+    FrequencySketch(int width,
+                    int decayPeriod) {
+        if (width <= 0) throw new IllegalArgumentException("width must be positive");
+        if (decayPeriod <= 0) throw new IllegalArgumentException("decayPeriod must be positive");
+        int w = 16;
+        while (w < width && w < (1 << 28))
+            w <<= 1;
+        this.widthMask   = w - 1;
+        this.decayPeriod = decayPeriod;
+        this.table       = new AtomicLongArray(Math.max(1, (w * DEPTH) >>> 4));
+    }
+
+    int frequency(K key) {
+        int  hash = spread(key.hashCode());
+        long min  = MAX_COUNTER;
+        for (int row = 0; row < DEPTH; row++) {
+            int counter = counterIndex(hash, row);
+            min = Math.min(min, (table.get(counter >>> 4) >>> shift(counter)) & MAX_COUNTER);
+        }
+        return (int) min;
+    }
+
+    void increment(K key) {
+        int     hash  = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++)
+            added |= incrementAt(counterIndex(hash, row));
+        if (added && increments.incrementAndGet() == decayPeriod)
+            decay();
+    }
+
+    private boolean incrementAt(int counter) {
+        int index = counter >>> 4;
+        int shift = shift(counter);
+        while (true) {
+            long word = table.get(index);
+            if (((word >>> shift) & MAX_COUNTER) == MAX_COUNTER) return false;
+            if (table.compareAndSet(index, word, word + (1L << shift))) return true;
+        }
+    }
+
+    private void decay() {
+        for (int i = 0; i < table.length(); i++) {
+            long word;
+            do word = table.get(i);
+            while (!table.compareAndSet(i, word, (word >>> 1) & HALF_MASK));
+        }
+        increments.set(decayPeriod / 2);
+    }
+
+    private int counterIndex(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) & (DEPTH - 1)];
+        h ^= (h >>> 17);
+        return row * (widthMask + 1) + (h & widthMask);
+    }
+
+    private static int shift(int counter) {
+        return (counter & 15) << 2;
+    }
+
+    private static int spread(int h) {
+        h ^= (h >>> 16);
+        h *= 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,37 +1,123 @@
 package com.ridgid.oss.common.cache;
 
-import java.util.Map;
-import java.util.stream.Stream;
-
+/**
+ * In-memory cache of {@link Expirable} values.
+ * <p>
+ * Expired values are treated as absent on read. Values that report their {@link Expirable#expirationTimeMillis()}
+ * are indexed in a {@link TimerWheel} and removed on the regular cleanup pass once due, without scanning the cache;
+ * values that cannot report an expiration time are re-checked once per cleanup interval, and values that never expire
+ * ({@link Long#MAX_VALUE}) are not indexed at all.
+ */
 @SuppressWarnings({"WeakerAccess", "FieldCanBeLocal", "unused", "SpellCheckingInspection"})
 public class InMemoryExpirableCache<K, V extends Expirable>
         extends InMemoryManagedCache<K, V>
         implements ExpirableCache<K, V> {
 
+    private final TimerWheel<K> expirations;
+    private final long          recheckIntervalMillis;
 
     public InMemoryExpirableCache(short timeoutCheckIntervalSeconds,
                                   short initialCapacity,
                                   short maxCapacity,
                                   short evictToCapacity
     ) {
-        super(
+        this(
+                timeoutCheckIntervalSeconds,
+                initialCapacity,
+                maxCapacity,
+                evictToCapacity,
+                new ArbitraryEvictionPolicy<>()
+        );
+    }
+
+    public InMemoryExpirableCache(short timeoutCheckIntervalSeconds,
+                                  short initialCapacity,
+                                  short maxCapacity,
+                                  short evictToCapacity,
+                                  EvictionPolicy<K, V> evictionPolicy
+    ) {
+        this(
                 timeoutCheckIntervalSeconds,
                 initialCapacity,
                 maxCapacity,
-                evictToCapacity
+                evictToCapacity,
+                evictionPolicy,
+                CacheMaintenanceScheduler.shared()
         );
     }
 
+    public InMemoryExpirableCache(short timeoutCheckIntervalSeconds,
+                                  short initialCapacity,
+                                  short maxCapacity,
+                                  short evictToCapacity,
+                                  EvictionPolicy<K, V> evictionPolicy,
+                                  CacheMaintenanceScheduler maintenanceScheduler
+    ) {
+        this(
+                CacheBuilder.<K, V>forCapacities(
+                        timeoutCheckIntervalSeconds,
+                        initialCapacity,
+                        maxCapacity,
+                        evictToCapacity
+                ).maintenanceScheduler(maintenanceScheduler),
+                evictionPolicy
+        );
+    }
+
+    protected InMemoryExpirableCache(CacheBuilder<K, V> built,
+                                     EvictionPolicy<K, V> evictionPolicy
+    ) {
+        super(
+                built,
+                evictionPolicy
+        );
+        this.expirations           = new TimerWheel<>(System.currentTimeMillis());
+        this.recheckIntervalMillis = built.getTimeoutCheckIntervalSeconds() * 1000L;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        expirations.clear();
+    }
+
     @Override
-    protected boolean normalEvictionApplies(Map.Entry<K, V> entry) {
-        return entry.getValue().isExpired();
+    protected boolean isExpired(V value) {
+        return value.isExpired();
     }
 
     @Override
-    protected Stream<Map.Entry<K, V>> overCapacityEvictionSelector(int currentEntryCount,
-                                                                   int targetEntryCount,
-                                                                   Stream<Map.Entry<K, V>> entries) {
-        return entries;
+    protected void removeEvictable() {
+        for (K key : expirations.advance(System.currentTimeMillis())) {
+            V value = cache.get(key);
+            if (value == null) continue;
+            if (value.isExpired())
+                expire(key, value);
+            else
+                scheduleExpiration(key, value);
+        }
+    }
+
+    @Override
+    protected void afterWrite(K key, V value) {
+        super.afterWrite(key, value);
+        scheduleExpiration(key, value);
+    }
+
+    @Override
+    protected void afterRemoval(K key) {
+        super.afterRemoval(key);
+        expirations.deschedule(key);
+    }
+
+    private void scheduleExpiration(K key, V value) {
+        long expirationTimeMillis = value.expirationTimeMillis();
+        if (expirationTimeMillis == Long.MAX_VALUE)
+            expirations.deschedule(key);
+        else if (expirationTimeMillis != Expirable.UNKNOWN_EXPIRATION_TIME_MILLIS)
+            expirations.schedule(key, expirationTimeMillis);
+        else if (recheckIntervalMillis > 0)
+            expirations.schedule(key, System.currentTimeMillis() + recheckIntervalMillis);
     }
 
 }
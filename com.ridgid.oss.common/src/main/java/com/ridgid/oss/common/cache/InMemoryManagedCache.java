@@ -1,23 +1,42 @@
 package com.ridgid.oss.common.cache;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.stream.Stream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @SuppressWarnings({"WeakerAccess", "FieldCanBeLocal", "unused"})
 public class InMemoryManagedCache<K, V>
         extends InMemoryUnmanagedCache<K, V>
         implements ManagedCache<K, V> {
 
-    private final Timer cleanupTimer;
-    private final short maxCapacity;
-    private final short evictToCapacity;
-    private final boolean hasRegularCleanupPolicy;
+    private static final Logger LOGGER = Logger.getLogger(InMemoryManagedCache.class.getName());
 
-    private Thread cleanupThread;
+    private final long maxSize;
+    private final long evictToSize;
+    private final Weigher<? super K, ? super V> weigher;
+    private final LongAdder weight = new LongAdder();
+    private final boolean hasRegularCleanupPolicy;
+    private final EvictionPolicy<K, V> evictionPolicy;
+    private final CacheMaintenanceScheduler maintenanceScheduler;
+    private final long cleanupIntervalMillis;
+    private final Path snapshotFile;
+    private final ValueSerializer<K> snapshotKeySerializer;
+    private final ValueSerializer<V> snapshotValueSerializer;
+    private final long snapshotIntervalMillis;
+    private volatile CacheMaintenanceScheduler.Registration maintenance;
+    private volatile CacheMaintenanceScheduler.Registration snapshotting;
+    private volatile boolean closed;
+    private volatile CacheSnapshot<K, V> snapshot;
 
     public InMemoryManagedCache(short initialCapacity,
                                 short maxCapacity,
@@ -35,145 +54,514 @@ public class InMemoryManagedCache<K, V>
                                 short initialCapacity,
                                 short maxCapacity,
                                 short evictToCapacity) {
-        super(initialCapacity);
-        this.maxCapacity = maxCapacity;
-        this.evictToCapacity = evictToCapacity;
-        this.cleanupTimer = makeCleanupTimer
+        this
                 (
-                        timeoutCheckIntervalSeconds
+                        timeoutCheckIntervalSeconds,
+                        initialCapacity,
+                        maxCapacity,
+                        evictToCapacity,
+                        new ArbitraryEvictionPolicy<>()
                 );
-        this.hasRegularCleanupPolicy = timeoutCheckIntervalSeconds > 0;
     }
 
-    @Override
-    protected void finalize() throws Throwable {
-        cleanupTimer.cancel();
-        super.finalize();
+    public InMemoryManagedCache(short timeoutCheckIntervalSeconds,
+                                short initialCapacity,
+                                short maxCapacity,
+                                short evictToCapacity,
+                                EvictionPolicy<K, V> evictionPolicy) {
+        this
+                (
+                        timeoutCheckIntervalSeconds,
+                        initialCapacity,
+                        maxCapacity,
+                        evictToCapacity,
+                        evictionPolicy,
+                        CacheMaintenanceScheduler.shared()
+                );
     }
 
-    public final void forceCleanup() {
-        checkCapacity();
+    public InMemoryManagedCache(short timeoutCheckIntervalSeconds,
+                                short initialCapacity,
+                                short maxCapacity,
+                                short evictToCapacity,
+                                EvictionPolicy<K, V> evictionPolicy,
+                                CacheMaintenanceScheduler maintenanceScheduler) {
+        this
+                (
+                        CacheBuilder.<K, V>forCapacities
+                                (
+                                        timeoutCheckIntervalSeconds,
+                                        initialCapacity,
+                                        maxCapacity,
+                                        evictToCapacity
+                                )
+                                .maintenanceScheduler(maintenanceScheduler),
+                        evictionPolicy
+                );
     }
 
-    private void checkCapacity() {
-        if (cache.size() > evictToCapacity)
-            cleanupTimer.schedule
-                    (
-                            makeCleanupTask(),
-                            10
-                    );
+    protected InMemoryManagedCache(CacheBuilder<K, V> built,
+                                   EvictionPolicy<K, V> evictionPolicy) {
+        super(built.getInitialCapacity(), built.getConcurrencyLevel(), built.getStatsCounterSupplier().get());
+        this.maxSize = built.getMaxSize();
+        this.evictToSize = built.getEvictToSize();
+        this.weigher = built.getWeigher();
+        this.evictionPolicy = evictionPolicy;
+        this.hasRegularCleanupPolicy = built.getTimeoutCheckIntervalSeconds() > 0;
+        this.maintenanceScheduler = built.getMaintenanceScheduler();
+        this.cleanupIntervalMillis = built.getTimeoutCheckIntervalSeconds() * 1000L;
+        this.snapshotFile = built.getSnapshotFile();
+        this.snapshotKeySerializer = built.getSnapshotKeySerializer();
+        this.snapshotValueSerializer = built.getSnapshotValueSerializer();
+        this.snapshot = snapshotFile == null ? null : openSnapshot(weigher == null ? maxSize : CacheBuilder.UNBOUNDED);
+        this.snapshotIntervalMillis = built.getSnapshotIntervalSeconds() * 1000L;
     }
 
-    private Timer makeCleanupTimer(short timeoutCheckIntervalSeconds) {
-        Timer timer = new Timer(true);
-        if (timeoutCheckIntervalSeconds > 0)
-            timer.schedule
+    /**
+     * Registers this cache with its maintenance scheduler on first use rather than while it is being constructed, so
+     * that no cleanup or snapshot runs before the constructors of subclasses have initialised their state
+     *
+     * @return maintenance of this cache, or null if it was closed before it was ever used
+     */
+    private CacheMaintenanceScheduler.Registration maintenance() {
+        CacheMaintenanceScheduler.Registration registration = maintenance;
+        return registration != null || closed ? registration : startMaintenance();
+    }
+
+    private synchronized CacheMaintenanceScheduler.Registration startMaintenance() {
+        if (maintenance == null && !closed) {
+            if (snapshotFile != null)
+                snapshotting = maintenanceScheduler.register
+                        (
+                                this,
+                                InMemoryManagedCache::writeSnapshotQuietly,
+                                snapshotIntervalMillis
+                        );
+            maintenance = maintenanceScheduler.register
                     (
-                            makeCleanupTask(),
-                            timeoutCheckIntervalSeconds * 1000,
-                            timeoutCheckIntervalSeconds * 1000
+                            this,
+                            InMemoryManagedCache::performCleanup,
+                            cleanupIntervalMillis
                     );
-        return timer;
+        }
+        return maintenance;
     }
 
-    private TimerTask makeCleanupTask() {
-        return new TimerTask() {
-            @Override
-            public void run() {
-                cleanup();
-            }
-        };
+    private CacheSnapshot<K, V> openSnapshot(long maxEntries) {
+        try {
+            CacheSnapshot<K, V> opened
+                    = CacheSnapshot.open(snapshotFile, snapshotKeySerializer, snapshotValueSerializer, maxEntries);
+            return opened.isEmpty() ? null : opened;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Unable to open cache snapshot " + snapshotFile + "; starting cold", e);
+            return null;
+        }
     }
 
-    private void cleanup() {
-        synchronized (cleanupTimer) {
-            if (cleanupThread != null) return;
-            cleanupThread = Thread.currentThread();
+    public final void forceCleanup() {
+        checkCapacity();
+    }
+
+    /**
+     * Stops the regular cleanup of this cache, and writes its warm-start snapshot if it has one
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (maintenance != null) maintenance.cancel();
+            if (snapshotting != null) snapshotting.cancel();
         }
+        if (snapshotFile != null)
+            writeSnapshotQuietly();
+    }
+
+    /**
+     * Writes the warm-start snapshot of this cache, e.g. from a shutdown hook
+     *
+     * @return number of entries written
+     * @throws IOException           if the snapshot cannot be written
+     * @throws IllegalStateException if the cache was not built with a warm-start snapshot
+     */
+    public int writeSnapshot() throws IOException {
+        if (snapshotFile == null)
+            throw new IllegalStateException("The cache was not built with a warm-start snapshot");
+        return CacheSnapshot.write(this, snapshotFile, snapshotKeySerializer, snapshotValueSerializer);
+    }
+
+    private void writeSnapshotQuietly() {
         try {
-            performCleanup();
-        } finally {
-            synchronized (cleanupTimer) {
-                if (cleanupThread == Thread.currentThread())
-                    cleanupThread = null;
-            }
+            writeSnapshot();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Unable to write cache snapshot " + snapshotFile, e);
+        }
+    }
+
+    /**
+     * @return the warm-start snapshot while the cache has entries left to take from it, otherwise null
+     */
+    CacheSnapshot<K, V> pendingSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return live entries from the first to the last the eviction policy would evict
+     */
+    Map<K, V> snapshotEntries() {
+        Map<K, V> entries = new LinkedHashMap<>();
+        for (K key : evictionPolicy.evictionOrder(cache.keySet())) {
+            V value = cache.get(key);
+            if (value != null && !isExpired(value)) entries.put(key, value);
         }
+        cache.forEach((key, value) -> {
+            if (!isExpired(value)) entries.putIfAbsent(key, value);
+        });
+        return entries;
+    }
+
+    public EvictionPolicyStats evictionPolicyStats() {
+        return evictionPolicy.stats();
+    }
+
+    /**
+     * @return total weight of the entries if the cache has a weigher, otherwise the number of entries
+     */
+    public long weightedSize() {
+        return weigher == null ? cache.size() : weight.sum();
+    }
+
+    private void checkCapacity() {
+        CacheMaintenanceScheduler.Registration registration = maintenance();
+        if (registration != null && weightedSize() > evictToSize)
+            registration.requestCleanup();
     }
 
     private void performCleanup() {
+        long start = System.nanoTime();
         if (hasRegularCleanupPolicy)
-            cache.entrySet()
-                    .stream()
-                    .filter(this::normalEvictionApplies)
-                    .forEach(e -> this.remove(e.getKey()));
-        if (cache.size() > maxCapacity)
-            overCapacityEvictionSelector(cache.size(), evictToCapacity, cache.entrySet().stream())
-                    .filter(entry -> cache.size() > evictToCapacity)
-                    .forEach(entry -> this.remove(entry.getKey()));
+            removeEvictable();
+        if (weightedSize() > maxSize)
+            evictDownTo(evictToSize);
+        statsCounter.recordCleanup(System.nanoTime() - start);
     }
 
-    protected boolean normalEvictionApplies(Map.Entry<K, V> entry) {
+    private void evictDownTo(long targetSize) {
+        for (long size = weightedSize(); size > targetSize; size = weightedSize()) {
+            List<K> victims = evictionPolicy.selectVictims(victimCount(size - targetSize), cache.keySet());
+            if (victims.isEmpty()) return;
+            for (K victim : victims)
+                if (remove(victim) != null)
+                    statsCounter.recordEviction(EvictionCause.CAPACITY);
+        }
+    }
+
+    private int victimCount(long excess) {
+        if (weigher != null) {
+            long entries       = Math.max(1, cache.size());
+            long averageWeight = Math.max(1, weight.sum() / entries);
+            excess = (excess + averageWeight - 1) / averageWeight;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, excess);
+    }
+
+    private int weightOf(K key, V value) {
+        return value == null ? 0 : weigher.weigh(key, value);
+    }
+
+    private void reweigh(K key, V removed, V added) {
+        if (weigher == null) return;
+        weight.add((long) weightOf(key, added) - weightOf(key, removed));
+        if (removed != null && removed != added)
+            afterRelease(key, removed);
+    }
+
+    private BiFunction<? super K, ? super V, ? extends V> weighing
+            (
+                    BiFunction<? super K, ? super V, ? extends V> remappingFunction
+            ) {
+        if (weigher == null) return remappingFunction;
+        return (k, v) -> {
+            V remapped = remappingFunction.apply(k, v);
+            reweigh(k, v, remapped);
+            return remapped;
+        };
+    }
+
+    /**
+     * Removes entries that should not survive a regular cleanup regardless of the capacity of the cache. By default,
+     * scans the cache for entries the eviction policy deems evictable.
+     */
+    protected void removeEvictable() {
+        cache.entrySet()
+                .stream()
+                .filter(e -> evictionPolicy.isEvictable(e.getKey(), e.getValue()))
+                .forEach(e -> {
+                    if (remove(e.getKey()) != null)
+                        statsCounter.recordEviction(EvictionCause.EXPIRED);
+                });
+    }
+
+    /**
+     * Determines whether a value present in the cache is to be treated as absent on read
+     *
+     * @param value present in the cache
+     * @return true if the value is no longer valid
+     */
+    protected boolean isExpired(V value) {
         return false;
     }
 
-    protected Stream<Map.Entry<K, V>> overCapacityEvictionSelector(int currentEntryCount,
-                                                                   int targetEntryCount,
-                                                                   Stream<Map.Entry<K, V>> entries) {
-        return entries;
+    /**
+     * Removes the entry if the key is still mapped to the given value
+     *
+     * @param key   of the entry
+     * @param value the key is expected to be mapped to
+     */
+    protected final void expire(K key, V value) {
+        if (cache.remove(key, value)) {
+            reweigh(key, value, null);
+            afterRemoval(key);
+            statsCounter.recordEviction(EvictionCause.EXPIRED);
+        }
+    }
+
+    /**
+     * Called after the key has been mapped to the value; subclasses overriding this must call super
+     *
+     * @param key   written
+     * @param value the key is now mapped to
+     */
+    protected void afterWrite(K key, V value) {
+        evictionPolicy.recordWrite(key);
+        forgetSnapshotted(key);
+    }
+
+    /**
+     * Called after the key has been removed; subclasses overriding this must call super
+     *
+     * @param key removed
+     */
+    protected void afterRemoval(K key) {
+        evictionPolicy.recordRemoval(key);
+        forgetSnapshotted(key);
+    }
+
+    private void forgetSnapshotted(K key) {
+        CacheSnapshot<K, V> warm = snapshot;
+        if (warm != null) warm.forget(key);
+    }
+
+    /**
+     * Called after a value stops being mapped by a weighted cache, whether it was removed, replaced, expired or
+     * evicted, e.g. to reclaim storage held by the value. Caches without a weigher do not report released values.
+     *
+     * @param key   the value was mapped from
+     * @param value no longer in the cache
+     */
+    protected void afterRelease(K key, V value) {
+    }
+
+    private V afterWriteOrRemoval(K key, V value) {
+        if (value == null)
+            afterRemoval(key);
+        else
+            afterWrite(key, value);
+        return value;
+    }
+
+    private V liveValue(K key) {
+        V value = cache.get(key);
+        if (value == null) return snapshot == null ? null : restore(key);
+        if (!isExpired(value)) return value;
+        expire(key, value);
+        return null;
+    }
+
+    /**
+     * Takes the entry of the key from the warm-start snapshot into the cache, releasing the snapshot once it has no
+     * entries left
+     */
+    private V restore(K key) {
+        CacheSnapshot<K, V> warm = snapshot;
+        if (warm == null) return null;
+        boolean[] restored = new boolean[1];
+        V value = cache.computeIfAbsent(key, k -> {
+            V taken = warm.take(k);
+            restored[0] = taken != null && !isExpired(taken);
+            return restored[0] ? taken : null;
+        });
+        if (warm.isEmpty()) snapshot = null;
+        if (restored[0]) {
+            reweigh(key, null, value);
+            afterWrite(key, value);
+            checkCapacity();
+        }
+        return value == null || isExpired(value) ? null : value;
+    }
+
+    @Override
+    public void clear() {
+        if (weigher == null)
+            super.clear();
+        else
+            for (K key : cache.keySet())
+                reweigh(key, cache.remove(key), null);
+        evictionPolicy.clear();
+        snapshot = null;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        boolean present = liveValue(key) != null;
+        evictionPolicy.recordRead(key, present);
+        return present;
+    }
+
+    @Override
+    public V getOrDefault(K key, V defaultValue) {
+        V value = liveValue(key);
+        evictionPolicy.recordRead(key, value != null);
+        if (value == null) {
+            statsCounter.recordMisses(1);
+            return defaultValue;
+        }
+        statsCounter.recordHits(1);
+        return value;
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> found  = new HashMap<>();
+        List<K>   misses = new ArrayList<>();
+        for (K key : keys) {
+            V value = liveValue(key);
+            if (value == null)
+                misses.add(key);
+            else
+                found.put(key, value);
+        }
+        evictionPolicy.recordReads(found.keySet(), misses);
+        statsCounter.recordHits(found.size());
+        statsCounter.recordMisses(misses.size());
+        return found;
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        if (weigher == null)
+            cache.replaceAll(function);
+        else
+            for (K key : cache.keySet())
+                cache.computeIfPresent(key, weighing(function));
+        cache.forEach(this::afterWrite);
     }
 
     @Override
     public V put(K key, V value) {
         checkCapacity();
-        return cache.put(key, value);
+        V previous = cache.put(key, value);
+        statsCounter.recordPuts(1);
+        reweigh(key, previous, value);
+        afterWrite(key, value);
+        return previous;
     }
 
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
-        cache.putAll(m);
+        if (weigher == null)
+            cache.putAll(m);
+        else
+            m.forEach((key, value) -> reweigh(key, cache.put(key, value), value));
+        m.forEach(this::afterWrite);
+        statsCounter.recordPuts(m.size());
         checkCapacity();
     }
 
     @Override
     public V putIfAbsent(K key, V value) {
         checkCapacity();
-        return cache.putIfAbsent(key, value);
+        V previous = cache.putIfAbsent(key, value);
+        if (previous == null) {
+            reweigh(key, null, value);
+            statsCounter.recordPuts(1);
+        }
+        afterWrite(key, previous == null ? value : previous);
+        return previous;
+    }
+
+    @Override
+    public V remove(K key) {
+        V previous = cache.remove(key);
+        reweigh(key, previous, null);
+        afterRemoval(key);
+        return previous;
     }
 
     @Override
     public boolean replace(K key, V oldValue, V newValue) {
         checkCapacity();
-        return cache.replace(key, oldValue, newValue);
+        boolean replaced = cache.replace(key, oldValue, newValue);
+        if (replaced) {
+            reweigh(key, oldValue, newValue);
+            afterWrite(key, newValue);
+        }
+        return replaced;
     }
 
     @Override
     public V replace(K key, V value) {
         checkCapacity();
-        return cache.replace(key, value);
+        V previous = cache.replace(key, value);
+        if (previous != null) {
+            reweigh(key, previous, value);
+            afterWrite(key, value);
+        }
+        return previous;
     }
 
     @Override
     public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        V existing = liveValue(key);
+        evictionPolicy.recordRead(key, existing != null);
+        if (existing != null) {
+            statsCounter.recordHits(1);
+            return existing;
+        }
+        statsCounter.recordMisses(1);
         checkCapacity();
-        return cache.computeIfAbsent(key, mappingFunction);
+        return afterWriteOrRemoval
+                (
+                        key,
+                        cache.compute
+                                (
+                                        key,
+                                        weighing((k, v) -> v == null || isExpired(v) ? statsCounter.load(k, mappingFunction) : v)
+                                )
+                );
     }
 
     @Override
     public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         checkCapacity();
-        return cache.computeIfPresent(key, remappingFunction);
+        return afterWriteOrRemoval(key, cache.computeIfPresent(key, weighing(remappingFunction)));
     }
 
     @Override
     public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
         checkCapacity();
-        return cache.compute(key, remappingFunction);
+        return afterWriteOrRemoval(key, cache.compute(key, weighing(remappingFunction)));
     }
 
     @Override
     public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
         checkCapacity();
-        return cache.merge(key, value, remappingFunction);
+        if (weigher == null)
+            return afterWriteOrRemoval(key, cache.merge(key, value, remappingFunction));
+        return afterWriteOrRemoval
+                (
+                        key,
+                        cache.compute(key, weighing((k, v) -> v == null ? value : remappingFunction.apply(v, value)))
+                );
     }
 
 }
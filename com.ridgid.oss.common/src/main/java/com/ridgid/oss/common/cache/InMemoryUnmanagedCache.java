@@ -11,9 +11,33 @@ import java.util.stream.Stream;
 public class InMemoryUnmanagedCache<K, V> implements Cache<K, V> {
 
     protected final ConcurrentHashMap<K, V> cache;
+    protected final StatsCounter            statsCounter;
 
     public InMemoryUnmanagedCache(short initialCapacity) {
-        this.cache = new ConcurrentHashMap<>(initialCapacity);
+        this.cache        = new ConcurrentHashMap<>(initialCapacity);
+        this.statsCounter = StatsCounter.disabled();
+    }
+
+    public InMemoryUnmanagedCache(int initialCapacity,
+                                  int concurrencyLevel) {
+        this(initialCapacity, concurrencyLevel, StatsCounter.disabled());
+    }
+
+    public InMemoryUnmanagedCache(int initialCapacity,
+                                  int concurrencyLevel,
+                                  StatsCounter statsCounter) {
+        this.cache        = new ConcurrentHashMap<>(initialCapacity, 0.75f, concurrencyLevel);
+        this.statsCounter = statsCounter;
+    }
+
+    @Override
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    @Override
+    public StatsCounter statsCounter() {
+        return statsCounter;
     }
 
     @Override
@@ -63,17 +87,21 @@ public class InMemoryUnmanagedCache<K, V> implements Cache<K, V> {
 
     @Override
     public V put(K key, V value) {
+        statsCounter.recordPuts(1);
         return cache.put(key, value);
     }
 
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
+        statsCounter.recordPuts(m.size());
         cache.putAll(m);
     }
 
     @Override
     public V putIfAbsent(K key, V value) {
-        return cache.putIfAbsent(key, value);
+        V previous = cache.putIfAbsent(key, value);
+        if (previous == null) statsCounter.recordPuts(1);
+        return previous;
     }
 
     @Override
@@ -93,12 +121,24 @@ public class InMemoryUnmanagedCache<K, V> implements Cache<K, V> {
 
     @Override
     public V getOrDefault(K key, V defaultValue) {
-        return cache.getOrDefault(key, defaultValue);
+        V value = cache.get(key);
+        if (value == null) {
+            statsCounter.recordMisses(1);
+            return defaultValue;
+        }
+        statsCounter.recordHits(1);
+        return value;
     }
 
     @Override
     public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
-        return cache.computeIfAbsent(key, mappingFunction);
+        V value = cache.get(key);
+        if (value != null) {
+            statsCounter.recordHits(1);
+            return value;
+        }
+        statsCounter.recordMisses(1);
+        return cache.computeIfAbsent(key, k -> statsCounter.load(k, mappingFunction));
     }
 
     @Override
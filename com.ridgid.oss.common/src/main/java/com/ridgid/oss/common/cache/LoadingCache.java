@@ -0,0 +1,55 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Cache that loads absent values itself.
+ * <p>
+ * Concurrent requests for the same absent key share a single load, and loads run outside of any lock of the
+ * underlying cache. Values that report an {@link Expirable#expirationTimeMillis()} can be refreshed ahead of their
+ * expiration: the current value keeps being served while the refresh runs.
+ * <p>
+ * {@link #get(Object)} and {@link #getOrDefault(Object, Object)} do not load.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+@SuppressWarnings("unused")
+public interface LoadingCache<K, V> extends Cache<K, V> {
+
+    /**
+     * Gets the value of the key, loading it if absent. Triggers a refresh if the value is due for one.
+     *
+     * @param key to get the value of
+     * @return future of the value, already complete if the value was present; completes with null if the loader
+     * found no value for the key
+     */
+    CompletableFuture<V> getAsync(K key);
+
+    /**
+     * Gets the value of the key, waiting for it to load if absent
+     *
+     * @param key to get the value of
+     * @return the value, or null if the loader found no value for the key
+     * @throws java.util.concurrent.CompletionException if the load failed
+     */
+    default V getOrLoad(K key) {
+        return getAsync(key).join();
+    }
+
+    /**
+     * Reloads the value of the key. The current value, if any, remains in the cache until the reload completes.
+     *
+     * @param key to reload
+     * @return future of the reloaded value
+     */
+    CompletableFuture<V> refresh(K key);
+
+    /**
+     * Gets the value of the key, loading it with the given function if absent. The function is run as a load of the
+     * key: concurrent loads of the same key are shared, and no lock of the underlying cache is held while it runs.
+     */
+    @Override
+    V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction);
+}
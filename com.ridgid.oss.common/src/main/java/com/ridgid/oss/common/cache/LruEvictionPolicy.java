@@ -0,0 +1,65 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Evicts the least recently read or written keys first
+ *
+ * @param <K> key type of the cache
+ * @param <V> value type of the cache
+ */
+@SuppressWarnings("unused")
+public class LruEvictionPolicy<K, V> extends AbstractEvictionPolicy<K, V> {
+
+    private final SegmentedAccessOrder<K> accessOrder;
+
+    public LruEvictionPolicy(int initialCapacity) {
+        this.accessOrder = new SegmentedAccessOrder<>(initialCapacity);
+    }
+
+    /**
+     * @param initialCapacity  number of keys to size the index for
+     * @param concurrencyLevel estimated number of threads concurrently using the cache
+     */
+    public LruEvictionPolicy(int initialCapacity,
+                             int concurrencyLevel) {
+        this.accessOrder = new SegmentedAccessOrder<>(initialCapacity, concurrencyLevel);
+    }
+
+    @Override
+    protected void onRead(K key, boolean hit) {
+        if (hit) accessOrder.recordAccess(key);
+    }
+
+    @Override
+    protected void onReads(Collection<? extends K> hitKeys, Collection<? extends K> missedKeys) {
+        accessOrder.recordAccesses(hitKeys);
+    }
+
+    @Override
+    public void recordWrite(K key) {
+        accessOrder.recordWrite(key);
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        accessOrder.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        accessOrder.clear();
+    }
+
+    @Override
+    protected List<K> doSelectVictims(int count, Set<K> residentKeys) {
+        return accessOrder.selectEldest(count, residentKeys::contains);
+    }
+
+    @Override
+    public List<K> evictionOrder(Set<K> residentKeys) {
+        return accessOrder.selectEldest(Integer.MAX_VALUE, residentKeys::contains);
+    }
+}
@@ -1,6 +1,13 @@
 package com.ridgid.oss.common.cache;
 
 @SuppressWarnings("unused")
-public interface ManagedCache<K, V> extends Cache<K, V> {
+public interface ManagedCache<K, V> extends Cache<K, V>, AutoCloseable {
     void forceCleanup();
+
+    /**
+     * Stops any background maintenance of the cache. The cache remains usable but is no longer cleaned up.
+     */
+    @Override
+    default void close() {
+    }
 }
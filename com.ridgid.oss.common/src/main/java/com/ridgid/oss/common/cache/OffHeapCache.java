@@ -0,0 +1,309 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Managed cache that keeps its values serialized in direct memory, outside of the Java heap, so that large caches do
+ * not inflate the old generation. Only the keys and small handles locating the serialized values stay on the heap.
+ * <p>
+ * The cache is bounded by the bytes its values occupy off-heap ({@link CacheBuilder#maxWeight(long)}); evicted,
+ * expired, removed and replaced values release their off-heap chunk for reuse. Values that are {@link Expirable}
+ * expire at the {@link Expirable#expirationTimeMillis()} they report when stored, without being deserialized; values
+ * that cannot report it in advance never expire. Every read deserializes a new copy of the value.
+ * <p>
+ * {@code
+ * OffHeapCache<Long, Snapshot> snapshots = CacheBuilder.newBuilder()
+ * .maxWeight(4L << 30)
+ * .evictToWeight(3L << 30)
+ * .buildOffHeap(serializer);
+ * }
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class OffHeapCache<K, V> implements ManagedCache<K, V> {
+
+    private final ValueSerializer<V> serializer;
+    private final OffHeapValueStore  store;
+    private final Handles<K>         handles;
+
+    OffHeapCache(CacheBuilder<K, OffHeapValue> built,
+                 EvictionPolicy<K, OffHeapValue> evictionPolicy,
+                 ValueSerializer<V> serializer) {
+        this.serializer = serializer;
+        this.store      = new OffHeapValueStore(OffHeapValueStore.DEFAULT_SLAB_SIZE);
+        this.handles    = new Handles<>(built, evictionPolicy, store);
+    }
+
+    /**
+     * @return bytes of off-heap memory occupied by values
+     */
+    public long allocatedBytes() {
+        return store.allocatedBytes();
+    }
+
+    /**
+     * @return bytes of off-heap memory reserved, including free space
+     */
+    public long reservedBytes() {
+        return store.reservedBytes();
+    }
+
+    public EvictionPolicyStats evictionPolicyStats() {
+        return handles.evictionPolicyStats();
+    }
+
+    @Override
+    public CacheStats stats() {
+        return handles.stats();
+    }
+
+    /**
+     * @return counter of the cache of the value handles, which records the loads of {@link #computeIfAbsent}
+     */
+    @Override
+    public StatsCounter statsCounter() {
+        return handles.statsCounter();
+    }
+
+    @Override
+    public void forceCleanup() {
+        handles.forceCleanup();
+    }
+
+    @Override
+    public void close() {
+        handles.close();
+    }
+
+    private OffHeapValue store(V value) {
+        long expirationTimeMillis = value instanceof Expirable
+                ? ((Expirable) value).expirationTimeMillis()
+                : Long.MAX_VALUE;
+        if (expirationTimeMillis == Expirable.UNKNOWN_EXPIRATION_TIME_MILLIS)
+            expirationTimeMillis = Long.MAX_VALUE;
+        return store.store(serializer.serialize(value), expirationTimeMillis);
+    }
+
+    private OffHeapValue storeOrNull(V value) {
+        return value == null ? null : store(value);
+    }
+
+    /**
+     * @return the deserialized value, or null if the handle is null or was freed concurrently
+     */
+    private V load(OffHeapValue handle) {
+        if (handle == null) return null;
+        byte[] bytes = store.read(handle);
+        return bytes == null ? null : serializer.deserialize(bytes);
+    }
+
+    @Override
+    public int size() {
+        return handles.size();
+    }
+
+    @Override
+    public void clear() {
+        handles.clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return handles.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return handles.containsKey(key);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        handles.forEach((key, handle) -> {
+            V value = load(handle);
+            if (value != null) action.accept(key, value);
+        });
+    }
+
+    @Override
+    public Stream<Map.Entry<K, V>> stream() {
+        return handles.stream()
+                .<Map.Entry<K, V>>map(e -> new AbstractMap.SimpleImmutableEntry<>(e.getKey(), load(e.getValue())))
+                .filter(e -> e.getValue() != null);
+    }
+
+    @Override
+    public Stream<K> streamKeys() {
+        return handles.streamKeys();
+    }
+
+    @Override
+    public Stream<V> streamValues() {
+        return handles.streamValues().map(this::load).filter(Objects::nonNull);
+    }
+
+    @Override
+    public V getOrDefault(K key, V defaultValue) {
+        while (true) {
+            OffHeapValue handle = handles.getOrDefault(key, null);
+            if (handle == null) return defaultValue;
+            V value = load(handle);
+            if (value != null) return value;
+        }
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> found = new HashMap<>();
+        handles.getAll(keys).forEach((key, handle) -> {
+            V value = load(handle);
+            if (value == null) value = getOrDefault(key, null);
+            if (value != null) found.put(key, value);
+        });
+        return found;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        while (true) {
+            Holder<V>    computed = new Holder<>();
+            OffHeapValue handle   = handles.computeIfAbsent(key, k -> storeOrNull(computed.value = mappingFunction.apply(k)));
+            if (handle == null) return null;
+            if (computed.value != null) return computed.value;
+            V value = load(handle);
+            if (value != null) return value;
+        }
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Holder<V> result = new Holder<>();
+        handles.computeIfPresent(key, (k, handle) -> storeOrNull(result.value = remappingFunction.apply(k, load(handle))));
+        return result.value;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Holder<V> result = new Holder<>();
+        handles.compute(key, (k, handle) -> storeOrNull(result.value = remappingFunction.apply(k, load(handle))));
+        return result.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        OffHeapValue stored   = store(value);
+        Holder<V>    previous = new Holder<>();
+        try {
+            handles.compute(key, (k, handle) -> {
+                previous.value = load(handle);
+                return stored;
+            });
+        } catch (RuntimeException e) {
+            store.free(stored);
+            throw e;
+        }
+        handles.recordPut();
+        return previous.value;
+    }
+
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m) {
+        Map<K, OffHeapValue> stored = new LinkedHashMap<>();
+        m.forEach((key, value) -> stored.put(key, store(value)));
+        handles.putAll(stored);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        OffHeapValue stored = store(value);
+        while (true) {
+            OffHeapValue present = handles.putIfAbsent(key, stored);
+            if (present == null) return null;
+            V presentValue = load(present);
+            if (presentValue != null) {
+                store.free(stored);
+                return presentValue;
+            }
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        Holder<V> previous = new Holder<>();
+        handles.computeIfPresent(key, (k, handle) -> {
+            previous.value = load(handle);
+            return null;
+        });
+        return previous.value;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Holder<Boolean> replaced = new Holder<>();
+        handles.computeIfPresent(key, (k, handle) -> {
+            replaced.value = Objects.equals(load(handle), oldValue);
+            return replaced.value ? store(newValue) : handle;
+        });
+        return Boolean.TRUE.equals(replaced.value);
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        handles.replaceAll((key, handle) -> store(function.apply(key, load(handle))));
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Holder<V> previous = new Holder<>();
+        handles.computeIfPresent(key, (k, handle) -> {
+            previous.value = load(handle);
+            return store(value);
+        });
+        return previous.value;
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return compute(key, (k, present) -> present == null ? value : remappingFunction.apply(present, value));
+    }
+
+    private static final class Holder<T> {
+        private T value;
+    }
+
+    /**
+     * Keys and handles of the values, managed as any other expirable cache weighed by off-heap chunk size
+     */
+    private static final class Handles<K> extends InMemoryExpirableCache<K, OffHeapValue> {
+
+        private final OffHeapValueStore store;
+
+        private Handles(CacheBuilder<K, OffHeapValue> built,
+                        EvictionPolicy<K, OffHeapValue> evictionPolicy,
+                        OffHeapValueStore store) {
+            super(built, evictionPolicy);
+            this.store = store;
+        }
+
+        private void recordPut() {
+            statsCounter.recordPuts(1);
+        }
+
+        @Override
+        protected void afterRelease(K key, OffHeapValue value) {
+            super.afterRelease(key, value);
+            store.free(value);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.ridgid.oss.common.cache;
+
+/**
+ * On-heap handle of a value serialized into an {@link OffHeapValueStore}: the location of its bytes and, when the
+ * value is {@link Expirable}, its expiration time captured when it was stored ({@link Long#MAX_VALUE} otherwise)
+ */
+final class OffHeapValue implements Expirable {
+
+    final long address;
+    final int  length;
+    final int  chunkSize;
+
+    private final long expirationTimeMillis;
+
+    // Set before the chunk is returned to the store for reuse
+    volatile boolean freed;
+
+    OffHeapValue(long address,
+                 int length,
+                 int chunkSize,
+                 long expirationTimeMillis) {
+        this.address              = address;
+        this.length               = length;
+        this.chunkSize            = chunkSize;
+        this.expirationTimeMillis = expirationTimeMillis;
+    }
+
+    @Override
+    public boolean isExpired() {
+        return expirationTimeMillis < System.currentTimeMillis();
+    }
+
+    @Override
+    public long expirationTimeMillis() {
+        return expirationTimeMillis;
+    }
+}
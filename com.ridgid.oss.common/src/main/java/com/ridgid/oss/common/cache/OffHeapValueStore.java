@@ -0,0 +1,191 @@
+package com.ridgid.oss.common.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Storage of serialized values in direct (off-heap) memory.
+ * <p>
+ * Memory is reserved in slabs of {@code slabSize} bytes allocated with {@link ByteBuffer#allocateDirect(int)}. Each
+ * value occupies one chunk of the smallest power-of-two size class that fits it, from 64 bytes up to the slab size.
+ * A slab is carved into chunks of a single size class as that class runs out of free chunks, and freed chunks are
+ * reused by values of the same class; slabs are never returned to the operating system.
+ * <p>
+ * Reads do not lock: they copy the bytes under an optimistic stamp of the slab and retry under its read lock only if a
+ * value was written to the slab meanwhile. A read of a value freed concurrently answers null rather than the bytes of
+ * whatever value reused its chunk.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+final class OffHeapValueStore {
+
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    private static final int MIN_CHUNK_SHIFT = 6;
+
+    private final int       slabSize;
+    private final int       slabShift;
+    private final LongAdder allocatedBytes = new LongAdder();
+
+    private volatile Slab[] slabs = new Slab[0];
+
+    // Guarded by this
+    private final long[][] freeChunks;
+    private final int[]    freeCounts;
+    private final Slab[]   carving;
+    private final int[]    carveOffsets;
+
+    OffHeapValueStore(int slabSize) {
+        if (Integer.bitCount(slabSize) != 1 || slabSize < 1 << MIN_CHUNK_SHIFT)
+            throw new IllegalArgumentException("slabSize must be a power of two of at least " + (1 << MIN_CHUNK_SHIFT));
+        this.slabSize  = slabSize;
+        this.slabShift = Integer.numberOfTrailingZeros(slabSize);
+        int sizeClasses = slabShift - MIN_CHUNK_SHIFT + 1;
+        this.freeChunks   = new long[sizeClasses][];
+        this.freeCounts   = new int[sizeClasses];
+        this.carving      = new Slab[sizeClasses];
+        this.carveOffsets = new int[sizeClasses];
+        for (int i = 0; i < sizeClasses; i++)
+            freeChunks[i] = new long[16];
+    }
+
+    private static int sizeClassOf(int length) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(1, length) - 1);
+        return Math.max(0, shift - MIN_CHUNK_SHIFT);
+    }
+
+    private static int chunkSizeOf(int sizeClass) {
+        return 1 << (sizeClass + MIN_CHUNK_SHIFT);
+    }
+
+    private static long addressOf(int slab, int offset) {
+        return ((long) slab << 32) | offset;
+    }
+
+    private static int slabOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Copies the bytes into a free chunk
+     *
+     * @param bytes                serialized value
+     * @param expirationTimeMillis expiration time of the value, kept on its handle
+     * @return handle of the stored value
+     * @throws IllegalArgumentException if the value is larger than a slab
+     */
+    OffHeapValue store(byte[] bytes, long expirationTimeMillis) {
+        if (bytes.length > slabSize)
+            throw new IllegalArgumentException
+                    (
+                            "Serialized value of " + bytes.length + " bytes exceeds the off-heap slab size of "
+                            + slabSize + " bytes"
+                    );
+        int  sizeClass = sizeClassOf(bytes.length);
+        long address   = allocate(sizeClass);
+        Slab slab      = slabs[slabOf(address)];
+        long stamp     = slab.lock.writeLock();
+        try {
+            ByteBuffer target = slab.buffer.duplicate();
+            target.position(offsetOf(address));
+            target.put(bytes);
+        } finally {
+            slab.lock.unlockWrite(stamp);
+        }
+        allocatedBytes.add(chunkSizeOf(sizeClass));
+        return new OffHeapValue(address, bytes.length, chunkSizeOf(sizeClass), expirationTimeMillis);
+    }
+
+    /**
+     * @param value handle of a stored value
+     * @return copy of the bytes of the value, or null if the value has been freed
+     */
+    byte[] read(OffHeapValue value) {
+        Slab slab  = slabs[slabOf(value.address)];
+        long stamp = slab.lock.tryOptimisticRead();
+        if (value.freed) return null;
+        byte[] bytes = copy(slab, value);
+        if (slab.lock.validate(stamp)) return bytes;
+        stamp = slab.lock.readLock();
+        try {
+            return value.freed ? null : copy(slab, value);
+        } finally {
+            slab.lock.unlockRead(stamp);
+        }
+    }
+
+    private static byte[] copy(Slab slab, OffHeapValue value) {
+        byte[]     bytes  = new byte[value.length];
+        ByteBuffer source = slab.buffer.duplicate();
+        source.position(offsetOf(value.address));
+        source.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the chunk of the value for reuse. Freeing a value more than once has no effect.
+     *
+     * @param value handle of a stored value
+     */
+    synchronized void free(OffHeapValue value) {
+        if (value.freed) return;
+        value.freed = true;
+        int sizeClass = sizeClassOf(value.length);
+        if (freeCounts[sizeClass] == freeChunks[sizeClass].length)
+            freeChunks[sizeClass] = Arrays.copyOf(freeChunks[sizeClass], freeCounts[sizeClass] * 2);
+        freeChunks[sizeClass][freeCounts[sizeClass]++] = value.address;
+        allocatedBytes.add(-value.chunkSize);
+    }
+
+    private synchronized long allocate(int sizeClass) {
+        if (freeCounts[sizeClass] > 0)
+            return freeChunks[sizeClass][--freeCounts[sizeClass]];
+        int chunkSize = chunkSizeOf(sizeClass);
+        if (carving[sizeClass] == null || carveOffsets[sizeClass] + chunkSize > slabSize) {
+            carving[sizeClass]      = addSlab();
+            carveOffsets[sizeClass] = 0;
+        }
+        int offset = carveOffsets[sizeClass];
+        carveOffsets[sizeClass] += chunkSize;
+        return addressOf(carving[sizeClass].index, offset);
+    }
+
+    private Slab addSlab() {
+        Slab[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+        Slab   slab  = new Slab(slabs.length, ByteBuffer.allocateDirect(slabSize));
+        grown[slab.index] = slab;
+        slabs = grown;
+        return slab;
+    }
+
+    /**
+     * @return bytes of the chunks holding values
+     */
+    long allocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    /**
+     * @return bytes of direct memory reserved in slabs
+     */
+    long reservedBytes() {
+        return (long) slabs.length << slabShift;
+    }
+
+    private static final class Slab {
+        private final int         index;
+        private final ByteBuffer  buffer;
+        private final StampedLock lock = new StampedLock();
+
+        private Slab(int index,
+                     ByteBuffer buffer) {
+            this.index  = index;
+            this.buffer = buffer;
+        }
+    }
+}
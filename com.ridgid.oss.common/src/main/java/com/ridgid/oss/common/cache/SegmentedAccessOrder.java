@@ -0,0 +1,321 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Approximate access-order (least-recently-used) index of cache keys.
+ * <p>
+ * Keys are striped across segments by hash. Each segment keeps its keys in a doubly-linked list ordered from least
+ * to most recently used. Writes and removals add or remove the node of a key and link or unlink it under the segment
+ * lock. Reads never lock and never allocate: they stamp the node in place with a lazy (release-only) store and offer
+ * it to a small, lossy ring buffer that is drained into the list in batches by whichever thread first manages to
+ * acquire the segment lock once the buffer is half full. A read of the most recently used key of its segment, the common case for a hot key, only stamps it.
+ * <p>
+ * Selecting the eldest keys merges the heads of the segment lists by access stamp, so the cost of an eviction pass
+ * is proportional to the number of keys evicted rather than to the number of keys in the cache.
+ *
+ * @param <K> key type
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+final class SegmentedAccessOrder<K> {
+
+    private static final int MAX_SEGMENTS         = 64;
+    private static final int READ_BUFFER_SIZE     = 32;
+    private static final int READ_BUFFER_MASK     = READ_BUFFER_SIZE - 1;
+    private static final int READ_DRAIN_THRESHOLD = READ_BUFFER_SIZE / 2;
+
+    private final ConcurrentHashMap<K, Node<K>> nodes;
+    private final Segment<K>[]                  segments;
+    private final int                           segmentMask;
+
+    SegmentedAccessOrder(int initialCapacity) {
+        this(initialCapacity, Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    SegmentedAccessOrder(int initialCapacity,
+                         int concurrencyLevel) {
+        int segmentCount = segmentCountFor(concurrencyLevel);
+        this.nodes       = new ConcurrentHashMap<>(Math.max(16, initialCapacity));
+        this.segments    = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        for (int i = 0; i < segmentCount; i++)
+            segments[i] = new Segment<>();
+    }
+
+    private static int segmentCountFor(int concurrencyLevel) {
+        int count = 1;
+        while (count < concurrencyLevel && count < MAX_SEGMENTS)
+            count <<= 1;
+        return count;
+    }
+
+    private Segment<K> segmentFor(Object key) {
+        return segments[segmentIndexFor(key)];
+    }
+
+    private int segmentIndexFor(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return h & segmentMask;
+    }
+
+    /**
+     * Records a read of the key. Unknown keys are ignored. Never blocks.
+     *
+     * @param key that was read
+     */
+    void recordAccess(K key) {
+        Node<K> node = nodes.get(key);
+        if (node == null) return;
+        node.stamp(System.nanoTime());
+        if (node.segment.tail != node)
+            node.segment.offer(node);
+    }
+
+    /**
+     * Records reads of several keys at once, making them the most recently used keys of their segments in the order
+     * given. Each segment is locked once for the whole batch. Unknown keys are ignored.
+     *
+     * @param keys that were read
+     */
+    @SuppressWarnings("unchecked")
+    void recordAccesses(Collection<? extends K> keys) {
+        List<Node<K>>[] bySegment  = new List[segments.length];
+        long            accessTime = System.nanoTime();
+        for (K key : keys) {
+            Node<K> node = nodes.get(key);
+            if (node == null) continue;
+            node.stamp(accessTime);
+            int index = segmentIndexFor(key);
+            if (bySegment[index] == null) bySegment[index] = new ArrayList<>();
+            bySegment[index].add(node);
+        }
+        for (int i = 0; i < segments.length; i++) {
+            if (bySegment[i] == null) continue;
+            Segment<K> segment = segments[i];
+            segment.lock.lock();
+            try {
+                segment.drainReadBuffer();
+                for (Node<K> node : bySegment[i])
+                    if (node.linked)
+                        segment.moveToTail(node);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Records a write of the key, adding it to the index if it is not already present, and makes it the most
+     * recently used key of its segment. The node of the key is looked up and linked under the segment lock, so a
+     * removal of the key racing a write of it cannot leave the key in the cache but out of the index.
+     *
+     * @param key that was written
+     */
+    void recordWrite(K key) {
+        Segment<K> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            Node<K> node = nodes.computeIfAbsent(key, k -> new Node<>(k, segment));
+            node.stamp(System.nanoTime());
+            segment.moveToTail(node);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the key from the index
+     *
+     * @param key to remove
+     */
+    void remove(K key) {
+        Segment<K> segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            Node<K> node = nodes.remove(key);
+            if (node != null) segment.unlink(node);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    void clear() {
+        for (Segment<K> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.drainReadBuffer();
+                for (Node<K> n = segment.head; n != null; n = segment.head) {
+                    segment.unlink(n);
+                    nodes.remove(n.key, n);
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    boolean contains(K key) {
+        return nodes.containsKey(key);
+    }
+
+    /**
+     * Selects up to {@code count} of the least recently used keys, eldest first. Keys are not removed from the index;
+     * they are removed when the caller removes them from the cache. Indexed keys for which {@code isLive} answers
+     * false are dropped from the index and do not count towards {@code count}.
+     *
+     * @param count  maximum number of keys to select
+     * @param isLive test of whether the key is still present in the owning cache
+     * @return the selected keys, eldest first
+     */
+    List<K> selectEldest(int count,
+                         Predicate<? super K> isLive) {
+        if (count <= 0) return Collections.emptyList();
+        List<K> selected = new ArrayList<>(Math.min(count, nodes.size()));
+        for (Segment<K> segment : segments)
+            segment.lock.lock();
+        try {
+            @SuppressWarnings("unchecked")
+            Node<K>[] cursors = new Node[segments.length];
+            for (int i = 0; i < segments.length; i++) {
+                segments[i].drainReadBuffer();
+                cursors[i] = segments[i].head;
+            }
+            while (selected.size() < count) {
+                int eldest = -1;
+                for (int i = 0; i < cursors.length; i++)
+                    if (cursors[i] != null
+                            && (eldest < 0 || cursors[i].accessTime - cursors[eldest].accessTime < 0))
+                        eldest = i;
+                if (eldest < 0) break;
+                Node<K> node = cursors[eldest];
+                cursors[eldest] = node.next;
+                if (isLive.test(node.key))
+                    selected.add(node.key);
+                else {
+                    segments[eldest].unlink(node);
+                    nodes.remove(node.key, node);
+                }
+            }
+        } finally {
+            for (int i = segments.length - 1; i >= 0; i--)
+                segments[i].lock.unlock();
+        }
+        return selected;
+    }
+
+    private static final class Node<K> {
+        @SuppressWarnings("rawtypes")
+        private static final AtomicLongFieldUpdater<Node> ACCESS_TIME
+                = AtomicLongFieldUpdater.newUpdater(Node.class, "accessTime");
+
+        private final K          key;
+        private final Segment<K> segment;
+
+        private volatile long accessTime;
+
+        // Guarded by segment.lock
+        private Node<K> prev;
+        private Node<K> next;
+        private boolean linked;
+
+        private Node(K key,
+                     Segment<K> segment) {
+            this.key     = key;
+            this.segment = segment;
+        }
+
+        /**
+         * Records the access time without a full fence; it is published to the evicting thread by the segment lock
+         * or, at worst, observed slightly late, which only makes the access order approximate
+         */
+        private void stamp(long accessTime) {
+            ACCESS_TIME.lazySet(this, accessTime);
+        }
+    }
+
+    private static final class Segment<K> {
+        private final ReentrantLock                 lock       = new ReentrantLock();
+        private final AtomicReferenceArray<Node<K>> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        private final AtomicLong                    writes     = new AtomicLong();
+
+        private volatile long reads;
+
+        // Written under lock; tail is read without it to skip reads of the most recently used key
+        private          Node<K> head;
+        private volatile Node<K> tail;
+
+        private void offer(Node<K> node) {
+            long w       = writes.get();
+            long pending = w - reads;
+            if (pending < READ_BUFFER_SIZE && writes.compareAndSet(w, w + 1)) {
+                readBuffer.lazySet((int) (w & READ_BUFFER_MASK), node);
+                pending++;
+            }
+            if (pending >= READ_DRAIN_THRESHOLD && lock.tryLock())
+                try {
+                    drainReadBuffer();
+                } finally {
+                    lock.unlock();
+                }
+        }
+
+        private void drainReadBuffer() {
+            long r = reads;
+            long w = writes.get();
+            for (; r < w; r++) {
+                int     index = (int) (r & READ_BUFFER_MASK);
+                Node<K> node  = readBuffer.get(index);
+                if (node == null) break;
+                readBuffer.lazySet(index, null);
+                if (node.linked)
+                    moveToTail(node);
+            }
+            reads = r;
+        }
+
+        private void moveToTail(Node<K> node) {
+            if (node.linked) {
+                if (tail == node) return;
+                unlink(node);
+            }
+            node.prev   = tail;
+            node.next   = null;
+            node.linked = true;
+            if (tail == null)
+                head = node;
+            else
+                tail.next = node;
+            tail = node;
+        }
+
+        private void unlink(Node<K> node) {
+            if (!node.linked) return;
+            if (node.prev == null)
+                head = node.next;
+            else
+                node.prev.next = node.next;
+            if (node.next == null)
+                tail = node.prev;
+            else
+                node.next.prev = node.prev;
+            node.prev   = null;
+            node.next   = null;
+            node.linked = false;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.function.Function;
+
+/**
+ * Accumulates the statistics of a cache. Caches record into {@link #disabled()} unless statistics are enabled with
+ * {@link CacheBuilder#recordStats()}, so that keeping statistics costs nothing when they are not wanted.
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public interface StatsCounter {
+
+    /**
+     * @return counter that records nothing and whose snapshot is always {@link CacheStats#empty()}
+     */
+    static StatsCounter disabled() {
+        return DisabledStatsCounter.INSTANCE;
+    }
+
+    void recordHits(int count);
+
+    void recordMisses(int count);
+
+    void recordPuts(int count);
+
+    void recordEviction(EvictionCause cause);
+
+    void recordLoadSuccess(long loadTimeNanos);
+
+    void recordLoadFailure(long loadTimeNanos);
+
+    void recordCleanup(long durationNanos);
+
+    /**
+     * @return false if this counter discards everything recorded, in which case callers may skip measuring
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Runs a load, recording its time as a successful load if it gives a value, or as a failed one if it gives null or
+     * throws
+     *
+     * @param input  of the load, such as the key or keys to load
+     * @param loader gives the value loaded
+     * @param <T>    input type
+     * @param <R>    value type
+     * @return value loaded
+     */
+    default <T, R> R load(T input, Function<? super T, ? extends R> loader) {
+        if (!isEnabled()) return loader.apply(input);
+        long start = System.nanoTime();
+        R    value;
+        try {
+            value = loader.apply(input);
+        } catch (RuntimeException | Error e) {
+            recordLoadFailure(System.nanoTime() - start);
+            throw e;
+        }
+        if (value == null)
+            recordLoadFailure(System.nanoTime() - start);
+        else
+            recordLoadSuccess(System.nanoTime() - start);
+        return value;
+    }
+
+    /**
+     * @return point-in-time snapshot of the counts recorded so far
+     */
+    CacheStats snapshot();
+
+    final class DisabledStatsCounter implements StatsCounter {
+
+        private static final StatsCounter INSTANCE = new DisabledStatsCounter();
+
+        private DisabledStatsCounter() {
+        }
+
+        @Override
+        public void recordHits(int count) {
+        }
+
+        @Override
+        public void recordMisses(int count) {
+        }
+
+        @Override
+        public void recordPuts(int count) {
+        }
+
+        @Override
+        public void recordEviction(EvictionCause cause) {
+        }
+
+        @Override
+        public void recordLoadSuccess(long loadTimeNanos) {
+        }
+
+        @Override
+        public void recordLoadFailure(long loadTimeNanos) {
+        }
+
+        @Override
+        public void recordCleanup(long durationNanos) {
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public CacheStats snapshot() {
+            return CacheStats.empty();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timer wheel of key expiration times.
+ * <p>
+ * Each level is a ring of buckets covering a coarser span of time than the level below it: about a second per bucket
+ * at the lowest level, then about a minute, an hour and most of a day, with a final overflow bucket for anything
+ * further out. Scheduling and descheduling a key are O(1). Advancing the wheel visits only the buckets whose span has
+ * elapsed since the last advance; keys in those buckets that are not yet due are cascaded down to a finer level, so
+ * the cost of expiring an entry is amortized O(1) regardless of the number of keys scheduled.
+ *
+ * @param <K> key type
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+final class TimerWheel<K> {
+
+    private static final int[]  BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS   = {
+            1L << 10,                      // 1.02 seconds
+            1L << 16,                      // 1.09 minutes
+            1L << 22,                      // 1.17 hours
+            1L << 26,                      // 18.6 hours
+            BUCKETS[3] * (1L << 26),       // 3.1 days
+            BUCKETS[3] * (1L << 26)
+    };
+    private static final int[]  SHIFT   = {
+            Long.numberOfTrailingZeros(SPANS[0]),
+            Long.numberOfTrailingZeros(SPANS[1]),
+            Long.numberOfTrailingZeros(SPANS[2]),
+            Long.numberOfTrailingZeros(SPANS[3]),
+            Long.numberOfTrailingZeros(SPANS[4])
+    };
+
+    // Guarded by this
+    private final Node<K>[][]     wheel;
+    private final Map<K, Node<K>> nodes = new HashMap<>();
+    private       long            currentTimeMillis;
+
+    @SuppressWarnings("unchecked")
+    TimerWheel(long currentTimeMillis) {
+        this.currentTimeMillis = currentTimeMillis;
+        this.wheel             = new Node[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = new Node[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++)
+                wheel[i][j] = Node.sentinel();
+        }
+    }
+
+    /**
+     * Schedules the key to expire at the given time, replacing any time it was previously scheduled at
+     *
+     * @param key                  to schedule
+     * @param expirationTimeMillis system time in milliseconds at which the key is due
+     */
+    synchronized void schedule(K key, long expirationTimeMillis) {
+        Node<K> node = nodes.get(key);
+        if (node == null)
+            nodes.put(key, node = new Node<>(key));
+        else
+            node.unlink();
+        node.timeMillis = expirationTimeMillis;
+        link(node);
+    }
+
+    /**
+     * @param key to no longer schedule
+     */
+    synchronized void deschedule(K key) {
+        Node<K> node = nodes.remove(key);
+        if (node != null) node.unlink();
+    }
+
+    synchronized void clear() {
+        for (Node<K> node : nodes.values())
+            node.unlink();
+        nodes.clear();
+    }
+
+    synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Advances the wheel to the given time. Keys that are due are descheduled and returned; keys that are not yet due
+     * are moved to a finer bucket.
+     *
+     * @param currentTimeMillis current system time in milliseconds
+     * @return keys whose scheduled time is at or before {@code currentTimeMillis}
+     */
+    synchronized List<K> advance(long currentTimeMillis) {
+        long previousTimeMillis = this.currentTimeMillis;
+        if (currentTimeMillis - previousTimeMillis <= 0) return Collections.emptyList();
+        this.currentTimeMillis = currentTimeMillis;
+        List<K> due = new ArrayList<>();
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTimeMillis >>> SHIFT[i];
+            long currentTicks  = currentTimeMillis >>> SHIFT[i];
+            if (currentTicks - previousTicks <= 0) break;
+            expire(i, previousTicks, currentTicks, due);
+        }
+        return due;
+    }
+
+    private void expire(int level,
+                        long previousTicks,
+                        long currentTicks,
+                        List<K> due) {
+        Node<K>[] buckets = wheel[level];
+        int       mask    = buckets.length - 1;
+        int       steps   = (int) Math.min(1 + currentTicks - previousTicks, buckets.length);
+        int       start   = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; i++) {
+            Node<K> sentinel = buckets[i & mask];
+            Node<K> node     = sentinel.next;
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            while (node != sentinel) {
+                Node<K> next = node.next;
+                node.prev = null;
+                node.next = null;
+                if (node.timeMillis - currentTimeMillis > 0)
+                    link(node);
+                else {
+                    nodes.remove(node.key);
+                    due.add(node.key);
+                }
+                node = next;
+            }
+        }
+    }
+
+    private void link(Node<K> node) {
+        Node<K> sentinel = findBucket(Math.max(node.timeMillis, currentTimeMillis));
+        node.prev          = sentinel.prev;
+        node.next          = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev      = node;
+    }
+
+    private Node<K> findBucket(long timeMillis) {
+        long duration = timeMillis - currentTimeMillis;
+        for (int i = 0; i < BUCKETS.length - 1; i++)
+            if (duration < SPANS[i + 1]) {
+                long ticks = timeMillis >>> SHIFT[i];
+                return wheel[i][(int) (ticks & (BUCKETS[i] - 1))];
+            }
+        return wheel[BUCKETS.length - 1][0];
+    }
+
+    private static final class Node<K> {
+        private final K key;
+
+        private long    timeMillis;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key) {
+            this.key = key;
+        }
+
+        private static <K> Node<K> sentinel() {
+            Node<K> sentinel = new Node<>(null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            return sentinel;
+        }
+
+        private void unlink() {
+            if (next == null) return;
+            prev.next = next;
+            next.prev = prev;
+            prev      = null;
+            next      = null;
+        }
+    }
+}
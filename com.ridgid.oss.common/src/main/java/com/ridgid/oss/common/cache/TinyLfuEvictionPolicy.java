@@ -0,0 +1,164 @@
+package com.ridgid.oss.common.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Window TinyLFU admission and eviction policy.
+ * <p>
+ * Newly written keys enter a small LRU admission window. Keys pushed out of the window move into the probation
+ * segment of the main space, and are promoted to its protected segment when read again while on probation. When the
+ * cache is over capacity, the eldest window key is weighed against the eldest probation key using a
+ * {@link FrequencySketch} of recent reads and writes, and whichever has been used less often is evicted. Once the
+ * window is empty the two eldest keys of the main space are weighed against each other instead, taking probation
+ * before protected. A burst of one-off keys therefore cannot push out a frequently used
+ * working set.
+ *
+ * @param <K> key type of the cache
+ * @param <V> value type of the cache
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+public class TinyLfuEvictionPolicy<K, V> extends AbstractEvictionPolicy<K, V> {
+
+    private static final int DEFAULT_WINDOW_PERCENT    = 1;
+    private static final int DEFAULT_PROTECTED_PERCENT = 80;
+    private static final int DEFAULT_DECAY_FACTOR      = 10;
+
+    private static final Predicate<Object> ANY_KEY = k -> true;
+
+    private final FrequencySketch<K>      sketch;
+    private final SegmentedAccessOrder<K> window;
+    private final SegmentedAccessOrder<K> probation;
+    private final SegmentedAccessOrder<K> protectedKeys;
+    private final int                     windowCapacity;
+    private final int                     protectedCapacity;
+
+    /**
+     * Create a policy with a sketch width of {@code maxCapacity} counters that decays every
+     * {@code 10 * maxCapacity} recorded uses
+     *
+     * @param maxCapacity maximum capacity of the cache using the policy
+     */
+    public TinyLfuEvictionPolicy(int maxCapacity) {
+        this(maxCapacity,
+                maxCapacity,
+                DEFAULT_DECAY_FACTOR * Math.max(1, maxCapacity));
+    }
+
+    /**
+     * @param maxCapacity maximum capacity of the cache using the policy
+     * @param sketchWidth number of counters per row of the frequency sketch (rounded up to a power of two)
+     * @param decayPeriod number of recorded uses after which all sketch counters are halved
+     */
+    public TinyLfuEvictionPolicy(int maxCapacity,
+                                 int sketchWidth,
+                                 int decayPeriod) {
+        this.sketch            = new FrequencySketch<>(sketchWidth, decayPeriod);
+        this.windowCapacity    = Math.max(1, maxCapacity * DEFAULT_WINDOW_PERCENT / 100);
+        this.protectedCapacity = Math.max(1, (maxCapacity - windowCapacity) * DEFAULT_PROTECTED_PERCENT / 100);
+        this.window            = new SegmentedAccessOrder<>(windowCapacity, 1);
+        this.probation         = new SegmentedAccessOrder<>(maxCapacity);
+        this.protectedKeys     = new SegmentedAccessOrder<>(protectedCapacity);
+    }
+
+    @Override
+    protected void onRead(K key, boolean hit) {
+        sketch.increment(key);
+        if (!hit) return;
+        if (probation.contains(key))
+            promote(key);
+        else {
+            protectedKeys.recordAccess(key);
+            window.recordAccess(key);
+        }
+    }
+
+    @Override
+    public void recordWrite(K key) {
+        sketch.increment(key);
+        if (protectedKeys.contains(key))
+            protectedKeys.recordWrite(key);
+        else if (probation.contains(key))
+            promote(key);
+        else {
+            window.recordWrite(key);
+            if (window.size() > windowCapacity)
+                move(eldest(window, ANY_KEY), window, probation);
+        }
+    }
+
+    @Override
+    public void recordRemoval(K key) {
+        forget(key);
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedKeys.clear();
+    }
+
+    @Override
+    protected List<K> doSelectVictims(int count, Set<K> residentKeys) {
+        if (count <= 0) return Collections.emptyList();
+        List<K> victims = new ArrayList<>(count);
+        while (victims.size() < count) {
+            List<K> main = probation.selectEldest(2, residentKeys::contains);
+            if (main.isEmpty()) main = protectedKeys.selectEldest(2, residentKeys::contains);
+            K candidate = eldest(window, residentKeys::contains);
+            K victim    = main.isEmpty() ? null : main.get(0);
+            if (candidate == null && main.size() > 1) candidate = main.get(1);
+            if (candidate == null && victim == null) break;
+            evict(victim == null
+                          || candidate != null && sketch.frequency(candidate) <= sketch.frequency(victim)
+                          ? candidate
+                          : victim,
+                  victims);
+        }
+        return victims;
+    }
+
+    /**
+     * Probation keys come first, eldest first, then window keys and finally protected keys; frequencies are not
+     * consulted
+     */
+    @Override
+    public List<K> evictionOrder(Set<K> residentKeys) {
+        List<K> order = new ArrayList<>(probation.selectEldest(Integer.MAX_VALUE, residentKeys::contains));
+        order.addAll(window.selectEldest(Integer.MAX_VALUE, residentKeys::contains));
+        order.addAll(protectedKeys.selectEldest(Integer.MAX_VALUE, residentKeys::contains));
+        return order;
+    }
+
+    private void promote(K key) {
+        move(key, probation, protectedKeys);
+        if (protectedKeys.size() > protectedCapacity)
+            move(eldest(protectedKeys, ANY_KEY), protectedKeys, probation);
+    }
+
+    private static <K> void move(K key, SegmentedAccessOrder<K> from, SegmentedAccessOrder<K> to) {
+        if (key == null || !from.contains(key)) return;
+        from.remove(key);
+        to.recordWrite(key);
+    }
+
+    private static <K> K eldest(SegmentedAccessOrder<K> order, Predicate<? super K> isLive) {
+        List<K> eldest = order.selectEldest(1, isLive);
+        return eldest.isEmpty() ? null : eldest.get(0);
+    }
+
+    private void evict(K key, List<K> victims) {
+        forget(key);
+        victims.add(key);
+    }
+
+    private void forget(K key) {
+        window.remove(key);
+        probation.remove(key);
+        protectedKeys.remove(key);
+    }
+}
@@ -0,0 +1,21 @@
+package com.ridgid.oss.common.cache;
+
+/**
+ * Converts cache values to and from bytes, for caches that store their values outside of the Java heap
+ *
+ * @param <V> value type
+ */
+public interface ValueSerializer<V> {
+
+    /**
+     * @param value to serialize; never null
+     * @return serialized form of the value
+     */
+    byte[] serialize(V value);
+
+    /**
+     * @param bytes serialized by {@link #serialize(Object)}
+     * @return value equal to the one serialized
+     */
+    V deserialize(byte[] bytes);
+}
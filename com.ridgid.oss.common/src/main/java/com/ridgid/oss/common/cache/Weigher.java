@@ -0,0 +1,20 @@
+package com.ridgid.oss.common.cache;
+
+/**
+ * Computes the weight of a cache entry, for caches bounded by total weight (e.g. approximate size in bytes) rather
+ * than by number of entries. The weight of an entry is computed when it is written and must not change while it is
+ * in the cache.
+ *
+ * @param <K> key type of the cache
+ * @param <V> value type of the cache
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * @param key   of the entry
+     * @param value of the entry
+     * @return non-negative weight of the entry
+     */
+    int weigh(K key, V value);
+}
@@ -1,8 +1,12 @@
 package com.ridgid.oss.common.security.realm;
 
 import com.ridgid.oss.common.cache.Cache;
+import com.ridgid.oss.common.cache.CacheBuilder;
+import com.ridgid.oss.common.cache.CacheStats;
 import com.ridgid.oss.common.cache.Expirable;
 import com.ridgid.oss.common.cache.InMemoryExpirableLRUCache;
+import com.ridgid.oss.common.cache.ManagedCache;
+import com.ridgid.oss.common.cache.ValueSerializer;
 import com.ridgid.oss.common.security.realm.authentication.AuthenticationStorage;
 import com.ridgid.oss.common.security.realm.authentication.RealmAuthentication;
 import com.ridgid.oss.common.security.realm.authentication.RealmAuthenticationException;
@@ -10,6 +14,7 @@ import com.ridgid.oss.common.security.realm.authentication.secret.SecretValidato
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.Optional;
@@ -17,6 +22,7 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -54,6 +60,12 @@ public class RealmManager<RIDT, IDT, ST, ATT>
 
     private final QueueStoreAndNotifyTimer queuedStoreAndNotifyTimer = new QueueStoreAndNotifyTimer(true);
 
+    private volatile Function<RIDT, Path>                                  snapshotFiles;
+    private volatile ValueSerializer<ATT>                                  tokenSerializer;
+    private volatile ValueSerializer<RealmAuthentication<RIDT, IDT, ATT>> authenticationSerializer;
+    private volatile int                                                   snapshotIntervalSeconds;
+    private volatile boolean                                               recordCacheStats;
+
     protected RealmManager(RealmListener<RIDT, IDT, ST, ATT> listener,
                            RealmNotifier<RIDT, IDT, ST, ATT> notifier,
                            SecretValidator<RIDT, IDT, ST, ATT> secretValidator,
@@ -81,6 +93,63 @@ public class RealmManager<RIDT, IDT, ST, ATT>
         return (short) Math.max(min * 2, Math.max(1, requestedMax));
     }
 
+    /**
+     * Statistics of the authentication caches of all realms, e.g. to tune the maximum cache size
+     *
+     * @return sum of the statistics of the authentication caches, empty unless {@link #recordAuthenticationCacheStats()}
+     * was called
+     */
+    public CacheStats authenticationCacheStats() {
+        return authenticationCache
+            .values()
+            .stream()
+            .map(Cache::stats)
+            .reduce(CacheStats.empty(), CacheStats::plus);
+    }
+
+    /**
+     * Makes the authentication cache of each realm record the statistics reported by
+     * {@link #authenticationCacheStats()}. Applies to realm caches created after the call, so subclasses should call it
+     * from their constructor.
+     */
+    protected void recordAuthenticationCacheStats() {
+        this.recordCacheStats = true;
+    }
+
+    /**
+     * Makes the authentication cache of each realm start warm from a snapshot of the authentications cached before a
+     * restart, instead of re-reading them from storage. Applies to realm caches created after the call, so subclasses
+     * should call it from their constructor. Snapshots are written every {@code snapshotIntervalSeconds} (if positive)
+     * and by {@link #closeAuthenticationCaches()}.
+     *
+     * @param snapshotFiles            file of the snapshot of each realm
+     * @param tokenSerializer          converts authentication tokens to and from bytes
+     * @param authenticationSerializer converts authentications to and from bytes
+     * @param snapshotIntervalSeconds  interval of the regular snapshots, or 0 to snapshot only on close
+     */
+    protected void warmStartAuthenticationCaches(Function<RIDT, Path> snapshotFiles,
+                                                 ValueSerializer<ATT> tokenSerializer,
+                                                 ValueSerializer<RealmAuthentication<RIDT, IDT, ATT>> authenticationSerializer,
+                                                 int snapshotIntervalSeconds)
+    {
+        this.tokenSerializer          = tokenSerializer;
+        this.authenticationSerializer = authenticationSerializer;
+        this.snapshotIntervalSeconds  = snapshotIntervalSeconds;
+        this.snapshotFiles            = snapshotFiles;
+    }
+
+    /**
+     * Stops the maintenance of the authentication caches, writing their snapshots if they start warm, e.g. on shutdown
+     */
+    public void closeAuthenticationCaches() {
+        authenticationCache
+            .values()
+            .stream()
+            .filter(ManagedCache.class::isInstance)
+            .map(ManagedCache.class::cast)
+            .forEach(ManagedCache::close);
+    }
+
     public Optional<ATT> authenticate(RIDT realmId,
                                       IDT id,
                                       ST secret,
@@ -228,7 +297,7 @@ public class RealmManager<RIDT, IDT, ST, ATT>
                     .computeIfAbsent
                         (
                             realmId,
-                            key -> makeAuthenticationCache()
+                            this::makeAuthenticationCache
                         )
                     .compute
                         (
@@ -251,7 +320,7 @@ public class RealmManager<RIDT, IDT, ST, ATT>
                     .computeIfAbsent
                         (
                             realmId,
-                            key -> makeAuthenticationCache()
+                            this::makeAuthenticationCache
                         )
                     .computeIfAbsent
                         (
@@ -340,7 +409,7 @@ public class RealmManager<RIDT, IDT, ST, ATT>
                 .computeIfAbsent
                     (
                         auth.getRealmId(),
-                        k -> makeAuthenticationCache()
+                        this::makeAuthenticationCache
                     )
                 .put
                     (
@@ -399,7 +468,7 @@ public class RealmManager<RIDT, IDT, ST, ATT>
                 .computeIfAbsent
                     (
                         realmId,
-                        k -> makeAuthenticationCache()
+                        this::makeAuthenticationCache
                     )
                 .remove
                     (
@@ -464,22 +533,37 @@ public class RealmManager<RIDT, IDT, ST, ATT>
         }
     }
 
-    private InMemoryExpirableLRUCache<ATT, RealmAuthentication<RIDT, IDT, ATT>> makeAuthenticationCache() {
-        return makeAuthenticationCache(DEFAULT_MIN_CACHE_SIZE, maxCacheSize);
+    private InMemoryExpirableLRUCache<ATT, RealmAuthentication<RIDT, IDT, ATT>> makeAuthenticationCache(RIDT realmId) {
+        return makeAuthenticationCache(realmId, DEFAULT_MIN_CACHE_SIZE, maxCacheSize);
     }
 
     @SuppressWarnings("SameParameterValue")
     private InMemoryExpirableLRUCache<ATT, RealmAuthentication<RIDT, IDT, ATT>>
-    makeAuthenticationCache(short minCacheSize,
+    makeAuthenticationCache(RIDT realmId,
+                            short minCacheSize,
                             short maxCacheSize)
     {
-        return new InMemoryExpirableLRUCache<>
-            (
-                CACHE_TIMEOUT_CHECK_INTERVAL_SECONDS,
-                minCacheSize,
-                maxCacheSize,
-                computeDrainCacheSize(minCacheSize, maxCacheSize)
-            );
+        CacheBuilder<Object, Object> builder
+            = CacheBuilder
+            .newBuilder()
+            .timeoutCheckIntervalSeconds(CACHE_TIMEOUT_CHECK_INTERVAL_SECONDS)
+            .initialCapacity(minCacheSize)
+            .maxCapacity(maxCacheSize)
+            .evictToCapacity(computeDrainCacheSize(minCacheSize, maxCacheSize));
+        if ( recordCacheStats )
+            builder.recordStats();
+        Function<RIDT, Path> files = snapshotFiles;
+        if ( files == null )
+            return builder.buildExpirableLRU();
+        return builder
+            .warmStartSnapshot
+                (
+                    files.apply(realmId),
+                    tokenSerializer,
+                    authenticationSerializer,
+                    snapshotIntervalSeconds
+                )
+            .buildExpirableLRU();
     }
 
     private short computeDrainCacheSize(short minCacheSize,
@@ -37,5 +37,9 @@ public interface RealmAuthentication<RIDT, IDT, ATT>
         return getExpiresSystemTimeMillis() < System.currentTimeMillis();
     }
 
+    default long expirationTimeMillis() {
+        return getExpiresSystemTimeMillis();
+    }
+
     RealmAuthentication<RIDT, IDT, ATT> extendAuthentication();
 }
@@ -0,0 +1,63 @@
+package com.ridgid.oss.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheBuilder_Test {
+
+    private static void awaitCleanup(InMemoryManagedCache<?, ?> cache, long targetSize) throws InterruptedException {
+        for (int i = 0; i < 500 && cache.weightedSize() > targetSize; i++)
+            Thread.sleep(10);
+    }
+
+    @Test
+    void it_builds_caches_larger_than_a_short_capacity() throws InterruptedException {
+        InMemoryLRUCache<Integer, Integer> cache = CacheBuilder.newBuilder()
+                .initialCapacity(100_000)
+                .maxCapacity(100_000)
+                .evictToCapacity(60_000)
+                .concurrencyLevel(4)
+                .buildLRU();
+        for (int i = 0; i <= 100_000; i++)
+            cache.put(i, i);
+        awaitCleanup(cache, 60_000);
+        assertEquals(60_000, cache.size());
+        assertTrue(cache.containsKey(100_000));
+        assertFalse(cache.containsKey(0));
+    }
+
+    @Test
+    void it_bounds_a_weighted_cache_by_total_weight() throws InterruptedException {
+        InMemoryManagedCache<Integer, String> cache = CacheBuilder.newBuilder()
+                .weigher((Integer k, String v) -> v.length())
+                .maxWeight(1_000)
+                .evictToWeight(500)
+                .buildManaged();
+        // Stays within maxWeight, so that the cleanup requested above evictToWeight evicts nothing while reweighing
+        for (int i = 0; i < 90; i++)
+            cache.put(i, "0123456789");
+        assertEquals(900, cache.weightedSize());
+        cache.put(0, "01234567890123456789");
+        cache.merge(1, "0123456789", String::concat);
+        cache.computeIfPresent(2, (k, v) -> null);
+        assertEquals(910, cache.weightedSize());
+        for (int i = 90; i < 100; i++)
+            cache.put(i, "0123456789");
+        cache.forceCleanup();
+        awaitCleanup(cache, 500);
+        assertTrue(cache.weightedSize() <= 500);
+        cache.clear();
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    void it_rejects_inconsistent_bounds() {
+        assertThrows(IllegalStateException.class,
+                     () -> CacheBuilder.newBuilder().maxWeight(10).buildManaged());
+        assertThrows(IllegalStateException.class,
+                     () -> CacheBuilder.newBuilder().weigher((k, v) -> 1).maxCapacity(10).buildManaged());
+        assertThrows(IllegalStateException.class,
+                     () -> CacheBuilder.newBuilder().maxCapacity(10).evictToCapacity(20).buildLRU());
+    }
+}
@@ -0,0 +1,80 @@
+package com.ridgid.oss.common.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheMaintenanceScheduler_Test {
+
+    private CacheMaintenanceScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = CacheMaintenanceScheduler.builder()
+                .threads(2)
+                .cleanupDelayMillis(50)
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void it_coalesces_requests_made_while_a_cleanup_is_queued() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CacheMaintenanceScheduler.Registration registration
+                = scheduler.register(runs, AtomicInteger::incrementAndGet, 0);
+        for (int i = 0; i < 1000; i++)
+            registration.requestCleanup();
+        Thread.sleep(250);
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void it_runs_once_more_when_requested_during_a_cleanup() throws InterruptedException {
+        AtomicInteger  runs    = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CacheMaintenanceScheduler.Registration registration
+                = scheduler.register(runs, r -> {
+            r.incrementAndGet();
+            started.countDown();
+            sleep(100);
+        }, 0);
+        registration.requestCleanup();
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        registration.requestCleanup();
+        registration.requestCleanup();
+        Thread.sleep(400);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void it_stops_periodic_cleanup_when_cancelled() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CacheMaintenanceScheduler.Registration registration
+                = scheduler.register(runs, AtomicInteger::incrementAndGet, 20);
+        Thread.sleep(150);
+        registration.cancel();
+        registration.requestCleanup();
+        int runsWhenCancelled = runs.get();
+        assertTrue(runsWhenCancelled > 0);
+        Thread.sleep(100);
+        assertTrue(runs.get() <= runsWhenCancelled + 1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
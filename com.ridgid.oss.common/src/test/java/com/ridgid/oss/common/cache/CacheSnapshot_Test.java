@@ -0,0 +1,125 @@
+package com.ridgid.oss.common.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheSnapshot_Test {
+
+    private static final ValueSerializer<String> UTF_8 = new ValueSerializer<String>() {
+        @Override
+        public byte[] serialize(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String deserialize(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    private final AtomicInteger deserialized = new AtomicInteger();
+
+    private final ValueSerializer<ExpirableWrapper<String>> expirables = new ValueSerializer<ExpirableWrapper<String>>() {
+        @Override
+        public byte[] serialize(ExpirableWrapper<String> value) {
+            return (value.expirationTimeMillis() + ":" + value.unwrap()).getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public ExpirableWrapper<String> deserialize(byte[] bytes) {
+            deserialized.incrementAndGet();
+            String[] parts = new String(bytes, StandardCharsets.UTF_8).split(":", 2);
+            return new ExpirableWrapper<>(parts[1], Long.parseLong(parts[0]));
+        }
+    };
+
+    private static InMemoryLRUCache<String, String> lruCache(Path file, long maxCapacity) {
+        return CacheBuilder.newBuilder()
+                .maxCapacity(maxCapacity)
+                .warmStartSnapshot(file, UTF_8, UTF_8, 0)
+                .buildLRU();
+    }
+
+    @Test
+    void it_restores_entries_lazily_from_the_snapshot_written_on_close(@TempDir Path directory) {
+        Path                             file   = directory.resolve("lru.snapshot");
+        InMemoryLRUCache<String, String> before = lruCache(file, 100);
+        before.put("a", "1");
+        before.put("b", "2");
+        before.put("c", "3");
+        before.close();
+
+        InMemoryLRUCache<String, String> after = lruCache(file, 100);
+        try {
+            assertEquals(0, after.size());
+            assertEquals("1", after.getOrDefault("a", null));
+            assertEquals(1, after.size());
+            after.remove("b");
+            assertNull(after.getOrDefault("b", null));
+            assertEquals("3", after.computeIfAbsent("c", key -> "loaded"));
+            assertEquals(2, after.size());
+        } finally {
+            after.close();
+        }
+
+        InMemoryLRUCache<String, String> reopened = lruCache(file, 100);
+        try {
+            assertEquals("1", reopened.getOrDefault("a", null));
+            assertNull(reopened.getOrDefault("b", null));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void it_keeps_the_most_recently_used_entries_that_fit(@TempDir Path directory) {
+        Path                             file   = directory.resolve("lru.snapshot");
+        InMemoryLRUCache<String, String> before = lruCache(file, 100);
+        for (int i = 0; i < 10; i++)
+            before.put("k" + i, "v" + i);
+        for (int i = 0; i < 5; i++)
+            before.getOrDefault("k" + i, null);
+        before.close();
+
+        InMemoryLRUCache<String, String> after = lruCache(file, 5);
+        try {
+            for (int i = 0; i < 5; i++)
+                assertEquals("v" + i, after.getOrDefault("k" + i, null));
+            for (int i = 5; i < 10; i++)
+                assertNull(after.getOrDefault("k" + i, null));
+        } finally {
+            after.close();
+        }
+    }
+
+    @Test
+    void it_skips_expired_entries_without_deserializing_them(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("expirable.snapshot");
+        InMemoryExpirableLRUCache<String, ExpirableWrapper<String>> before = CacheBuilder.newBuilder()
+                .warmStartSnapshot(file, UTF_8, expirables, 0)
+                .buildExpirableLRU();
+        before.put("short", new ExpirableWrapper<>("soon", System.currentTimeMillis() + 100));
+        before.put("long", ExpirableWrapper.expiringMinutesFromNow("later", 5));
+        assertEquals(2, before.writeSnapshot());
+        before.close();
+        Thread.sleep(150);
+
+        InMemoryExpirableLRUCache<String, ExpirableWrapper<String>> after = CacheBuilder.newBuilder()
+                .warmStartSnapshot(file, UTF_8, expirables, 0)
+                .buildExpirableLRU();
+        try {
+            assertNull(after.getOrDefault("short", null));
+            assertEquals(0, deserialized.get());
+            assertEquals("later", after.getOrDefault("long", null).unwrap());
+            assertEquals(1, deserialized.get());
+        } finally {
+            after.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.ridgid.oss.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheStats_Test {
+
+    @Test
+    void it_records_nothing_unless_stats_are_enabled() {
+        InMemoryLRUCache<Integer, String> cache = CacheBuilder.newBuilder().maxCapacity(10).buildLRU();
+        cache.put(1, "a");
+        cache.getOrDefault(1, null);
+        cache.getOrDefault(2, null);
+        assertSame(CacheStats.empty(), cache.stats());
+        cache.close();
+    }
+
+    @Test
+    void it_records_hits_misses_puts_and_evictions_by_cause() throws InterruptedException {
+        CacheMaintenanceScheduler scheduler = CacheMaintenanceScheduler.builder().cleanupDelayMillis(200).build();
+        InMemoryExpirableLRUCache<Integer, ExpirableWrapper<String>> cache = CacheBuilder.newBuilder()
+                .maxCapacity(10)
+                .evictToCapacity(5)
+                .maintenanceScheduler(scheduler)
+                .recordStats()
+                .buildExpirableLRU();
+        try {
+            cache.put(0, new ExpirableWrapper<>("expired", System.currentTimeMillis() - 1));
+            for (int i = 1; i <= 11; i++)
+                cache.put(i, ExpirableWrapper.expiringMinutesFromNow("v" + i, 5));
+            assertNull(cache.getOrDefault(0, null));
+            cache.getOrDefault(11, null);
+            cache.getAll(Arrays.asList(10, 11, 12));
+            awaitCleanup(cache);
+
+            CacheStats stats = cache.stats();
+            assertEquals(3, stats.hitCount());
+            assertEquals(2, stats.missCount());
+            assertEquals(12, stats.putCount());
+            assertEquals(1, stats.evictionCount(EvictionCause.EXPIRED));
+            assertEquals(6, stats.evictionCount(EvictionCause.CAPACITY));
+            assertEquals(1, stats.cleanupCount());
+        } finally {
+            cache.close();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void it_records_load_latencies_in_power_of_two_buckets() {
+        StatsCounter counter = new ConcurrentStatsCounter();
+        counter.recordLoadSuccess(TimeUnit.NANOSECONDS.toNanos(500));
+        counter.recordLoadSuccess(TimeUnit.MICROSECONDS.toNanos(3));
+        counter.recordLoadFailure(TimeUnit.MINUTES.toNanos(1));
+        CacheStats stats     = counter.snapshot();
+        long[]     histogram = stats.loadLatencyHistogram();
+        assertEquals(1, histogram[0]);
+        assertEquals(1, histogram[2]);
+        assertEquals(1, histogram[CacheStats.LOAD_LATENCY_BUCKETS - 1]);
+        assertEquals(2, stats.loadSuccessCount());
+        assertEquals(1, stats.loadFailureCount());
+        assertEquals(4L, CacheStats.loadLatencyBucketUpperBoundMicros(2));
+    }
+
+    @Test
+    void it_records_loads_through_the_counter_of_the_cache_only_when_enabled() {
+        InMemoryUnmanagedCache<Integer, String> unmanaged = CacheBuilder.newBuilder().recordStats().buildUnmanaged();
+        unmanaged.computeIfAbsent(1, key -> "a");
+        unmanaged.computeIfAbsent(1, key -> "b");
+        unmanaged.computeIfAbsent(2, key -> null);
+        unmanaged.computeAllIfAbsent(Arrays.asList(1, 3, 4), keys -> Collections.singletonMap(3, "c"));
+        assertEquals(2, unmanaged.stats().loadSuccessCount());
+        assertEquals(1, unmanaged.stats().loadFailureCount());
+
+        InMemoryLRUCache<Integer, String> managed = CacheBuilder.newBuilder().maxCapacity(10).recordStats().buildLRU();
+        DelegatingLoadingCache<Integer, String> loading = DelegatingLoadingCache.of(managed, key -> "v" + key);
+        managed.computeIfAbsent(1, key -> "a");
+        loading.getAsync(2).join();
+        loading.getAsync(2).join();
+        assertEquals(2, managed.stats().loadSuccessCount());
+        assertEquals(managed.stats().loadSuccessCount(), loading.stats().loadSuccessCount());
+        managed.close();
+
+        DelegatingLoadingCache<Integer, String> unrecorded
+                = DelegatingLoadingCache.of(CacheBuilder.newBuilder().buildUnmanaged(), key -> "v" + key);
+        unrecorded.getAsync(1).join();
+        assertSame(CacheStats.empty(), unrecorded.stats());
+    }
+
+    @Test
+    void it_exposes_stats_through_jmx() throws Exception {
+        InMemoryUnmanagedCache<Integer, String> cache = CacheBuilder.newBuilder().recordStats().buildUnmanaged();
+        cache.put(1, "a");
+        cache.getOrDefault(1, null);
+        cache.getOrDefault(2, null);
+        ObjectName  name   = CacheMBeans.register("stats-test", cache);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(1L, server.getAttribute(name, "HitCount"));
+            assertEquals(1L, server.getAttribute(name, "MissCount"));
+            assertEquals(0.5, (double) server.getAttribute(name, "HitRate"));
+            assertEquals(1L, server.getAttribute(name, "Size"));
+        } finally {
+            CacheMBeans.unregister("stats-test");
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    private static void awaitCleanup(InMemoryManagedCache<?, ?> cache) throws InterruptedException {
+        cache.forceCleanup();
+        for (int i = 0; i < 100 && cache.stats().cleanupCount() == 0; i++)
+            Thread.sleep(10);
+    }
+}
@@ -0,0 +1,169 @@
+package com.ridgid.oss.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelegatingLoadingCache_Test {
+
+    @Test
+    void it_shares_a_single_load_between_concurrent_callers() throws Exception {
+        AtomicInteger  loads   = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        LoadingCache<Integer, String> cache = DelegatingLoadingCache.of
+                (
+                        new InMemoryUnmanagedCache<>((short) 16),
+                        k -> {
+                            loads.incrementAndGet();
+                            await(release);
+                            return "v" + k;
+                        }
+                );
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+                results.add(callers.submit(() -> cache.getOrLoad(1)));
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results)
+                assertEquals("v1", result.get(1, TimeUnit.SECONDS));
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals("v1", cache.getOrDefault(1, null));
+    }
+
+    @Test
+    void it_serves_the_current_value_while_refreshing_ahead_of_expiry() throws Exception {
+        AtomicInteger             loads = new AtomicInteger();
+        CompletableFuture<String> next  = new CompletableFuture<>();
+        LoadingCache<Integer, ExpirableWrapper<String>> cache = DelegatingLoadingCache.ofAsync
+                (
+                        new InMemoryExpirableCache<>((short) 0, (short) 16, (short) 100, (short) 50),
+                        k -> {
+                            loads.incrementAndGet();
+                            return next.thenApply(ExpirableWrapper.expiringMinutesFromNow(5));
+                        },
+                        60_000
+                );
+        cache.put(1, ExpirableWrapper.expiringSecondsFromNow("current", 30));
+        assertEquals("current", cache.getOrLoad(1).unwrap());
+        assertEquals("current", cache.getOrLoad(1).unwrap());
+        assertEquals(1, loads.get());
+        next.complete("refreshed");
+        assertEquals("refreshed", cache.getOrDefault(1, null).unwrap());
+    }
+
+    @Test
+    void it_stores_a_refreshed_value_whose_current_value_expired_while_refreshing() throws Exception {
+        AtomicInteger             loads = new AtomicInteger();
+        CompletableFuture<String> next  = new CompletableFuture<>();
+        LoadingCache<Integer, ExpirableWrapper<String>> cache = DelegatingLoadingCache.ofAsync
+                (
+                        new InMemoryExpirableCache<>((short) 0, (short) 16, (short) 100, (short) 50),
+                        k -> {
+                            loads.incrementAndGet();
+                            return next.thenApply(ExpirableWrapper.expiringMinutesFromNow(5));
+                        },
+                        60_000
+                );
+        cache.put(1, new ExpirableWrapper<>("current", System.currentTimeMillis() + 100));
+        assertEquals("current", cache.getOrLoad(1).unwrap());
+        Thread.sleep(200);
+        CompletableFuture<ExpirableWrapper<String>> joined = cache.getAsync(1);
+        assertFalse(joined.isDone());
+        next.complete("refreshed");
+        assertEquals("refreshed", joined.get(1, TimeUnit.SECONDS).unwrap());
+        assertEquals("refreshed", cache.getOrDefault(1, null).unwrap());
+        assertEquals("refreshed", cache.getOrLoad(1).unwrap());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void it_loads_on_compute_if_absent_and_propagates_failures() {
+        LoadingCache<Integer, String> cache = DelegatingLoadingCache.of
+                (
+                        new InMemoryUnmanagedCache<>((short) 16),
+                        k -> null
+                );
+        assertNull(cache.getOrLoad(1));
+        assertEquals("computed", cache.computeIfAbsent(1, k -> "computed"));
+        assertThrows(IllegalStateException.class, () -> cache.computeIfAbsent(2, k -> {
+            throw new IllegalStateException();
+        }));
+        assertFalse(cache.containsKey(2));
+    }
+
+    @Test
+    void it_keeps_a_value_written_while_a_refresh_finds_none() throws Exception {
+        CompletableFuture<String> next = new CompletableFuture<>();
+        LoadingCache<Integer, String> cache = DelegatingLoadingCache.ofAsync
+                (
+                        new InMemoryUnmanagedCache<>((short) 16),
+                        k -> next,
+                        0
+                );
+        cache.put(1, "current");
+        CompletableFuture<String> refreshed = cache.refresh(1);
+        cache.put(1, "newer");
+        next.complete(null);
+        assertEquals("newer", refreshed.get(1, TimeUnit.SECONDS));
+        assertEquals("newer", cache.getOrDefault(1, null));
+
+        CompletableFuture<String> removed = new CompletableFuture<>();
+        LoadingCache<Integer, String> removing = DelegatingLoadingCache.ofAsync
+                (
+                        new InMemoryUnmanagedCache<>((short) 16),
+                        k -> removed,
+                        0
+                );
+        removing.put(1, "current");
+        CompletableFuture<String> gone = removing.refresh(1);
+        removed.complete(null);
+        assertNull(gone.get(1, TimeUnit.SECONDS));
+        assertFalse(removing.containsKey(1), "The value refreshed should be removed once it has none");
+    }
+
+    @Test
+    void it_clears_a_load_that_fails_with_an_error() {
+        AtomicInteger loads = new AtomicInteger();
+        LoadingCache<Integer, String> cache = DelegatingLoadingCache.ofAsync
+                (
+                        new InMemoryUnmanagedCache<>((short) 16),
+                        k -> {
+                            if (loads.incrementAndGet() == 1) throw new AssertionError("loader");
+                            return CompletableFuture.completedFuture("loaded");
+                        },
+                        0
+                );
+        CompletableFuture<String> failed = cache.getAsync(1);
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals("loaded", cache.getOrLoad(1), "A failed load should not be joined by later callers");
+
+        assertThrows(StackOverflowError.class, () -> cache.computeIfAbsent(2, k -> {
+            throw new StackOverflowError();
+        }));
+        assertEquals("computed", cache.computeIfAbsent(2, k -> "computed"));
+        assertEquals(2, loads.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.ridgid.oss.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryExpirableCache_Test {
+
+    @Test
+    void it_treats_expired_entries_as_absent_on_read() {
+        InMemoryExpirableCache<Integer, ExpirableWrapper<String>> cache
+                = new InMemoryExpirableCache<>((short) 0, (short) 10, (short) 100, (short) 50);
+        cache.put(1, new ExpirableWrapper<>("expired", System.currentTimeMillis() - 1));
+        cache.put(2, ExpirableWrapper.expiringMinutesFromNow("live", 5));
+        assertFalse(cache.get(1).isPresent());
+        assertFalse(cache.containsKey(1));
+        assertEquals(1, cache.size());
+        assertEquals("live", cache.getOrDefault(2, null).unwrap());
+        cache.put(3, new ExpirableWrapper<>("expired", System.currentTimeMillis() - 1));
+        assertEquals("fresh", cache.computeIfAbsent(3, k -> ExpirableWrapper.expiringMinutesFromNow("fresh", 5))
+                .unwrap());
+    }
+
+    @Test
+    void it_removes_entries_once_due_on_the_regular_cleanup() throws InterruptedException {
+        InMemoryExpirableCache<Integer, ExpirableWrapper<String>> cache
+                = new InMemoryExpirableCache<>((short) 1, (short) 10, (short) 100, (short) 50);
+        long now = System.currentTimeMillis();
+        cache.put(1, new ExpirableWrapper<>("soon", now + 100));
+        cache.put(2, ExpirableWrapper.expiringMinutesFromNow("later", 5));
+        for (int i = 0; i < 300 && cache.size() > 1; i++)
+            Thread.sleep(10);
+        assertEquals(1, cache.size());
+        assertTrue(cache.containsKey(2));
+    }
+
+    @Test
+    void it_runs_no_cleanup_before_the_cache_is_constructed() throws InterruptedException {
+        SlowlyConstructedCache cache = new SlowlyConstructedCache();
+        assertFalse(cache.cleanedUpWhileConstructing, "No cleanup should run before a subclass is initialised");
+        cache.put(1, new ExpirableWrapper<>("soon", System.currentTimeMillis() + 100));
+        for (int i = 0; i < 300 && cache.size() > 0; i++)
+            Thread.sleep(10);
+        assertEquals(0, cache.size(), "Regular cleanup should start once the cache is used");
+        cache.close();
+    }
+
+    @Test
+    void it_returns_only_due_keys_when_the_wheel_advances() {
+        long               start = 1L << 40;
+        TimerWheel<String> wheel = new TimerWheel<>(start);
+        wheel.schedule("second", start + 1_500);
+        wheel.schedule("minute", start + 90_000);
+        wheel.schedule("day", start + 86_400_000);
+        wheel.schedule("descheduled", start + 1_500);
+        wheel.deschedule("descheduled");
+        assertEquals(3, wheel.size());
+        assertEquals(0, wheel.advance(start + 1_000).size());
+        assertEquals(new HashSet<>(Arrays.asList("second")), new HashSet<>(wheel.advance(start + 3_000)));
+        assertEquals(0, wheel.advance(start + 60_000).size());
+        assertEquals(new HashSet<>(Arrays.asList("minute")), new HashSet<>(wheel.advance(start + 100_000)));
+        wheel.schedule("minute", start + 200_000);
+        assertEquals(new HashSet<>(Arrays.asList("minute", "day")),
+                     new HashSet<>(wheel.advance(start + 90_000_000)));
+        assertEquals(0, wheel.size());
+    }
+
+    private static final class SlowlyConstructedCache
+            extends InMemoryExpirableCache<Integer, ExpirableWrapper<String>> {
+
+        private final CountDownLatch cleanedUp = new CountDownLatch(1);
+        private final boolean        constructed;
+
+        private volatile boolean cleanedUpWhileConstructing;
+
+        private SlowlyConstructedCache() throws InterruptedException {
+            super(CacheBuilder.forCapacities((short) 1, (short) 10, (short) 100, (short) 50),
+                  new ArbitraryEvictionPolicy<>());
+            cleanedUp.await(1_500, TimeUnit.MILLISECONDS);
+            constructed = true;
+        }
+
+        @Override
+        protected void removeEvictable() {
+            if (!constructed) cleanedUpWhileConstructing = true;
+            cleanedUp.countDown();
+            super.removeEvictable();
+        }
+    }
+}
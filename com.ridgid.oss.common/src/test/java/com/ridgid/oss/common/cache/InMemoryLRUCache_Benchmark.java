@@ -0,0 +1,125 @@
+package com.ridgid.oss.common.cache;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the sort-all-timestamps eviction selection and {@code lastUsed.compute} recency tracking that
+ * InMemoryLRUCache used previously against the SegmentedAccessOrder index that replaced them, and measures reads of a
+ * full InMemoryLRUCache. Runs with the GC profiler: {@code gc.alloc.rate.norm} of the segmented and cache read
+ * benchmarks is expected to be about 0 bytes per operation, while the legacy recency tracking allocates on every read.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ridgid.oss.common.cache.InMemoryLRUCache_Benchmark}
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InMemoryLRUCache_Benchmark {
+
+    @Param({"10000", "100000"})
+    public int entries;
+
+    @Param({"100"})
+    public int evict;
+
+    private Integer[]                           keys;
+    private ConcurrentHashMap<Integer, Integer> cache;
+    private ConcurrentHashMap<Integer, Long>    lastUsed;
+    private SegmentedAccessOrder<Integer>       accessOrder;
+    private InMemoryLRUCache<Integer, Integer>  lruCache;
+
+    @Setup
+    public void setUp() {
+        keys        = new Integer[entries];
+        cache       = new ConcurrentHashMap<>(entries);
+        lastUsed    = new ConcurrentHashMap<>(entries);
+        accessOrder = new SegmentedAccessOrder<>(entries);
+        lruCache    = CacheBuilder.newBuilder().initialCapacity(entries).maxCapacity(entries).buildLRU();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < entries; i++) {
+            keys[i] = i;
+            cache.put(i, i);
+            lastUsed.put(i, now + i);
+            accessOrder.recordWrite(i);
+            lruCache.put(i, i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        lruCache.close();
+    }
+
+    private Integer randomKey() {
+        return keys[ThreadLocalRandom.current().nextInt(entries)];
+    }
+
+    @Benchmark
+    public long legacySortEvictionSelection() {
+        long removeBeforeTime = lastUsed
+                .values()
+                .stream()
+                .mapToLong(l -> l)
+                .sorted()
+                .limit(evict)
+                .max()
+                .orElse(System.currentTimeMillis());
+        return cache.entrySet()
+                .stream()
+                .map(Map.Entry::getKey)
+                .filter(k -> lastUsed.computeIfAbsent(k, x -> System.currentTimeMillis()) <= removeBeforeTime)
+                .count();
+    }
+
+    @Benchmark
+    public List<Integer> segmentedEvictionSelection() {
+        return accessOrder.selectEldest(evict, cache::containsKey);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Long legacyRecordAccess() {
+        return lastUsed.compute(randomKey(), (k, lu) -> System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void segmentedRecordAccess() {
+        accessOrder.recordAccess(randomKey());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer lruCacheGet() {
+        return lruCache.getOrDefault(randomKey(), null);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer lruCacheHotKeyGet() {
+        return lruCache.getOrDefault(keys[0], null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+                new OptionsBuilder()
+                        .include(InMemoryLRUCache_Benchmark.class.getSimpleName())
+                        .addProfiler(GCProfiler.class)
+                        .build()
+        ).run();
+    }
+}
@@ -0,0 +1,103 @@
+package com.ridgid.oss.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryLRUCache_Test {
+
+    private static void awaitCleanup(Cache<?, ?> cache, int targetSize) throws InterruptedException {
+        for (int i = 0; i < 200 && cache.size() > targetSize; i++)
+            Thread.sleep(10);
+    }
+
+    @Test
+    void it_evicts_the_least_recently_used_entries_down_to_the_evict_to_capacity() throws InterruptedException {
+        InMemoryLRUCache<Integer, String> cache
+                = new InMemoryLRUCache<>((short) 10, (short) 10, (short) 5);
+        for (int i = 0; i < 10; i++)
+            cache.put(i, "v" + i);
+        for (int i = 0; i < 5; i++)
+            cache.put(i, "v" + i);
+        cache.put(10, "v10");
+        awaitCleanup(cache, 5);
+        assertEquals(5, cache.size());
+        for (int i = 0; i < 5; i++)
+            assertFalse(cache.containsKey(i + 5), "Entry should have been evicted: " + (i + 5));
+    }
+
+    @Test
+    void it_treats_reads_as_uses() throws InterruptedException {
+        InMemoryLRUCache<Integer, String> cache
+                = new InMemoryLRUCache<>((short) 10, (short) 10, (short) 5);
+        for (int i = 0; i < 11; i++) {
+            cache.put(i, "v" + i);
+            if (i >= 5) cache.getOrDefault(0, null);
+        }
+        cache.forceCleanup();
+        awaitCleanup(cache, 5);
+        assertEquals(5, cache.size());
+        assertEquals("v0", cache.getOrDefault(0, null));
+        for (int i = 7; i < 11; i++)
+            assertTrue(cache.containsKey(i), "Entry should have been kept: " + i);
+    }
+
+    @Test
+    void it_forgets_removed_and_cleared_entries() {
+        InMemoryLRUCache<Integer, String> cache
+                = new InMemoryLRUCache<>((short) 10, (short) 100, (short) 50);
+        cache.put(1, "one");
+        cache.compute(2, (k, v) -> "two");
+        assertEquals("one", cache.remove(1));
+        cache.computeIfPresent(2, (k, v) -> null);
+        assertTrue(cache.isEmpty());
+        cache.put(3, "three");
+        cache.clear();
+        assertFalse(cache.get(3).isPresent());
+    }
+
+    @Test
+    void it_treats_bulk_reads_as_uses() throws InterruptedException {
+        InMemoryLRUCache<Integer, String> cache
+                = new InMemoryLRUCache<>((short) 10, (short) 10, (short) 5);
+        for (int i = 0; i < 10; i++)
+            cache.put(i, "v" + i);
+        Map<Integer, String> found = cache.getAll(Arrays.asList(1, 2, 3, 4, 42));
+        assertEquals(4, found.size());
+        assertEquals("v4", found.get(4));
+        assertEquals(4L, cache.evictionPolicyStats().hitCount());
+        assertEquals(1L, cache.evictionPolicyStats().missCount());
+        cache.put(10, "v10");
+        awaitCleanup(cache, 5);
+        assertEquals(5, cache.size());
+        for (int i = 1; i < 5; i++)
+            assertTrue(cache.containsKey(i), "Entry should have been kept: " + i);
+        assertTrue(cache.containsKey(10));
+    }
+
+    @Test
+    void it_computes_all_absent_keys_in_one_call() {
+        InMemoryLRUCache<Integer, String> cache
+                = new InMemoryLRUCache<>((short) 10, (short) 100, (short) 50);
+        cache.put(1, "one");
+        AtomicInteger calls = new AtomicInteger();
+        Map<Integer, String> found = cache.computeAllIfAbsent(Arrays.asList(1, 2, 3), absent -> {
+            calls.incrementAndGet();
+            assertEquals(2, absent.size());
+            Map<Integer, String> computed = new HashMap<>();
+            absent.forEach(k -> computed.put(k, "computed" + k));
+            computed.put(4, "not requested");
+            return computed;
+        });
+        assertEquals(1, calls.get());
+        assertEquals(3, found.size());
+        assertEquals("one", found.get(1));
+        assertEquals("computed3", cache.getOrDefault(3, null));
+        assertFalse(cache.containsKey(4));
+    }
+}
@@ -0,0 +1,130 @@
+package com.ridgid.oss.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapCache_Test {
+
+    private static final ValueSerializer<String> UTF_8 = new ValueSerializer<String>() {
+        @Override
+        public byte[] serialize(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String deserialize(byte[] bytes) {
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    @Test
+    void it_reclaims_off_heap_space_of_replaced_and_evicted_values() throws InterruptedException {
+        CacheMaintenanceScheduler scheduler = CacheMaintenanceScheduler.builder().cleanupDelayMillis(200).build();
+        OffHeapCache<Integer, String> cache = CacheBuilder.newBuilder()
+                .maxWeight(64 * 100)
+                .evictToWeight(64 * 50)
+                .maintenanceScheduler(scheduler)
+                .buildOffHeap(UTF_8);
+        try {
+            for (int i = 0; i < 1000; i++)
+                cache.put(i % 10, "value " + i);
+            assertEquals(10, cache.size());
+            assertEquals(64 * 10, cache.allocatedBytes());
+            assertEquals("value 999", cache.getOrDefault(9, null));
+            assertEquals("value 998", cache.put(8, "replaced"));
+            assertEquals("replaced", cache.remove(8));
+            assertEquals(64 * 9, cache.allocatedBytes());
+
+            for (int i = 100; i < 250; i++)
+                cache.put(i, "value " + i);
+            awaitCleanup(cache, 50);
+            assertEquals(50, cache.size());
+            assertEquals(64 * 50, cache.allocatedBytes());
+            assertEquals(OffHeapValueStore.DEFAULT_SLAB_SIZE, cache.reservedBytes());
+            assertEquals("value 249", cache.getOrDefault(249, null));
+        } finally {
+            cache.close();
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    void it_expires_values_without_deserializing_them() {
+        AtomicInteger deserialized = new AtomicInteger();
+        OffHeapCache<Integer, ExpirableWrapper<String>> cache = CacheBuilder.newBuilder()
+                .maxWeight(1 << 20)
+                .buildOffHeap(new ValueSerializer<ExpirableWrapper<String>>() {
+                    @Override
+                    public byte[] serialize(ExpirableWrapper<String> value) {
+                        return (value.expirationTimeMillis() + ":" + value.unwrap()).getBytes(StandardCharsets.UTF_8);
+                    }
+
+                    @Override
+                    public ExpirableWrapper<String> deserialize(byte[] bytes) {
+                        deserialized.incrementAndGet();
+                        String[] parts = new String(bytes, StandardCharsets.UTF_8).split(":", 2);
+                        return new ExpirableWrapper<>(parts[1], Long.parseLong(parts[0]));
+                    }
+                });
+        try {
+            cache.put(1, new ExpirableWrapper<>("expired", System.currentTimeMillis() - 1));
+            cache.put(2, ExpirableWrapper.expiringMinutesFromNow("live", 5));
+            assertEquals(0, deserialized.get());
+            assertNull(cache.getOrDefault(1, null));
+            assertEquals("live", cache.getOrDefault(2, null).unwrap());
+            assertEquals(1, deserialized.get());
+            assertEquals(1, cache.size());
+            assertEquals(64, cache.allocatedBytes());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void it_never_serves_the_bytes_of_a_value_reusing_a_freed_chunk() throws Exception {
+        OffHeapCache<Integer, String> cache = CacheBuilder.newBuilder()
+                .maxWeight(1 << 20)
+                .buildOffHeap(UTF_8);
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int worker = t;
+                tasks.add(threads.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        int key = i % 16;
+                        if (worker % 2 == 0)
+                            cache.put(key, key + ":" + i);
+                        else {
+                            String value = cache.getOrDefault(key, null);
+                            if (value != null)
+                                assertTrue(value.startsWith(key + ":"), value);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> task : tasks)
+                task.get(30, TimeUnit.SECONDS);
+        } finally {
+            threads.shutdownNow();
+            cache.close();
+        }
+        assertEquals(64 * 16, cache.allocatedBytes());
+    }
+
+    private static void awaitCleanup(OffHeapCache<?, ?> cache, int size) throws InterruptedException {
+        cache.forceCleanup();
+        for (int i = 0; i < 100 && cache.size() > size; i++)
+            Thread.sleep(10);
+    }
+}
@@ -0,0 +1,74 @@
+package com.ridgid.oss.common.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TinyLfuEvictionPolicy_Test {
+
+    private static void awaitCleanup(Cache<?, ?> cache, int targetSize) throws InterruptedException {
+        for (int i = 0; i < 200 && cache.size() > targetSize; i++)
+            Thread.sleep(10);
+    }
+
+    @Test
+    void it_keeps_a_frequently_used_working_set_through_a_burst_of_one_off_keys() throws InterruptedException {
+        InMemoryManagedCache<Integer, String> cache
+                = new InMemoryManagedCache<>((short) 0,
+                (short) 100,
+                (short) 100,
+                (short) 90,
+                new TinyLfuEvictionPolicy<>(100));
+        for (int i = 0; i < 50; i++)
+            cache.put(i, "hot" + i);
+        for (int r = 0; r < 10; r++)
+            for (int i = 0; i < 50; i++)
+                cache.getOrDefault(i, null);
+        for (int i = 1000; i < 1200; i++) {
+            cache.put(i, "once" + i);
+            if (i % 25 == 0) awaitCleanup(cache, 100);
+        }
+        cache.forceCleanup();
+        awaitCleanup(cache, 90);
+        assertTrue(cache.size() <= 100);
+        for (int i = 0; i < 50; i++)
+            assertTrue(cache.containsKey(i), "Hot entry should have been kept: " + i);
+    }
+
+    @Test
+    void it_counts_hits_misses_and_evictions() throws InterruptedException {
+        InMemoryManagedCache<Integer, String> cache
+                = new InMemoryManagedCache<>((short) 0,
+                (short) 10,
+                (short) 10,
+                (short) 5,
+                new TinyLfuEvictionPolicy<>(10, 64, 1_000));
+        cache.put(1, "one");
+        cache.getOrDefault(1, null);
+        cache.getOrDefault(2, null);
+        for (int i = 10; i < 21; i++)
+            cache.put(i, "v" + i);
+        awaitCleanup(cache, 5);
+        EvictionPolicyStats stats = cache.evictionPolicyStats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(0.5, stats.hitRate());
+        assertEquals(7, stats.evictionCount());
+    }
+
+    @Test
+    void it_estimates_frequencies_and_decays_them() {
+        FrequencySketch<String> sketch = new FrequencySketch<>(64, 100);
+        for (int i = 0; i < 10; i++)
+            sketch.increment("popular");
+        sketch.increment("rare");
+        assertEquals(10, sketch.frequency("popular"));
+        assertTrue(sketch.frequency("rare") >= 1);
+        for (int i = 0; i < 20; i++)
+            sketch.increment("popular");
+        assertEquals(15, sketch.frequency("popular"));
+        for (int i = 0; i < 100; i++)
+            sketch.increment("filler" + i);
+        assertTrue(sketch.frequency("popular") < 15);
+    }
+}
@@ -0,0 +1,56 @@
+package com.ridgid.oss.message.inmemory.bus;
+
+import com.ridgid.oss.queue.impl.inmemory.InMemoryMultiChannelFIFOQueue;
+import com.ridgid.oss.queue.spi.MultiChannelFIFOQueue;
+import com.ridgid.oss.queue.spi.MultiChannelFIFOQueue.MultiChannelFIFOQueueException;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Delivers each message to only one receiver: all receivers take their messages from one shared queue
+ */
+final class CompetingConsumersDelivery
+    implements InMemoryDelivery, InMemoryDelivery.Subscription
+{
+    private final MultiChannelFIFOQueue<Serializable> queues;
+
+    CompetingConsumersDelivery(Stream<Class<? extends Serializable>> messageTypes) {
+        queues = new InMemoryMultiChannelFIFOQueue<>(Serializable.class, messageTypes);
+    }
+
+    @Override
+    public void send(Serializable message) throws MultiChannelFIFOQueueException {
+        queues.send(message);
+    }
+
+    @Override
+    public void sendAll(Collection<? extends Serializable> messages) throws MultiChannelFIFOQueueException {
+        queues.sendAll(messages);
+    }
+
+    @Override
+    public Subscription subscribe() {
+        return this;
+    }
+
+    @Override
+    public <MessageType extends Serializable>
+    Optional<? extends MessageType> poll(Class<? extends MessageType> messageType,
+                                         long maxWaitMillis)
+        throws MultiChannelFIFOQueueException
+    {
+        return queues.poll(messageType, maxWaitMillis);
+    }
+
+    @Override
+    public Optional<Runnable> addSendListener(Runnable listener) {
+        return queues.addSendListener(listener);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,415 @@
+package com.ridgid.oss.message.inmemory.bus;
+
+import com.ridgid.oss.queue.spi.MultiChannelFIFOQueue.MultiChannelFIFOQueueException;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static java.lang.System.currentTimeMillis;
+
+/**
+ * Delivers every message to every receiver.
+ * <p>
+ * Like the channels of a multi-channel FIFO queue, each message type of the topic has a channel, here a ring buffer
+ * shared by all receivers. Each receiver reads each channel through its own cursor, so no message is copied per
+ * receiver, and a receiver that never polls for some message type holds back only the channel of that type. A slot
+ * is reused once every receiver has read past it.
+ * <p>
+ * A channel keeps at most {@code maxBacklog} messages, rounded up to a power of two, that its slowest receiver has not
+ * read: beyond it, each message sent on the channel drops the oldest one for the receivers that have not read it, so
+ * sending never blocks nor fails on account of a slow or idle receiver, and the memory held stays bounded.
+ * <p>
+ * A receiver sees the messages sent after it subscribed; the first receiver also sees the messages sent while the
+ * topic had none. Within a receiver, polling for a message type takes the earliest unread message of the channels of
+ * that type, and leaves the messages of other channels unread.
+ */
+@SuppressWarnings("FieldNotUsedInToString")
+final class FanOutDelivery
+    implements InMemoryDelivery
+{
+    static final int INITIAL_CAPACITY = 1024;
+
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private static final Logger LOGGER = Logger.getLogger(FanOutDelivery.class.getName());
+
+    private final Channel[]            channels;
+    private final int                  maxBacklog;
+    private final Collection<Runnable> sendListeners = new CopyOnWriteArrayList<>();
+
+    // Guards the writes to the channels, their growth and the set of cursors; receivers wait on it for messages
+    private final Object       lock    = new Object();
+    private final List<Cursor> cursors = new ArrayList<>();
+
+    // Sequence of the next message sent on any channel, ordering the messages across channels
+    private volatile long sent;
+
+    /**
+     * @param messageTypes of the channels
+     * @param maxBacklog   number of unread messages each channel keeps for its slowest receiver, rounded up to a
+     *                     power of two
+     */
+    FanOutDelivery(Stream<Class<? extends Serializable>> messageTypes, int maxBacklog) {
+        if ( maxBacklog < 1 )
+            throw new IllegalArgumentException("maxBacklog must be >= 1");
+        this.maxBacklog = capacityFor(Math.min(maxBacklog, MAX_CAPACITY));
+        List<Channel> channels = new ArrayList<>();
+        messageTypes.forEach(messageType -> channels.add(new Channel(messageType,
+                                                                     channels.size(),
+                                                                     Math.min(INITIAL_CAPACITY,
+                                                                              this.maxBacklog))));
+        this.channels = channels.toArray(new Channel[0]);
+    }
+
+    private static int capacityFor(int backlog) {
+        int capacity = Integer.highestOneBit(backlog);
+        return capacity == backlog ? capacity : capacity << 1;
+    }
+
+    @Override
+    public void send(Serializable message) throws MultiChannelFIFOQueueException {
+        Channel channel = channelFor(message);
+        synchronized ( lock ) {
+            reserve(channel, 1);
+            append(channel, message);
+            lock.notifyAll();
+        }
+        notifySendListeners();
+    }
+
+    @Override
+    public void sendAll(Collection<? extends Serializable> messages) throws MultiChannelFIFOQueueException {
+        if ( messages.isEmpty() ) return;
+        Channel[] sentOn = new Channel[messages.size()];
+        int[]     counts = new int[channels.length];
+        int       i      = 0;
+        for ( Serializable message : messages ) {
+            sentOn[i] = channelFor(message);
+            counts[sentOn[i++].index]++;
+        }
+        synchronized ( lock ) {
+            for ( Channel channel : channels )
+                if ( counts[channel.index] > 0 ) reserve(channel, counts[channel.index]);
+            i = 0;
+            for ( Serializable message : messages )
+                append(sentOn[i++], message);
+            lock.notifyAll();
+        }
+        notifySendListeners();
+    }
+
+    /**
+     * @return the channel of the exact type of the message, or else the first channel whose type it is an instance of
+     */
+    // Loops rather than streams: these run for every message sent and every poll
+    private Channel channelFor(Serializable message) throws MultiChannelFIFOQueueException {
+        Channel assignable = null;
+        for ( Channel channel : channels ) {
+            if ( channel.messageType == message.getClass() ) return channel;
+            if ( assignable == null && channel.messageType.isInstance(message) ) assignable = channel;
+        }
+        if ( assignable != null ) return assignable;
+        throw new MultiChannelFIFOQueueException
+            (
+                String.format("Message not supported on any channel: %s, %s",
+                              message.getClass().getName(),
+                              message)
+            );
+    }
+
+    private void append(Channel channel, Serializable message) {
+        Ring ring  = channel.ring;
+        int  index = ring.index(channel.head);
+        ring.sequences.set(index, sent);
+        ring.messages.set(index, message);
+        //noinspection NonAtomicOperationOnVolatileField
+        channel.head++;
+        //noinspection NonAtomicOperationOnVolatileField
+        sent++;
+    }
+
+    /**
+     * Makes room for messages on the channel: releases the slots that every cursor has read past, grows the ring up to
+     * the capacity of the backlog, then drops the oldest messages beyond the backlog
+     */
+    private void reserve(Channel channel, int count) {
+        Ring ring = channel.ring;
+        if ( channel.head + count - channel.tail <= ring.capacity() ) return;
+        reclaim(channel);
+        long backlog = channel.head + count - channel.tail;
+        if ( backlog <= ring.capacity() ) return;
+        if ( ring.capacity() < maxBacklog )
+            channel.ring = ring.grow(capacityFor((int) Math.min(backlog, maxBacklog)), channel.tail, channel.head);
+        if ( backlog > maxBacklog )
+            // Published before the slots are overwritten, so that readers can tell they read a dropped message; the
+            // ring now has maxBacklog slots, so the slots of the dropped messages are all overwritten
+            channel.tail = channel.head + count - maxBacklog;
+    }
+
+    /**
+     * Releases the slots of the channel that every cursor has read past; with no cursor, all messages are kept for
+     * the next one
+     */
+    private void reclaim(Channel channel) {
+        if ( cursors.isEmpty() ) return;
+        long oldestUnread = channel.head;
+        for ( Cursor cursor : cursors )
+            oldestUnread = Math.min(oldestUnread, Math.max(channel.tail, cursor.next.get(channel.index)));
+        Ring ring = channel.ring;
+        for ( long sequence = channel.tail; sequence < oldestUnread; sequence++ )
+            ring.messages.set(ring.index(sequence), null);
+        channel.tail = Math.max(channel.tail, oldestUnread);
+    }
+
+    private void notifySendListeners() {
+        for ( Runnable listener : sendListeners )
+            listener.run();
+    }
+
+    @Override
+    public Subscription subscribe() {
+        synchronized ( lock ) {
+            Cursor cursor = new Cursor(cursors.isEmpty());
+            cursors.add(cursor);
+            return cursor;
+        }
+    }
+
+    /**
+     * @return number of slots of the ring of the channel of the message type; for tests
+     */
+    int capacityOf(Class<? extends Serializable> messageType) {
+        for ( Channel channel : channels )
+            if ( channel.messageType == messageType ) return channel.ring.capacity();
+        throw new IllegalArgumentException("No channel for " + messageType.getName());
+    }
+
+    private void validatePollMessageType(Class<?> polledType) throws MultiChannelFIFOQueueException {
+        for ( Channel channel : channels )
+            if ( channel.messageType.isAssignableFrom(polledType) || polledType.isAssignableFrom(channel.messageType) )
+                return;
+        throw new MultiChannelFIFOQueueException("Message type not supported on any channel: " + polledType.getName());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder("FanOutDelivery{maxBacklog=").append(maxBacklog);
+        for ( Channel channel : channels )
+            description.append(", ").append(channel);
+        return description.append('}').toString();
+    }
+
+    /**
+     * Messages of one message type, in a ring of slots indexed by their sequence within the channel; the messages from
+     * {@code tail} to {@code head} are held
+     */
+    private static final class Channel
+    {
+        private final Class<? extends Serializable> messageType;
+        private final int                           index;
+
+        // Written under the lock of the delivery; the ring is replaced before head moves into its new slots
+        private volatile Ring ring;
+        // Sequence within the channel of the next message sent; written after the slot of the message, so readers see
+        // the messages before it
+        private volatile long head;
+        // Sequence within the channel of the oldest message held
+        private volatile long tail;
+
+        private Channel(Class<? extends Serializable> messageType, int index, int capacity) {
+            this.messageType = messageType;
+            this.index       = index;
+            ring             = new Ring(capacity);
+        }
+
+        @Override
+        public String toString() {
+            return messageType.getSimpleName() + "{head=" + head + ", tail=" + tail + '}';
+        }
+    }
+
+    /**
+     * Slots of a channel; each slot holds a message and its sequence across channels. Rings are never written once
+     * replaced by a larger one, so a reader still holding the former ring reads the same messages.
+     */
+    private static final class Ring
+    {
+        private final AtomicReferenceArray<Serializable> messages;
+        private final AtomicLongArray                    sequences;
+
+        private Ring(int capacity) {
+            messages  = new AtomicReferenceArray<>(capacity);
+            sequences = new AtomicLongArray(capacity);
+        }
+
+        private int capacity() {
+            return messages.length();
+        }
+
+        private int index(long sequence) {
+            return (int) sequence & (messages.length() - 1);
+        }
+
+        private Ring grow(int capacity, long from, long to) {
+            Ring grown = new Ring(capacity);
+            for ( long sequence = from; sequence < to; sequence++ ) {
+                grown.sequences.set(grown.index(sequence), sequences.get(index(sequence)));
+                grown.messages.set(grown.index(sequence), messages.get(index(sequence)));
+            }
+            return grown;
+        }
+    }
+
+    /**
+     * Position of one receiver in each channel
+     */
+    private final class Cursor
+        implements Subscription
+    {
+        // Sequence within each channel of the oldest message this receiver has not read; written under this cursor's
+        // monitor, read by the senders reclaiming slots
+        private final AtomicLongArray next;
+
+        // Whether the receiver has been warned of messages dropped on each channel; guarded by this
+        private final boolean[] overrun;
+
+        private volatile boolean closed = false;
+
+        private Cursor(boolean fromTail) {
+            next    = new AtomicLongArray(channels.length);
+            overrun = new boolean[channels.length];
+            for ( Channel channel : channels )
+                next.set(channel.index, fromTail ? channel.tail : channel.head);
+        }
+
+        @SuppressWarnings("WaitNotInLoop")
+        @Override
+        public <MessageType extends Serializable>
+        Optional<? extends MessageType> poll(Class<? extends MessageType> messageType,
+                                             long maxWaitMillis)
+            throws MultiChannelFIFOQueueException
+        {
+            validatePollMessageType(messageType);
+            long endTimeMillis = currentTimeMillis() + maxWaitMillis;
+            while ( true ) {
+                long        sentBefore = sent;
+                MessageType message    = read(messageType);
+                if ( message != null ) return Optional.of(message);
+                long remainingMillis = endTimeMillis - currentTimeMillis();
+                if ( remainingMillis <= 0 || closed ) return Optional.empty();
+                synchronized ( lock ) {
+                    if ( sent == sentBefore )
+                        try {
+                            lock.wait(remainingMillis);
+                        } catch ( InterruptedException e ) {
+                            Thread.currentThread().interrupt();
+                            return Optional.empty();
+                        }
+                }
+            }
+        }
+
+        /**
+         * Takes from the channel of exactly the polled type if it has a message, or else from the channel, among those
+         * whose type is the polled type or a subtype of it, with the earliest unread message
+         */
+        private synchronized <MessageType extends Serializable>
+        MessageType read(Class<? extends MessageType> messageType)
+        {
+            while ( true ) {
+                Channel earliest         = null;
+                long    earliestSequence = Long.MAX_VALUE;
+                for ( Channel channel : channels ) {
+                    if ( !messageType.isAssignableFrom(channel.messageType) ) continue;
+                    long sequence = peekSequence(channel);
+                    if ( sequence == Long.MAX_VALUE ) continue;
+                    if ( channel.messageType == messageType ) {
+                        earliest = channel;
+                        break;
+                    }
+                    if ( sequence < earliestSequence ) {
+                        earliest         = channel;
+                        earliestSequence = sequence;
+                    }
+                }
+                if ( earliest == null ) return null;
+                Serializable message = take(earliest);
+                // Otherwise dropped since peeked
+                if ( message != null ) return messageType.cast(message);
+            }
+        }
+
+        /**
+         * @return sequence across channels of the next unread message of the channel, or Long.MAX_VALUE if none
+         */
+        private long peekSequence(Channel channel) {
+            while ( true ) {
+                long unread = unread(channel);
+                if ( unread >= channel.head ) return Long.MAX_VALUE;
+                Ring ring     = channel.ring;
+                long sequence = ring.sequences.get(ring.index(unread));
+                // Read after the slot: a slot is only overwritten after tail has moved past it
+                if ( channel.tail <= unread ) return sequence;
+            }
+        }
+
+        private Serializable take(Channel channel) {
+            while ( true ) {
+                long unread = unread(channel);
+                if ( unread >= channel.head ) return null;
+                Ring         ring    = channel.ring;
+                Serializable message = ring.messages.get(ring.index(unread));
+                if ( channel.tail > unread ) continue;
+                if ( message == null ) return null;
+                next.set(channel.index, unread + 1);
+                return message;
+            }
+        }
+
+        /**
+         * @return sequence within the channel of the oldest unread message still held, skipping those dropped
+         */
+        private long unread(Channel channel) {
+            long unread = next.get(channel.index);
+            long tail   = channel.tail;
+            if ( unread >= tail ) return unread;
+            Level level = overrun[channel.index] ? Level.FINE : Level.WARNING;
+            if ( LOGGER.isLoggable(level) )
+                LOGGER.log(level,
+                           String.format("Receiver fell more than %d messages behind on the %s channel; dropped %d",
+                                         maxBacklog,
+                                         channel.messageType.getName(),
+                                         tail - unread));
+            overrun[channel.index] = true;
+            next.set(channel.index, tail);
+            return tail;
+        }
+
+        @Override
+        public Optional<Runnable> addSendListener(Runnable listener) {
+            sendListeners.add(listener);
+            return Optional.of(() -> sendListeners.remove(listener));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            synchronized ( lock ) {
+                // Release what this receiver has read now, or, if it is the last one, the next first receiver would
+                // see messages this one has already read
+                for ( Channel channel : channels )
+                    reclaim(channel);
+                cursors.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.ridgid.oss.message.inmemory.bus;
+
+import com.ridgid.oss.queue.spi.MultiChannelFIFOQueue.MultiChannelFIFOQueueException;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * How the messages sent to an InMemoryTopic reach its receivers, as required by its DeliveryRequirement
+ */
+interface InMemoryDelivery
+{
+    void send(Serializable message) throws MultiChannelFIFOQueueException;
+
+    void sendAll(Collection<? extends Serializable> messages) throws MultiChannelFIFOQueueException;
+
+    /**
+     * @return the view of the messages of a new receiver, to close when the receiver is closed
+     */
+    Subscription subscribe();
+
+    /**
+     * The messages as seen by one receiver
+     */
+    interface Subscription
+    {
+        <MessageType extends Serializable>
+        Optional<? extends MessageType> poll(Class<? extends MessageType> messageType,
+                                             long maxWaitMillis)
+            throws MultiChannelFIFOQueueException;
+
+        Optional<Runnable> addSendListener(Runnable listener);
+
+        void close();
+    }
+}
@@ -14,6 +14,15 @@ import java.util.concurrent.ConcurrentMap;
 @SuppressWarnings("ClassNamePrefixedWithPackageName")
 public class InMemoryMessageBus implements MessageBus
 {
+    /**
+     * System property setting the number of unread messages of each message type that topics requiring delivery to
+     * ALL receivers keep for their slowest receiver, beyond which the oldest are dropped for that receiver; defaults to
+     * {@value #DEFAULT_MAX_BACKLOG}
+     */
+    public static final String MAX_BACKLOG = "com.ridgid.oss.message.inmemory.maxBacklog";
+
+    public static final int DEFAULT_MAX_BACKLOG = 65_536;
+
     @SuppressWarnings("StaticCollection")
     private static final
     ConcurrentMap<TopicEnum<? extends Enum<?>>, InMemoryTopic<? extends TopicEnum<? extends Enum<?>>>>
@@ -1,5 +1,6 @@
 package com.ridgid.oss.message.inmemory.bus;
 
+import com.ridgid.oss.message.bus.DeliveryRequirement;
 import com.ridgid.oss.message.bus.ReceiverCardinality;
 import com.ridgid.oss.message.bus.SenderCardinality;
 import com.ridgid.oss.message.bus.TopicEnum;
@@ -8,30 +9,39 @@ import com.ridgid.oss.message.bus.spi.TopicReceiver;
 import com.ridgid.oss.message.bus.spi.TopicReceiver.TopicReceiverException;
 import com.ridgid.oss.message.bus.spi.TopicSender;
 import com.ridgid.oss.message.bus.spi.TopicSender.TopicSenderException;
-import com.ridgid.oss.queue.impl.inmemory.InMemoryMultiChannelFIFOQueue;
-import com.ridgid.oss.queue.spi.MultiChannelFIFOQueue;
+import com.ridgid.oss.message.inmemory.bus.InMemoryDelivery.Subscription;
 import com.ridgid.oss.queue.spi.MultiChannelFIFOQueue.MultiChannelFIFOQueueException;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicLong;
 
 @SuppressWarnings("FieldNotUsedInToString")
 class InMemoryTopic<Topic extends Enum<Topic> & TopicEnum<Topic>>
 {
-    private final Topic                                       topic;
-    private final MultiChannelFIFOQueue<? super Serializable> queues;
-    private final AtomicLong                                  producers = new AtomicLong(0);
-    private final AtomicLong                                  consumers = new AtomicLong(0);
+    private final Topic            topic;
+    private final InMemoryDelivery delivery;
+    private final AtomicLong       producers = new AtomicLong(0);
+    private final AtomicLong       consumers = new AtomicLong(0);
 
     InMemoryTopic(Topic topic) {
         this.topic = topic;
-        queues     = initQueues(topic);
+        delivery   = initDelivery(topic);
     }
 
+    /**
+     * Topics requiring delivery to ALL receivers fan each message out to every receiver, keeping a backlog of
+     * {@value InMemoryMessageBus#MAX_BACKLOG} messages for the slowest; the others share their messages between
+     * competing receivers, each message going to one of them.
+     */
     private static <Topic extends Enum<Topic> & TopicEnum<Topic>>
-    MultiChannelFIFOQueue<Serializable> initQueues(Topic topic) {
-        return new InMemoryMultiChannelFIFOQueue<>(Serializable.class, topic.getMessageTypes());
+    InMemoryDelivery initDelivery(Topic topic) {
+        return topic.getDeliveryRequirement() == DeliveryRequirement.ALL
+               ? new FanOutDelivery(topic.getMessageTypes(),
+                                    Integer.getInteger(InMemoryMessageBus.MAX_BACKLOG,
+                                                       InMemoryMessageBus.DEFAULT_MAX_BACKLOG))
+               : new CompetingConsumersDelivery(topic.getMessageTypes());
     }
 
     TopicSender<Topic> create() throws MessageBusException {
@@ -41,7 +51,7 @@ class InMemoryTopic<Topic extends Enum<Topic> & TopicEnum<Topic>>
 
     TopicReceiver<Topic> subscribe() throws MessageBusException {
         incrementConsumers();
-        return new InMemoryTopicReceiver<>(this);
+        return new InMemoryTopicReceiver<>(this, delivery.subscribe());
     }
 
     Topic getTopic() {
@@ -52,7 +62,17 @@ class InMemoryTopic<Topic extends Enum<Topic> & TopicEnum<Topic>>
         throws TopicSenderException
     {
         try {
-            queues.send(message);
+            delivery.send(message);
+        } catch ( MultiChannelFIFOQueueException e ) {
+            throw new TopicSenderException(topic, e);
+        }
+    }
+
+    void sendAll(Collection<? extends Serializable> messages)
+        throws TopicSenderException
+    {
+        try {
+            delivery.sendAll(messages);
         } catch ( MultiChannelFIFOQueueException e ) {
             throw new TopicSenderException(topic, e);
         }
@@ -66,19 +86,24 @@ class InMemoryTopic<Topic extends Enum<Topic> & TopicEnum<Topic>>
     }
 
     <MessageType extends Serializable>
-    Optional<? extends MessageType> poll(Class<? extends MessageType> messageType,
+    Optional<? extends MessageType> poll(Subscription subscription,
+                                         Class<? extends MessageType> messageType,
                                          long maxWaitMilliSeconds)
         throws TopicReceiverException
     {
         try {
-            return queues.poll(messageType, maxWaitMilliSeconds);
+            return subscription.poll(messageType, maxWaitMilliSeconds);
         } catch ( MultiChannelFIFOQueueException e ) {
             throw new TopicReceiverException(topic, e);
         }
     }
 
     @SuppressWarnings("MethodParameterOfConcreteClass")
-    void closeConsumer(InMemoryTopicReceiver<Topic> receiver) throws MessageBusException {
+    void closeConsumer(InMemoryTopicReceiver<Topic> receiver,
+                       Subscription subscription)
+        throws MessageBusException
+    {
+        subscription.close();
         decrementConsumers();
     }
 
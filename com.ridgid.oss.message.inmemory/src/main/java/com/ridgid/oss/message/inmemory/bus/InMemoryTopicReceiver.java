@@ -2,6 +2,7 @@ package com.ridgid.oss.message.inmemory.bus;
 
 import com.ridgid.oss.message.bus.TopicEnum;
 import com.ridgid.oss.message.bus.spi.TopicReceiver;
+import com.ridgid.oss.message.inmemory.bus.InMemoryDelivery.Subscription;
 
 import java.io.Serializable;
 import java.util.Optional;
@@ -11,10 +12,14 @@ class InMemoryTopicReceiver<Topic extends Enum<Topic> & TopicEnum<Topic>>
 {
     @SuppressWarnings("InstanceVariableOfConcreteClass")
     private final InMemoryTopic<Topic> topic;
+    private final Subscription         subscription;
 
     @SuppressWarnings("MethodParameterOfConcreteClass")
-    InMemoryTopicReceiver(InMemoryTopic<Topic> topic) {
-        this.topic = topic;
+    InMemoryTopicReceiver(InMemoryTopic<Topic> topic,
+                          Subscription subscription)
+    {
+        this.topic        = topic;
+        this.subscription = subscription;
     }
 
     @Override
@@ -28,12 +33,17 @@ class InMemoryTopicReceiver<Topic extends Enum<Topic> & TopicEnum<Topic>>
                                          long maxWaitMilliSeconds)
         throws TopicReceiverException
     {
-        return topic.poll(messageType, maxWaitMilliSeconds);
+        return topic.poll(subscription, messageType, maxWaitMilliSeconds);
+    }
+
+    @Override
+    public Optional<Runnable> addMessageAvailableListener(Runnable listener) {
+        return subscription.addSendListener(listener);
     }
 
     @Override
     public void close() throws Exception {
-        topic.closeConsumer(this);
+        topic.closeConsumer(this, subscription);
     }
 
     @SuppressWarnings("DuplicateStringLiteralInspection")
@@ -5,6 +5,7 @@ import com.ridgid.oss.message.bus.spi.MessageBus.MessageBusException;
 import com.ridgid.oss.message.bus.spi.TopicSender;
 
 import java.io.Serializable;
+import java.util.Collection;
 
 @SuppressWarnings("ClassNamePrefixedWithPackageName")
 class InMemoryTopicSender<Topic extends Enum<Topic> & TopicEnum<Topic>>
@@ -28,6 +29,14 @@ class InMemoryTopicSender<Topic extends Enum<Topic> & TopicEnum<Topic>>
         topic.send(message);
     }
 
+    /**
+     * Queues the whole batch and then wakes the waiting receivers once
+     */
+    @Override
+    public void sendAll(Collection<? extends Serializable> messages) throws TopicSenderException {
+        topic.sendAll(messages);
+    }
+
     @Override
     public void close() throws MessageBusException {
         topic.closeProducer(this);
@@ -0,0 +1,75 @@
+package com.ridgid.oss.message.inmemory.bus;
+
+import com.ridgid.oss.message.inmemory.bus.InMemoryDelivery.Subscription;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("MagicNumber")
+class FanOutDelivery_Test
+{
+    @Test
+    void it_bounds_the_channel_of_a_message_type_that_is_never_polled_without_holding_back_the_others()
+        throws Exception
+    {
+        FanOutDelivery delivery = new FanOutDelivery(Stream.of(Integer.class, String.class), 1_000);
+        Subscription   receiver = delivery.subscribe();
+        List<Integer>  received = new ArrayList<>();
+        for ( int i = 0; i < 10_000; i++ ) {
+            delivery.send(i);
+            delivery.send("s" + i);
+            if ( i % 10 == 9 ) drain(receiver, Integer.class, received);
+        }
+
+        assertEquals(numbers(0, 10_000), received, "Every Integer should be received in order");
+        assertEquals(FanOutDelivery.INITIAL_CAPACITY,
+                     delivery.capacityOf(Integer.class),
+                     "Integers read should be reclaimed");
+        assertEquals(1_024, delivery.capacityOf(String.class), "Unread Strings should be bounded by the backlog");
+        List<String> strings = new ArrayList<>();
+        drain(receiver, String.class, strings);
+        assertEquals(numbers(10_000 - 1_024, 10_000).stream().map(i -> "s" + i).collect(Collectors.toList()),
+                     strings,
+                     "Only the latest Strings should be kept");
+    }
+
+    @Test
+    void it_drops_the_oldest_messages_for_an_idle_receiver_only() throws Exception {
+        FanOutDelivery delivery = new FanOutDelivery(Stream.of(Integer.class), 64);
+        Subscription   idle     = delivery.subscribe();
+        Subscription   active   = delivery.subscribe();
+        List<Integer>  received = new ArrayList<>();
+        for ( int i = 0; i < 1_000; i++ ) {
+            delivery.sendAll(numbers(i * 10, i * 10 + 10));
+            drain(active, Integer.class, received);
+        }
+
+        assertEquals(numbers(0, 10_000), received, "The active receiver should get every message");
+        assertEquals(64, delivery.capacityOf(Integer.class));
+        List<Integer> kept = new ArrayList<>();
+        drain(idle, Integer.class, kept);
+        assertEquals(numbers(10_000 - 64, 10_000), kept, "The idle receiver should get the latest messages");
+    }
+
+    private static <MessageType extends Serializable>
+    void drain(Subscription receiver, Class<MessageType> messageType, List<? super MessageType> received)
+        throws Exception
+    {
+        for ( Optional<? extends MessageType> message = receiver.poll(messageType, 0);
+              message.isPresent();
+              message = receiver.poll(messageType, 0) )
+            received.add(message.get());
+    }
+
+    private static List<Integer> numbers(int from, int to) {
+        return IntStream.range(from, to).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,112 @@
+package com.ridgid.oss.message.inmemory.bus;
+
+import com.ridgid.oss.message.inmemory.bus.InMemoryDelivery.Subscription;
+import com.ridgid.oss.queue.impl.inmemory.InMemoryMultiChannelFIFOQueue;
+import com.ridgid.oss.queue.spi.MultiChannelFIFOQueue;
+import com.ridgid.oss.queue.spi.MultiChannelFIFOQueue.MultiChannelFIFOQueueException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Sends a batch of {@value #BATCH_SIZE} messages and has every subscriber drain them, for topics requiring delivery to
+ * ALL subscribers: through the ring buffer shared by the subscribers of the topic, against fanning out by copying each
+ * message into a queue per subscriber. For reference, the competing-consumers delivery of EXACTLY_ONE topics, where
+ * the subscribers share the batch between them rather than each receiving all of it.
+ * <p>
+ * Runs with the GC profiler: {@code gc.alloc.rate.norm} of both fan-outs grows with the subscribers, but the
+ * per-subscriber queues allocate over 100 bytes per message per subscriber for their nodes and timestamps, while the
+ * ring buffer allocates only the 16 byte {@code Optional} returned by each poll.
+ * <p>
+ * Run with: {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.ridgid.oss.message.inmemory.bus.InMemoryTopic_Benchmark}
+ */
+@SuppressWarnings({"unused", "WeakerAccess"})
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InMemoryTopic_Benchmark {
+
+    static final int BATCH_SIZE = 256;
+
+    @Param({"1", "8", "64"})
+    public int subscribers;
+
+    private List<Integer>                             batch;
+    private List<Subscription>                        fanOut;
+    private FanOutDelivery                            fanOutDelivery;
+    private List<MultiChannelFIFOQueue<Serializable>> perSubscriberQueues;
+    private List<Subscription>                        competing;
+    private CompetingConsumersDelivery                competingDelivery;
+
+    @Setup
+    public void setUp() {
+        batch               = IntStream.range(0, BATCH_SIZE).boxed().collect(Collectors.toList());
+        fanOutDelivery      = new FanOutDelivery(messageTypes(), InMemoryMessageBus.DEFAULT_MAX_BACKLOG);
+        competingDelivery   = new CompetingConsumersDelivery(messageTypes());
+        fanOut              = new ArrayList<>(subscribers);
+        competing           = new ArrayList<>(subscribers);
+        perSubscriberQueues = new ArrayList<>(subscribers);
+        for ( int i = 0; i < subscribers; i++ ) {
+            fanOut.add(fanOutDelivery.subscribe());
+            competing.add(competingDelivery.subscribe());
+            perSubscriberQueues.add(new InMemoryMultiChannelFIFOQueue<>(Serializable.class, messageTypes()));
+        }
+    }
+
+    private static Stream<Class<? extends Serializable>> messageTypes() {
+        return Stream.of(Integer.class);
+    }
+
+    @Benchmark
+    public int ringBufferFanOut() throws MultiChannelFIFOQueueException {
+        fanOutDelivery.sendAll(batch);
+        int received = 0;
+        for ( Subscription subscription : fanOut )
+            while ( subscription.poll(Integer.class, 0).isPresent() )
+                received++;
+        return received;
+    }
+
+    @Benchmark
+    public int queuePerSubscriberFanOut() throws MultiChannelFIFOQueueException {
+        for ( MultiChannelFIFOQueue<Serializable> queue : perSubscriberQueues )
+            queue.sendAll(batch);
+        int received = 0;
+        for ( MultiChannelFIFOQueue<Serializable> queue : perSubscriberQueues )
+            while ( queue.poll(Integer.class, 0).isPresent() )
+                received++;
+        return received;
+    }
+
+    @Benchmark
+    public int competingConsumers() throws MultiChannelFIFOQueueException {
+        competingDelivery.sendAll(batch);
+        int received = 0;
+        for ( Subscription subscription : competing )
+            while ( subscription.poll(Integer.class, 0).isPresent() )
+                received++;
+        return received;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(InMemoryTopic_Benchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -5,34 +5,182 @@ import com.ridgid.oss.message.bus.spi.MessageBus;
 import com.ridgid.oss.message.bus.spi.TopicReceiver;
 import com.ridgid.oss.message.bus.spi.TopicSender;
 import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
 
 import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Redis implementation of the MessageBus, publishing to and subscribing to Redis topics through one Redisson client
+ * shared by all of its senders and receivers. The bus creates the client for its first sender or receiver and shuts it
+ * down once the last one is closed; a client given to the bus is never shut down by it.
+ * <p>
+ * Settings are taken from {@link #config(Map)}, or else from the system properties of the same names:
+ * <ul>
+ * <li>{@value #REDIS_URL}, {@value #REDIS_PORT}, {@value #REDIS_SSL} and {@value #REDIS_PASSWORD}: Redis server</li>
+ * <li>{@value #REDIS_CONNECTION_POOL_SIZE}: connections shared by all senders, default
+ * {@value #DEFAULT_CONNECTION_POOL_SIZE}</li>
+ * <li>{@value #REDIS_MAX_IN_FLIGHT_MESSAGES}: messages published by the senders of this bus and not yet acknowledged
+ * by Redis, beyond which sending fails until Redis catches up, default {@value #DEFAULT_MAX_IN_FLIGHT_MESSAGES}; also
+ * the largest batch that can be sent</li>
+ * </ul>
+ */
+@SuppressWarnings({"WeakerAccess", "ClassHasNoToStringMethod"})
+public class RedisMessageBus implements MessageBus
+{
+    public static final String REDIS_URL                    = "redis.url";
+    public static final String REDIS_PORT                   = "redis.port";
+    public static final String REDIS_SSL                    = "redis.ssl";
+    public static final String REDIS_PASSWORD               = "redis.password";
+    public static final String REDIS_CONNECTION_POOL_SIZE   = "redis.connectionPoolSize";
+    public static final String REDIS_MAX_IN_FLIGHT_MESSAGES = "redis.maxInFlightMessages";
+
+    public static final int DEFAULT_CONNECTION_POOL_SIZE   = 8;
+    public static final int DEFAULT_MAX_IN_FLIGHT_MESSAGES = 1024;
+
+    private static final Set<String> SETTINGS
+        = new HashSet<>(Arrays.asList(REDIS_URL,
+                                      REDIS_PORT,
+                                      REDIS_SSL,
+                                      REDIS_PASSWORD,
+                                      REDIS_CONNECTION_POOL_SIZE,
+                                      REDIS_MAX_IN_FLIGHT_MESSAGES));
+
+    private final Map<String, Object> configuration = new HashMap<>();
+
+    private RedissonClient client;
+    private boolean        ownsClient;
+    private Semaphore      inFlightMessages;
+    private int            maxInFlightMessages;
+    private int            clientUsers;
+
+    public RedisMessageBus() {
+    }
+
+    /**
+     * @param client Redisson client to share with the application, which remains responsible for shutting it down
+     */
+    public RedisMessageBus(RedissonClient client) {
+        this.client = client;
+    }
+
+    /**
+     * @param configuration settings named as the system properties listed in the class documentation
+     * @throws MessageBusException if a setting is unknown, or if a sender or receiver already uses the client
+     */
+    @Override
+    public synchronized void config(Map<String, Object> configuration) throws MessageBusException {
+        for ( String key : configuration.keySet() )
+            if ( !SETTINGS.contains(key) )
+                throw new MessageBusException("Unknown RedisMessageBus setting: " + key);
+        if ( clientUsers > 0 )
+            throw new MessageBusException("RedisMessageBus must be configured before its first sender or receiver is created");
+        this.configuration.putAll(configuration);
+    }
 
-public class RedisMessageBus implements MessageBus {
     @Override
     public <Topic extends Enum<Topic> & TopicEnum<Topic>> TopicSender<Topic> create(Topic topic) throws MessageBusException {
-        return new RedisTopicSender<>(topic);
+        return new RedisTopicSender<>(topic, this);
     }
 
     @Override
     public <Topic extends Enum<Topic> & TopicEnum<Topic>> TopicReceiver<Topic> subscribe(Topic topic) throws MessageBusException {
-        Config config = new Config();
-        config.useSingleServer()
-                .setConnectionMinimumIdleSize(1)
-                .setConnectionPoolSize(2)
-                .setTimeout(1000000)
-                .setAddress(buildAddress())
-                .setPassword(System.getProperty("redis.password", null));
+        return new RedisTopicReceiver<>(topic, this);
+    }
 
-        return new RedisTopicReceiver<>(topic, Redisson.create(config));
+    /**
+     * Gets the shared client for a new sender or receiver, creating it if needed; must be paired with
+     * {@link #releaseClient()} when the sender or receiver is closed
+     */
+    synchronized <Topic extends Enum<Topic> & TopicEnum<Topic>> RedissonClient acquireClient(Topic topic)
+        throws MessageBusException
+    {
+        if ( inFlightMessages == null ) {
+            maxInFlightMessages = intSetting(topic, REDIS_MAX_IN_FLIGHT_MESSAGES, DEFAULT_MAX_IN_FLIGHT_MESSAGES);
+            inFlightMessages    = new Semaphore(maxInFlightMessages);
+        }
+        if ( client == null ) {
+            try {
+                client = createClient(buildConfig(topic));
+            } catch ( RuntimeException e ) {
+                throw new MessageBusException(topic, "Unable to connect to Redis", e);
+            }
+            ownsClient = true;
+        }
+        clientUsers++;
+        return client;
+    }
+
+    /**
+     * @return new client connected to Redis with the given configuration, to be owned by the bus
+     */
+    RedissonClient createClient(Config config) {
+        return Redisson.create(config);
+    }
+
+    synchronized void releaseClient() {
+        if ( --clientUsers > 0 || !ownsClient ) return;
+        client.shutdown();
+        client = null;
+    }
+
+    /**
+     * @return permits for the messages published by all senders of this bus and not yet acknowledged by Redis
+     */
+    synchronized Semaphore inFlightMessages() {
+        return inFlightMessages;
+    }
+
+    /**
+     * @return number of permits of {@link #inFlightMessages()}
+     */
+    synchronized int maxInFlightMessages() {
+        return maxInFlightMessages;
+    }
+
+    private <Topic extends Enum<Topic> & TopicEnum<Topic>> Config buildConfig(Topic topic)
+        throws MessageBusException
+    {
+        int    connectionPoolSize = intSetting(topic, REDIS_CONNECTION_POOL_SIZE, DEFAULT_CONNECTION_POOL_SIZE);
+        Config config             = new Config();
+        config.useSingleServer()
+              .setConnectionMinimumIdleSize(Math.min(2, connectionPoolSize))
+              .setConnectionPoolSize(connectionPoolSize)
+              .setTimeout(1000000)
+              .setAddress(buildAddress())
+              .setPassword(setting(REDIS_PASSWORD, null));
+        return config;
     }
 
     private String buildAddress() {
-        String protocol = Boolean.parseBoolean(System.getProperty("redis.ssl", "false")) ? "rediss" : "redis";
-        String host = System.getProperty("redis.url", "127.0.0.1");
-        String port = System.getProperty("redis.port", "6379");
+        String protocol = Boolean.parseBoolean(setting(REDIS_SSL, "false")) ? "rediss" : "redis";
+        String host = setting(REDIS_URL, "127.0.0.1");
+        String port = setting(REDIS_PORT, "6379");
 
         return MessageFormat.format("{0}://{1}:{2}", protocol, host, port);
     }
+
+    private String setting(String key, String defaultValue) {
+        Object value = configuration.get(key);
+        return value == null ? System.getProperty(key, defaultValue) : value.toString();
+    }
+
+    private <Topic extends Enum<Topic> & TopicEnum<Topic>> int intSetting(Topic topic, String key, int defaultValue)
+        throws MessageBusException
+    {
+        String value = setting(key, null);
+        if ( value == null ) return defaultValue;
+        try {
+            int setting = Integer.parseInt(value.trim());
+            if ( setting > 0 ) return setting;
+        } catch ( NumberFormatException ignore ) {
+        }
+        throw new MessageBusException(topic, key + " must be a positive integer: " + value);
+    }
 }
@@ -2,14 +2,16 @@ package com.ridgid.oss.message.redis.bus;
 
 import com.ridgid.oss.message.bus.TopicEnum;
 import com.ridgid.oss.message.bus.TopicReceiverListener;
+import com.ridgid.oss.message.bus.spi.MessageBus.MessageBusException;
 import com.ridgid.oss.message.bus.spi.TopicReceiver;
-import org.redisson.Redisson;
 import org.redisson.api.RTopic;
-import org.redisson.api.RedissonClient;
 import org.redisson.api.listener.MessageListener;
 
 import java.io.Serializable;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiConsumer;
 
 @SuppressWarnings({
@@ -23,8 +25,11 @@ import java.util.function.BiConsumer;
                   })
 public class RedisTopicReceiver<Topic extends Enum<Topic> & TopicEnum<Topic>> implements TopicReceiver<Topic>
 {
-    private final Topic  topic;
-    private final RedissonClient client;
+    private final Topic                   topic;
+    private final RedisMessageBus         bus;
+    private final RTopic                  redisTopic;
+    private final Set<MessageListener<?>> listeners = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean           closed    = new AtomicBoolean();
 
     // Keeps a hold of all incoming messages during the polling period
     // TODO: Only supports one MessageType for now
@@ -39,10 +44,12 @@ public class RedisTopicReceiver<Topic extends Enum<Topic> & TopicEnum<Topic>> im
       - ReliabilityRequirement: Currently will always behave as NONDURABLE_GUARANTEED
      */
     public RedisTopicReceiver(Topic topic,
-                              RedissonClient redissonClient)
+                              RedisMessageBus bus)
+        throws MessageBusException
     {
-        this.topic = topic;
-        this.client = redissonClient;
+        this.topic      = topic;
+        this.bus        = bus;
+        this.redisTopic = bus.acquireClient(topic).getTopic(topic.getTopicName());
     }
 
     @Override
@@ -56,10 +63,27 @@ public class RedisTopicReceiver<Topic extends Enum<Topic> & TopicEnum<Topic>> im
                 handler.accept(getTopic(), (MessageType) msg);
             }
         };
-        RTopic redisTopic = client.getTopic(this.topic.getTopicName());
+        listeners.add(listener);
         //noinspection unchecked
         redisTopic.addListenerAsync(messageType, listener);
-        return () -> redisTopic.removeListener(listener);
+        return () -> {
+            if (listeners.remove(listener)) redisTopic.removeListener(listener);
+        };
+    }
+
+    /**
+     * Redisson pushes the messages of a topic to its listeners one at a time on its own threads, so the handler is
+     * never invoked for more than one message at once, whatever {@code maxConcurrentHandlers} allows
+     */
+    @Override
+    public <MessageType extends Serializable>
+    TopicReceiverListener<Topic, ? super MessageType> listen(Class<? extends MessageType> messageType,
+                                                             BiConsumer<? super Topic, ? super MessageType> handler,
+                                                             int maxConcurrentHandlers)
+    {
+        if (maxConcurrentHandlers < 1)
+            throw new IllegalArgumentException("maxConcurrentHandlers must be at least 1: " + maxConcurrentHandlers);
+        return listen(messageType, handler);
     }
 
     @Override
@@ -76,8 +100,18 @@ public class RedisTopicReceiver<Topic extends Enum<Topic> & TopicEnum<Topic>> im
         throw new UnsupportedOperationException("This receiver does not support polling.");
     }
 
+    /**
+     * Removes the listeners of this receiver and releases the client shared with the other senders and receivers
+     */
     @Override
     public void close() throws Exception {
-        client.shutdown();
+        if (!closed.compareAndSet(false, true)) return;
+        try {
+            for (MessageListener<?> listener : listeners)
+                redisTopic.removeListener(listener);
+            listeners.clear();
+        } finally {
+            bus.releaseClient();
+        }
     }
 }
@@ -1,18 +1,45 @@
 package com.ridgid.oss.message.redis.bus;
 
 import com.ridgid.oss.message.bus.TopicEnum;
+import com.ridgid.oss.message.bus.spi.MessageBus.MessageBusException;
 import com.ridgid.oss.message.bus.spi.TopicSender;
-import org.redisson.Redisson;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RTopic;
+import org.redisson.api.RTopicAsync;
 import org.redisson.api.RedissonClient;
-import org.redisson.config.Config;
 
 import java.io.Serializable;
-import java.text.MessageFormat;
-
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Publishes messages to a Redis topic through the client shared by its {@link RedisMessageBus}, without waiting for
+ * Redis to acknowledge them; {@link #sendAll} pipelines a batch of messages in one round trip. The messages in flight
+ * from all senders of the bus are bounded: once the bound is reached, {@link #send} fails until Redis has acknowledged
+ * enough of them, rather than queueing without limit. A batch larger than the bound could never be sent, and is
+ * rejected.
+ */
 @SuppressWarnings({"DuplicateStringLiteralInspection", "JavaDoc", "ClassHasNoToStringMethod", "WeakerAccess"})
 public class RedisTopicSender<Topic extends Enum<Topic> & TopicEnum<Topic>> implements TopicSender<Topic> {
+    private static final Logger LOGGER = Logger.getLogger(RedisTopicSender.class.getName());
+
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+
     private final Topic topic;
+    private final RedisMessageBus bus;
+    private final RedissonClient client;
+    private final RTopic redisTopic;
+    private final Semaphore inFlightMessages;
+    private final int maxInFlightMessages;
+    private final AtomicInteger pendingMessages = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     /*
     TODO: Features that aren't implemented yet, but not critical for functionality:
@@ -22,8 +49,13 @@ public class RedisTopicSender<Topic extends Enum<Topic> & TopicEnum<Topic>> impl
       - DeliveryRequirement
       - ReliabilityRequirement: Currently will always behave as NONDURABLE_GUARANTEED
      */
-    public RedisTopicSender(Topic topic) {
+    public RedisTopicSender(Topic topic, RedisMessageBus bus) throws MessageBusException {
         this.topic = topic;
+        this.bus = bus;
+        this.client = bus.acquireClient(topic);
+        this.redisTopic = client.getTopic(topic.getTopicName());
+        this.inFlightMessages = bus.inFlightMessages();
+        this.maxInFlightMessages = bus.maxInFlightMessages();
     }
 
     @Override
@@ -31,40 +63,133 @@ public class RedisTopicSender<Topic extends Enum<Topic> & TopicEnum<Topic>> impl
         return topic;
     }
 
+    /**
+     * Publishes the message asynchronously; failures to publish it are logged
+     *
+     * @throws TopicSenderException if the sender is closed, or if the messages in flight from the senders of the bus
+     *                              have reached their bound
+     */
     @SuppressWarnings({"OverlyBroadCatchBlock", "ProhibitedExceptionThrown"})
     @Override
     public <MessageType extends Serializable>
     void send(MessageType message)
             throws TopicSenderException {
+        acquire(1);
         try {
-            new Thread(() -> {
-                Config config = new Config();
-                config.useSingleServer()
-                        .setConnectionPoolSize(1)
-                        .setConnectionMinimumIdleSize(1)
-                        .setTimeout(1000000)
-                        .setAddress(buildAddress())
-                        .setPassword(System.getProperty("redis.password", null));
-                RedissonClient client = Redisson.create(config);
-                client.getTopic(topic.getTopicName())
-                        .publish(message);
-                client.shutdown();
-            }).start();
+            whenPublished(redisTopic.publishAsync(message), 1, null);
         } catch (Exception e) {
+            published(1);
             throw new TopicSenderException(topic, e);
         }
     }
 
-    private String buildAddress() {
-        String protocol = Boolean.parseBoolean(System.getProperty("redis.ssl", "false")) ? "rediss" : "redis";
-        String host = System.getProperty("redis.url", "127.0.0.1");
-        String port = System.getProperty("redis.port", "6379");
+    /**
+     * Publishes the messages asynchronously as one pipelined batch, in a single round trip to Redis; failures to
+     * publish them are logged. The batch counts towards the bound of the messages in flight as a whole: either all of
+     * its messages fit within the bound or none are sent.
+     *
+     * @throws TopicSenderException     if the sender is closed, or if the messages in flight from the senders of the
+     *                                  bus would exceed their bound
+     * @throws IllegalArgumentException if the batch is larger than the bound itself, so that it could never be sent
+     *                                  however long the caller waits; split it into smaller batches, or raise
+     *                                  {@value RedisMessageBus#REDIS_MAX_IN_FLIGHT_MESSAGES}
+     */
+    @SuppressWarnings({"OverlyBroadCatchBlock", "ProhibitedExceptionThrown"})
+    @Override
+    public void sendAll(Collection<? extends Serializable> messages) throws TopicSenderException {
+        int count = messages.size();
+        if (count == 0) return;
+        if (count > maxInFlightMessages)
+            throw new IllegalArgumentException(String.format("Batch of %d messages to %s exceeds %s (%d)",
+                                                             count,
+                                                             topic,
+                                                             RedisMessageBus.REDIS_MAX_IN_FLIGHT_MESSAGES,
+                                                             maxInFlightMessages));
+        acquire(count);
+        try {
+            RBatch batch = client.createBatch();
+            RTopicAsync batchTopic = batch.getTopic(topic.getTopicName());
+            for (Serializable message : messages)
+                batchTopic.publishAsync(message);
+            whenPublished(batch.executeAsync(), count, null);
+        } catch (Exception e) {
+            published(count);
+            throw new TopicSenderException(topic, e);
+        }
+    }
+
+    /**
+     * Publishes the message asynchronously
+     *
+     * @return future completed once Redis has acknowledged the message, or exceptionally with a
+     * {@link TopicSenderException} if the sender is closed, if the messages in flight have reached their bound, or if
+     * Redis failed to publish the message
+     */
+    @SuppressWarnings({"OverlyBroadCatchBlock", "ProhibitedExceptionThrown"})
+    @Override
+    public <MessageType extends Serializable> CompletableFuture<Void> sendAsync(MessageType message) {
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        try {
+            acquire(1);
+        } catch (TopicSenderException e) {
+            sent.completeExceptionally(e);
+            return sent;
+        }
+        try {
+            whenPublished(redisTopic.publishAsync(message), 1, sent);
+        } catch (Exception e) {
+            published(1);
+            sent.completeExceptionally(new TopicSenderException(topic, e));
+        }
+        return sent;
+    }
+
+    private void acquire(int count) throws TopicSenderException {
+        if (closed.get())
+            throw new TopicSenderException(topic, "Sender is closed");
+        if (!inFlightMessages.tryAcquire(count))
+            throw new TopicSenderException(topic, "Too many messages in flight to Redis; try again later");
+        pendingMessages.addAndGet(count);
+    }
+
+    private void whenPublished(RFuture<?> publication, int count, CompletableFuture<Void> sent) {
+        publication.onComplete((result, failure) -> {
+            published(count);
+            if (failure == null) {
+                if (sent != null) sent.complete(null);
+            } else if (sent != null) {
+                sent.completeExceptionally(new TopicSenderException(topic, "Failed to publish to Redis", failure));
+            } else {
+                LOGGER.log(Level.WARNING, String.format("Failed to publish %d message(s) to %s", count, topic), failure);
+            }
+        });
+    }
 
-        return MessageFormat.format("{0}://{1}:{2}", protocol, host, port);
+    private void published(int count) {
+        inFlightMessages.release(count);
+        if (pendingMessages.addAndGet(-count) == 0 && closed.get()) {
+            synchronized (pendingMessages) {
+                pendingMessages.notifyAll();
+            }
+        }
     }
 
-    @SuppressWarnings("RedundantThrows")
+    /**
+     * Waits up to 5 seconds for the messages sent by this sender to be published, then releases the shared client
+     */
     @Override
     public void close() throws Exception {
+        if (!closed.compareAndSet(false, true)) return;
+        try {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+            synchronized (pendingMessages) {
+                for (long remaining = CLOSE_TIMEOUT_MILLIS;
+                     pendingMessages.get() > 0 && remaining > 0;
+                     remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()))
+                    pendingMessages.wait(remaining);
+            }
+        } finally {
+            bus.releaseClient();
+        }
     }
 }
@@ -0,0 +1,109 @@
+package com.ridgid.oss.message.redis.bus;
+
+import com.ridgid.oss.message.bus.spi.MessageBus.MessageBusException;
+import com.ridgid.oss.message.bus.spi.TopicReceiver;
+import com.ridgid.oss.message.bus.spi.TopicSender;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RedisMessageBus_Test {
+
+    @Test
+    void it_creates_one_client_for_its_senders_and_receivers_and_shuts_it_down_after_the_last_is_closed() throws Exception {
+        OwningBus           bus      = new OwningBus();
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(RedisMessageBus.REDIS_URL, "redis.example");
+        settings.put(RedisMessageBus.REDIS_PORT, 6380);
+        settings.put(RedisMessageBus.REDIS_SSL, true);
+        settings.put(RedisMessageBus.REDIS_CONNECTION_POOL_SIZE, 3);
+        bus.config(settings);
+
+        TopicSender<TestTopic>   sender   = bus.create(TestTopic.TOPIC);
+        TopicReceiver<TestTopic> receiver = bus.subscribe(TestTopic.TOPIC);
+        assertEquals(1, bus.clients.size(), "Senders and receivers should share one client");
+        assertEquals("rediss://redis.example:6380", bus.configs.get(0).useSingleServer().getAddress());
+        assertEquals(3, bus.configs.get(0).useSingleServer().getConnectionPoolSize());
+
+        sender.close();
+        sender.close();
+        verify(bus.clients.get(0), never()).shutdown();
+        receiver.close();
+        verify(bus.clients.get(0)).shutdown();
+
+        bus.create(TestTopic.TOPIC).close();
+        assertEquals(2, bus.clients.size(), "A new client should be created once the last one is shut down");
+        verify(bus.clients.get(1)).shutdown();
+    }
+
+    @Test
+    void it_never_shuts_down_a_client_it_was_given() throws Exception {
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.getTopic(anyString())).thenReturn(mock(RTopic.class));
+        RedisMessageBus bus = new RedisMessageBus(client);
+
+        bus.create(TestTopic.TOPIC).close();
+        bus.subscribe(TestTopic.TOPIC).close();
+        verify(client, never()).shutdown();
+    }
+
+    @Test
+    void it_rejects_unknown_or_invalid_settings_and_settings_made_once_the_client_is_in_use() throws Exception {
+        OwningBus bus = new OwningBus();
+        assertThrows(MessageBusException.class, () -> bus.config(Collections.singletonMap("redis.host", "localhost")));
+
+        bus.config(Collections.singletonMap(RedisMessageBus.REDIS_MAX_IN_FLIGHT_MESSAGES, 0));
+        assertThrows(MessageBusException.class, () -> bus.create(TestTopic.TOPIC));
+        bus.config(Collections.singletonMap(RedisMessageBus.REDIS_MAX_IN_FLIGHT_MESSAGES, 16));
+        bus.config(Collections.singletonMap(RedisMessageBus.REDIS_CONNECTION_POOL_SIZE, "many"));
+        assertThrows(MessageBusException.class, () -> bus.subscribe(TestTopic.TOPIC));
+        assertTrue(bus.clients.isEmpty(), "No client should be created with invalid settings");
+
+        bus.config(Collections.singletonMap(RedisMessageBus.REDIS_CONNECTION_POOL_SIZE, " 4 "));
+        try (TopicSender<TestTopic> ignored = bus.create(TestTopic.TOPIC)) {
+            assertEquals(16, bus.maxInFlightMessages());
+            assertThrows(MessageBusException.class,
+                         () -> bus.config(Collections.singletonMap(RedisMessageBus.REDIS_CONNECTION_POOL_SIZE, 2)));
+        }
+        bus.config(Collections.singletonMap(RedisMessageBus.REDIS_CONNECTION_POOL_SIZE, 2));
+    }
+
+    @Test
+    void it_reports_a_client_that_cannot_be_created_without_counting_it_as_in_use() throws Exception {
+        RedisMessageBus bus = new RedisMessageBus() {
+            @Override
+            RedissonClient createClient(Config config) {
+                throw new IllegalStateException("Connection refused");
+            }
+        };
+
+        MessageBusException failure = assertThrows(MessageBusException.class, () -> bus.create(TestTopic.TOPIC));
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+        bus.config(Collections.emptyMap());
+    }
+
+    private static final class OwningBus extends RedisMessageBus {
+        private final List<Config>         configs = new ArrayList<>();
+        private final List<RedissonClient> clients = new ArrayList<>();
+
+        @Override
+        RedissonClient createClient(Config config) {
+            RedissonClient client = mock(RedissonClient.class);
+            when(client.getTopic(anyString())).thenReturn(mock(RTopic.class));
+            configs.add(config);
+            clients.add(client);
+            return client;
+        }
+    }
+}
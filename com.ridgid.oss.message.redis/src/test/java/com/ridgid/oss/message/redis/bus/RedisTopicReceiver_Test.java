@@ -0,0 +1,63 @@
+package com.ridgid.oss.message.redis.bus;
+
+import com.ridgid.oss.message.bus.TopicReceiverListener;
+import com.ridgid.oss.message.bus.spi.TopicReceiver;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.MessageListener;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RedisTopicReceiver_Test {
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void it_hands_messages_of_the_type_listened_for_to_the_handler_and_removes_its_listeners_when_closed()
+            throws Exception {
+        RTopic         topic  = mock(RTopic.class);
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.getTopic(TestTopic.TOPIC.getTopicName())).thenReturn(topic);
+        RedisMessageBus bus      = new RedisMessageBus(client);
+        List<Integer>   received = new CopyOnWriteArrayList<>();
+
+        TopicReceiver<TestTopic> receiver = bus.subscribe(TestTopic.TOPIC);
+        TopicReceiverListener<TestTopic, ? super Integer> first
+                = receiver.listen(Integer.class, (t, message) -> received.add(message));
+        receiver.listen(Integer.class, (t, message) -> received.add(-message), 4);
+        ArgumentCaptor<MessageListener> listeners = ArgumentCaptor.forClass(MessageListener.class);
+        verify(topic, times(2)).addListenerAsync(eq(Integer.class), listeners.capture());
+        listeners.getAllValues().get(0).onMessage(TestTopic.TOPIC.getTopicName(), 1);
+        listeners.getAllValues().get(0).onMessage(TestTopic.TOPIC.getTopicName(), "not an Integer");
+        listeners.getAllValues().get(1).onMessage(TestTopic.TOPIC.getTopicName(), 2);
+        assertEquals(Arrays.asList(1, -2), received);
+
+        first.close();
+        first.close();
+        verify(topic).removeListener(listeners.getAllValues().get(0));
+        receiver.close();
+        verify(topic).removeListener(listeners.getAllValues().get(1));
+        verify(topic, times(2)).removeListener(any(MessageListener.class));
+        // Configuring fails while a sender or receiver still holds the client
+        bus.config(Collections.emptyMap());
+    }
+
+    @Test
+    void it_rejects_fewer_than_one_concurrent_handler() throws Exception {
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.getTopic(anyString())).thenReturn(mock(RTopic.class));
+
+        try (TopicReceiver<TestTopic> receiver = new RedisMessageBus(client).subscribe(TestTopic.TOPIC)) {
+            assertThrows(IllegalArgumentException.class, () -> receiver.listen(Integer.class, (t, message) -> {
+            }, 0));
+        }
+    }
+}
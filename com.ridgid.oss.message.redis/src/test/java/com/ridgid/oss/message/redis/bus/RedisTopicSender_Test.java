@@ -0,0 +1,127 @@
+package com.ridgid.oss.message.redis.bus;
+
+import com.ridgid.oss.message.bus.spi.TopicSender;
+import com.ridgid.oss.message.bus.spi.TopicSender.TopicSenderException;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.redisson.api.RBatch;
+import org.redisson.api.RFuture;
+import org.redisson.api.RTopic;
+import org.redisson.api.RTopicAsync;
+import org.redisson.api.RedissonClient;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RedisTopicSender_Test {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void it_rejects_a_batch_larger_than_the_messages_allowed_in_flight_without_sending_any() throws Exception {
+        RTopicAsync     batchTopic = mock(RTopicAsync.class);
+        RFuture<Object> executed   = mock(RFuture.class);
+        RBatch          batch      = mock(RBatch.class);
+        when(batch.getTopic(TestTopic.TOPIC.getTopicName())).thenReturn(batchTopic);
+        when(batch.executeAsync()).thenAnswer(call -> executed);
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.getTopic(TestTopic.TOPIC.getTopicName())).thenReturn(mock(RTopic.class));
+        when(client.createBatch()).thenReturn(batch);
+        RedisMessageBus bus = new RedisMessageBus(client);
+        bus.config(Collections.singletonMap(RedisMessageBus.REDIS_MAX_IN_FLIGHT_MESSAGES, 4));
+
+        try (TopicSender<TestTopic> sender = bus.create(TestTopic.TOPIC)) {
+            assertThrows(IllegalArgumentException.class, () -> sender.sendAll(numbers(5)));
+            verify(client, never()).createBatch();
+            assertEquals(4, bus.inFlightMessages().availablePermits(), "Nothing should be in flight");
+
+            sender.sendAll(numbers(4));
+            verify(batchTopic, times(4)).publishAsync(any());
+            assertThrows(TopicSenderException.class,
+                         () -> sender.sendAll(numbers(1)),
+                         "The bound is reached until Redis acknowledges the batch");
+
+            acknowledge(executed, 1).get(0).accept(null, null);
+            assertEquals(4, bus.inFlightMessages().availablePermits(), "Acknowledged messages should be released");
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void it_bounds_the_messages_in_flight_across_the_senders_of_the_bus() throws Exception {
+        RFuture<Long> published = mock(RFuture.class);
+        RTopic        topic     = mock(RTopic.class);
+        when(topic.publishAsync(any())).thenReturn(published);
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.getTopic(TestTopic.TOPIC.getTopicName())).thenReturn(topic);
+        RedisMessageBus bus = new RedisMessageBus(client);
+        bus.config(Collections.singletonMap(RedisMessageBus.REDIS_MAX_IN_FLIGHT_MESSAGES, 2));
+
+        try (TopicSender<TestTopic> first = bus.create(TestTopic.TOPIC);
+             TopicSender<TestTopic> second = bus.create(TestTopic.TOPIC)) {
+            first.send(1);
+            second.send(2);
+            assertThrows(TopicSenderException.class, () -> first.send(3));
+            CompletableFuture<Void> rejected = second.sendAsync(3);
+            ExecutionException failure = assertThrows(ExecutionException.class, rejected::get);
+            assertTrue(failure.getCause() instanceof TopicSenderException);
+
+            acknowledge(published, 2).get(0).accept(1L, null);
+            CompletableFuture<Void> sent = second.sendAsync(3);
+            acknowledge(published, 3).get(2).accept(1L, null);
+            assertNull(sent.get(), "The message should be sent once a permit is released");
+            acknowledge(published, 3).get(1).accept(1L, null);
+            assertEquals(2, bus.inFlightMessages().availablePermits());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void it_waits_for_pending_publishes_when_closed_before_releasing_the_client() throws Exception {
+        RFuture<Long> published = mock(RFuture.class);
+        RTopic        topic     = mock(RTopic.class);
+        when(topic.publishAsync(any())).thenReturn(published);
+        RedissonClient client = mock(RedissonClient.class);
+        when(client.getTopic(TestTopic.TOPIC.getTopicName())).thenReturn(topic);
+        RedisMessageBus bus = new RedisMessageBus(client);
+
+        TopicSender<TestTopic> sender = bus.create(TestTopic.TOPIC);
+        sender.send(1);
+        Thread closing = new Thread(() -> {
+            try {
+                sender.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        closing.start();
+        closing.join(200);
+        assertTrue(closing.isAlive(), "Close should wait for the message in flight");
+        assertThrows(TopicSenderException.class, () -> sender.send(2), "A closing sender should send no more");
+
+        acknowledge(published, 1).get(0).accept(1L, null);
+        closing.join(1_000);
+        assertFalse(closing.isAlive(), "Close should return once the message is published");
+        // Configuring fails while a sender or receiver still holds the client
+        bus.config(Collections.emptyMap());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> List<BiConsumer<V, Throwable>> acknowledge(RFuture<V> future, int publications) {
+        ArgumentCaptor<BiConsumer<V, Throwable>> acknowledge = ArgumentCaptor.forClass(BiConsumer.class);
+        verify(future, times(publications)).onComplete(acknowledge.capture());
+        return acknowledge.getAllValues();
+    }
+
+    private static List<Integer> numbers(int count) {
+        return IntStream.range(0, count).boxed().collect(Collectors.toList());
+    }
+}
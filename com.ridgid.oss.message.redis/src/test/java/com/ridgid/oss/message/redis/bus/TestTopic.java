@@ -0,0 +1,44 @@
+package com.ridgid.oss.message.redis.bus;
+
+import com.ridgid.oss.message.bus.DeliveryRequirement;
+import com.ridgid.oss.message.bus.ReceiverCardinality;
+import com.ridgid.oss.message.bus.SenderCardinality;
+import com.ridgid.oss.message.bus.TopicEnum;
+
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+enum TestTopic implements TopicEnum<TestTopic> {
+    TOPIC;
+
+    @Override
+    public Optional<String> getGroupName() {
+        return Optional.empty();
+    }
+
+    @Override
+    public String getTopicName() {
+        return name();
+    }
+
+    @Override
+    public Stream<Class<? extends Serializable>> getMessageTypes() {
+        return Stream.of(Integer.class);
+    }
+
+    @Override
+    public ReceiverCardinality getReceiverCardinality() {
+        return ReceiverCardinality.MANY;
+    }
+
+    @Override
+    public SenderCardinality getSenderCardinality() {
+        return SenderCardinality.MANY;
+    }
+
+    @Override
+    public DeliveryRequirement getDeliveryRequirement() {
+        return DeliveryRequirement.ALL;
+    }
+}
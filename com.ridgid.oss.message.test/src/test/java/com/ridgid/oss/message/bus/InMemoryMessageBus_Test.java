@@ -0,0 +1,148 @@
+package com.ridgid.oss.message.bus;
+
+import com.ridgid.oss.message.bus.spi.MessageBus;
+import com.ridgid.oss.message.bus.spi.TopicReceiver;
+import com.ridgid.oss.message.bus.spi.TopicReceiver.TopicReceiverException;
+import com.ridgid.oss.message.bus.spi.TopicSender;
+import com.ridgid.oss.message.bus.spi.TopicSender.TopicSenderException;
+import com.ridgid.oss.message.inmemory.bus.InMemoryMessageBus;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"MagicNumber", "DuplicateStringLiteralInspection"})
+class InMemoryMessageBus_Test
+{
+    private final MessageBus bus = new InMemoryMessageBus();
+
+    @Test
+    void it_delivers_every_message_to_every_receiver_of_a_topic_requiring_delivery_to_all() throws Exception {
+        try ( TopicSender<TestTopic> sender = bus.create(TestTopic.FAN_OUT);
+              TopicReceiver<TestTopic> first = bus.subscribe(TestTopic.FAN_OUT);
+              TopicReceiver<TestTopic> second = bus.subscribe(TestTopic.FAN_OUT);
+              TopicReceiver<TestTopic> third = bus.subscribe(TestTopic.FAN_OUT) )
+        {
+            sender.sendAll(numbers(5_000));
+            for ( TopicReceiver<TestTopic> receiver : Arrays.asList(first, second, third) )
+                assertEquals(numbers(5_000),
+                             drain(receiver, Integer.class),
+                             "Each receiver should get every message in order");
+        }
+    }
+
+    @Test
+    void it_keeps_the_messages_of_other_types_unread_when_polling_a_receiver_for_one_type() throws Exception {
+        try ( TopicSender<TestTopic> sender = bus.create(TestTopic.FAN_OUT_TYPES);
+              TopicReceiver<TestTopic> receiver = bus.subscribe(TestTopic.FAN_OUT_TYPES) )
+        {
+            sender.sendAll(Arrays.asList(1, "a", 2, "b", 3));
+            assertEquals(Arrays.asList("a", "b"), drain(receiver, String.class), "Strings in order");
+            assertEquals(Arrays.asList(1, 2, 3), drain(receiver, Integer.class), "Integers left unread, in order");
+            assertThrows(TopicSenderException.class, () -> sender.send(1L), "Long is not a message type of the topic");
+        }
+    }
+
+    @Test
+    void it_delivers_each_message_to_only_one_receiver_of_a_topic_requiring_delivery_to_exactly_one()
+        throws Exception
+    {
+        try ( TopicSender<TestTopic> sender = bus.create(TestTopic.COMPETING);
+              TopicReceiver<TestTopic> first = bus.subscribe(TestTopic.COMPETING);
+              TopicReceiver<TestTopic> second = bus.subscribe(TestTopic.COMPETING) )
+        {
+            sender.sendAll(numbers(100));
+            List<Integer> received = new ArrayList<>();
+            for ( int i = 0; i < 50; i++ ) {
+                first.poll(Integer.class).ifPresent(received::add);
+                second.poll(Integer.class).ifPresent(received::add);
+            }
+            assertEquals(numbers(100), received, "Each message should be received once, by either receiver");
+            assertFalse(first.poll(Integer.class).isPresent(), "No message should be left");
+        }
+    }
+
+    @Test
+    void it_gives_the_first_receiver_the_messages_sent_before_it_subscribed_and_later_ones_only_new_messages()
+        throws Exception
+    {
+        try ( TopicSender<TestTopic> sender = bus.create(TestTopic.FAN_OUT_LATE) ) {
+            sender.sendAll(numbers(3));
+            try ( TopicReceiver<TestTopic> first = bus.subscribe(TestTopic.FAN_OUT_LATE) ) {
+                try ( TopicReceiver<TestTopic> late = bus.subscribe(TestTopic.FAN_OUT_LATE) ) {
+                    sender.send(3);
+                    assertEquals(numbers(4), drain(first, Integer.class), "First receiver gets the backlog");
+                    assertEquals(Arrays.asList(3), drain(late, Integer.class), "Late receiver gets new messages only");
+                }
+            }
+        }
+    }
+
+    private static <MessageType extends Serializable>
+    List<MessageType> drain(TopicReceiver<TestTopic> receiver, Class<MessageType> messageType)
+        throws TopicReceiverException
+    {
+        List<MessageType> received = new ArrayList<>();
+        for ( Optional<? extends MessageType> message = receiver.poll(messageType);
+              message.isPresent();
+              message = receiver.poll(messageType) )
+            received.add(message.get());
+        return received;
+    }
+
+    private static List<Integer> numbers(int count) {
+        return IntStream.range(0, count).boxed().collect(Collectors.toList());
+    }
+
+    private enum TestTopic implements TopicEnum<TestTopic>
+    {
+        FAN_OUT(DeliveryRequirement.ALL),
+        FAN_OUT_TYPES(DeliveryRequirement.ALL),
+        FAN_OUT_LATE(DeliveryRequirement.ALL),
+        COMPETING(DeliveryRequirement.EXACTLY_ONE);
+
+        private final DeliveryRequirement deliveryRequirement;
+
+        TestTopic(DeliveryRequirement deliveryRequirement) {
+            this.deliveryRequirement = deliveryRequirement;
+        }
+
+        @Override
+        public Optional<String> getGroupName() {
+            return Optional.empty();
+        }
+
+        @Override
+        public String getTopicName() {
+            return name();
+        }
+
+        @Override
+        public Stream<Class<? extends Serializable>> getMessageTypes() {
+            return Stream.of(Integer.class, String.class);
+        }
+
+        @Override
+        public ReceiverCardinality getReceiverCardinality() {
+            return ReceiverCardinality.MANY;
+        }
+
+        @Override
+        public SenderCardinality getSenderCardinality() {
+            return SenderCardinality.MANY;
+        }
+
+        @Override
+        public DeliveryRequirement getDeliveryRequirement() {
+            return deliveryRequirement;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.ridgid.oss.message.bus;
+
+import com.ridgid.oss.message.bus.spi.KeyedTopicReceiverListenerImpl;
+import com.ridgid.oss.message.bus.spi.MessageBus;
+import com.ridgid.oss.message.bus.spi.TopicReceiver;
+import com.ridgid.oss.message.bus.spi.TopicReceiver.TopicReceiverListenerImpl;
+import com.ridgid.oss.message.bus.spi.TopicSender;
+import com.ridgid.oss.message.inmemory.bus.InMemoryMessageBus;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"MagicNumber", "DuplicateStringLiteralInspection"})
+class TopicReceiverListener_Test
+{
+    private final MessageBus bus = new InMemoryMessageBus();
+
+    @BeforeAll
+    static void shareAnExecutorWithEnoughThreadsForConcurrentHandlers() {
+        TopicReceiverListenerImpl.setSharedExecutor(Executors.newFixedThreadPool(4));
+    }
+
+    @Test
+    void it_hands_each_message_to_the_handler_in_the_order_sent() throws Exception {
+        List<Integer>  received = new CopyOnWriteArrayList<>();
+        CountDownLatch all      = new CountDownLatch(100);
+        try ( TopicSender<TestTopic> sender = bus.create(TestTopic.ORDERED);
+              TopicReceiver<TestTopic> receiver = bus.subscribe(TestTopic.ORDERED);
+              TopicReceiverListener<TestTopic, ? super Integer> ignored
+                  = receiver.listen(Integer.class, (topic, message) -> {
+                  received.add(message);
+                  all.countDown();
+              }) )
+        {
+            sender.sendAll(numbers(100));
+            assertTrue(all.await(10, TimeUnit.SECONDS), "Not all messages were handled");
+        }
+        assertEquals(numbers(100), received, "Messages should be handled in the order sent");
+    }
+
+    @Test
+    void it_never_runs_more_handlers_at_once_than_the_listener_allows() throws Exception {
+        AtomicInteger  running    = new AtomicInteger();
+        AtomicInteger  maxRunning = new AtomicInteger();
+        CountDownLatch all        = new CountDownLatch(50);
+        try ( TopicSender<TestTopic> sender = bus.create(TestTopic.CONCURRENT);
+              TopicReceiver<TestTopic> receiver = bus.subscribe(TestTopic.CONCURRENT);
+              TopicReceiverListener<TestTopic, ? super Integer> ignored
+                  = receiver.listen(Integer.class, (topic, message) -> {
+                  maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                  sleep(5);
+                  running.decrementAndGet();
+                  all.countDown();
+              }, 3) )
+        {
+            sender.sendAll(numbers(50));
+            assertTrue(all.await(10, TimeUnit.SECONDS), "Not all messages were handled");
+        }
+        assertTrue(maxRunning.get() <= 3, "At most 3 handlers should run at once: " + maxRunning.get());
+        assertTrue(maxRunning.get() > 1, "Handlers should have run concurrently");
+    }
+
+    @Test
+    void it_waits_for_running_handlers_when_closed_and_takes_no_more_messages() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger  handled = new AtomicInteger();
+        try ( TopicSender<TestTopic> sender = bus.create(TestTopic.CLOSING);
+              TopicReceiver<TestTopic> receiver = bus.subscribe(TestTopic.CLOSING) )
+        {
+            TopicReceiverListener<TestTopic, ? super Integer> listener
+                = receiver.listen(Integer.class, (topic, message) -> {
+                started.countDown();
+                sleep(200);
+                handled.incrementAndGet();
+            });
+            sender.sendAll(numbers(10));
+            assertTrue(started.await(10, TimeUnit.SECONDS), "Handler never started");
+            listener.close();
+            assertEquals(1, handled.get(), "Close should wait for the running handler, and stop taking messages");
+            sleep(300);
+            assertEquals(1, handled.get(), "No message should be handled after the listener is closed");
+            assertTrue(receiver.poll(Integer.class).isPresent(), "Messages not handled should remain on the topic");
+        }
+    }
+
+    @Test
+    void it_hands_the_thread_of_a_busy_listener_to_the_others_after_each_turn() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<TestTopic> handled  = new CopyOnWriteArrayList<>();
+        CountDownLatch  started  = new CountDownLatch(1);
+        CountDownLatch  release  = new CountDownLatch(1);
+        CountDownLatch  all      = new CountDownLatch(501);
+        try ( TopicSender<TestTopic> busySender = bus.create(TestTopic.BUSY);
+              TopicReceiver<TestTopic> busyReceiver = bus.subscribe(TestTopic.BUSY);
+              TopicSender<TestTopic> quietSender = bus.create(TestTopic.QUIET);
+              TopicReceiver<TestTopic> quietReceiver = bus.subscribe(TestTopic.QUIET) )
+        {
+            busySender.sendAll(numbers(500));
+            TopicReceiverListener<TestTopic, ? super Integer> busy
+                = new TopicReceiverListenerImpl<TestTopic, Integer>(busyReceiver, Integer.class, (topic, message) -> {
+                started.countDown();
+                awaitQuietly(release);
+                handled.add(topic);
+                all.countDown();
+            }, executor, 1) {};
+            assertTrue(started.await(10, TimeUnit.SECONDS), "Handler never started");
+            quietSender.send(0);
+            TopicReceiverListener<TestTopic, ? super Integer> quiet
+                = new TopicReceiverListenerImpl<TestTopic, Integer>(quietReceiver, Integer.class, (topic, message) -> {
+                handled.add(topic);
+                all.countDown();
+            }, executor, 1) {};
+            release.countDown();
+            assertTrue(all.await(10, TimeUnit.SECONDS), "Not all messages were handled");
+            busy.close();
+            quiet.close();
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(TopicReceiverListenerImpl.MAX_MESSAGES_PER_TURN,
+                     handled.indexOf(TestTopic.QUIET),
+                     "The quiet listener should run after the first turn of the busy one");
+    }
+
+    @Test
+    void it_handles_messages_in_parallel_across_lanes_keeping_the_order_of_each_key() throws Exception {
+        Map<Integer, List<Integer>> receivedByKey = new ConcurrentHashMap<>();
+        AtomicInteger               running       = new AtomicInteger();
+        AtomicInteger               maxRunning    = new AtomicInteger();
+        CountDownLatch              all           = new CountDownLatch(200);
+        List<LaneMetrics>           metrics;
+        try ( TopicSender<TestTopic> sender = bus.create(TestTopic.KEYED);
+              TopicReceiver<TestTopic> receiver = bus.subscribe(TestTopic.KEYED) )
+        {
+            KeyedTopicReceiverListener<TestTopic, ? super Integer> listener
+                = receiver.listenByKey(Integer.class, message -> message % 8, 4, (topic, message) -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                receivedByKey.computeIfAbsent(message % 8, key -> new CopyOnWriteArrayList<>()).add(message);
+                sleep(1);
+                running.decrementAndGet();
+                all.countDown();
+            });
+            sender.sendAll(numbers(200));
+            assertTrue(all.await(10, TimeUnit.SECONDS), "Not all messages were handled");
+            // Closing waits for the lanes, so the metrics account for the last message handled
+            listener.close();
+            metrics = listener.getLaneMetrics();
+        }
+        for ( int key = 0; key < 8; key++ ) {
+            int k = key;
+            assertEquals(numbers(200).stream().filter(n -> n % 8 == k).collect(Collectors.toList()),
+                         receivedByKey.get(key),
+                         "Messages of key " + key + " should be handled in the order sent");
+        }
+        assertTrue(maxRunning.get() > 1, "Lanes should have handled messages in parallel");
+        assertTrue(maxRunning.get() <= 4, "At most one message per lane should be handled at once");
+        assertEquals(4, metrics.size(), "Metrics should be reported for each lane");
+        assertEquals(200, metrics.stream().mapToLong(LaneMetrics::getHandledMessages).sum(), "Handled messages");
+        assertEquals(0, metrics.stream().mapToInt(LaneMetrics::getQueueDepth).sum(), "Messages left in the lanes");
+        assertTrue(metrics.stream().allMatch(lane -> lane.getMaxHandlerNanos() >= lane.getAverageHandlerNanos()),
+                   "Maximum handler latency should be at least the average");
+    }
+
+    @Test
+    void it_stops_taking_messages_while_a_lane_is_full() throws Exception {
+        List<Integer>  received = new CopyOnWriteArrayList<>();
+        CountDownLatch started  = new CountDownLatch(1);
+        CountDownLatch release  = new CountDownLatch(1);
+        try ( TopicSender<TestTopic> sender = bus.create(TestTopic.BOUNDED);
+              TopicReceiver<TestTopic> receiver = bus.subscribe(TestTopic.BOUNDED) )
+        {
+            KeyedTopicReceiverListener<TestTopic, ? super Integer> listener
+                = receiver.listenByKey(Integer.class, message -> 0, 1, 4, (topic, message) -> {
+                started.countDown();
+                awaitQuietly(release);
+                received.add(message);
+            });
+            sender.sendAll(numbers(100));
+            assertTrue(started.await(10, TimeUnit.SECONDS), "Handler never started");
+            sleep(300);
+            int queueDepth = listener.getLaneMetrics().get(0).getQueueDepth();
+            assertTrue(queueDepth <= 4, "The lane should hold at most 4 messages: " + queueDepth);
+            release.countDown();
+            for ( long deadline = System.currentTimeMillis() + 10_000;
+                  received.size() < 100 && System.currentTimeMillis() < deadline; )
+                sleep(10);
+            listener.close();
+        }
+        assertEquals(numbers(100), received, "Messages left on the topic should be handled in order once there is room");
+    }
+
+    @Test
+    void it_runs_a_lane_the_executor_rejects_on_the_thread_scheduling_it() throws Exception {
+        List<Integer>  received = new CopyOnWriteArrayList<>();
+        CountDownLatch all      = new CountDownLatch(20);
+        try ( TopicSender<TestTopic> sender = bus.create(TestTopic.REJECTED);
+              TopicReceiver<TestTopic> receiver = bus.subscribe(TestTopic.REJECTED) )
+        {
+            KeyedTopicReceiverListener<TestTopic, ? super Integer> listener
+                = new KeyedTopicReceiverListenerImpl<TestTopic, Integer>(receiver,
+                                                                         Integer.class,
+                                                                         message -> message % 2,
+                                                                         2,
+                                                                         (topic, message) -> {
+                                                                             received.add(message);
+                                                                             all.countDown();
+                                                                         },
+                                                                         lane -> {
+                                                                             throw new RejectedExecutionException();
+                                                                         }) {};
+            sender.sendAll(numbers(20));
+            assertTrue(all.await(10, TimeUnit.SECONDS), "Messages of rejected lanes were not handled");
+            long start = System.nanoTime();
+            listener.close();
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000,
+                       "Rejected lanes should not keep close waiting");
+        }
+        assertEquals(numbers(20), received, "Messages of rejected lanes should be handled in order");
+    }
+
+    private static List<Integer> numbers(int count) {
+        return IntStream.range(0, count).boxed().collect(Collectors.toList());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private enum TestTopic implements TopicEnum<TestTopic>
+    {
+        ORDERED,
+        CONCURRENT,
+        CLOSING,
+        KEYED,
+        BOUNDED,
+        REJECTED,
+        BUSY,
+        QUIET;
+
+        @Override
+        public Optional<String> getGroupName() {
+            return Optional.empty();
+        }
+
+        @Override
+        public String getTopicName() {
+            return name();
+        }
+
+        @Override
+        public Stream<Class<? extends Serializable>> getMessageTypes() {
+            return Stream.of(Integer.class);
+        }
+
+        @Override
+        public ReceiverCardinality getReceiverCardinality() {
+            return ReceiverCardinality.MANY;
+        }
+
+        @Override
+        public SenderCardinality getSenderCardinality() {
+            return SenderCardinality.MANY;
+        }
+
+        @Override
+        public DeliveryRequirement getDeliveryRequirement() {
+            return DeliveryRequirement.EXACTLY_ONE;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.ridgid.oss.message.bus;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Listener that handles messages in parallel across lanes, each message going to the lane of its key, so that
+ * messages with the same key are handled one at a time in the order they were received.
+ *
+ * @param <Topic>       type of the topic enumeration
+ * @param <MessageType> type of the message the listener is expected to receive.
+ */
+@SuppressWarnings("ClassNameSameAsAncestorName")
+public interface KeyedTopicReceiverListener<Topic extends Enum<? super Topic> & TopicEnum<? super Topic>, MessageType extends Serializable>
+    extends TopicReceiverListener<Topic, MessageType>
+{
+    /**
+     * @return number of lanes messages are partitioned into
+     */
+    int getLaneCount();
+
+    /**
+     * @return snapshot of the activity of each lane, in lane order
+     */
+    List<LaneMetrics> getLaneMetrics();
+}
@@ -0,0 +1,99 @@
+package com.ridgid.oss.message.bus;
+
+/**
+ * Snapshot of the activity of one lane of a {@link KeyedTopicReceiverListener}
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public final class LaneMetrics
+{
+    private final int  lane;
+    private final int  queueDepth;
+    private final long handledMessages;
+    private final long failedMessages;
+    private final long totalHandlerNanos;
+    private final long maxHandlerNanos;
+
+    /**
+     * @param lane              index of the lane
+     * @param queueDepth        messages waiting in the lane
+     * @param handledMessages   messages handed to the handler, including those it failed on
+     * @param failedMessages    messages on which the handler threw an exception
+     * @param totalHandlerNanos time spent in the handler
+     * @param maxHandlerNanos   longest time spent in the handler on a single message
+     */
+    public LaneMetrics(int lane,
+                       int queueDepth,
+                       long handledMessages,
+                       long failedMessages,
+                       long totalHandlerNanos,
+                       long maxHandlerNanos)
+    {
+        this.lane              = lane;
+        this.queueDepth        = queueDepth;
+        this.handledMessages   = handledMessages;
+        this.failedMessages    = failedMessages;
+        this.totalHandlerNanos = totalHandlerNanos;
+        this.maxHandlerNanos   = maxHandlerNanos;
+    }
+
+    /**
+     * @return index of the lane, from 0
+     */
+    public int getLane() {
+        return lane;
+    }
+
+    /**
+     * @return messages waiting in the lane for the handler
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return messages handed to the handler, including those it failed on
+     */
+    public long getHandledMessages() {
+        return handledMessages;
+    }
+
+    /**
+     * @return messages on which the handler threw an exception
+     */
+    public long getFailedMessages() {
+        return failedMessages;
+    }
+
+    /**
+     * @return time spent in the handler, in nanoseconds
+     */
+    public long getTotalHandlerNanos() {
+        return totalHandlerNanos;
+    }
+
+    /**
+     * @return average time spent in the handler per message, in nanoseconds; 0 if no message was handled
+     */
+    public long getAverageHandlerNanos() {
+        return handledMessages == 0 ? 0 : totalHandlerNanos / handledMessages;
+    }
+
+    /**
+     * @return longest time spent in the handler on a single message, in nanoseconds
+     */
+    public long getMaxHandlerNanos() {
+        return maxHandlerNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "LaneMetrics{" +
+               "lane=" + lane +
+               ", queueDepth=" + queueDepth +
+               ", handledMessages=" + handledMessages +
+               ", failedMessages=" + failedMessages +
+               ", averageHandlerNanos=" + getAverageHandlerNanos() +
+               ", maxHandlerNanos=" + maxHandlerNanos +
+               '}';
+    }
+}
@@ -6,8 +6,10 @@ import com.ridgid.oss.message.bus.spi.TopicSender;
 import com.ridgid.oss.message.bus.spi.TopicSender.TopicSenderException;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
@@ -129,6 +131,21 @@ public class TopicDelegate<TE extends Enum<TE> & TopicEnum<TE>, TG extends Enum<
         currentSender().send(message);
     }
 
+    /**
+     * Send a batch of messages to the message bus for this Topic, in iteration order
+     *
+     * @param messages to send to the topic
+     * @throws MessageBusException  if problem obtaining a message bus
+     * @throws TopicSenderException if problem sending on the message bus
+     */
+    @SuppressWarnings({"PublicMethodNotExposedInInterface", "MethodWithTooExceptionsDeclared"})
+    public final void sendAll(Collection<? extends Serializable> messages)
+        throws MessageBusException,
+               TopicSenderException
+    {
+        currentSender().sendAll(messages);
+    }
+
     /**
      * Subscribe to the Topic on the available default MessageBus and listen for messages from the Topic.
      *
@@ -147,6 +164,32 @@ public class TopicDelegate<TE extends Enum<TE> & TopicEnum<TE>, TG extends Enum<
                                         consumer);
     }
 
+    /**
+     * Subscribe to the Topic on the available default MessageBus and listen for messages from the Topic, handling
+     * them in parallel across lanes while keeping messages with equal keys in order.
+     *
+     * @param <MT>         message type
+     * @param messageType  class of message type
+     * @param keyExtractor giving the key of each message
+     * @param laneCount    number of lanes, and so of messages handled at once
+     * @param consumer     to accept messages from the bus
+     * @return listener that can be closed when no ready to no longer listen for messages
+     * @throws MessageBusException if unable to obtain receiver or listen for messages
+     * @see TopicReceiver#listenByKey
+     */
+    public <MT extends Serializable>
+    KeyedTopicReceiverListener<TE, ? super MT> listenByKey(Class<? extends MT> messageType,
+                                                           Function<? super MT, ?> keyExtractor,
+                                                           int laneCount,
+                                                           BiConsumer<? super TE, ? super MT> consumer)
+        throws MessageBusException
+    {
+        return currentReceiver().listenByKey(messageType,
+                                             keyExtractor,
+                                             laneCount,
+                                             consumer);
+    }
+
     /**
      * @return name of the tooic group, if any, for this topic
      */
@@ -0,0 +1,309 @@
+package com.ridgid.oss.message.bus.spi;
+
+import com.ridgid.oss.message.bus.KeyedTopicReceiverListener;
+import com.ridgid.oss.message.bus.LaneMetrics;
+import com.ridgid.oss.message.bus.TopicEnum;
+import com.ridgid.oss.message.bus.TopicReceiverListener;
+import com.ridgid.oss.message.bus.spi.TopicReceiver.TopicReceiverException;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Listener for a TopicReceiver that handles messages in parallel across a fixed number of lanes.
+ * <p>
+ * A single listener on the receiver routes each message to the lane of its key, as given by the key extractor; each
+ * lane then handles its messages one at a time, in the order received, on the executor. Messages with equal keys
+ * therefore keep their order while messages with different keys may be handled in parallel. A lane hands back its
+ * thread after {@value #MAX_MESSAGES_PER_TURN} messages so that busy lanes do not starve the others.
+ * <p>
+ * Each lane holds at most {@code laneCapacity} messages. When the lane of a message is full, the listener stops taking
+ * messages from the receiver until the lane has room, running the lane on its own thread if no other thread is
+ * running it, so that messages are left on the topic rather than piling up in memory. A lane the executor rejects is
+ * likewise run on the thread that scheduled it.
+ * <p>
+ * Messages routed to a lane have been taken from the topic: on {@link #close()}, the lanes finish the messages they
+ * hold before the listener is closed. Handler exceptions are logged and counted in the {@link LaneMetrics}.
+ *
+ * @param <Topic>       handled by the listener
+ * @param <MessageType> that will be sent to the handler
+ */
+@SuppressWarnings({"WeakerAccess", "ClassHasNoToStringMethod", "ThisEscapedInObjectConstruction"})
+public class KeyedTopicReceiverListenerImpl<Topic extends Enum<Topic> & TopicEnum<Topic>, MessageType extends Serializable>
+    implements KeyedTopicReceiverListener<Topic, MessageType>
+{
+    /**
+     * Messages a lane handles before handing its thread back to the executor
+     */
+    public static final int MAX_MESSAGES_PER_TURN = TopicReceiver.TopicReceiverListenerImpl.MAX_MESSAGES_PER_TURN;
+
+    /**
+     * Messages a lane holds at most, unless given
+     */
+    public static final int DEFAULT_LANE_CAPACITY = 1_024;
+
+    /**
+     * Time for which {@link #close()} waits for the lanes to finish the messages they hold
+     */
+    public static final long CLOSE_TIMEOUT_MILLIS = TopicReceiver.TopicReceiverListenerImpl.CLOSE_TIMEOUT_MILLIS;
+
+    private static final Logger LOGGER = Logger.getLogger(KeyedTopicReceiverListenerImpl.class.getName());
+
+    private final Topic                                          topic;
+    private final Function<? super MessageType, ?>               keyExtractor;
+    private final BiConsumer<? super Topic, ? super MessageType> handler;
+    private final Executor                                       executor;
+    private final int                                            laneCapacity;
+    private final List<Lane>                                     lanes;
+    private final Set<Thread>                                    laneThreads = ConcurrentHashMap.newKeySet();
+
+    private final TopicReceiverListener<Topic, ? super MessageType> intake;
+
+    private volatile boolean closing = false;
+
+    /**
+     * @param topicReceiver that this listener is listening on
+     * @param messageType   that the handler will receive from the topic
+     * @param keyExtractor  giving the key of each message; messages with equal keys are handled in order
+     * @param laneCount     number of lanes, and so of messages handled at once; at least 1
+     * @param handler       that will be invoked for each message received
+     * @param executor      on which the lanes run the handler
+     */
+    protected KeyedTopicReceiverListenerImpl(TopicReceiver<Topic> topicReceiver,
+                                             Class<? extends MessageType> messageType,
+                                             Function<? super MessageType, ?> keyExtractor,
+                                             int laneCount,
+                                             BiConsumer<? super Topic, ? super MessageType> handler,
+                                             Executor executor)
+    {
+        this(topicReceiver, messageType, keyExtractor, laneCount, DEFAULT_LANE_CAPACITY, handler, executor);
+    }
+
+    /**
+     * @param topicReceiver that this listener is listening on
+     * @param messageType   that the handler will receive from the topic
+     * @param keyExtractor  giving the key of each message; messages with equal keys are handled in order
+     * @param laneCount     number of lanes, and so of messages handled at once; at least 1
+     * @param laneCapacity  number of messages each lane holds at most; at least 1
+     * @param handler       that will be invoked for each message received
+     * @param executor      on which the lanes run the handler
+     */
+    protected KeyedTopicReceiverListenerImpl(TopicReceiver<Topic> topicReceiver,
+                                             Class<? extends MessageType> messageType,
+                                             Function<? super MessageType, ?> keyExtractor,
+                                             int laneCount,
+                                             int laneCapacity,
+                                             BiConsumer<? super Topic, ? super MessageType> handler,
+                                             Executor executor)
+    {
+        if ( laneCount < 1 )
+            throw new IllegalArgumentException("laneCount must be at least 1: " + laneCount);
+        if ( laneCapacity < 1 )
+            throw new IllegalArgumentException("laneCapacity must be at least 1: " + laneCapacity);
+        this.topic        = topicReceiver.getTopic();
+        this.keyExtractor = keyExtractor;
+        this.handler      = handler;
+        this.executor     = executor;
+        this.laneCapacity = laneCapacity;
+        lanes             = new ArrayList<>(laneCount);
+        for ( int i = 0; i < laneCount; i++ )
+              lanes.add(new Lane(i));
+        intake = topicReceiver.listen(messageType, (t, message) -> route(message));
+    }
+
+    @Override
+    public int getLaneCount() {
+        return lanes.size();
+    }
+
+    @Override
+    public List<LaneMetrics> getLaneMetrics() {
+        List<LaneMetrics> metrics = new ArrayList<>(lanes.size());
+        for ( Lane lane : lanes )
+            metrics.add(lane.metrics());
+        return metrics;
+    }
+
+    private void route(MessageType message) {
+        lanes.get(laneOf(keyExtractor.apply(message))).offer(message);
+    }
+
+    private int laneOf(Object key) {
+        int hash = Objects.hashCode(key);
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.size());
+    }
+
+    /**
+     * Stops taking messages from the receiver, then waits up to {@value #CLOSE_TIMEOUT_MILLIS} ms for the lanes to
+     * finish the messages they hold. When called from one of its own handlers, the listener does not wait.
+     *
+     * @throws TopicReceiverException if interrupted, or if the lanes still hold messages after the timeout
+     */
+    @Override
+    public void close() throws TopicReceiverException {
+        closing = true;
+        intake.close();
+        if ( laneThreads.contains(Thread.currentThread()) ) return;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        synchronized ( lanes ) {
+            while ( lanes.stream().anyMatch(Lane::isBusy) ) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if ( remaining <= 0 )
+                    throw new TopicReceiverException(topic, "Listener lanes still hold messages after close timed out");
+                try {
+                    lanes.wait(remaining);
+                } catch ( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    throw new TopicReceiverException(topic, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lane of messages, run by at most one thread at a time: either a task scheduled on the executor, or the thread
+     * offering a message to the lane when it is full, or scheduling it when the executor rejects it. Whichever thread
+     * runs a turn schedules the lane again afterwards if messages remain.
+     */
+    private final class Lane implements Runnable
+    {
+        private final int                        index;
+        private final BlockingQueue<MessageType> queue             = new ArrayBlockingQueue<>(laneCapacity);
+        private final AtomicBoolean              scheduled         = new AtomicBoolean();
+        private final AtomicBoolean              running           = new AtomicBoolean();
+        private final AtomicLong                 handledMessages   = new AtomicLong();
+        private final AtomicLong                 failedMessages    = new AtomicLong();
+        private final AtomicLong                 totalHandlerNanos = new AtomicLong();
+        private final AtomicLong                 maxHandlerNanos   = new AtomicLong();
+
+        private Lane(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Queues the message, blocking the intake while the lane is full: the lane is then run on the intake's thread
+         * if no other thread is running it, since the executor may have no other thread to run it on
+         */
+        private void offer(MessageType message) {
+            try {
+                while ( !queue.offer(message) )
+                    if ( !runTurn()
+                         && queue.offer(message, TopicReceiver.TopicReceiverListenerImpl.POLL_INTERVAL_MILLIS,
+                                        TimeUnit.MILLISECONDS) )
+                        break;
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                LOGGER.log(Level.WARNING,
+                           String.format("KeyedTopicReceiverListenerImpl interrupted, dropped a message of lane %d: %s",
+                                         index,
+                                         topic),
+                           e);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            while ( scheduled.compareAndSet(false, true) ) {
+                try {
+                    executor.execute(this);
+                    return;
+                } catch ( RejectedExecutionException e ) {
+                    scheduled.set(false);
+                    LOGGER.log(Level.WARNING,
+                               String.format("KeyedTopicReceiverListenerImpl running lane %d on the calling thread: %s",
+                                             index,
+                                             topic),
+                               e);
+                    // Unless another thread is running the lane, and so will schedule it after its turn
+                    if ( !runTurn() || queue.isEmpty() ) break;
+                }
+            }
+            notifyIfClosing();
+        }
+
+        @Override
+        public void run() {
+            boolean ran = false;
+            try {
+                ran = runTurn();
+            } finally {
+                scheduled.set(false);
+            }
+            // Messages offered while the lane was finishing its turn could not schedule it; when another thread ran
+            // the turn instead, that thread schedules the lane after it, unless it finished before this task did
+            if ( (ran || !running.get()) && !queue.isEmpty() ) schedule();
+            else notifyIfClosing();
+        }
+
+        @SuppressWarnings("BooleanMethodNameMustStartWithQuestion")
+        private boolean runTurn() {
+            if ( !running.compareAndSet(false, true) ) return false;
+            Thread current = Thread.currentThread();
+            laneThreads.add(current);
+            try {
+                for ( int handled = 0; handled < MAX_MESSAGES_PER_TURN; handled++ ) {
+                    MessageType message = queue.poll();
+                    if ( message == null ) break;
+                    handle(message);
+                }
+            } finally {
+                laneThreads.remove(current);
+                running.set(false);
+            }
+            return true;
+        }
+
+        private void notifyIfClosing() {
+            if ( closing )
+                synchronized ( lanes ) {
+                    lanes.notifyAll();
+                }
+        }
+
+        @SuppressWarnings("OverlyBroadCatchBlock")
+        private void handle(MessageType message) {
+            long start = System.nanoTime();
+            try {
+                handler.accept(topic, message);
+            } catch ( RuntimeException e ) {
+                failedMessages.incrementAndGet();
+                LOGGER.log(Level.WARNING,
+                           String.format("KeyedTopicReceiverListenerImpl handler failed in lane %d: %s", index, topic),
+                           e);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                handledMessages.incrementAndGet();
+                totalHandlerNanos.addAndGet(elapsed);
+                maxHandlerNanos.accumulateAndGet(elapsed, Math::max);
+            }
+        }
+
+        private boolean isBusy() {
+            return scheduled.get() || running.get() || !queue.isEmpty();
+        }
+
+        private LaneMetrics metrics() {
+            return new LaneMetrics(index,
+                                   queue.size(),
+                                   handledMessages.get(),
+                                   failedMessages.get(),
+                                   totalHandlerNanos.get(),
+                                   maxHandlerNanos.get());
+        }
+    }
+}
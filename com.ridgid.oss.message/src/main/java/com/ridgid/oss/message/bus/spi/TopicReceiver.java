@@ -1,13 +1,26 @@
 package com.ridgid.oss.message.bus.spi;
 
+import com.ridgid.oss.message.bus.KeyedTopicReceiverListener;
 import com.ridgid.oss.message.bus.TopicEnum;
 import com.ridgid.oss.message.bus.TopicReceiverListener;
 
 import java.io.Serializable;
 import java.time.Duration;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
-import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -216,6 +229,8 @@ public interface TopicReceiver<Topic extends Enum<Topic> & TopicEnum<Topic>>
      * <p>
      * Listen for messages asynchronously from the topic. The returned listener can be closed which does not directly
      * cancel/close the subscription to the topic for this TopicReceiver.
+     * <p>
+     * The handler is invoked for one message at a time.
      *
      * @param <MessageType> that is expected to be returned from poll. The MessageType must be one of the Message Types supported by the Topic or a Superclass thereof.
      * @param handler       to invoke when a message is received
@@ -226,7 +241,103 @@ public interface TopicReceiver<Topic extends Enum<Topic> & TopicEnum<Topic>>
     TopicReceiverListener<Topic, ? super MessageType> listen(Class<? extends MessageType> messageType,
                                                              BiConsumer<? super Topic, ? super MessageType> handler)
     {
-        return new TopicReceiverListenerImpl<>(this, messageType, handler);
+        return listen(messageType, handler, 1);
+    }
+
+    /**
+     * Listen for a specific message type, invoking the handler for up to {@code maxConcurrentHandlers} messages at
+     * once. Messages are then no longer guaranteed to be handled in the order they were sent.
+     * <p>
+     * By default, the handler runs on the executor shared by all listeners (see
+     * {@link TopicReceiverListenerImpl#setSharedExecutor}), woken by {@link #addMessageAvailableListener} when the
+     * receiver supports it, or else polling every {@value TopicReceiverListenerImpl#POLL_INTERVAL_MILLIS} ms.
+     *
+     * @param <MessageType>         that is expected to be returned from poll. The MessageType must be one of the Message Types supported by the Topic or a Superclass thereof.
+     * @param messageType           class of the expected message
+     * @param handler               to invoke when a message is received
+     * @param maxConcurrentHandlers maximum number of messages handled at once; at least 1
+     * @return closeable listener
+     */
+    default <MessageType extends Serializable>
+    TopicReceiverListener<Topic, ? super MessageType> listen(Class<? extends MessageType> messageType,
+                                                             BiConsumer<? super Topic, ? super MessageType> handler,
+                                                             int maxConcurrentHandlers)
+    {
+        return new TopicReceiverListenerImpl<>(this,
+                                               messageType,
+                                               handler,
+                                               TopicReceiverListenerImpl.sharedExecutor(),
+                                               maxConcurrentHandlers);
+    }
+
+    /**
+     * Listen for a specific message type, handling messages in parallel across {@code laneCount} lanes while
+     * keeping messages with equal keys in the order they were received. Each message is routed to a lane by the
+     * hash of the key given by {@code keyExtractor}, e.g. a {@link com.ridgid.oss.message.SerializableKey} of the
+     * message; each lane handles its messages one at a time on the executor shared by listeners, and holds at most
+     * {@value KeyedTopicReceiverListenerImpl#DEFAULT_LANE_CAPACITY} of them.
+     *
+     * @param <MessageType> that is expected to be returned from poll. The MessageType must be one of the Message Types supported by the Topic or a Superclass thereof.
+     * @param messageType   class of the expected message
+     * @param keyExtractor  giving the key of each message; must be consistent with the key's equals and hashCode
+     * @param laneCount     number of lanes, and so of messages handled at once; at least 1
+     * @param handler       to invoke when a message is received
+     * @return closeable listener reporting the queue depth and handler latency of each lane
+     */
+    default <MessageType extends Serializable>
+    KeyedTopicReceiverListener<Topic, ? super MessageType> listenByKey(Class<? extends MessageType> messageType,
+                                                                       Function<? super MessageType, ?> keyExtractor,
+                                                                       int laneCount,
+                                                                       BiConsumer<? super Topic, ? super MessageType> handler)
+    {
+        return listenByKey(messageType,
+                           keyExtractor,
+                           laneCount,
+                           KeyedTopicReceiverListenerImpl.DEFAULT_LANE_CAPACITY,
+                           handler);
+    }
+
+    /**
+     * Listen for a specific message type, handling messages in parallel across {@code laneCount} lanes of at most
+     * {@code laneCapacity} messages each, while keeping messages with equal keys in the order they were received.
+     * While the lane of a message is full, no more messages are taken from the topic.
+     *
+     * @param <MessageType> that is expected to be returned from poll. The MessageType must be one of the Message Types supported by the Topic or a Superclass thereof.
+     * @param messageType   class of the expected message
+     * @param keyExtractor  giving the key of each message; must be consistent with the key's equals and hashCode
+     * @param laneCount     number of lanes, and so of messages handled at once; at least 1
+     * @param laneCapacity  number of messages each lane holds at most; at least 1
+     * @param handler       to invoke when a message is received
+     * @return closeable listener reporting the queue depth and handler latency of each lane
+     */
+    default <MessageType extends Serializable>
+    KeyedTopicReceiverListener<Topic, ? super MessageType> listenByKey(Class<? extends MessageType> messageType,
+                                                                       Function<? super MessageType, ?> keyExtractor,
+                                                                       int laneCount,
+                                                                       int laneCapacity,
+                                                                       BiConsumer<? super Topic, ? super MessageType> handler)
+    {
+        return new KeyedTopicReceiverListenerImpl<>(this,
+                                                    messageType,
+                                                    keyExtractor,
+                                                    laneCount,
+                                                    laneCapacity,
+                                                    handler,
+                                                    TopicReceiverListenerImpl.sharedExecutor());
+    }
+
+    /**
+     * Registers a listener to be run whenever messages may have become available to poll, so that listeners can be
+     * woken rather than poll. The listener is run on the thread that made the messages available and must return
+     * promptly without blocking.
+     *
+     * @param listener to run when messages may have become available
+     * @return action that removes the listener, or empty if this receiver does not notify listeners; receivers
+     * that cannot notify listeners must be polled
+     */
+    default Optional<Runnable> addMessageAvailableListener(Runnable listener)
+    {
+        return Optional.empty();
     }
 
     /**
@@ -289,7 +400,15 @@ public interface TopicReceiver<Topic extends Enum<Topic> & TopicEnum<Topic>>
     /**
      * Listener for a TopicReceiver.
      * <p>
-     * This permits registering a call-back {@code handler} to receive messages asynchronously from the Topic.
+     * This permits registering a call-back {@code handler} to receive messages asynchronously from the Topic. Rather
+     * than holding a thread per listener, the listener drains the receiver on an executor whenever the receiver
+     * reports that messages are available, running at most {@code maxConcurrentHandlers} handlers at once. Receivers
+     * that cannot report available messages are polled every {@value #POLL_INTERVAL_MILLIS} ms instead. A drain hands
+     * its thread back to the executor after {@value #MAX_MESSAGES_PER_TURN} messages and is resubmitted, so that a
+     * busy topic does not starve the other listeners sharing the executor.
+     * <p>
+     * Handler exceptions are logged and do not stop the listener. After {@value #MAX_CONSECUTIVE_POLL_FAILURES}
+     * consecutive failures to poll the receiver, the listener stops.
      *
      * @param <Topic>       handled by the listener
      * @param <MessageType> that will be sent to the handler
@@ -298,19 +417,54 @@ public interface TopicReceiver<Topic extends Enum<Topic> & TopicEnum<Topic>>
                           "PublicInnerClass",
                           "OverlyNestedMethod",
                           "ClassHasNoToStringMethod",
-                          "CallToThreadStartDuringObjectConstruction",
-                          "WeakerAccess"
+                          "WeakerAccess",
+                          "ThisEscapedInObjectConstruction"
                       })
     class TopicReceiverListenerImpl<Topic extends Enum<Topic> & TopicEnum<? super Topic>, MessageType extends Serializable>
         implements TopicReceiverListener<Topic, MessageType>
     {
+        /**
+         * System property setting the number of threads of the executor shared by listeners; defaults to the number
+         * of available processors
+         */
+        public static final String LISTENER_THREADS = "com.ridgid.oss.message.bus.listenerThreads";
+
+        /**
+         * Interval at which listeners poll receivers that do not report available messages
+         */
+        public static final long POLL_INTERVAL_MILLIS = 100;
+
+        /**
+         * Time for which {@link #close()} waits for the handlers that are running to complete
+         */
+        public static final long CLOSE_TIMEOUT_MILLIS = 30_000;
+
+        /**
+         * Number of consecutive failures to poll the receiver after which the listener stops
+         */
+        public static final int MAX_CONSECUTIVE_POLL_FAILURES = 30;
+
+        /**
+         * Messages a drain handles before handing its thread back to the executor
+         */
+        public static final int MAX_MESSAGES_PER_TURN = 64;
+
+        private static final Object   sharedExecutorLock = new Object();
+        private static       Executor sharedExecutor;
+
         private final TopicReceiver<? extends Topic>                 topicReceiver;
         private final Class<? extends MessageType>                   messageType;
         private final BiConsumer<? super Topic, ? super MessageType> handler;
-        private final Thread                                         pollThread;
+        private final Executor                                       executor;
+        private final int                                            maxConcurrentHandlers;
         private final Logger                                         logger;
+        private final AtomicInteger                                  activeDrains        = new AtomicInteger();
+        private final AtomicBoolean                                  signalled           = new AtomicBoolean();
+        private final AtomicInteger                                  consecutiveFailures = new AtomicInteger();
+        private final Set<Thread>                                    drainingThreads     = ConcurrentHashMap.newKeySet();
 
-        private boolean cancel = false;
+        private volatile boolean  cancel = false;
+        private volatile Runnable stopWakeups;
 
         /**
          * @param topicReceiver that this listener is listening on
@@ -321,52 +475,208 @@ public interface TopicReceiver<Topic extends Enum<Topic> & TopicEnum<Topic>>
                                             Class<? extends MessageType> messageType,
                                             BiConsumer<? super Topic, ? super MessageType> handler)
         {
-            this.topicReceiver = topicReceiver;
-            this.messageType   = messageType;
-            this.handler       = handler;
-            logger             = Logger.getLogger(TopicReceiver.class.getName());
-            pollThread         = new Thread(this::poll);
-            pollThread.start();
+            this(topicReceiver, messageType, handler, sharedExecutor(), 1);
         }
 
-        private void poll() {
-            Consumer<? super MessageType> process        = msg -> handler.accept(topicReceiver.getTopic(), msg);
-            int                           exceptionCount = 0;
-            while ( true )
-                try {
-                    if ( cancel ) return;
-                    topicReceiver.poll(messageType,
-                                       1_000)
-                                 .ifPresent(process);
-                    exceptionCount = 0;
-                } catch ( TopicReceiverException e ) {
-                    //noinspection ValueOfIncrementOrDecrementUsed,MagicNumber
-                    if ( ++exceptionCount > 30 ) {
-                        logger.log(Level.INFO,
-                                   String.format("TopicReceiverListenerImpl Failed: %s - %s",
-                                                 topicReceiver.getTopic(),
-                                                 e.getMessage())
-                                  );
-                        throw new ThreadDeath();
-                    }
-                    try {
-                        //noinspection BusyWait
-                        Thread.sleep(1000);
-                    } catch ( InterruptedException ignore ) {
+        /**
+         * @param topicReceiver         that this listener is listening on
+         * @param messageType           that the handler will receive from the topic
+         * @param handler               that will be invoked whenever a new message is received
+         * @param executor              on which to run the handler
+         * @param maxConcurrentHandlers maximum number of messages handled at once; at least 1
+         */
+        protected TopicReceiverListenerImpl(TopicReceiver<? extends Topic> topicReceiver,
+                                            Class<? extends MessageType> messageType,
+                                            BiConsumer<? super Topic, ? super MessageType> handler,
+                                            Executor executor,
+                                            int maxConcurrentHandlers)
+        {
+            if ( maxConcurrentHandlers < 1 )
+                throw new IllegalArgumentException("maxConcurrentHandlers must be at least 1: " + maxConcurrentHandlers);
+            this.topicReceiver         = topicReceiver;
+            this.messageType           = messageType;
+            this.handler               = handler;
+            this.executor              = executor;
+            this.maxConcurrentHandlers = maxConcurrentHandlers;
+            logger                     = Logger.getLogger(TopicReceiver.class.getName());
+            stopWakeups                = topicReceiver.addMessageAvailableListener(this::signal)
+                                                      .orElseGet(this::pollPeriodically);
+            // Drain the messages sent before the listener was registered
+            signal();
+        }
+
+        /**
+         * Sets the executor on which listeners created afterwards run their handlers, unless given their own
+         *
+         * @param executor to share between listeners
+         */
+        public static void setSharedExecutor(Executor executor) {
+            synchronized ( sharedExecutorLock ) {
+                sharedExecutor = Objects.requireNonNull(executor, "executor");
+            }
+        }
+
+        /**
+         * @return the executor shared by listeners, creating a pool of {@value #LISTENER_THREADS} daemon threads if
+         * none has been set
+         */
+        public static Executor sharedExecutor() {
+            synchronized ( sharedExecutorLock ) {
+                if ( sharedExecutor == null )
+                    sharedExecutor = Executors.newFixedThreadPool
+                        (
+                            Math.max(1, Integer.getInteger(LISTENER_THREADS,
+                                                           Runtime.getRuntime().availableProcessors())),
+                            daemonThreads("TopicReceiverListener-")
+                        );
+                return sharedExecutor;
+            }
+        }
+
+        private static ThreadFactory daemonThreads(String namePrefix) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+
+        private Runnable pollPeriodically() {
+            ScheduledFuture<?> polling = Poller.INSTANCE.scheduleWithFixedDelay(this::signal,
+                                                                                POLL_INTERVAL_MILLIS,
+                                                                                POLL_INTERVAL_MILLIS,
+                                                                                TimeUnit.MILLISECONDS);
+            return () -> polling.cancel(false);
+        }
+
+        private void signal() {
+            if ( cancel ) return;
+            signalled.set(true);
+            startDrain();
+        }
+
+        private void startDrain() {
+            for ( int active = activeDrains.get(); active < maxConcurrentHandlers; active = activeDrains.get() )
+                  if ( activeDrains.compareAndSet(active, active + 1) ) {
+                      try {
+                          executor.execute(this::drain);
+                      } catch ( RejectedExecutionException e ) {
+                          drained();
+                          logger.log(Level.WARNING,
+                                     String.format("TopicReceiverListenerImpl unable to handle messages: %s",
+                                                   topicReceiver.getTopic()),
+                                     e);
+                      }
+                      return;
+                  }
+        }
+
+        private void drain() {
+            Thread current = Thread.currentThread();
+            drainingThreads.add(current);
+            try {
+                int handled = 0;
+                do {
+                    signalled.set(false);
+                    // Each message handled may leave more behind it, so let another handler start on them
+                    while ( !cancel && handleNext() ) {
+                        if ( ++handled == MAX_MESSAGES_PER_TURN ) {
+                            // Messages may remain: end the turn, and resubmit the drain behind the other tasks
+                            signalled.set(true);
+                            break;
+                        }
+                        startDrain();
                     }
+                } while ( !cancel && handled < MAX_MESSAGES_PER_TURN && signalled.get() );
+            } finally {
+                drainingThreads.remove(current);
+                drained();
+            }
+            // A signal that arrived while this drain was finishing, or the end of its turn, could not start another one
+            if ( !cancel && signalled.get() ) startDrain();
+        }
+
+        private void drained() {
+            if ( activeDrains.decrementAndGet() == 0 && cancel )
+                synchronized ( activeDrains ) {
+                    activeDrains.notifyAll();
                 }
         }
 
+        @SuppressWarnings({"OverlyBroadCatchBlock", "BooleanMethodNameMustStartWithQuestion"})
+        private boolean handleNext() {
+            Optional<? extends MessageType> message;
+            try {
+                message = topicReceiver.poll(messageType, 0);
+                consecutiveFailures.set(0);
+            } catch ( TopicReceiverException e ) {
+                pollFailed(e);
+                return false;
+            }
+            if ( !message.isPresent() ) return false;
+            try {
+                handler.accept(topicReceiver.getTopic(), message.get());
+            } catch ( RuntimeException e ) {
+                logger.log(Level.WARNING,
+                           String.format("TopicReceiverListenerImpl handler failed: %s", topicReceiver.getTopic()),
+                           e);
+            }
+            return true;
+        }
+
+        private void pollFailed(TopicReceiverException e) {
+            if ( consecutiveFailures.incrementAndGet() < MAX_CONSECUTIVE_POLL_FAILURES ) return;
+            logger.log(Level.INFO,
+                       String.format("TopicReceiverListenerImpl Failed: %s - %s",
+                                     topicReceiver.getTopic(),
+                                     e.getMessage())
+                      );
+            stop();
+        }
+
+        private void stop() {
+            cancel = true;
+            Runnable stop = stopWakeups;
+            if ( stop != null ) stop.run();
+        }
+
+        /**
+         * Stops taking messages from the receiver and waits up to {@value #CLOSE_TIMEOUT_MILLIS} ms for the handlers
+         * that are running to complete. When called from one of its own handlers, the listener does not wait.
+         *
+         * @throws TopicReceiverException if interrupted, or if handlers are still running after the timeout
+         */
         @Override
         public void close() throws TopicReceiverException {
-            cancel = true;
-            try {
-                //noinspection MagicNumber
-                pollThread.join(2_000);
-            } catch ( InterruptedException e ) {
-                //noinspection unchecked
-                throw new TopicReceiverException(topicReceiver.getTopic(), e);
+            stop();
+            if ( drainingThreads.contains(Thread.currentThread()) ) return;
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+            synchronized ( activeDrains ) {
+                while ( activeDrains.get() > 0 ) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if ( remaining <= 0 )
+                        //noinspection unchecked
+                        throw new TopicReceiverException(topicReceiver.getTopic(),
+                                                         "Listener handlers still running after close timed out");
+                    try {
+                        activeDrains.wait(remaining);
+                    } catch ( InterruptedException e ) {
+                        Thread.currentThread().interrupt();
+                        //noinspection unchecked
+                        throw new TopicReceiverException(topicReceiver.getTopic(), e);
+                    }
+                }
             }
         }
+
+        /**
+         * Wakes the listeners of receivers that do not report available messages
+         */
+        private static final class Poller
+        {
+            private static final ScheduledExecutorService INSTANCE
+                = Executors.newSingleThreadScheduledExecutor(daemonThreads("TopicReceiverListener-poller-"));
+        }
     }
 }
@@ -3,6 +3,8 @@ package com.ridgid.oss.message.bus.spi;
 import com.ridgid.oss.message.bus.TopicEnum;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Topic Sender that permits sending messages to a topic.
@@ -34,6 +36,47 @@ public interface TopicSender<Topic extends Enum<Topic> & TopicEnum<Topic>>
      */
     <MessageType extends Serializable> void send(MessageType message) throws TopicSenderException;
 
+    /**
+     * Send a batch of messages to the topic, in iteration order.
+     * <p>
+     * The same non-blocking requirements as {@link #send(Serializable)} apply. Implementations should override this
+     * to send the batch at the cost of a single send where the transport allows it; the default sends each message
+     * in turn, so messages preceding a failed one remain sent.
+     *
+     * @param messages messages to send
+     * @throws TopicSenderException if a MessageType is not compatible/sendable for the Topic or if there is an internal error.
+     */
+    default void sendAll(Collection<? extends Serializable> messages) throws TopicSenderException
+    {
+        for ( Serializable message : messages )
+            send(message);
+    }
+
+    /**
+     * Send a message to the topic, returning a future completed once the message has been handed to the transport.
+     * <p>
+     * Unlike {@link #send(Serializable)}, failures are reported through the returned future rather than thrown.
+     * Implementations whose transport acknowledges messages should override this to complete the future on
+     * acknowledgement; the default completes it as soon as {@link #send(Serializable)} returns.
+     *
+     * @param message       message to send
+     * @param <MessageType> of message
+     * @return future completed normally once the message is sent, or exceptionally with a
+     * {@link TopicSenderException} if it could not be
+     */
+    @SuppressWarnings("OverlyBroadCatchBlock")
+    default <MessageType extends Serializable> CompletableFuture<Void> sendAsync(MessageType message)
+    {
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        try {
+            send(message);
+            sent.complete(null);
+        } catch ( Exception e ) {
+            sent.completeExceptionally(e);
+        }
+        return sent;
+    }
+
     /**
      * Thrown by the MessageBus SPI interface when there is a failure to create or subscribe to a topic.
      */
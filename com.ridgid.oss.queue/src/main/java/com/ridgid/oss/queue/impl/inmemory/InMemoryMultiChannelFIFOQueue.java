@@ -11,6 +11,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -39,6 +40,8 @@ public class InMemoryMultiChannelFIFOQueue<BaseMessageType extends Serializable>
     ConcurrentMap<Class<? extends BaseMessageType>, ConcurrentLinkedQueue<Timestamped<? extends BaseMessageType>>>
         queues;
 
+    private final Collection<Runnable> sendListeners = new CopyOnWriteArrayList<>();
+
     /**
      * Construct a single-channel queue where the single channel will handle all messages
      *
@@ -157,16 +160,44 @@ public class InMemoryMultiChannelFIFOQueue<BaseMessageType extends Serializable>
         }
     }
 
-    @SuppressWarnings("NakedNotify")
     @Override
     public <MessageType extends BaseMessageType>
     void sendUnchecked(MessageType message)
         throws MultiChannelFIFOQueueException
     {
         queueMessageToMostAppropriateQueue(message);
+        notifyReceivers();
+    }
+
+    /**
+     * Queues the whole batch before waking the waiting receivers once
+     */
+    @Override
+    public void sendAllUnchecked(Collection<? extends BaseMessageType> messages)
+        throws MultiChannelFIFOQueueException
+    {
+        if ( messages.isEmpty() ) return;
+        try {
+            for ( BaseMessageType message : messages )
+                queueMessageToMostAppropriateQueue(message);
+        } finally {
+            notifyReceivers();
+        }
+    }
+
+    @Override
+    public Optional<Runnable> addSendListener(Runnable listener) {
+        sendListeners.add(listener);
+        return Optional.of(() -> sendListeners.remove(listener));
+    }
+
+    @SuppressWarnings("NakedNotify")
+    private void notifyReceivers() {
         synchronized ( queues ) {
             queues.notifyAll();
         }
+        for ( Runnable listener : sendListeners )
+            listener.run();
     }
 
     private <MessageType extends BaseMessageType>
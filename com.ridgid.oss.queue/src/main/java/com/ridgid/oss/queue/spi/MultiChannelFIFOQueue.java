@@ -3,6 +3,7 @@ package com.ridgid.oss.queue.spi;
 import com.ridgid.oss.spi.SPIServiceException;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -148,6 +149,44 @@ public interface MultiChannelFIFOQueue<BaseMessageType extends Serializable>
     <MessageType extends BaseMessageType>
     void sendUnchecked(MessageType message) throws MultiChannelFIFOQueueException;
 
+    /**
+     * Sends a batch of messages in iteration order. Every message is validated before any is sent, so a batch
+     * containing an unsupported message type is rejected as a whole.
+     *
+     * @param messages to send
+     * @throws MultiChannelFIFOQueueException for any error resulting in the loss of messages
+     */
+    default void sendAll(Collection<? extends BaseMessageType> messages) throws MultiChannelFIFOQueueException {
+        for ( BaseMessageType message : messages )
+            validateSendMessageType(message);
+        sendAllUnchecked(messages);
+    }
+
+    /**
+     * Sends a batch of messages in iteration order. Implementations should override this to queue the batch at the
+     * cost of a single send, e.g. waking waiting receivers once rather than once per message.
+     *
+     * @param messages to send
+     * @throws MultiChannelFIFOQueueException for any error resulting in the loss of messages
+     */
+    default void sendAllUnchecked(Collection<? extends BaseMessageType> messages)
+        throws MultiChannelFIFOQueueException
+    {
+        for ( BaseMessageType message : messages )
+            sendUnchecked(message);
+    }
+
+    /**
+     * Registers a listener to be run, on the sending thread, after each send or batch of sends to the queue, so
+     * receivers can be woken instead of polling. Listeners must return promptly and must not block.
+     *
+     * @param listener to run after messages are sent
+     * @return action that removes the listener, or empty if this queue does not notify listeners
+     */
+    default Optional<Runnable> addSendListener(Runnable listener) {
+        return Optional.empty();
+    }
+
     /**
      * Exception thrown by MultiChannelFIFOQueue
      */
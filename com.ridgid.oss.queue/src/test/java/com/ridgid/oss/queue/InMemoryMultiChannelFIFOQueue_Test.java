@@ -10,6 +10,7 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.ridgid.oss.common.function.Consumers.uncheck;
 import static java.lang.System.out;
@@ -319,6 +320,60 @@ class InMemoryMultiChannelFIFOQueue_Test
                    "Should have already consumed all messages");
     }
 
+    @Test
+    void it_sends_a_batch_in_order_and_polls_it_back_in_the_same_order() throws MultiChannelFIFOQueueException {
+        fifoFromStream.sendAll(asList(testMessages));
+        for ( DummyBase msg : testMessages )
+            assertSame(msg,
+                       fifoFromStream.poll(DummyBase.class).orElse(null),
+                       "Different message received than what was expected based on order sent");
+        assertNull(fifoFromStream.poll(DummyBase.class).orElse(null),
+                   "Should have already consumed all messages");
+    }
+
+    @Test
+    void it_rejects_the_whole_batch_when_any_message_is_of_a_type_that_is_not_configured()
+        throws MultiChannelFIFOQueueException
+    {
+        assertThrows
+            (
+                MultiChannelFIFOQueueException.class,
+                () -> fifoFromStream.sendAll(asList(new DummyChild_1(), new DummyChild_Unused()))
+            );
+        assertNull(fifoFromStream.poll(DummyBase.class).orElse(null),
+                   "No message of a rejected batch should have been sent");
+    }
+
+    @Test
+    void it_wakes_a_waiting_receiver_when_a_batch_is_sent() throws Exception {
+        Thread sender = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                fifoFromStream.sendAll(asList(testMessages));
+            } catch ( InterruptedException | MultiChannelFIFOQueueException e ) {
+                throw new IllegalStateException(e);
+            }
+        });
+        sender.start();
+        assertSame(testMessages[0],
+                   fifoFromStream.poll(DummyBase.class, 10_000).orElse(null),
+                   "Waiting receiver should have received the first message of the batch");
+        sender.join();
+    }
+
+    @Test
+    void it_runs_send_listeners_once_per_send_or_batch_until_they_are_removed() throws MultiChannelFIFOQueueException {
+        AtomicInteger notifications = new AtomicInteger();
+        Runnable      removal       = fifoFromStream.addSendListener(notifications::incrementAndGet)
+                                                    .orElseThrow(IllegalStateException::new);
+        fifoFromStream.send(testMessages[0]);
+        fifoFromStream.sendAll(asList(testMessages));
+        assertEquals(2, notifications.get(), "Listener should run once per send and once per batch");
+        removal.run();
+        fifoFromStream.send(testMessages[0]);
+        assertEquals(2, notifications.get(), "Removed listener should no longer run");
+    }
+
     @Test
     void it_throws_exception_when_attempt_is_made_to_send_a_message_of_a_type_that_is_not_configured() {
         assertThrows